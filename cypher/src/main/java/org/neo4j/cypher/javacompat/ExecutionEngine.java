@@ -85,4 +85,32 @@ public class ExecutionEngine
     {
         return new ExecutionResult(inner.execute(query, params));
     }
+
+    /**
+     * Executes a query to completion, measuring the rows, db hits and time spent in each
+     * step of its execution plan. The measurements are found in
+     * {@link ExecutionResult#executionPlanDescription()} of the returned result.
+     * @param query The query to profile
+     * @return A ExecutionResult that contains the result set and the profiled execution plan
+     * @throws org.neo4j.cypher.SyntaxException If the Query contains errors,
+     * a SyntaxException exception might be thrown
+     */
+    public ExecutionResult profile( String query ) throws SyntaxException
+    {
+        return new ExecutionResult(inner.profile( query ));
+    }
+
+    /**
+     * Executes a query to completion, measuring the rows, db hits and time spent in each
+     * step of its execution plan.
+     * @param query The query to profile
+     * @param params Parameters for the query
+     * @return A ExecutionResult that contains the result set and the profiled execution plan
+     * @throws org.neo4j.cypher.SyntaxException If the Query contains errors,
+     * a SyntaxException exception might be thrown
+     */
+    public ExecutionResult profile( String query, Map<String, Object> params) throws SyntaxException
+    {
+        return new ExecutionResult(inner.profile(query, params));
+    }
 }
@@ -95,4 +95,16 @@ public class ExecutionResult implements Iterable<Map<String,Object>>
         inner.dumpToString( writer );
     }
 
+    /**
+     * The execution plan of the query that produced this result. For profiled queries,
+     * every step of the plan is followed by the rows it produced, the db hits it caused
+     * and the time spent in it.
+     *
+     * @return the execution plan, one step per line.
+     */
+    public String executionPlanDescription()
+    {
+        return inner.executionPlanDescription();
+    }
+
 }
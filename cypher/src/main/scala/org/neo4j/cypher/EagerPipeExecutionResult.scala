@@ -29,8 +29,9 @@ class EagerPipeExecutionResult(r: => Traversable[Map[String, Any]],
                                symbols: SymbolTable,
                                columns: List[String],
                                state: QueryState,
-                               db: GraphDatabaseService)
-  extends PipeExecutionResult(r, symbols, columns) {
+                               db: GraphDatabaseService,
+                               planDescription: String = "")
+  extends PipeExecutionResult(r, symbols, columns, planDescription) {
 
   override lazy val queryStatistics = QueryStatistics(
     nodesCreated = state.createdNodes.count,
@@ -57,6 +57,19 @@ class ExecutionEngine(graph: GraphDatabaseService) {
   @throws(classOf[SyntaxException])
   def execute(query: String, params: JavaMap[String, Any]): ExecutionResult = execute(query, params.asScala.toMap)
 
+  /*
+  Profiled plans keep the numbers they measure in their pipes, so they are built for every query and never cached.
+   */
+  @throws(classOf[SyntaxException])
+  def profile(query: String): ExecutionResult = profile(query, Map[String, Any]())
+
+  @throws(classOf[SyntaxException])
+  def profile(query: String, params: Map[String, Any]): ExecutionResult =
+    new ExecutionPlanImpl(parser.parse(query), graph, profiling = true).execute(params)
+
+  @throws(classOf[SyntaxException])
+  def profile(query: String, params: JavaMap[String, Any]): ExecutionResult = profile(query, params.asScala.toMap)
+
   @throws(classOf[SyntaxException])
   def prepare(query: String): ExecutionPlan = executionPlanCache.getOrElseUpdate(query, new ExecutionPlanImpl(parser.parse(query), graph))
 
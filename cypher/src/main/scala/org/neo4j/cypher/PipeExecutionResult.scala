@@ -29,7 +29,7 @@ import internal.symbols.SymbolTable
 import collection.Map
 import collection.immutable.{Map => ImmutableMap}
 
-class PipeExecutionResult(r: => Traversable[Map[String, Any]], val symbols: SymbolTable, val columns: List[String])
+class PipeExecutionResult(r: => Traversable[Map[String, Any]], val symbols: SymbolTable, val columns: List[String], planDescription: String = "")
   extends ExecutionResult
   with StringExtras
   with IterableSupport {
@@ -157,5 +157,7 @@ class PipeExecutionResult(r: => Traversable[Map[String, Any]], val symbols: Symb
   def next(): ImmutableMap[String, Any] = iterator.next()
 
   lazy val queryStatistics = QueryStatistics.empty
+
+  def executionPlanDescription(): String = planDescription
 }
 
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.commands
+
+import collection.Map
+import org.neo4j.cypher.internal.Comparer
+import org.neo4j.cypher.EntityNotFoundException
+import org.neo4j.graphdb.{NotFoundException, PropertyContainer}
+
+/**
+ * Turns expression and predicate trees into closures once, at plan time, instead of interpreting the
+ * tree for every row. Literals are read and constant arithmetic is folded while compiling. The keys of
+ * parameters are built up front. Comparisons and boolean operators call their compiled operands directly.
+ *
+ * Expressions and predicates that are not specialized here are evaluated the normal way, so compiling
+ * never changes what an expression evaluates to.
+ */
+object ExpressionCompiler extends Comparer {
+  type CompiledExpression = Map[String, Any] => Any
+  type CompiledPredicate = Map[String, Any] => Boolean
+
+  def compile(e: Expression): CompiledExpression = e match {
+    case Literal(v) => constant(v)
+
+    case p@ParameterExpression(name) => {
+      val key = "-=PARAMETER=-" + name + "-=PARAMETER=-"
+      m => m.get(key) match {
+        case Some(ParameterValue(x)) => x
+        case _                       => p(m) // Throws the parameter not found error
+      }
+    }
+
+    case Entity(name) => m => m.getOrElse(name, throw new NotFoundException("Failed to find `" + name + "`"))
+
+    case p@Property(entity, property) => {
+      val cached = p.identifier.name
+      m => m.get(cached) match {
+        case Some(v) => v
+        case None    => readProperty(m(entity).asInstanceOf[PropertyContainer], property)
+      }
+    }
+
+    case op@Subtract(a, b) => arithmetic(op, a, b)
+    case op@Multiply(a, b) => arithmetic(op, a, b)
+    case op@Divide(a, b)   => arithmetic(op, a, b)
+    case op@Modulo(a, b)   => arithmetic(op, a, b)
+    case op@Pow(a, b)      => arithmetic(op, a, b)
+
+    case _ => e
+  }
+
+  def compile(p: Predicate): CompiledPredicate = p match {
+    case True() => m => true
+
+    case And(a, b) => {
+      val left = compile(a)
+      val right = compile(b)
+      m => left(m) && right(m)
+    }
+
+    case Or(a, b) => {
+      val left = compile(a)
+      val right = compile(b)
+      m => left(m) || right(m)
+    }
+
+    case Not(a) => {
+      val inner = compile(a)
+      m => !inner(m)
+    }
+
+    case Equals(a, Literal(v)) if !IsIterable.unapply(v).isDefined => {
+      val left = compile(a)
+      m => left(m) == v
+    }
+
+    case Equals(Literal(v), b) if !IsIterable.unapply(v).isDefined => {
+      val right = compile(b)
+      m => v == right(m)
+    }
+
+    case c@LessThan(a, b)           => comparison(c, a, b)
+    case c@GreaterThan(a, b)        => comparison(c, a, b)
+    case c@LessThanOrEqual(a, b)    => comparison(c, a, b)
+    case c@GreaterThanOrEqual(a, b) => comparison(c, a, b)
+
+    case _ => m => p.isMatch(m)
+  }
+
+  private def constant(v: Any): CompiledExpression = m => v
+
+  private def readProperty(propertyContainer: PropertyContainer, property: String): Any = propertyContainer match {
+    case null => null
+    case _    => try {
+      propertyContainer.getProperty(property)
+    } catch {
+      case x: NotFoundException => throw new EntityNotFoundException("The property '%s' does not exist on %s".format(property, propertyContainer), x)
+    }
+  }
+
+  private def arithmetic(op: Arithmetics, a: Expression, b: Expression): CompiledExpression = (a, b) match {
+    case (Literal(x: Number), Literal(y: Number)) => constant(op.numberWithNumber(x, y))
+
+    case _ => {
+      val cached = op.identifier.name
+      val left = compile(a)
+      val right = compile(b)
+
+      m => m.get(cached) match {
+        case Some(v) => v
+        case None    => {
+          val aVal = left(m)
+          val bVal = right(m)
+
+          (aVal, bVal) match {
+            case (x: Number, y: Number) => op.numberWithNumber(x, y)
+            case (x: String, y: String) => op.stringWithString(x, y)
+            case _                      => op.throwTypeError(bVal, aVal)
+          }
+        }
+      }
+    }
+  }
+
+  private def comparison(c: ComparablePredicate, a: Expression, b: Expression): CompiledPredicate = {
+    val left = compile(a)
+    val right = compile(b)
+    m => c.compare(compare(left(m), right(m)))
+  }
+}
@@ -26,7 +26,9 @@ import org.neo4j.graphalgo.GraphAlgoFactory
 import scala.collection.JavaConverters._
 import org.neo4j.cypher.SyntaxException
 import org.neo4j.kernel.Traversal
-import org.neo4j.graphdb.{Path, DynamicRelationshipType, Node, Expander}
+import org.neo4j.graphdb.{Path, DynamicRelationshipType, Node, Expander, Relationship, PropertyContainer}
+import org.neo4j.cypher.PathImpl
+import collection.mutable.ListBuffer
 
 case class ShortestPathExpression(ast: ShortestPath) extends Expression with PathExtractor {
   val pathPattern:Seq[Pattern] = Seq(ast)
@@ -73,7 +75,12 @@ case class ShortestPathExpression(ast: ShortestPath) extends Expression with Pat
     }
   }
 
-  val foo = if (ast.single)
+  val foo = newFinder()
+
+  /**
+   * Path finders keep state between searches, so every thread searching concurrently needs its own
+   */
+  def newFinder(): FOO = if (ast.single)
     new SingleShortestPathFOO(expander, ast.maxDepth.getOrElse(15))
   else
     new AllShortestPathsFOO(expander, ast.maxDepth.getOrElse(15))
@@ -82,6 +89,11 @@ case class ShortestPathExpression(ast: ShortestPath) extends Expression with Pat
 
 trait FOO {
   def findResult(start: Node, end: Node): Stream[Path]
+
+  /**
+   * Finds the paths from one start node to several end nodes
+   */
+  def findResults(start: Node, ends: Seq[Node]): Seq[(Node, Stream[Path])] = ends.map(end => end -> findResult(start, end))
 }
 
 class SingleShortestPathFOO(expander: Expander, depth: Int) extends FOO {
@@ -90,6 +102,68 @@ class SingleShortestPathFOO(expander: Expander, depth: Int) extends FOO {
   def findResult(start: Node, end: Node): Stream[Path] = {
     Option(finder.findSinglePath(start, end)).toStream
   }
+
+  /*
+  With many end nodes for the same start node, one breadth first search from the start node
+  finds them all, instead of one bidirectional search per end node.
+   */
+  override def findResults(start: Node, ends: Seq[Node]): Seq[(Node, Stream[Path])] = {
+    val targets = ends.filterNot(_ == start).toSet
+
+    if (targets.size < SingleShortestPathFOO.MIN_SHARED_TARGETS) {
+      super.findResults(start, ends)
+    } else {
+      val found = breadthFirst(start, targets)
+      ends.map(end => end -> (if (end == start) findResult(start, end) else found.get(end).toStream))
+    }
+  }
+
+  private def breadthFirst(start: Node, targets: Set[Node]): collection.Map[Node, Path] = {
+    val parents = new java.util.HashMap[Node, Relationship]()
+    val found = collection.mutable.Map[Node, Path]()
+    var frontier = List(start)
+    var currentDepth = 0
+
+    parents.put(start, null)
+
+    while (frontier.nonEmpty && currentDepth < depth && found.size < targets.size) {
+      currentDepth += 1
+      val next = new ListBuffer[Node]
+
+      frontier.foreach(node => expander.expand(node).asScala.foreach(rel => {
+        val other = rel.getOtherNode(node)
+        if (!parents.containsKey(other)) {
+          parents.put(other, rel)
+          next += other
+          if (targets.contains(other)) {
+            found(other) = pathTo(other, parents)
+          }
+        }
+      }))
+
+      frontier = next.toList
+    }
+
+    found
+  }
+
+  private def pathTo(end: Node, parents: java.util.HashMap[Node, Relationship]): Path = {
+    var entities: List[PropertyContainer] = List(end)
+    var node = end
+    var rel = parents.get(node)
+
+    while (rel != null) {
+      node = rel.getOtherNode(node)
+      entities = node :: rel :: entities
+      rel = parents.get(node)
+    }
+
+    PathImpl(entities: _*)
+  }
+}
+
+object SingleShortestPathFOO {
+  val MIN_SHARED_TARGETS = 4
 }
 
 class AllShortestPathsFOO(expander: Expander, depth: Int) extends FOO {
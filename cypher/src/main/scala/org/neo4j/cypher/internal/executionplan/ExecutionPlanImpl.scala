@@ -27,8 +27,9 @@ import org.neo4j.cypher._
 import internal.commands._
 import collection.mutable.{Map => MutableMap}
 import internal.symbols.SymbolTable
+import org.neo4j.kernel.GraphDatabaseAPI
 
-class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends ExecutionPlan {
+class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService, profiling: Boolean = false) extends ExecutionPlan {
   val (executionPlan, executionPlanText) = prepareExecutionPlan()
 
   def execute(params: Map[String, Any]): ExecutionResult = executionPlan(params)
@@ -36,7 +37,8 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
   private def prepareExecutionPlan(): ((Map[String, Any]) => ExecutionResult, String) = {
 
     var continue = true
-    var planInProgress = ExecutionPlanInProgress(PartiallySolvedQuery(inputQuery), new ParameterPipe(), false)
+    var planInProgress = ExecutionPlanInProgress(PartiallySolvedQuery(inputQuery), profiled(new ParameterPipe(), None), false)
+    val slotNames = collection.mutable.LinkedHashSet[String]()
 
     while (continue) {
       while (builders.exists(_.canWorkWith(planInProgress))) {
@@ -49,7 +51,8 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
           throw new InternalException("Something went wrong trying to build your query. The offending builder was: " + builder.getClass.getSimpleName)
         }
 
-        planInProgress = newPlan
+        planInProgress = newPlan.copy(pipe = profiled(newPlan.pipe, Some(planInProgress.pipe)))
+        slotNames ++= newPlan.pipe.symbols.keys
       }
 
       if (!planInProgress.query.isSolved) {
@@ -62,19 +65,37 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
       }
     }
 
+    // Every identifier any pipe produces gets a fixed slot in the rows of this plan
+    val slots = SlotLayout(slotNames.toSeq)
     val columns = getQueryResultColumns(inputQuery, planInProgress.pipe.symbols)
-    val (pipe, func) = if (planInProgress.containsTransaction) {
-      val p = new CommitPipe(planInProgress.pipe, graph)
-      (p, getEagerReadWriteQuery(p, columns))
+    val pipe = if (planInProgress.containsTransaction) {
+      profiled(new CommitPipe(planInProgress.pipe, graph), Some(planInProgress.pipe))
     } else {
-      (planInProgress.pipe, getLazyReadonlyQuery(planInProgress.pipe, columns))
+      planInProgress.pipe
     }
 
     val executionPlan = pipe.executionPlan()
+    val func = if (profiling) {
+      getProfiledQuery(pipe, columns, slots, planInProgress.containsTransaction)
+    } else if (planInProgress.containsTransaction) {
+      getEagerReadWriteQuery(pipe, columns, slots, executionPlan)
+    } else {
+      getLazyReadonlyQuery(pipe, columns, slots, executionPlan)
+    }
 
     (func, executionPlan)
   }
 
+  /*
+  When profiling, every pipe a builder adds is wrapped in a ProfilingPipe. Builders always build on top of the
+  pipe of the plan so far, so each profiler ends up reading its rows through the profiler that came before it.
+   */
+  private def profiled(pipe: Pipe, previous: Option[Pipe]): Pipe = pipe match {
+    case p: ProfilingPipe => p
+    case p if !profiling  => p
+    case p                => new ProfilingPipe(p, previous.collect { case profiler: ProfilingPipe => profiler })
+  }
+
   private def getQueryResultColumns(q: Query, currentSymbols:SymbolTable) = {
     var query = q
     while (query.tail.isDefined) {
@@ -89,19 +110,49 @@ class ExecutionPlanImpl(inputQuery: Query, graph: GraphDatabaseService) extends
     columns
   }
 
-  private def getLazyReadonlyQuery(pipe: Pipe, columns: List[String]): Map[String, Any] => ExecutionResult = {
+  private def getLazyReadonlyQuery(pipe: Pipe, columns: List[String], slots: SlotLayout, plan: String): Map[String, Any] => ExecutionResult = {
     val func = (params: Map[String, Any]) => {
-      val state = new QueryState(graph, MutableMaps.create ++ params)
-      new PipeExecutionResult(pipe.createResults(state), pipe.symbols, columns)
+      val state = new QueryState(graph, MutableMaps.create ++ params, slots = slots)
+      new PipeExecutionResult(pipe.createResults(state), pipe.symbols, columns, plan)
     }
 
     func
   }
 
-  private def getEagerReadWriteQuery(pipe: Pipe, columns: List[String]): Map[String, Any] => ExecutionResult = {
+  private def getEagerReadWriteQuery(pipe: Pipe, columns: List[String], slots: SlotLayout, plan: String): Map[String, Any] => ExecutionResult = {
     val func = (params: Map[String, Any]) => {
-      val state = new QueryState(graph, MutableMaps.create ++ params)
-      new EagerPipeExecutionResult(pipe.createResults(state), pipe.symbols, columns, state, graph)
+      val state = new QueryState(graph, MutableMaps.create ++ params, slots = slots)
+      new EagerPipeExecutionResult(pipe.createResults(state), pipe.symbols, columns, state, graph, plan)
+    }
+
+    func
+  }
+
+  /*
+  A profiled query runs to completion before the result is handed out, so that the plan description it comes with
+  can carry the row counts, db hits and time spent in each pipe.
+   */
+  private def getProfiledQuery(pipe: Pipe, columns: List[String], slots: SlotLayout, containsTransaction: Boolean): Map[String, Any] => ExecutionResult = {
+    val func = (params: Map[String, Any]) => {
+      val state = new QueryState(graph, MutableMaps.create ++ params, slots = slots)
+      val nodeManager = graph match {
+        case api: GraphDatabaseAPI => Some(api.getNodeManager)
+        case _                     => None
+      }
+
+      nodeManager.foreach(_.startCountingDbHits())
+      val rows = try {
+        pipe.createResults(state).toList
+      } finally {
+        nodeManager.foreach(_.stopCountingDbHits())
+      }
+
+      val plan = pipe.executionPlan()
+      if (containsTransaction) {
+        new EagerPipeExecutionResult(rows, pipe.symbols, columns, state, graph, plan)
+      } else {
+        new PipeExecutionResult(rows, pipe.symbols, columns, plan)
+      }
     }
 
     func
@@ -131,17 +182,18 @@ The Neo4j Team
 
   lazy val builders = Seq(
     new NodeByIdBuilder(graph),
+    new AutoIndexLookupBuilder(graph),
     new IndexQueryBuilder(graph),
     new GraphGlobalStartBuilder(graph),
     new FilterBuilder,
     new NamedPathBuilder,
     new ExtractBuilder,
-    //TODO: Reintroduce this when the problems with SlicePipe are solved.
-    //new SortedAggregationBuilder,
+    new HashJoinBuilder,
     new MatchBuilder,
     new SortBuilder,
     new ColumnFilterBuilder,
     new SliceBuilder,
+    new SortedAggregationBuilder,
     new AggregationBuilder,
     new ShortestPathBuilder,
     new RelationshipByIdBuilder(graph),
@@ -39,6 +39,7 @@ object PlanBuilder extends Enumeration {
   val CachedExpressions = -100
   val Filter = -10
   val NamedPath = -9
+  val AutoIndexLookup = -2
   val Mutation = -1
   val NodeById = -1
   val RelationshipById = -1
@@ -47,6 +48,7 @@ object PlanBuilder extends Enumeration {
   val Slice = 0
   val ColumnFilter = 0
   val GlobalStart = 1
+  val HashJoin = 9
   val Match = 10
   val ShortestPath = 20
   val SortedAggregation = 30
@@ -19,7 +19,7 @@
  */
 package org.neo4j.cypher.internal.executionplan.builders
 
-import org.neo4j.cypher.internal.pipes.{ExtractPipe, EagerAggregationPipe}
+import org.neo4j.cypher.internal.pipes.{Pipe, ExtractPipe, EagerAggregationPipe}
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery, PlanBuilder}
 import org.neo4j.cypher.internal.commands.{CachedExpression, Entity, Expression, AggregationExpression}
 
@@ -35,7 +35,7 @@ class AggregationBuilder extends PlanBuilder with ExpressionExtractor {
       aggregationExpressions: Seq[AggregationExpression]
       ) = getExpressions(newPlan)
 
-    val pipe = new EagerAggregationPipe(newPlan.pipe, keyExpressions, aggregationExpressions)
+    val pipe = aggregationPipe(newPlan.pipe, keyExpressions, aggregationExpressions)
 
     val query = newPlan.query
 
@@ -61,6 +61,9 @@ class AggregationBuilder extends PlanBuilder with ExpressionExtractor {
     newPlan.copy(query = resultQ, pipe = resultPipe)
   }
 
+  protected def aggregationPipe(source: Pipe, keyExpressions: Seq[Expression], aggregationExpressions: Seq[AggregationExpression]): Pipe =
+    new EagerAggregationPipe(source, keyExpressions, aggregationExpressions)
+
   private def removeAggregates(e: Expression) = e match {
     case e: AggregationExpression => CachedExpression(e.identifier.name, e.identifier)
     case x => x
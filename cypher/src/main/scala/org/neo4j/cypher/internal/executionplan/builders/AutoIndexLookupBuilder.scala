@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.neo4j.cypher.internal.commands._
+import org.neo4j.cypher.internal.pipes.{RelationshipStartPipe, NodeStartPipe, Pipe}
+import org.neo4j.graphdb.{Relationship, Node, PropertyContainer, GraphDatabaseService}
+import org.neo4j.graphdb.index.{ReadableIndex, AutoIndexer}
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
+import org.neo4j.kernel.InternalAbstractGraphDatabase
+import org.neo4j.tooling.GlobalGraphOperations
+import collection.JavaConverters._
+import java.lang.{Iterable => JIterable}
+import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery, PlanBuilder}
+
+/*
+Solves node(*) and relationship(*) start points with a lookup in the auto index, when the query has a predicate
+comparing a property of the start point with a string or a parameter. The predicate is left for the FilterBuilder to
+check on what the index returned - the index compares values by their string form, and Cypher does not.
+
+The auto index only knows about entities that have changed since auto indexing was enabled, so this is only done
+when cypher_auto_index_lookups says the auto index can be trusted, and never with async_auto_indexing, where the auto
+index lags behind the store. Plans are cached, so whether the auto indexer is enabled and indexes the property, and
+whether the value is a string, is checked every time the start point is created, falling back to the full scan.
+ */
+class AutoIndexLookupBuilder(graph: GraphDatabaseService, enabled: Boolean) extends PlanBuilder {
+  def this(graph: GraphDatabaseService) = this(graph, AutoIndexLookupBuilder.isEnabled(graph))
+
+  def apply(plan: ExecutionPlanInProgress) = {
+    val q = plan.query
+    val (item, newPipe) = lookups(q, plan.pipe).head
+
+    plan.copy(pipe = newPipe, query = q.copy(start = q.start.filterNot(_ == item) :+ item.solve))
+  }
+
+  def canWorkWith(plan: ExecutionPlanInProgress) = enabled && lookups(plan.query, plan.pipe).nonEmpty
+
+  private def lookups(q: PartiallySolvedQuery, lastPipe: Pipe): Seq[(QueryToken[StartItem], Pipe)] = q.start.flatMap {
+    case item@Unsolved(AllNodes(name)) => lookup(q, name).map {
+      case (key, value) => item -> new NodeStartPipe(lastPipe, name, m =>
+        lookupOrScan[Node](graph.index.getNodeAutoIndexer, graph.index.existsForNodes, key, value(m),
+          GlobalGraphOperations.at(graph).getAllNodes))
+    }
+    case item@Unsolved(AllRelationships(name)) => lookup(q, name).map {
+      case (key, value) => item -> new RelationshipStartPipe(lastPipe, name, m =>
+        lookupOrScan[Relationship](graph.index.getRelationshipAutoIndexer, graph.index.existsForRelationships, key, value(m),
+          GlobalGraphOperations.at(graph).getAllRelationships))
+    }
+    case _ => None
+  }
+
+  private def lookup(q: PartiallySolvedQuery, name: String): Option[(String, Expression)] =
+    q.where.filter(_.unsolved).map(_.token).collect {
+      case Equals(Property(`name`, key), value) if isLookupValue(value) => (key, value)
+      case Equals(value, Property(`name`, key)) if isLookupValue(value) => (key, value)
+    }.headOption
+
+  private def isLookupValue(e: Expression) = e match {
+    case Literal(_: String) => true
+    case ParameterExpression(_) => true
+    case _ => false
+  }
+
+  private def lookupOrScan[T <: PropertyContainer](indexer: AutoIndexer[T], exists: String => Boolean, key: String,
+                                                   value: Any, allEntities: => JIterable[T]): Iterable[T] = value match {
+    case s: String if indexer.isEnabled && indexer.getAutoIndexedProperties.contains(key) &&
+      exists(indexer.getAutoIndex.getName) =>
+      val index: ReadableIndex[T] = indexer.getAutoIndex
+      val indexHits: JIterable[T] = index.get(key, s)
+      indexHits.asScala
+    case _ =>
+      val all: JIterable[T] = allEntities
+      all.asScala
+  }
+
+  def priority = PlanBuilder.AutoIndexLookup
+}
+
+object AutoIndexLookupBuilder {
+  def isEnabled(graph: GraphDatabaseService) = graph match {
+    case db: InternalAbstractGraphDatabase =>
+      val config = db.getConfig
+      config.get(GraphDatabaseSettings.cypher_auto_index_lookups).booleanValue() &&
+        !config.get(GraphDatabaseSettings.async_auto_indexing).booleanValue()
+    case _ => false
+  }
+}
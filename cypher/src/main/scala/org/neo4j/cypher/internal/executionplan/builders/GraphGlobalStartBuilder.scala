@@ -21,9 +21,11 @@ package org.neo4j.cypher.internal.executionplan.builders
 
 import org.neo4j.cypher.internal.commands._
 import org.neo4j.cypher.internal.pipes.{RelationshipStartPipe, NodeStartPipe, Pipe}
-import org.neo4j.graphdb.GraphDatabaseService
+import org.neo4j.graphdb.{Node, GraphDatabaseService}
 import collection.JavaConverters._
 import org.neo4j.tooling.GlobalGraphOperations
+import org.neo4j.kernel.GraphDatabaseAPI
+import java.util.concurrent.{Future, ThreadFactory, ExecutionException, Executors, Callable}
 import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery, PlanBuilder}
 
 class GraphGlobalStartBuilder(graph: GraphDatabaseService) extends PlanBuilder {
@@ -48,11 +50,77 @@ class GraphGlobalStartBuilder(graph: GraphDatabaseService) extends PlanBuilder {
   }
 
   private def createStartPipe(lastPipe: Pipe, item: StartItem): Pipe = item match {
-    case AllNodes(identifierName) => new NodeStartPipe(lastPipe, identifierName, m => GlobalGraphOperations.at(graph).getAllNodes.asScala)
+    case AllNodes(identifierName) => new NodeStartPipe(lastPipe, identifierName, m => allNodes)
     case AllRelationships(identifierName) => new RelationshipStartPipe(lastPipe, identifierName, m => GlobalGraphOperations.at(graph).getAllRelationships.asScala)
   }
 
+  /*
+  Outside of transactions, the nodes are split into partitions of consecutive ids, and the partition after the one
+  being consumed is looked up on another thread. The nodes still come in id order. Only one partition is read ahead,
+  so a query that stops early, under LIMIT or because of an error, leaves at most one partition being read in the
+  background. Transaction state is bound to the calling thread, so inside a transaction all nodes are looked up on
+  the calling thread.
+   */
+  private def allNodes: Iterable[Node] = graph match {
+    case db: GraphDatabaseAPI if db.getTxManager.getTransaction == null => new Iterable[Node] {
+      def iterator = readAhead(GlobalGraphOperations.at(graph).splitAllNodes(partitionCount(db)).asScala)
+    }
+    case _ => GlobalGraphOperations.at(graph).getAllNodes.asScala
+  }
+
+  private def partitionCount(db: GraphDatabaseAPI) =
+    math.max(1L, db.getNodeManager.getHighestPossibleIdInUse(classOf[Node]) / GraphGlobalStartBuilder.PARTITION_SIZE).
+      min(Int.MaxValue).toInt
+
+  private def readAhead(partitions: Seq[java.lang.Iterable[Node]]): Iterator[Node] = {
+    val remaining = partitions.iterator
+    var ahead: Option[Future[Seq[Node]]] = None
+
+    def readNext() {
+      if (ahead.isEmpty && remaining.hasNext) {
+        val partition = remaining.next()
+        ahead = Some(GraphGlobalStartBuilder.scanners.submit(new Callable[Seq[Node]] {
+          def call() = partition.asScala.toIndexedSeq
+        }))
+      }
+    }
+
+    new Iterator[Iterator[Node]] {
+      def hasNext = {
+        readNext()
+        ahead.nonEmpty
+      }
+
+      def next() = {
+        readNext()
+        val current = ahead.getOrElse(throw new NoSuchElementException)
+        ahead = None
+        readNext()
+        val nodes = try {
+          current.get()
+        } catch {
+          case e: ExecutionException => throw e.getCause
+        }
+        nodes.iterator
+      }
+    }.flatMap(nodes => nodes)
+  }
+
   def canWorkWith(plan: ExecutionPlanInProgress) = plan.query.start.exists(filter)
 
   def priority = PlanBuilder.GlobalStart
-}
\ No newline at end of file
+}
+
+object GraphGlobalStartBuilder {
+  val PARTITION_SIZE = 50000
+
+  // Shared by all queries, each of them reading one partition ahead. The threads are daemons, so they never keep the
+  // JVM alive
+  private lazy val scanners = Executors.newFixedThreadPool(Runtime.getRuntime.availableProcessors(), new ThreadFactory {
+    def newThread(r: Runnable) = {
+      val thread = new Thread(r, "Cypher node scanner")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+}
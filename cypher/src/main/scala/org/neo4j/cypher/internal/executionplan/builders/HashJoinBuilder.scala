@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PlanBuilder}
+import org.neo4j.cypher.internal.commands._
+import org.neo4j.cypher.internal.pipes.{HashJoinPipe, JoinSide}
+import org.neo4j.cypher.internal.symbols.SymbolTable
+
+/*
+Picks up patterns of the shape a-[r1]-x-[r2]-b, where a and b are both bound by start items and x is not.
+Running the pattern matcher for every combination of a and b expands the same nodes over and over again,
+so instead each side is expanded once and joined on the id of x.
+
+This is only cheaper when at least one side is expected to produce many nodes, so the join is only chosen
+when a or b comes from an index or from all nodes.
+ */
+class HashJoinBuilder extends PlanBuilder {
+  def apply(plan: ExecutionPlanInProgress) = {
+    val q = plan.query
+    val (leftPattern, rightPattern, left, right, joinNode) = findJoin(plan).get
+
+    val solved = Seq(leftPattern, rightPattern)
+    val newPatterns = q.patterns.map {
+      case Unsolved(p) if solved.contains(p) => Solved(p)
+      case x => x
+    }
+
+    plan.copy(
+      query = q.copy(patterns = newPatterns),
+      pipe = new HashJoinPipe(plan.pipe, left, right, joinNode)
+    )
+  }
+
+  def canWorkWith(plan: ExecutionPlanInProgress) = findJoin(plan).nonEmpty
+
+  private def findJoin(plan: ExecutionPlanInProgress): Option[(RelatedTo, RelatedTo, JoinSide, JoinSide, String)] = {
+    val q = plan.query
+    val symbols = plan.pipe.symbols
+
+    if (q.start.exists(_.unsolved)) {
+      None
+    } else q.patterns.filter(_.unsolved).map(_.token) match {
+      case Seq(r1: RelatedTo, r2: RelatedTo) => for (
+        (a, x1, left) <- side(r1, symbols);
+        (b, x2, right) <- side(r2, symbols)
+        if x1 == x2 && a != b && r1.relName != r2.relName && worthJoining(q.start.map(_.token), a, b)
+      ) yield (r1, r2, left, right, x1)
+      case _ => None
+    }
+  }
+
+  // Returns the bound end, the unbound end and the join side of a simple pattern relationship
+  private def side(r: RelatedTo, symbols: SymbolTable): Option[(String, String, JoinSide)] = {
+    val bound = symbols.keys
+    val simple = !r.optional && r.predicate == True() && !bound.contains(r.relName)
+
+    if (!simple)
+      None
+    else if (bound.contains(r.left) && !bound.contains(r.right))
+      Some((r.left, r.right, JoinSide(r.left, r.relName, r.relTypes, r.direction)))
+    else if (bound.contains(r.right) && !bound.contains(r.left))
+      Some((r.right, r.left, JoinSide(r.right, r.relName, r.relTypes, r.direction.reverse())))
+    else
+      None
+  }
+
+  private def worthJoining(startItems: Seq[StartItem], a: String, b: String) = startItems.exists {
+    case NodeByIndex(name, _, _, _)  => name == a || name == b
+    case NodeByIndexQuery(name, _, _) => name == a || name == b
+    case AllNodes(name)               => name == a || name == b
+    case _                            => false
+  }
+
+  def priority = PlanBuilder.HashJoin
+}
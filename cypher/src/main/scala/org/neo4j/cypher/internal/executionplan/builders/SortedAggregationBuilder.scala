@@ -17,75 +17,56 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-///**
-// * Copyright (c) 2002-2012 "Neo Technology,"
-// * Network Engine for Objects in Lund AB [http://neotechnology.com]
-// *
-// * This file is part of Neo4j.
-// *
-// * Neo4j is free software: you can redistribute it and/or modify
-// * it under the terms of the GNU General Public License as published by
-// * the Free Software Foundation, either version 3 of the License, or
-// * (at your option) any later version.
-// *
-// * This program is distributed in the hope that it will be useful,
-// * but WITHOUT ANY WARRANTY; without even the implied warranty of
-// * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-// * GNU General Public License for more details.
-// *
-// * You should have received a copy of the GNU General Public License
-// * along with this program.  If not, see <http://www.gnu.org/licenses/>.
-// */
-//package org.neo4j.cypher.internal.executionplan.builders
-//
-//import org.neo4j.cypher.internal.commands.{AggregationExpression, SortItem, Expression}
-//import org.neo4j.cypher.internal.pipes.{OrderedAggregationPipe, SortPipe, ExtractPipe}
-//import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PlanBuilder}
-//
-//class SortedAggregationBuilder extends PlanBuilder with ExpressionExtractor {
-//  def apply(plan: ExecutionPlanInProgress) = {
-//    val q = plan.query
-//    val p = plan.pipe
-//
-//    val sortExpressions = q.sort.filter(_.unsolved).map(_.token.expression)
-//    val sortItems = q.sort.filter(_.unsolved).map(_.token)
-//    val (keyExpressions, aggregationExpressions) = getKeysAndAggregates(plan)
-//
-//    val extractPipe = new ExtractPipe(p, keyExpressions)
-//
-//    val keyColumnsNotAlreadySorted = keyExpressions.
-//      filterNot(sortExpressions.contains).
-//      map(SortItem(_, true))
-//
-//    val sortPipe = new SortPipe(extractPipe, (sortItems ++ keyColumnsNotAlreadySorted).toList)
-//    val aggregationPipe = new OrderedAggregationPipe(sortPipe, keyExpressions, aggregationExpressions.map(_.asInstanceOf[AggregationExpression]))
-//
-//    val resultQ = q.copy(
-//      aggregation = q.aggregation.map(_.solve),
-//      aggregateQuery = q.aggregateQuery.solve,
-//      sort = q.sort.map(_.solve),
-//      extracted = true
-//    )
-//
-//    plan.copy(query = resultQ, pipe = aggregationPipe)
-//  }
-//
-//
-//  def canWorkWith(plan: ExecutionPlanInProgress) = {
-//    val q = plan.query
-//
-//    if (!q.readyToAggregate || q.aggregation.isEmpty)
-//      false //If other things are still to do, let's deny
-//    else {
-//      val (keyExpressions, _) = getKeysAndAggregates(plan)
-//
-//      val sortExpressions = q.sort.filter(_.unsolved).map(_.token.expression)
-//      sortExpressions.nonEmpty && canUseOrderedAggregation(sortExpressions, keyExpressions)
-//    }
-//  }
-//
-//  private def canUseOrderedAggregation(sortExpressions: Seq[Expression], keyExpressions: Seq[Expression]): Boolean = keyExpressions.take(sortExpressions.size) == sortExpressions
-//
-//  def priority: Int = 0
-//}
-//
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.neo4j.cypher.internal.commands.{Expression, AggregationExpression, Entity, Literal, NodeById, RelationshipById, NodeByIndex, NodeByIndexQuery, RelationshipByIndex, RelationshipByIndexQuery, AllNodes, AllRelationships}
+import org.neo4j.cypher.internal.pipes.{Pipe, StartPipe, ParameterPipe, ProfilingPipe, RowOrderPreserving, OrderedAggregationPipe}
+import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery, PlanBuilder}
+import org.neo4j.cypher.internal.symbols.AnyType
+
+/*
+When the rows reaching the aggregation are known to come grouped on one of the aggregation keys, and the other keys
+only depend on that one, each group is complete when the next one starts. The OrderedAggregationPipe can then hand on
+groups as they complete, instead of keeping all of them until the source is exhausted.
+
+Rows come grouped on the identifier of the first start pipe, if that pipe yields distinct elements and every pipe
+after it keeps the order of its rows.
+ */
+class SortedAggregationBuilder extends AggregationBuilder {
+  override def canWorkWith(plan: ExecutionPlanInProgress) = super.canWorkWith(plan) && {
+    val (keyExpressions, _) = getExpressions(plan)
+
+    groupedOn(plan.pipe, plan.query).exists(identifier =>
+      keyExpressions.contains(Entity(identifier)) &&
+        keyExpressions.forall(_.dependencies(AnyType()).forall(_.name == identifier)))
+  }
+
+  override protected def aggregationPipe(source: Pipe, keyExpressions: Seq[Expression], aggregationExpressions: Seq[AggregationExpression]): Pipe =
+    new OrderedAggregationPipe(source, keyExpressions, aggregationExpressions)
+
+  private def groupedOn(pipe: Pipe, q: PartiallySolvedQuery): Option[String] = pipe match {
+    case start: StartPipe[_] if producesSingleRow(start.source) =>
+      if (yieldsDistinctElements(start.name, q)) Some(start.name) else None
+    case p: RowOrderPreserving => groupedOn(p.source, q)
+    case _ => None
+  }
+
+  private def producesSingleRow(pipe: Pipe): Boolean = pipe match {
+    case _: ParameterPipe => true
+    case p: ProfilingPipe => producesSingleRow(p.inner)
+    case _ => false
+  }
+
+  private def yieldsDistinctElements(identifier: String, q: PartiallySolvedQuery) =
+    q.start.map(_.token).filter(_.identifierName == identifier).exists {
+      case NodeById(_, Literal(ids: Seq[_])) => ids.distinct.size == ids.size
+      case NodeById(_, Literal(_: Number)) => true
+      case RelationshipById(_, Literal(ids: Seq[_])) => ids.distinct.size == ids.size
+      case RelationshipById(_, Literal(_: Number)) => true
+      case _: NodeByIndex | _: NodeByIndexQuery | _: RelationshipByIndex | _: RelationshipByIndexQuery => true
+      case _: AllNodes | _: AllRelationships => true
+      case _ => false
+    }
+
+  override def priority: Int = PlanBuilder.SortedAggregation
+}
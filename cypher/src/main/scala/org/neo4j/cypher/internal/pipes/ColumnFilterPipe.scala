@@ -24,7 +24,7 @@ import org.neo4j.cypher.internal.symbols.{Identifier, SymbolTable}
 import scala.collection.JavaConverters._
 
 class ColumnFilterPipe(source: Pipe, val returnItems: Seq[ReturnItem], lastPipe: Boolean)
-  extends PipeWithSource(source) {
+  extends PipeWithSource(source) with RowOrderPreserving {
   val returnItemNames = returnItems.map(_.columnName)
   val symbols = new SymbolTable(identifiers: _*)
 
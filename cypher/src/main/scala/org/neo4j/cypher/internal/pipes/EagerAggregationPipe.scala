@@ -70,7 +70,7 @@ class EagerAggregationPipe(source: Pipe, val keyExpressions: Seq[Expression], ag
 
 
   private def createEmptyResult(aggregationNames: Seq[String], state : QueryState): Traversable[ExecutionContext] = {
-    val newMap = MutableMaps.create(Parameters.createParamContextMap(state))
+    val newMap = state.slots.newRow() ++= Parameters.createParamContextMap(state)
     val aggregationNamesAndFunctions = aggregationNames zip aggregations.map(_.createAggregationFunction.result)
     aggregationNamesAndFunctions.toMap
       .foreach {
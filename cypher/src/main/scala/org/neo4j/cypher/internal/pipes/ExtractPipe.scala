@@ -21,25 +21,68 @@ package org.neo4j.cypher.internal.pipes
 
 import java.lang.String
 import collection.Seq
-import org.neo4j.cypher.internal.commands.{Expression, ReturnItem}
+import org.neo4j.cypher.internal.commands.{Property, ExpressionCompiler, Expression, ReturnItem}
 import org.neo4j.cypher.internal.symbols.{AnyType, SymbolTable, Identifier}
+import org.neo4j.graphdb.Node
+import org.neo4j.kernel.GraphDatabaseAPI
+import org.neo4j.kernel.impl.core.NodeManager
 
 //This class will extract properties and other stuff to make the maps
 //easy to work with for other pipes
-class ExtractPipe(source: Pipe, val expressions: Seq[Expression]) extends PipeWithSource(source) {
+class ExtractPipe(source: Pipe, val expressions: Seq[Expression]) extends PipeWithSource(source) with RowOrderPreserving {
   def dependencies = expressions.flatMap(_.dependencies(AnyType()))
 
   def getSymbolType(item: ReturnItem): Identifier = item.identifier
 
   val symbols: SymbolTable = source.symbols.add(expressions.map(_.identifier):_*)
 
+  private val compiledExpressions = expressions.map(exp => (exp.identifier.name, ExpressionCompiler.compile(exp)))
+
+  // The identifiers the expressions read properties of
+  private val propertyEntities = expressions.flatMap(_.filter(_.isInstanceOf[Property])).
+    map(_.asInstanceOf[Property].entity).distinct
+
+  /*
+  When properties are read, the rows are read ahead a batch at a time, and the properties of the nodes in a batch
+  that aren't cached are loaded together before the expressions are evaluated.
+   */
   def createResults(state: QueryState) = {
-    source.createResults(state).map(row => {
-      expressions.foreach( exp => row += exp.identifier.name -> exp(row) )
+    val rows = nodeManager(state) match {
+      case Some(manager) if propertyEntities.nonEmpty => source.createResults(state).toIterator.
+        grouped(ExtractPipe.READ_AHEAD).
+        flatMap(batch => {
+          preloadProperties(manager, batch)
+          batch
+        }).
+        toStream
+      case _ => source.createResults(state)
+    }
+
+    rows.map(row => {
+      compiledExpressions.foreach {
+        case (name, exp) => row += name -> exp(row)
+      }
       row
     })
   }
 
+  private def preloadProperties(nodeManager: NodeManager, batch: Seq[ExecutionContext]) {
+    val nodeIds = batch.flatMap(row => propertyEntities.flatMap(row.get)).collect {
+      case node: Node => node.getId
+    }
+
+    if (nodeIds.nonEmpty)
+      nodeManager.preloadNodeProperties(nodeIds.distinct.toArray)
+  }
+
+  private def nodeManager(state: QueryState): Option[NodeManager] = state.db match {
+    case db: GraphDatabaseAPI => Some(db.getNodeManager)
+    case _                    => None
+  }
+
   override def executionPlan(): String = source.executionPlan() + "\r\nExtract([" + source.symbols.keys.mkString(",") + "] => [" + expressions.map(_.identifier.name).mkString(", ") + "])"
 }
 
+object ExtractPipe {
+  val READ_AHEAD = 256
+}
@@ -20,12 +20,14 @@
 package org.neo4j.cypher.internal.pipes
 
 import java.lang.String
-import org.neo4j.cypher.internal.commands.Predicate
+import org.neo4j.cypher.internal.commands.{ExpressionCompiler, Predicate}
 
-class FilterPipe(source: Pipe, predicate: Predicate) extends PipeWithSource(source) {
+class FilterPipe(source: Pipe, predicate: Predicate) extends PipeWithSource(source) with RowOrderPreserving {
   val symbols = source.symbols
 
-  def createResults(state: QueryState) = source.createResults(state).filter(ctx => predicate.isMatch(ctx))
+  private val compiledPredicate = ExpressionCompiler.compile(predicate)
+
+  def createResults(state: QueryState) = source.createResults(state).filter(ctx => compiledPredicate(ctx))
 
   override def executionPlan(): String = source.executionPlan() + "\r\n" + "Filter(" + predicate.toString + ")"
 
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.neo4j.graphdb.{DynamicRelationshipType, Relationship, Node, Direction}
+import org.neo4j.cypher.internal.symbols.{RelationshipType, NodeType, Identifier}
+import scala.collection.JavaConverters._
+
+/**
+ * One side of a hash join: a bound node, and the relationship that leads from it to the join node
+ */
+case class JoinSide(start: String, relName: String, relTypes: Seq[String], dir: Direction) {
+  private lazy val types = relTypes.map(t => DynamicRelationshipType.withName(t))
+
+  def expand(node: Node): List[Relationship] = (if (types.isEmpty)
+    node.getRelationships(dir)
+  else
+    node.getRelationships(dir, types: _*)).asScala.toList
+
+  override def toString = {
+    val relInfo = if (relTypes.isEmpty) relName else relName + ":" + relTypes.mkString("|")
+    val (l, r) = dir match {
+      case Direction.OUTGOING => ("-", "->")
+      case Direction.INCOMING => ("<-", "-")
+      case Direction.BOTH     => ("-", "-")
+    }
+    "(" + start + ")" + l + "[" + relInfo + "]" + r
+  }
+}
+
+/**
+ * Solves the pattern (left.start)-[left.relName]-(joinNode)-[right.relName]-(right.start) for rows where
+ * both start nodes are already bound. Instead of running the pattern matcher once per row, every distinct
+ * left node is expanded once and its relationships are hashed on the node id at the other end. Every
+ * distinct right node is expanded once, and the node ids at the other end of its relationships are looked
+ * up in that table.
+ *
+ * The source is consumed eagerly, so that each start node is only expanded once.
+ */
+class HashJoinPipe(source: Pipe, left: JoinSide, right: JoinSide, joinNode: String) extends PipeWithSource(source) {
+  val symbols = source.symbols.add(
+    Identifier(left.relName, RelationshipType()),
+    Identifier(joinNode, NodeType()),
+    Identifier(right.relName, RelationshipType()))
+
+  def dependencies = Seq(Identifier(left.start, NodeType()), Identifier(right.start, NodeType()))
+
+  def createResults(state: QueryState): Traversable[ExecutionContext] = {
+    val rows = source.createResults(state).toList
+
+    val buildSide = new LongKeyTable[LongKeyTable[List[Relationship]]]()
+    val probeSide = new LongKeyTable[List[Relationship]]()
+
+    rows.flatMap(ctx => (ctx(left.start), ctx(right.start)) match {
+      case (a: Node, b: Node) => {
+        val byJoinNode = buildSide.getOrElseUpdate(a.getId, hashOnOtherNode(a))
+        val toProbe = probeSide.getOrElseUpdate(b.getId, right.expand(b))
+
+        toProbe.flatMap(rightRel => {
+          val x = rightRel.getOtherNode(b)
+          byJoinNode.getOrElse(x.getId, Nil).
+            filterNot(_ == rightRel).
+            map(leftRel => ctx.newWith(Seq(left.relName -> leftRel, joinNode -> x, right.relName -> rightRel)))
+        })
+      }
+      case _ => Nil
+    })
+  }
+
+  private def hashOnOtherNode(node: Node): LongKeyTable[List[Relationship]] = {
+    val table = new LongKeyTable[List[Relationship]]()
+    left.expand(node).foreach(rel => {
+      val otherId = rel.getOtherNode(node).getId
+      table.put(otherId, rel :: table.getOrElse(otherId, Nil))
+    })
+    table
+  }
+
+  override def executionPlan(): String = source.executionPlan() + "\r\n" +
+    "HashJoin(" + left + "(" + joinNode + "), " + right + "(" + joinNode + "))"
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+/**
+ * A hash table keyed on non-negative longs, such as node ids, that keeps its keys in a
+ * primitive array instead of boxing them. Uses open addressing with linear probing.
+ */
+class LongKeyTable[T <: AnyRef](initialCapacity: Int = 16) {
+  private var keys: Array[Long] = LongKeyTable.emptyKeys(LongKeyTable.capacityFor(initialCapacity))
+  private var values: Array[AnyRef] = new Array[AnyRef](keys.length)
+  private var count = 0
+
+  def size: Int = count
+
+  def isEmpty: Boolean = count == 0
+
+  def get(key: Long): Option[T] = {
+    val slot = LongKeyTable.find(keys, key)
+    if (keys(slot) == key) Some(values(slot).asInstanceOf[T]) else None
+  }
+
+  def getOrElse[B >: T](key: Long, default: => B): B = {
+    val slot = LongKeyTable.find(keys, key)
+    if (keys(slot) == key) values(slot).asInstanceOf[T] else default
+  }
+
+  def getOrElseUpdate(key: Long, value: => T): T = {
+    val slot = LongKeyTable.find(keys, key)
+    if (keys(slot) == key) {
+      values(slot).asInstanceOf[T]
+    } else {
+      val newValue = value
+      put(key, newValue)
+      newValue
+    }
+  }
+
+  def put(key: Long, value: T) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Only non-negative keys can be stored, got " + key)
+    }
+
+    if ((count + 1) * 2 > keys.length) {
+      grow()
+    }
+
+    val slot = LongKeyTable.find(keys, key)
+    if (keys(slot) != key) {
+      keys(slot) = key
+      count += 1
+    }
+    values(slot) = value
+  }
+
+  private def grow() {
+    val oldKeys = keys
+    val oldValues = values
+    keys = LongKeyTable.emptyKeys(oldKeys.length * 2)
+    values = new Array[AnyRef](keys.length)
+
+    var i = 0
+    while (i < oldKeys.length) {
+      if (oldKeys(i) != LongKeyTable.EMPTY) {
+        val slot = LongKeyTable.find(keys, oldKeys(i))
+        keys(slot) = oldKeys(i)
+        values(slot) = oldValues(i)
+      }
+      i += 1
+    }
+  }
+}
+
+object LongKeyTable {
+  private val EMPTY = -1L
+
+  private def capacityFor(size: Int): Int = {
+    var capacity = 16
+    while (capacity < size * 2) {
+      capacity *= 2
+    }
+    capacity
+  }
+
+  private def emptyKeys(capacity: Int): Array[Long] = {
+    val keys = new Array[Long](capacity)
+    java.util.Arrays.fill(keys, EMPTY)
+    keys
+  }
+
+  private def hash(key: Long): Int = {
+    val h = (key ^ (key >>> 32)).toInt * -0x61c88647
+    h ^ (h >>> 16)
+  }
+
+  // Returns the slot holding the key, or the empty slot where it would go
+  private def find(keys: Array[Long], key: Long): Int = {
+    val mask = keys.length - 1
+    var slot = hash(key) & mask
+    while (keys(slot) != EMPTY && keys(slot) != key) {
+      slot = (slot + 1) & mask
+    }
+    slot
+  }
+}
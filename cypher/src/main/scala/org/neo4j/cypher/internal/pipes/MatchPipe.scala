@@ -19,18 +19,37 @@
  */
 package org.neo4j.cypher.internal.pipes
 
-import matching.{PatternGraph, MatchingContext}
+import matching.{PatterMatchingBuilder, PatternGraph, MatchingContext}
 import java.lang.String
 import org.neo4j.cypher.internal.commands.Predicate
 
-class MatchPipe(source: Pipe, predicates: Seq[Predicate], patternGraph: PatternGraph) extends Pipe {
+class MatchPipe(val source: Pipe, predicates: Seq[Predicate], patternGraph: PatternGraph) extends Pipe with RowOrderPreserving {
   val matchingContext = new MatchingContext(source.symbols, predicates, patternGraph)
   val symbols = matchingContext.symbols
 
-  def createResults(state: QueryState) =
+  def createResults(state: QueryState) = {
+    val expansions = state.expansionCounts.get(this)
     source.createResults(state).flatMap(ctx => {
-      matchingContext.getMatches(ctx.toMap).map(pm => ctx.newWith(pm))
+      matchingContext.getMatches(ctx.toMap, expansions).map(pm => ctx.newWith(pm))
     })
+  }
 
-  override def executionPlan(): String = source.executionPlan() + "\r\nPatternMatch(" + patternGraph + ")"
+  override def executionPlan(): String = source.executionPlan() + "\r\nPatternMatch(" + patternGraph + expansion + ")"
+
+  /*
+  Which bound node the matcher starts from, and in which order it expands the relationships, is decided for every row
+  from the degrees of the bound nodes. The plan only says what it chooses from - profiled queries also report what
+  was chosen.
+   */
+  private val expansion = matchingContext.builder match {
+    case _: PatterMatchingBuilder =>
+      val boundNodes = patternGraph.patternNodes.keys.filter(key => source.symbols.keys.contains(key)).toSeq.sorted
+      val start = boundNodes match {
+        case Seq()       => "bound relationship"
+        case Seq(single) => single
+        case _           => "cheapest of " + boundNodes.mkString(", ")
+      }
+      ", expand from: " + start + ", relationships: cheapest first"
+    case _ => ""
+  }
 }
\ No newline at end of file
@@ -22,7 +22,7 @@ package org.neo4j.cypher.internal.pipes
 import org.neo4j.cypher.internal.commands.NamedPath
 import org.neo4j.cypher.internal.symbols.{PathType, Identifier}
 
-class NamedPathPipe(source: Pipe, path: NamedPath) extends Pipe {
+class NamedPathPipe(val source: Pipe, path: NamedPath) extends Pipe with RowOrderPreserving {
   def createResults(state: QueryState) = source.createResults(state).map(ctx => {
     ctx.put(path.pathName, path.getPath(ctx))
     ctx
@@ -45,52 +45,50 @@ class OrderedAggregationPipe(source: Pipe, val keyExpressions: Seq[Expression],
     keySymbols.add(aggregateIdentifiers: _*)
   }
 
-  def createResults(state: QueryState): Traversable[ExecutionContext] = new OrderedAggregator(source.createResults(state), keyExpressions, aggregations)
+  def createResults(state: QueryState): Traversable[ExecutionContext] =
+    new OrderedAggregator(source.createResults(state).toIterator, keyExpressions, aggregations).toStream
 
-  override def executionPlan(): String = source.executionPlan() + "\r\n" + "EagerAggregation( keys: [" + keyExpressions.map(_.identifier.name).mkString(", ") + "], aggregates: [" + aggregations.mkString(", ") + "])"
+  override def executionPlan(): String = source.executionPlan() + "\r\n" + "OrderedAggregation( keys: [" + keyExpressions.map(_.identifier.name).mkString(", ") + "], aggregates: [" + aggregations.mkString(", ") + "])"
 }
 
-private class OrderedAggregator(source: Traversable[ExecutionContext],
+/*
+Hands on each group as soon as the first row of the next group comes along, so only the aggregation functions
+of the current group are kept around, and the first groups are available before the source is exhausted.
+ */
+private class OrderedAggregator(source: Iterator[ExecutionContext],
                                 returnItems: Seq[Expression],
-                                aggregations: Seq[AggregationExpression]) extends Traversable[ExecutionContext] {
-  var currentKey: Option[Seq[Any]] = None
-  var aggregationSpool: Seq[AggregationFunction] = null
-  var currentCtx: Option[ExecutionContext] = null
+                                aggregations: Seq[AggregationExpression]) extends Iterator[ExecutionContext] {
   val keyColumns = returnItems.map(_.identifier.name)
   val aggregateColumns = aggregations.map(_.identifier.name)
 
-  def getIntermediateResults[U](ctx: ExecutionContext) = {
-    val newMap = MutableMaps.create
+  private var pending: Option[ExecutionContext] = None
+  private var pendingKey: Seq[Any] = null
 
-    //add key values
-    keyColumns.zip(currentKey.get).foreach( newMap += _)
+  def hasNext: Boolean = pending.nonEmpty || source.hasNext
 
-    //add aggregated values
-    aggregateColumns.zip(aggregationSpool.map(_.result)).foreach( newMap += _ )
+  def next(): ExecutionContext = {
+    val first = pending.getOrElse(source.next())
+    val key = if (pending.nonEmpty) pendingKey else returnItems.map(_.apply(first))
+    pending = None
 
-    ctx.newFrom(newMap)
-  }
+    val aggregationSpool = aggregations.map(_.createAggregationFunction)
+    aggregationSpool.foreach(func => func(first))
 
-  def foreach[U](f: ExecutionContext => U) {
-    source.foreach(ctx => {
-      val key = Some(returnItems.map(_.apply(ctx)))
-      if (currentKey.isEmpty) {
-        aggregationSpool = aggregations.map(_.createAggregationFunction)
-        currentKey = key
-        currentCtx = Some(ctx)
-      } else if (key != currentKey) {
-        f(getIntermediateResults(currentCtx.get))
-
-        aggregationSpool = aggregations.map(_.createAggregationFunction)
-        currentKey = key
-        currentCtx = Some(ctx)
+    while (pending.isEmpty && source.hasNext) {
+      val ctx = source.next()
+      val ctxKey = returnItems.map(_.apply(ctx))
+      if (ctxKey == key) {
+        aggregationSpool.foreach(func => func(ctx))
+      } else {
+        pending = Some(ctx)
+        pendingKey = ctxKey
       }
+    }
 
-      aggregationSpool.foreach(func => func(ctx))
-    })
+    val newMap = MutableMaps.create
+    keyColumns.zip(key).foreach(newMap += _)
+    aggregateColumns.zip(aggregationSpool.map(_.result)).foreach(newMap += _)
 
-    if (currentKey.nonEmpty) {
-      f(getIntermediateResults(currentCtx.get))
-    }
+    first.newFrom(newMap)
   }
-}
\ No newline at end of file
+}
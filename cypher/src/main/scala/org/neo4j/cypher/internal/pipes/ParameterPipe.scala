@@ -26,7 +26,7 @@ import collection.mutable.Map
 
 class ParameterPipe() extends Pipe {
   def createResults(state: QueryState) = {
-    Seq(ExecutionContext(Parameters.createParamContextMap(state)))
+    Seq(ExecutionContext(state.slots.newRow() ++= Parameters.createParamContextMap(state)))
   }
 
   val identifiers = Seq()
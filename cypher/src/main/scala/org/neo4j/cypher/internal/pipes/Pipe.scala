@@ -28,6 +28,7 @@ import collection.mutable.{Queue, Map => MutableMap}
 import scala.collection.JavaConverters._
 import java.util.HashMap
 import org.neo4j.kernel.GraphDatabaseAPI
+import matching.ExpansionCounts
 
 /**
  * Pipe is a central part of Cypher. Most pipes are decorators - they
@@ -43,6 +44,15 @@ trait Pipe {
   def executionPlan(): String
 }
 
+/**
+ * Pipes that hand on the rows of their source in the order they came. A row may
+ * be dropped, or turned into several consecutive rows, but rows are never moved
+ * past each other - so rows that came grouped on some value stay grouped on it.
+ */
+trait RowOrderPreserving {
+  def source: Pipe
+}
+
 class NullPipe extends Pipe {
   def createResults(state: QueryState) = Seq(ExecutionContext.empty)
 
@@ -67,13 +77,17 @@ object QueryState {
 
 class QueryState(val db: GraphDatabaseService,
                  val params: MutableMap[String, Any],
-                 var transaction: Option[Transaction] = None) {
+                 var transaction: Option[Transaction] = None,
+                 val slots: SlotLayout = SlotLayout.empty) {
   val createdNodes = new Counter
   val createdRelationships = new Counter
   val propertySet = new Counter
   val deletedNodes = new Counter
   val deletedRelationships = new Counter
 
+  // Filled in by the profilers of MatchPipes, and only then counted
+  val expansionCounts = MutableMap[Pipe, ExpansionCounts]()
+
   def graphDatabaseAPI: GraphDatabaseAPI = if (db.isInstanceOf[GraphDatabaseAPI])
     db.asInstanceOf[GraphDatabaseAPI]
   else
@@ -115,19 +129,30 @@ case class ExecutionContext(m: MutableMap[String, Any] = MutableMaps.create,
     this
   }
   def newWith(newEntries : Seq[(String,Any)]) = {
-    copy(m = (MutableMaps.create(this.m) ++= newEntries))
+    copy(m = (copyOfMap ++= newEntries))
   }
   def newWith(newEntries : scala.collection.Map[String,Any]) = {
-    copy(m = (MutableMaps.create(this.m) ++= newEntries))
+    copy(m = (copyOfMap ++= newEntries))
   }
   def newFrom(newEntries : Seq[(String,Any)]) = {
-    copy(m = MutableMaps.create(newEntries))
+    copy(m = (emptyMap ++= newEntries))
   }
   def newFrom(newEntries : scala.collection.Map[String,Any]) = {
-    copy(m = MutableMaps.create(newEntries))
+    copy(m = (emptyMap ++= newEntries))
   }
 
   def newWith(newEntry : (String,Any)) = {
-    copy(m = (MutableMaps.create(this.m) += newEntry))
+    copy(m = (copyOfMap += newEntry))
+  }
+
+  // Slotted rows are copied as arrays, keeping the layout they were planned with
+  private def copyOfMap: MutableMap[String, Any] = m match {
+    case slots: SlotMap => slots.copySlots()
+    case _              => MutableMaps.create(this.m)
+  }
+
+  private def emptyMap: MutableMap[String, Any] = m match {
+    case slots: SlotMap => slots.empty
+    case _              => MutableMaps.create
   }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import java.lang.String
+import org.neo4j.kernel.GraphDatabaseAPI
+import matching.ExpansionCounts
+
+/**
+ * Wraps a pipe in a profiled execution plan, and counts the rows it produces,
+ * the db hits it causes and the time spent producing them. Since the wrapped
+ * pipe pulls its rows through the profiler of the pipe before it, the numbers
+ * measured here include the work of all earlier pipes - the numbers reported
+ * for this pipe alone are what is left when those of the previous profiler are
+ * subtracted.
+ *
+ * For a MatchPipe it also reports how often the pattern matcher started from
+ * each bound node and expanded the relationships in each order.
+ *
+ * The numbers are kept in the pipe, so a profiled plan should only be
+ * executed once.
+ */
+class ProfilingPipe(val inner: Pipe, val previous: Option[ProfilingPipe]) extends Pipe with RowOrderPreserving {
+  private var rowCount = 0L
+  private var totalNanos = 0L
+  private var totalDbHits = 0L
+  private var expansions: Option[ExpansionCounts] = None
+
+  def symbols = inner.symbols
+
+  def source = inner
+
+  def createResults(state: QueryState) = {
+    rowCount = 0
+    totalNanos = 0
+    totalDbHits = 0
+    expansions = inner match {
+      case matchPipe: MatchPipe =>
+        val counts = new ExpansionCounts
+        state.expansionCounts(matchPipe) = counts
+        Some(counts)
+      case _ => None
+    }
+
+    val dbHits = dbHitCounter(state)
+    val results = measure(dbHits)(inner.createResults(state).toIterator)
+
+    new Iterator[ExecutionContext] {
+      def hasNext = measure(dbHits)(results.hasNext)
+
+      def next() = {
+        val row = measure(dbHits)(results.next())
+        rowCount += 1
+        row
+      }
+    }.toStream
+  }
+
+  def rows = rowCount
+
+  def dbHits = math.max(0L, totalDbHits - previous.map(_.totalDbHits).getOrElse(0L))
+
+  def time = math.max(0L, totalNanos - previous.map(_.totalNanos).getOrElse(0L))
+
+  def executionPlan(): String = inner.executionPlan() +
+    "  (rows: %d, db hits: %d, time: %.3f ms%s)".format(rows, dbHits, time / 1000000.0, expansionDetails)
+
+  private def expansionDetails = expansions.filterNot(_.isEmpty).map(", expansions: " + _).getOrElse("")
+
+  private def measure[T](dbHits: () => Long)(work: => T): T = {
+    val startNanos = System.nanoTime()
+    val startHits = dbHits()
+    try {
+      work
+    } finally {
+      totalNanos += System.nanoTime() - startNanos
+      totalDbHits += dbHits() - startHits
+    }
+  }
+
+  private def dbHitCounter(state: QueryState): () => Long = state.db match {
+    case api: GraphDatabaseAPI => {
+      val nodeManager = api.getNodeManager
+      () => nodeManager.getDbHits
+    }
+    case _ => () => 0L
+  }
+}
@@ -25,15 +25,17 @@ import java.lang.String
 import collection.Seq
 import org.neo4j.cypher.internal.symbols.{NodeType, Identifier, PathType}
 import collection.mutable.Map
-import org.neo4j.cypher.internal.commands.{ShortestPathExpression, ReturnItem, ShortestPath}
+import org.neo4j.cypher.internal.commands.{FOO, ShortestPathExpression, ReturnItem, ShortestPath}
 import org.neo4j.graphdb.{Path, Expander, DynamicRelationshipType, Node}
+import org.neo4j.kernel.GraphDatabaseAPI
+import java.util.concurrent.{ThreadFactory, ExecutionException, Executors, Callable}
 
 /**
  * Shortest pipe inserts a single shortest path between two already found nodes
  *
  * It's also the base class for all shortest paths
  */
-class ShortestPathPipe(source: Pipe, ast: ShortestPath) extends PipeWithSource(source) {
+class ShortestPathPipe(source: Pipe, ast: ShortestPath) extends PipeWithSource(source) with RowOrderPreserving {
   def startName = ast.start
 
   def endName = ast.end
@@ -52,20 +54,70 @@ class ShortestPathPipe(source: Pipe, ast: ShortestPath) extends PipeWithSource(s
 
   val expression = ShortestPathExpression(ast)
 
-  def createResults(state: QueryState) = source.createResults(state).flatMap(ctx => {
-    val result: Stream[Path] = expression(ctx).asInstanceOf[Stream[Path]]
-
-    if (result.isEmpty) {
-      if (optional)
-        Seq(ctx.newWith(pathName -> null))
-      else
-        Seq()
-    } else {
-      result.map(x => ctx.newWith(pathName -> x))
+  /*
+  Rows are solved a batch at a time. Within a batch, rows that share a start node are searched together, and
+  when the query is not running inside a transaction, the groups are searched concurrently. Transaction state
+  is bound to the calling thread, so inside a transaction everything is searched on the calling thread.
+   */
+  def createResults(state: QueryState) = source.createResults(state).toIterator.
+    grouped(ShortestPathPipe.BATCH_SIZE).
+    flatMap(batch => solveBatch(batch, canSearchConcurrently(state))).
+    toStream
+
+  private def solveBatch(batch: Seq[ExecutionContext], concurrently: Boolean): Seq[ExecutionContext] = {
+    val endPoints = batch.map(ctx => (ctx(startName), ctx(endName)) match {
+      case (start: Node, end: Node) => Some((start, end))
+      case _                        => None
+    })
+
+    val byStart = endPoints.flatten.distinct.groupBy(_._1).toSeq.map {
+      case (start, pairs) => (start, pairs.map(_._2))
     }
 
-  })
-
+    val paths = if (concurrently && byStart.size > 1)
+      searchConcurrently(byStart)
+    else
+      search(byStart, expression.foo)
+
+    batch.zip(endPoints).flatMap {
+      case (ctx, pair) => {
+        val result = pair.map(paths).getOrElse(Stream.empty)
+
+        if (result.isEmpty) {
+          if (optional)
+            Seq(ctx.newWith(pathName -> null))
+          else
+            Seq()
+        } else {
+          result.map(x => ctx.newWith(pathName -> x))
+        }
+      }
+    }
+  }
+
+  private def search(groups: Seq[(Node, Seq[Node])], finder: FOO): collection.Map[(Node, Node), Stream[Path]] =
+    groups.flatMap {
+      case (start, ends) => finder.findResults(start, ends).map {
+        case (end, paths) => (start, end) -> paths.force
+      }
+    }.toMap
+
+  private def searchConcurrently(groups: Seq[(Node, Seq[Node])]): collection.Map[(Node, Node), Stream[Path]] = {
+    val futures = groups.map(group => ShortestPathPipe.workers.submit(new Callable[collection.Map[(Node, Node), Stream[Path]]] {
+      def call() = search(Seq(group), expression.newFinder())
+    }))
+
+    futures.flatMap(future => try {
+      future.get()
+    } catch {
+      case e: ExecutionException => throw e.getCause
+    }).toMap
+  }
+
+  private def canSearchConcurrently(state: QueryState): Boolean = state.db match {
+    case db: GraphDatabaseAPI => db.getTxManager.getTransaction == null
+    case _                    => false
+  }
 
   def dependencies: Seq[Identifier] = Seq(Identifier(startName, NodeType()), Identifier(endName, NodeType()))
 
@@ -73,3 +125,16 @@ class ShortestPathPipe(source: Pipe, ast: ShortestPath) extends PipeWithSource(s
 
   override def executionPlan(): String = source.executionPlan() + "\r\n" + "ShortestPath(" + ast + ")"
 }
+
+object ShortestPathPipe {
+  val BATCH_SIZE = 256
+
+  // Shared by all shortest path pipes. The threads are daemons, so they never keep the JVM alive
+  private[pipes] lazy val workers = Executors.newFixedThreadPool(Runtime.getRuntime.availableProcessors(), new ThreadFactory {
+    def newThread(r: Runnable) = {
+      val thread = new Thread(r, "Cypher shortest path worker")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+}
@@ -24,7 +24,7 @@ import java.lang.String
 import org.neo4j.helpers.ThisShouldNotHappenError
 import collection.mutable.Map
 
-class SlicePipe(source:Pipe, skip:Option[Expression], limit:Option[Expression]) extends Pipe {
+class SlicePipe(val source:Pipe, skip:Option[Expression], limit:Option[Expression]) extends Pipe with RowOrderPreserving {
   val symbols = source.symbols
 
   //TODO: Make this nicer. I'm sure it's expensive and silly.
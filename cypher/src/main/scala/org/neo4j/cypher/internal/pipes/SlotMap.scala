@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import collection.mutable.{Map => MutableMap}
+
+/**
+ * A SlotLayout gives every identifier known at plan time a fixed position
+ * in a row. Rows built from the same layout share it, so adding a column to
+ * a row is an array copy instead of re-hashing every entry into a new map.
+ */
+class SlotLayout(names: Seq[String]) {
+  private val slotNames: Array[String] = names.toArray
+  private val slots = new java.util.HashMap[String, Integer](slotNames.length * 2)
+
+  slotNames.zipWithIndex.foreach {
+    case (name, slot) => slots.put(name, slot)
+  }
+
+  def size: Int = slotNames.length
+
+  def isEmpty: Boolean = slotNames.isEmpty
+
+  def slotFor(name: String): Int = {
+    val slot = slots.get(name)
+    if (slot == null) -1 else slot.intValue()
+  }
+
+  def nameAt(slot: Int): String = slotNames(slot)
+
+  /**
+   * Creates an empty row for this layout. Without any slots there is nothing
+   * to gain from an array, so a plain map is handed out instead.
+   */
+  def newRow(): MutableMap[String, Any] = if (isEmpty)
+    MutableMaps.create
+  else
+    new SlotMap(this)
+
+  override def toString = slotNames.mkString("SlotLayout(", ", ", ")")
+}
+
+object SlotLayout {
+  val empty = new SlotLayout(Seq())
+
+  def apply(names: Seq[String]) = new SlotLayout(names.distinct)
+}
+
+/**
+ * A row backed by an array with one slot per identifier in its layout.
+ * Keys that were not known when the layout was made, such as parameters,
+ * end up in an overflow map.
+ */
+class SlotMap(val layout: SlotLayout, values: Array[Any], private var overflow: MutableMap[String, Any])
+  extends MutableMap[String, Any] {
+
+  def this(layout: SlotLayout) = this(layout, SlotMap.emptySlots(layout.size), null)
+
+  def get(key: String): Option[Any] = {
+    val slot = layout.slotFor(key)
+    if (slot >= 0) {
+      val value = values(slot)
+      if (SlotMap.isAbsent(value)) None else Some(value)
+    } else if (overflow == null) {
+      None
+    } else {
+      overflow.get(key)
+    }
+  }
+
+  def iterator: Iterator[(String, Any)] = {
+    val slotted = (0 until values.length).iterator.
+      filterNot(slot => SlotMap.isAbsent(values(slot))).
+      map(slot => layout.nameAt(slot) -> values(slot))
+
+    if (overflow == null) slotted else slotted ++ overflow.iterator
+  }
+
+  def +=(kv: (String, Any)): this.type = {
+    val (key, value) = kv
+    val slot = layout.slotFor(key)
+    if (slot >= 0) {
+      values(slot) = value
+    } else {
+      if (overflow == null) {
+        overflow = MutableMaps.create
+      }
+      overflow += kv
+    }
+    this
+  }
+
+  def -=(key: String): this.type = {
+    val slot = layout.slotFor(key)
+    if (slot >= 0) {
+      values(slot) = SlotMap.Absent
+    } else if (overflow != null) {
+      overflow -= key
+    }
+    this
+  }
+
+  override def size: Int = {
+    var count = if (overflow == null) 0 else overflow.size
+    var slot = 0
+    while (slot < values.length) {
+      if (!SlotMap.isAbsent(values(slot))) {
+        count += 1
+      }
+      slot += 1
+    }
+    count
+  }
+
+  override def empty: SlotMap = new SlotMap(layout)
+
+  /**
+   * A copy of this row that shares the layout but none of the values.
+   */
+  def copySlots(): SlotMap = {
+    val overflowCopy = if (overflow == null) null else MutableMaps.create(overflow)
+    new SlotMap(layout, values.clone(), overflowCopy)
+  }
+}
+
+object SlotMap {
+  // Marks an unset slot, so that a slot explicitly set to null still counts as a key
+  private object Absent
+
+  private def emptySlots(size: Int): Array[Any] = {
+    val values = new Array[Any](size)
+    java.util.Arrays.fill(values.asInstanceOf[Array[AnyRef]], Absent)
+    values
+  }
+
+  private def isAbsent(value: Any) = value.asInstanceOf[AnyRef] eq Absent
+}
@@ -25,9 +25,12 @@ import org.neo4j.cypher.internal.symbols.{AnyType, NodeType, RelationshipType, I
 import collection.mutable.Map
 import collection.{Traversable, Iterable}
 
-abstract class StartPipe[T <: PropertyContainer](inner: Pipe, name: String, createSource: ExecutionContext => Iterable[T]) extends Pipe {
+abstract class StartPipe[T <: PropertyContainer](inner: Pipe, val name: String, createSource: ExecutionContext => Iterable[T])
+  extends Pipe with RowOrderPreserving {
   def this(inner: Pipe, name: String, sourceIterable: Iterable[T]) = this (inner, name, m => sourceIterable)
 
+  def source = inner
+
   def identifierType: AnyType
 
   val symbols = inner.symbols.add(Identifier(name, identifierType))
@@ -35,8 +35,10 @@ class DoubleOptionalPatternMatcher(bindings: Map[String, MatchingPair],
                                    predicates: Seq[Predicate],
                                    includeOptionals: Boolean,
                                    source: Map[String, Any],
-                                   doubleOptionalPaths: Seq[DoubleOptionalPath])
-  extends PatternMatcher(bindings, predicates, includeOptionals, source) {
+                                   doubleOptionalPaths: Seq[DoubleOptionalPath],
+                                   costs: ExpansionCosts = new ExpansionCosts,
+                                   expansions: Option[ExpansionCounts] = None)
+  extends PatternMatcher(bindings, predicates, includeOptionals, source, costs, expansions) {
 
   override protected def traverseNextSpecificNode[U](remaining: Set[MatchingPair],
                                                      history: History,
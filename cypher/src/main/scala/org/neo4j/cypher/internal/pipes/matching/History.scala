@@ -30,6 +30,9 @@ import scala.Option
  * entities corresponding to the pattern items.
  *
  * It's also used to emit the subgraph when the whole pattern has been matched (that's the toMap method)
+ *
+ * The maps are persistent - every step shares the map of its parent and only adds the newly bound
+ * entries to it, so a deep pattern does not pay for copying the whole history at every step.
  */
 abstract class History {
   val seen : Set[MatchingPair]
@@ -60,7 +63,7 @@ class InitialHistory(source : Map[String,Any]) extends History {
 
   def add(pair: MatchingPair) = new AddedHistory(this,pair)
 
-  val toMap = source
+  val toMap: Map[String, Any] = source.toMap
 }
 
 class AddedHistory(val parent : History, val pair : MatchingPair) extends History {
@@ -76,6 +79,11 @@ class AddedHistory(val parent : History, val pair : MatchingPair) extends Histor
     parent.toMap ++ toSeq(pair)
   }
 
+  /**
+   * The keys that were bound by the step that created this history
+   */
+  lazy val addedKeys: Seq[String] = toSeq(pair).map(_._1)
+
   def toSeq(p: MatchingPair) : Seq[(String,Any)] = {
     p match {
       case MatchingPair(pe: PatternNode, entity: Node) => Seq(pe.key -> entity)
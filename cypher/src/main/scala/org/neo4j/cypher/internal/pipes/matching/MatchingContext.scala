@@ -49,9 +49,11 @@ class MatchingContext(boundIdentifiers: SymbolTable,
     boundIdentifiers.add(ids: _*)
   }
 
-  def getMatches(sourceRow: Map[String, Any]): Traversable[Map[String, Any]] = {
-    builder.getMatches(sourceRow)
-  }
+  def getMatches(sourceRow: Map[String, Any], expansions: Option[ExpansionCounts] = None): Traversable[Map[String, Any]] =
+    builder match {
+      case patternMatching: PatterMatchingBuilder => patternMatching.getMatches(sourceRow, expansions)
+      case _                                      => builder.getMatches(sourceRow)
+    }
 
   private def decideWhichMatcherToUse(): MatcherBuilder = {
     if(SimplePatternMatcherBuilder.canHandle(patternGraph)) {
@@ -24,7 +24,10 @@ import org.neo4j.cypher.internal.commands.Predicate
 import collection.Map
 
 class PatterMatchingBuilder(patternGraph: PatternGraph, predicates: Seq[Predicate]) extends MatcherBuilder {
-  def getMatches(sourceRow: Map[String, Any]): Traversable[Map[String, Any]] = {
+  def getMatches(sourceRow: Map[String, Any]): Traversable[Map[String, Any]] = getMatches(sourceRow, None)
+
+  def getMatches(sourceRow: Map[String, Any], expansions: Option[ExpansionCounts]): Traversable[Map[String, Any]] = {
+    val costs = new ExpansionCosts
     val bindings: Map[String, Any] = sourceRow.filter(_._2.isInstanceOf[PropertyContainer])
     val boundPairs: Map[String, MatchingPair] = extractBoundMatchingPairs(bindings)
 
@@ -35,15 +38,15 @@ class PatterMatchingBuilder(patternGraph: PatternGraph, predicates: Seq[Predicat
       filter(_.dir == Direction.BOTH)
 
     val mandatoryPattern: Traversable[Map[String, Any]] = if (undirectedBoundRelationships.isEmpty) {
-      createPatternMatcher(boundPairs, false, sourceRow)
+      createPatternMatcher(boundPairs, false, sourceRow, costs, expansions)
     } else {
       val boundRels: Seq[Map[String, MatchingPair]] = createListOfBoundRelationshipsWithHangingNodes(undirectedBoundRelationships, bindings)
 
-      boundRels.map(relMap => createPatternMatcher(relMap ++ boundPairs, false, sourceRow)).reduceLeft(_ ++ _)
+      boundRels.map(relMap => createPatternMatcher(relMap ++ boundPairs, false, sourceRow, costs, expansions)).reduceLeft(_ ++ _)
     }
 
     if (patternGraph.containsOptionalElements)
-      mandatoryPattern.flatMap(innerMatch => createPatternMatcher(extractBoundMatchingPairs(innerMatch), true, sourceRow))
+      mandatoryPattern.flatMap(innerMatch => createPatternMatcher(extractBoundMatchingPairs(innerMatch), true, sourceRow, costs, expansions))
     else
       mandatoryPattern
   }
@@ -78,11 +81,12 @@ class PatterMatchingBuilder(patternGraph: PatternGraph, predicates: Seq[Predicat
         result.flatMap(r => element.map(e => e :: r))
     ).toSeq
 
-  private def createPatternMatcher(boundPairs: Map[String, MatchingPair], includeOptionals: Boolean, source: Map[String, Any]): Traversable[Map[String, Any]] = {
+  private def createPatternMatcher(boundPairs: Map[String, MatchingPair], includeOptionals: Boolean, source: Map[String, Any],
+                                   costs: ExpansionCosts, expansions: Option[ExpansionCounts]): Traversable[Map[String, Any]] = {
     val patternMatcher = if (patternGraph.hasDoubleOptionals)
-      new DoubleOptionalPatternMatcher(boundPairs, predicates, includeOptionals, source, patternGraph.doubleOptionalPaths)
+      new DoubleOptionalPatternMatcher(boundPairs, predicates, includeOptionals, source, patternGraph.doubleOptionalPaths, costs, expansions)
     else
-      new PatternMatcher(boundPairs, predicates, includeOptionals, source)
+      new PatternMatcher(boundPairs, predicates, includeOptionals, source, costs, expansions)
 
     if (includeOptionals)
       patternMatcher.map(matchedGraph => matchedGraph ++ createNullValuesForOptionalElements(matchedGraph))
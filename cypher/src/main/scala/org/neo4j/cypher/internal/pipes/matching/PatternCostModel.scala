@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.matching
+
+import org.neo4j.graphdb.Node
+import scala.collection.JavaConverters._
+
+/**
+ * Cheap statistics used by the pattern matcher to decide where to expand from.
+ *
+ * The cost of expanding a pattern relationship from a graph node is estimated by
+ * counting that node's matching relationships, but never more than SAMPLE_LIMIT of
+ * them. That is enough to tell a supernode from a rare node without loading the
+ * whole relationship chain of the supernode.
+ */
+object PatternCostModel {
+  val SAMPLE_LIMIT = 100
+
+  def expansionCost(pNode: PatternNode, node: Node, pRel: PatternRelationship): Int = {
+    val direction = pRel.directionFrom(pNode)
+    val relationships = if (pRel.relTypes.isEmpty)
+      node.getRelationships(direction)
+    else
+      node.getRelationships(direction, pRel.neo4jRelTypes: _*)
+
+    val sampled = relationships.asScala.iterator.take(SAMPLE_LIMIT).size
+
+    pRel match {
+      // Every hop of a variable length path multiplies the cost
+      case _: VariableLengthPatternRelationship => sampled * SAMPLE_LIMIT
+      case _                                    => sampled
+    }
+  }
+
+  type ExpansionCost = (PatternNode, Node, PatternRelationship) => Int
+
+  /**
+   * The cost of starting from a bound node is the cost of its cheapest way out
+   */
+  def startCost(pair: MatchingPair, relationships: Seq[PatternRelationship], cost: ExpansionCost = expansionCost _): Int = {
+    val (pNode, node) = pair.getPatternAndGraphPoint
+
+    if (relationships.isEmpty)
+      0
+    else
+      relationships.map(cost(pNode, node, _)).min
+  }
+
+  def cheapestStartPoint(candidates: Seq[(MatchingPair, Seq[PatternRelationship])],
+                         cost: ExpansionCost = expansionCost _): MatchingPair =
+    candidates.minBy {
+      case (pair, relationships) => startCost(pair, relationships, cost)
+    }._1
+
+  def cheapestRelationship(pair: MatchingPair, relationships: Seq[PatternRelationship],
+                           cost: ExpansionCost = expansionCost _): PatternRelationship = {
+    val (pNode, node) = pair.getPatternAndGraphPoint
+
+    relationships.minBy(cost(pNode, node, _))
+  }
+}
+
+/**
+ * The expansion costs of a single row. The matcher comes back to the same bound node
+ * for every branch of the pattern, and the relationships of the node are only sampled
+ * the first time.
+ */
+class ExpansionCosts extends PatternCostModel.ExpansionCost {
+  private val costs = collection.mutable.Map[(String, Long, String), Int]()
+
+  def apply(pNode: PatternNode, node: Node, pRel: PatternRelationship): Int =
+    costs.getOrElseUpdate((pNode.key, node.getId, pRel.key), PatternCostModel.expansionCost(pNode, node, pRel))
+}
+
+/**
+ * Counts how often the matcher started from each bound node and expanded the pattern
+ * relationships in each order, over the rows of a single profiled execution. The choice
+ * depends on the degrees of the bound nodes, so it can differ between rows.
+ */
+class ExpansionCounts {
+  private val counts = collection.mutable.LinkedHashMap[(String, Seq[String]), Int]()
+
+  def record(start: String, relationships: Seq[String]) {
+    val key = start -> relationships
+    counts(key) = counts.getOrElse(key, 0) + 1
+  }
+
+  def isEmpty = counts.isEmpty
+
+  override def toString = counts.map {
+    case ((start, relationships), count) => "%s then %s: %d".format(start, relationships.mkString(", "), count)
+  }.mkString("; ")
+}
@@ -78,6 +78,8 @@ class PatternGraph(val patternNodes: Map[String, PatternNode],
 
   def get(key: String) = patternGraph.get(key)
 
+  override def toString = patternRels.values.map(r => "(%s)-[%s]-(%s)".format(r.startNode.key, r.key, r.endNode.key)).mkString(", ")
+
   def contains(key: String) = patternGraph.contains(key)
 
   def keySet = patternGraph.keySet
@@ -23,17 +23,51 @@ import org.neo4j.graphdb.Node
 import org.neo4j.cypher.internal.commands.{True, Predicate}
 import collection.Map
 
-class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predicate], includeOptionals: Boolean, source:Map[String,Any])
+class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predicate], includeOptionals: Boolean, source:Map[String,Any],
+                     costs: ExpansionCosts = new ExpansionCosts, expansions: Option[ExpansionCounts] = None)
   extends Traversable[Map[String, Any]] {
   val boundNodes = bindings.filter(_._2.patternElement.isInstanceOf[PatternNode])
   val boundRels = bindings.filter(_._2.patternElement.isInstanceOf[PatternRelationship])
 
+  /*
+  Every predicate is checked once, as soon as the last identifier it depends on has been bound.
+  Predicates that only depend on the incoming row are checked before matching starts.
+   */
+  private val predicateDependencies: Seq[(Predicate, Seq[String])] =
+    predicates.filterNot(_.containsIsNull).map(p => p -> p.dependencies.map(_.name))
+
+  private val expanded = collection.mutable.LinkedHashSet[String]()
+
   def foreach[U](f: (Map[String, Any]) => U) {
     debug("startPatternMatching")
 
-    traverseNode(boundNodes.values.toSet, new InitialHistory(source), f)
+    val startPoints = boundNodes.values.toSet
+    val history = new InitialHistory(source)
+    if (!sourceMatches(history)) {
+      debug("failed because of a predicate on the incoming row")
+      return
+    }
+
+    val start = cheapestStartPoint(startPoints, history)
+
+    try {
+      traverseNextSpecificNode(startPoints, history, f, start, alreadyInExtraWork = false)
+    } finally {
+      expansions.foreach(_.record(start.patternNode.key, expanded.toSeq))
+    }
   }
 
+  /*
+  Of several bound nodes, the one with the fewest relationships to expand is the best
+  place to start. Anchoring on a supernode when a rare node is also bound is what we
+  want to avoid.
+   */
+  private def cheapestStartPoint(startPoints: Set[MatchingPair], history: History): MatchingPair =
+    if (startPoints.size < 2)
+      startPoints.head
+    else
+      PatternCostModel.cheapestStartPoint(startPoints.toSeq.map(pair => pair -> getPatternRelationshipsNotYetVisited(pair.patternNode, history)), costs)
+
   protected def traverseNextSpecificNode[U](remaining: Set[MatchingPair],
                                             history: History,
                                             yielder: (Map[String, Any]) => U,
@@ -47,7 +81,7 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
     }
 
     val newHistory = history.add(current)
-    if (!isMatchSoFar(newHistory)) {
+    if (!isMatchSoFar(history, newHistory)) {
       debug("failed subgraph because of predicate")
       return false
     }
@@ -57,7 +91,7 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
     notYetVisited match {
       case List() => traverseNextNodeOrYield(remaining - current, newHistory, yielder)
       case List(single) => traverseRelationship(current, single, newHistory, remaining - current, yielder)
-      case _ => traverseRelationship(current, notYetVisited.head, newHistory, remaining, yielder)
+      case _ => traverseRelationship(current, PatternCostModel.cheapestRelationship(current, notYetVisited, costs), newHistory, remaining, yielder)
     }
   }
 
@@ -87,7 +121,7 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
         case p => if(!p.isMatch(newHistory.toMap)) return false
       }
 
-      if (isMatchSoFar(newHistory)) {
+      if (isMatchSoFar(history, newHistory)) {
         val nextNode = rel.getOtherNode(gNode)
 
         val nextPair = MatchingPair(nextPNode, nextNode)
@@ -125,6 +159,7 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
                                       remaining: Set[MatchingPair],
                                       yielder: (Map[String, Any]) => U): Boolean = {
     debug(currentNode, currentRel, history, remaining)
+    expanded += currentRel.key
 
     val (pNode, gNode) = currentNode.getPatternAndGraphPoint
 
@@ -154,10 +189,31 @@ class PatternMatcher(bindings: Map[String, MatchingPair], predicates: Seq[Predic
     false
   }
 
-  private def isMatchSoFar(history: History): Boolean = {
+  private def sourceMatches(history: History): Boolean = {
     val m = history.toMap
-    val predicate = predicates.filter(predicate=> !predicate.containsIsNull && predicate.dependencies.map(_.name).forall(m contains))
-    predicate.forall(_.isMatch(m))
+    predicateDependencies.forall {
+      case (predicate, dependencies) => !dependencies.forall(m contains) || predicate.isMatch(m)
+    }
+  }
+
+  private def isMatchSoFar(before: History, after: History): Boolean = after match {
+    case added: AddedHistory if added ne before => {
+      // Keys of the incoming row were checked by sourceMatches
+      val newKeys = added.addedKeys.filterNot(source.contains)
+      val toCheck = predicateDependencies.filter {
+        case (_, dependencies) => dependencies.exists(newKeys.contains)
+      }
+
+      if (toCheck.isEmpty) {
+        true
+      } else {
+        val m = added.toMap
+        toCheck.forall {
+          case (predicate, dependencies) => !dependencies.forall(m contains) || predicate.isMatch(m)
+        }
+      }
+    }
+    case _ => true
   }
 
   private def traverseNextNodeOrYield[U](remaining: Set[MatchingPair], history: History, yielder: Map[String, Any] => U): Boolean = {
@@ -58,6 +58,8 @@ class PatternRelationship(key: String,
       result
   }
 
+  def directionFrom(node: PatternNode): Direction = getDirection(node)
+
   protected def getDirection(node: PatternNode): Direction = {
     dir match {
       case Direction.OUTGOING => if (node == startNode) Direction.OUTGOING else Direction.INCOMING
@@ -2255,4 +2255,75 @@ RETURN x0.name?
     assert(result.toList === List(Map("n" -> refNode, "collect(x)" -> List())))
   }
 
-}
\ No newline at end of file
+  @Test
+  def should_join_two_indexed_start_points_on_a_shared_node() {
+    val a1 = createNode("a1")
+    val a2 = createNode("a2")
+    val b = createNode("b")
+    val shared = createNode("shared")
+    val other = createNode("other")
+    indexNode(a1, "idx", "side", "a")
+    indexNode(a2, "idx", "side", "a")
+    indexNode(b, "idx", "side", "b")
+    val r1 = relate(a1, shared)
+    relate(a2, other)
+    relate(a1, other, "OTHER")
+    val r2 = relate(b, shared)
+
+    val query = "start a=node:idx(side='a'), b=node:idx(side='b') match a-[r1:REL]->x<-[r2]-b return a, r1, x, r2, b"
+    val result = parseAndExecute(query)
+
+    assert(engine.prepare(query).toString.contains("HashJoin"))
+    assert(result.toList === List(Map("a" -> a1, "r1" -> r1, "x" -> shared, "r2" -> r2, "b" -> b)))
+  }
+
+  @Test
+  def should_profile_a_query_with_row_counts_and_db_hits_per_step() {
+    val a = createNode("a")
+    val b = createNode("b")
+    val c = createNode("c")
+    relate(a, b)
+    relate(a, c)
+
+    val result = engine.profile("start n=node(1) match n-->x return x")
+
+    assert(result.toSet === Set(Map("x" -> b), Map("x" -> c)))
+
+    val plan = result.executionPlanDescription()
+    val lines = plan.split("\r\n")
+    assert(lines.exists(line => line.startsWith("Nodes(n)") && line.contains("(rows: 1, db hits: ")), plan)
+    assert(lines.exists(line => line.startsWith("PatternMatch") && line.contains("(rows: 2, db hits: ")), plan)
+  }
+
+  @Test
+  def should_only_report_the_chosen_expansions_when_profiling() {
+    val a = createNode("a")
+    val b = createNode("b")
+    val c = createNode("c")
+    relate(a, b, "KNOWS")
+    relate(a, c, "LOVES")
+    val query = "start n=node(1) match n-[r:KNOWS|LOVES]->x return x"
+
+    val before = engine.prepare(query).toString
+    val result = engine.execute(query)
+    result.toList
+
+    assert(result.executionPlanDescription() === before)
+    assert(before.contains("expand from: n, relationships: cheapest first"), before)
+
+    val profiled = engine.profile(query).executionPlanDescription()
+    assert(profiled.contains("expansions: n then r: 1"), profiled)
+  }
+
+  @Test
+  def should_find_all_nodes_matching_an_auto_indexed_property() {
+    graph.index.getNodeAutoIndexer.setEnabled(true)
+    graph.index.getNodeAutoIndexer.startAutoIndexingProperty("email")
+    val andres = createNode(Map[String, Any]("email" -> "andres@example.com"))
+    createNode(Map[String, Any]("email" -> "michael@example.com"))
+
+    val result = parseAndExecute("start n=node(*) where n.email = {e} return n", "e" -> "andres@example.com")
+
+    assert(result.toList === List(Map("n" -> andres)))
+  }
+}
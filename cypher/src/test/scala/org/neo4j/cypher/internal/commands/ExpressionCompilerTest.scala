@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.commands
+
+import org.junit.Test
+import org.scalatest.Assertions
+import org.neo4j.cypher.{ParameterNotFoundException, CypherTypeException}
+
+class ExpressionCompilerTest extends Assertions {
+
+  val m = Map[String, Any]("x" -> 10, "s" -> "hello", "-=PARAMETER=-p-=PARAMETER=-" -> ParameterValue(3))
+
+  @Test def shouldFoldConstantArithmetic() {
+    val compiled = ExpressionCompiler.compile(Multiply(Literal(2), Literal(21)))
+    assert(compiled(Map()) === 42)
+  }
+
+  @Test def shouldComputeLikeTheInterpretedExpression() {
+    val expr = Subtract(Multiply(Entity("x"), ParameterExpression("p")), Literal(5))
+    assert(ExpressionCompiler.compile(expr)(m) === expr(m))
+  }
+
+  @Test def shouldUseAlreadyComputedValues() {
+    val expr = Subtract(Entity("x"), Literal(1))
+    val row = m + (expr.identifier.name -> 100)
+    assert(ExpressionCompiler.compile(expr)(row) === 100)
+  }
+
+  @Test def shouldFailLikeTheInterpretedExpression() {
+    intercept[CypherTypeException](ExpressionCompiler.compile(Subtract(Entity("s"), Literal(1)))(m))
+    intercept[ParameterNotFoundException](ExpressionCompiler.compile(ParameterExpression("missing"))(m))
+  }
+
+  @Test def shouldCompilePredicates() {
+    val predicate = And(GreaterThan(Entity("x"), Literal(5)), Or(Equals(Entity("s"), Literal("hello")), Not(True())))
+    assert(ExpressionCompiler.compile(predicate)(m) === true)
+    assert(ExpressionCompiler.compile(Not(predicate))(m) === false)
+    assert(ExpressionCompiler.compile(LessThanOrEqual(Entity("x"), ParameterExpression("p")))(m) === false)
+  }
+
+  @Test def shouldCompareNumbersOfDifferentTypesLikeTheInterpretedPredicate() {
+    val predicate = Equals(Entity("x"), Literal(10L))
+    assert(ExpressionCompiler.compile(predicate)(m) === predicate.isMatch(m))
+  }
+}
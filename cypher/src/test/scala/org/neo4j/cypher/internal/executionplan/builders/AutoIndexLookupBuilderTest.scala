@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.junit.{Before, Test}
+import org.junit.Assert._
+import org.neo4j.cypher.GraphDatabaseTestBase
+import org.neo4j.cypher.internal.commands._
+import org.neo4j.cypher.internal.pipes.{QueryState, MutableMaps, NodeStartPipe, NullPipe}
+import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery}
+import org.neo4j.graphdb.Node
+
+class AutoIndexLookupBuilderTest extends GraphDatabaseTestBase {
+  var builder: AutoIndexLookupBuilder = null
+  var andres: Node = null
+
+  @Before def init() {
+    graph.index.getNodeAutoIndexer.setEnabled(true)
+    graph.index.getNodeAutoIndexer.startAutoIndexingProperty("email")
+    andres = createNode(Map[String, Any]("email" -> "andres@example.com", "name" -> "Andres"))
+    createNode(Map[String, Any]("email" -> "michael@example.com"))
+
+    builder = new AutoIndexLookupBuilder(graph, true)
+  }
+
+  @Test def should_solve_all_nodes_compared_on_a_property() {
+    val q = query(Equals(Property("n", "email"), ParameterExpression("e")))
+
+    assertTrue("Builder should accept this", builder.canWorkWith(plan(q)))
+
+    val result = builder(plan(q))
+
+    assert(result.query.start === Seq(Solved(AllNodes("n"))))
+    assert(result.query.where === q.where)
+    assertTrue(result.pipe.isInstanceOf[NodeStartPipe])
+  }
+
+  @Test def should_accept_the_property_on_either_side() {
+    val q = query(Equals(Literal("andres@example.com"), Property("n", "email")))
+
+    assertTrue("Builder should accept this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test def should_not_look_up_values_depending_on_other_identifiers() {
+    val q = query(Equals(Property("n", "email"), Property("m", "email")))
+
+    assertFalse("Builder should not accept this", builder.canWorkWith(plan(q)))
+  }
+
+  @Test def should_not_look_up_unless_enabled() {
+    val q = query(Equals(Property("n", "email"), ParameterExpression("e")))
+
+    assertFalse("Builder should not accept this", new AutoIndexLookupBuilder(graph, false).canWorkWith(plan(q)))
+    assertFalse("Not enabled by default", new AutoIndexLookupBuilder(graph).canWorkWith(plan(q)))
+  }
+
+  @Test def should_look_up_strings_in_the_auto_index() {
+    val q = query(Equals(Property("n", "email"), ParameterExpression("e")))
+
+    assert(startPoints(q, "e" -> "andres@example.com") === List(andres))
+  }
+
+  @Test def should_scan_all_nodes_for_properties_that_are_not_auto_indexed() {
+    val q = query(Equals(Property("n", "name"), Literal("Andres")))
+
+    assert(startPoints(q).size === 3)
+  }
+
+  @Test def should_scan_all_nodes_for_values_that_are_not_strings() {
+    val q = query(Equals(Property("n", "email"), ParameterExpression("e")))
+
+    assert(startPoints(q, "e" -> 42).size === 3)
+  }
+
+  @Test def should_scan_all_nodes_when_auto_indexing_is_disabled_after_planning() {
+    val q = query(Equals(Property("n", "email"), ParameterExpression("e")))
+    val pipe = builder(plan(q)).pipe
+
+    graph.index.getNodeAutoIndexer.setEnabled(false)
+
+    assert(pipe.createResults(new QueryState(graph, MutableMaps.create(Seq("e" -> "andres@example.com")))).size === 3)
+  }
+
+  private def startPoints(q: PartiallySolvedQuery, params: (String, Any)*) =
+    builder(plan(q)).pipe.createResults(new QueryState(graph, MutableMaps.create(params))).map(_("n")).toList
+
+  private def query(predicate: Predicate) = PartiallySolvedQuery().copy(
+    start = Seq(Unsolved(AllNodes("n"))),
+    where = Seq(Unsolved(predicate)))
+
+  private def plan(q: PartiallySolvedQuery) = ExecutionPlanInProgress(q, new NullPipe)
+}
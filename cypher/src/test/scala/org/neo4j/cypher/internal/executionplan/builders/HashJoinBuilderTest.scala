@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.junit.Test
+import org.neo4j.graphdb.Direction
+import org.junit.Assert._
+import org.neo4j.cypher.internal.commands._
+import org.neo4j.cypher.internal.executionplan.PartiallySolvedQuery
+import org.neo4j.cypher.internal.pipes.HashJoinPipe
+
+class HashJoinBuilderTest extends BuilderTest {
+
+  val builder = new HashJoinBuilder
+
+  val fromA = RelatedTo("a", "x", "r1", Seq(), Direction.OUTGOING, false, True())
+  val fromB = RelatedTo("x", "b", "r2", Seq(), Direction.INCOMING, false, True())
+
+  @Test
+  def should_join_two_indexed_start_points() {
+    val q = PartiallySolvedQuery().
+      copy(start = Seq(Solved(NodeByIndexQuery("a", "idx", Literal("foo:bar"))), Solved(NodeById("b", 0))),
+      patterns = Seq(Unsolved(fromA), Unsolved(fromB)))
+
+    val p = createPipe(nodes = Seq("a", "b"))
+
+    assertTrue(builder.canWorkWith(plan(p, q)))
+
+    val result = builder(plan(p, q))
+    assertTrue(result.pipe.isInstanceOf[HashJoinPipe])
+    assert(result.query.patterns.toSet === Set(Solved(fromA), Solved(fromB)))
+  }
+
+  @Test
+  def should_leave_id_lookups_to_the_pattern_matcher() {
+    val q = PartiallySolvedQuery().
+      copy(start = Seq(Solved(NodeById("a", 0)), Solved(NodeById("b", 1))),
+      patterns = Seq(Unsolved(fromA), Unsolved(fromB)))
+
+    val p = createPipe(nodes = Seq("a", "b"))
+
+    assertFalse(builder.canWorkWith(plan(p, q)))
+  }
+
+  @Test
+  def should_not_join_optional_relationships() {
+    val q = PartiallySolvedQuery().
+      copy(start = Seq(Solved(AllNodes("a")), Solved(AllNodes("b"))),
+      patterns = Seq(Unsolved(fromA), Unsolved(fromB.copy(optional = true))))
+
+    val p = createPipe(nodes = Seq("a", "b"))
+
+    assertFalse(builder.canWorkWith(plan(p, q)))
+  }
+
+  @Test
+  def should_not_join_when_the_middle_node_is_already_bound() {
+    val q = PartiallySolvedQuery().
+      copy(start = Seq(Solved(AllNodes("a")), Solved(AllNodes("b"))),
+      patterns = Seq(Unsolved(fromA), Unsolved(fromB)))
+
+    val p = createPipe(nodes = Seq("a", "b", "x"))
+
+    assertFalse(builder.canWorkWith(plan(p, q)))
+  }
+}
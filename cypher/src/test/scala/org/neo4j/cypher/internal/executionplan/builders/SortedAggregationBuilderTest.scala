@@ -17,81 +17,65 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-///**
-// * Copyright (c) 2002-2012 "Neo Technology,"
-// * Network Engine for Objects in Lund AB [http://neotechnology.com]
-// *
-// * This file is part of Neo4j.
-// *
-// * Neo4j is free software: you can redistribute it and/or modify
-// * it under the terms of the GNU General Public License as published by
-// * the Free Software Foundation, either version 3 of the License, or
-// * (at your option) any later version.
-// *
-// * This program is distributed in the hope that it will be useful,
-// * but WITHOUT ANY WARRANTY; without even the implied warranty of
-// * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
-// * GNU General Public License for more details.
-// *
-// * You should have received a copy of the GNU General Public License
-// * along with this program.  If not, see <http://www.gnu.org/licenses/>.
-// */
-//package org.neo4j.cypher.internal.executionplan.builders
-//
-//import org.junit.Test
-//import org.neo4j.cypher.internal.executionplan.PartiallySolvedQuery
-//import org.junit.Assert._
-//import org.neo4j.cypher.internal.commands._
-//
-//class SortedAggregationBuilderTest extends BuilderTest {
-//
-//  val builder = new SortedAggregationBuilder
-//
-//  @Test def should_accept_when_aggregating_on_same_keys_as_sort() {
-//    val q = PartiallySolvedQuery().
-//      copy(aggregation = Seq(Unsolved(CountStar())),
-//      returns = Seq(Unsolved(ReturnItem(Entity("n"), "n"))),
-//      sort = Seq(Unsolved(SortItem(Entity("n"), true)))
-//    )
-//
-//    val p = createPipe(nodes = Seq("n"))
-//
-//    assertTrue("Builder should accept this", builder.canWorkWith(plan(p, q)))
-//
-//    val resultQ = builder(plan(p, q)).query
-//
-//    val expectedQuery = q.copy(
-//      aggregation = q.aggregation.map(_.solve),
-//      sort = q.sort.map(_.solve),
-//      extracted = true
-//    )
-//
-//    assert(resultQ == expectedQuery)
-//  }
-//
-//  @Test def should_not_accept_if_the_sorting_columns_are_in_a_different_order() {
-//    val q = PartiallySolvedQuery().
-//      copy(aggregation = Seq(Unsolved(CountStar())),
-//      returns = Seq(Unsolved(ReturnItem(Entity("a"), "a")), Unsolved(ReturnItem(Entity("b"), "b"))),
-//      sort = Seq(Unsolved(SortItem(Entity("b"), true)), Unsolved(SortItem(Entity("a"), true)))
-//    )
-//
-//    val p = createPipe(nodes = Seq("a", "b"))
-//
-//    assertFalse("Builder should not accept this", builder.canWorkWith(plan(p, q)))
-//  }
-//
-//  @Test def should_not_accept_if_there_are_still_other_things_to_do_in_the_query() {
-//    val q = PartiallySolvedQuery().
-//      copy(
-//      start = Seq(Unsolved(NodeById("n", 0))),
-//      aggregation = Seq(Unsolved(CountStar())),
-//      returns = Seq(Unsolved(ReturnItem(Entity("n"), "n"))),
-//      sort = Seq(Unsolved(SortItem(Entity("n"), true)))
-//    )
-//
-//    val p = createPipe(nodes = Seq())
-//
-//    assertFalse("Builder should not accept this", builder.canWorkWith(plan(p, q)))
-//  }
-//}
\ No newline at end of file
+package org.neo4j.cypher.internal.executionplan.builders
+
+import org.junit.Test
+import org.junit.Assert._
+import org.neo4j.cypher.internal.commands._
+import org.neo4j.cypher.internal.executionplan.{ExecutionPlanInProgress, PartiallySolvedQuery}
+import org.neo4j.cypher.internal.pipes.{Pipe, NodeStartPipe, ParameterPipe, OrderedAggregationPipe}
+import org.neo4j.graphdb.Node
+
+class SortedAggregationBuilderTest extends BuilderTest {
+
+  val builder = new SortedAggregationBuilder
+
+  @Test def should_accept_when_rows_come_grouped_on_the_key() {
+    val q = aggregatingQuery(NodeById("n", 1, 2), Entity("n"))
+    val p = startPipe(new ParameterPipe(), "n")
+
+    val plan = ExecutionPlanInProgress(q, p)
+
+    assertTrue("Builder should accept this", builder.canWorkWith(plan))
+    assertTrue(builder(plan).pipe.isInstanceOf[OrderedAggregationPipe])
+  }
+
+  @Test def should_accept_keys_depending_only_on_the_grouped_identifier() {
+    val q = aggregatingQuery(NodeById("n", 1, 2), Entity("n"), Property("n", "name"))
+    val p = startPipe(new ParameterPipe(), "n")
+
+    assertTrue("Builder should accept this", builder.canWorkWith(ExecutionPlanInProgress(q, p)))
+  }
+
+  @Test def should_not_accept_if_a_key_depends_on_other_identifiers() {
+    val q = aggregatingQuery(NodeById("n", 1, 2), Entity("n"), Entity("x")).
+      copy(start = Seq(Solved(NodeById("n", 1, 2)), Solved(NodeById("x", 3))))
+    val p = startPipe(startPipe(new ParameterPipe(), "n"), "x")
+
+    assertFalse("Builder should not accept this", builder.canWorkWith(ExecutionPlanInProgress(q, p)))
+  }
+
+  @Test def should_not_accept_if_the_start_point_can_repeat_elements() {
+    val q = aggregatingQuery(NodeById("n", 1, 2, 1), Entity("n"))
+    val p = startPipe(new ParameterPipe(), "n")
+
+    assertFalse("Builder should not accept this", builder.canWorkWith(ExecutionPlanInProgress(q, p)))
+  }
+
+  @Test def should_not_accept_if_the_rows_do_not_come_from_a_start_pipe() {
+    val q = aggregatingQuery(NodeById("n", 1, 2), Entity("n"))
+    val p = createPipe(nodes = Seq("n"))
+
+    assertFalse("Builder should not accept this", builder.canWorkWith(ExecutionPlanInProgress(q, p)))
+  }
+
+  private def startPipe(source: Pipe, name: String) = new NodeStartPipe(source, name, m => Seq[Node]())
+
+  private def aggregatingQuery(start: StartItem, keys: Expression*) = PartiallySolvedQuery().
+    copy(
+    start = Seq(Solved(start)),
+    aggregation = Seq(Unsolved(CountStar())),
+    returns = keys.map(k => Unsolved(ReturnItem(k, k.identifier.name))),
+    aggregateQuery = Unsolved(true)
+  )
+}
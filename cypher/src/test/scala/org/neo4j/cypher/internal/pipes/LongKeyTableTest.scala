@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.junit.Test
+import org.junit.Assert._
+import org.scalatest.junit.JUnitSuite
+
+class LongKeyTableTest extends JUnitSuite {
+  @Test def shouldFindWhatWasPut() {
+    val table = new LongKeyTable[String]()
+    table.put(0, "zero")
+    table.put(42, "answer")
+
+    assertEquals(Some("zero"), table.get(0))
+    assertEquals(Some("answer"), table.get(42))
+    assertEquals(None, table.get(7))
+    assertEquals(2, table.size)
+  }
+
+  @Test def shouldKeepAllEntriesWhenGrowing() {
+    val table = new LongKeyTable[java.lang.Long]()
+    (0L until 1000L).foreach(i => table.put(i * 31, i))
+
+    assertEquals(1000, table.size)
+    (0L until 1000L).foreach(i => assertEquals(Some(i), table.get(i * 31)))
+  }
+
+  @Test def shouldOnlyComputeMissingValues() {
+    val table = new LongKeyTable[String]()
+    table.put(1, "one")
+
+    assertEquals("one", table.getOrElseUpdate(1, throw new AssertionError("should not be computed")))
+    assertEquals("two", table.getOrElseUpdate(2, "two"))
+    assertEquals(Some("two"), table.get(2))
+  }
+
+  @Test(expected = classOf[IllegalArgumentException]) def shouldNotAcceptNegativeKeys() {
+    new LongKeyTable[String]().put(-1, "minus one")
+  }
+}
@@ -97,6 +97,19 @@ class OrderedAggregationPipeTest extends JUnitSuite with Assertions {
     intercept[ThisShouldNotHappenError](new OrderedAggregationPipe(source, returnItems, grouping))
   }
 
+  @Test def shouldHandOnAGroupWithoutPullingMoreThanTheFirstRowOfTheNext() {
+    val rows: Stream[Map[String, Any]] =
+      Map[String, Any]("name" -> "Andres") #::
+        Map[String, Any]("name" -> "Andres") #::
+        Map[String, Any]("name" -> "Michael") #::
+        (throw new AssertionError("Pulled more rows than needed"): Stream[Map[String, Any]])
+    val source = new FakePipe(rows, createSymbolTableFor("name"))
+
+    val aggregationPipe = new OrderedAggregationPipe(source, List(Entity("name")), List(CountStar()))
+
+    assertEquals(Map("name" -> "Andres", "count(*)" -> 2), aggregationPipe.createResults(QueryState()).head.m)
+  }
+
   private def createSymbolTableFor(names: String*) = new SymbolTable(names.map(Identifier(_, NodeType())): _*)
 
 }
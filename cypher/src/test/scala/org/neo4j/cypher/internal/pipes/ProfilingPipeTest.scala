@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.junit.Test
+import org.junit.Assert._
+import org.scalatest.junit.JUnitSuite
+import org.neo4j.cypher.internal.commands.{Entity, Equals, Literal}
+import collection.mutable.Map
+
+class ProfilingPipeTest extends JUnitSuite {
+  @Test def shouldCountTheRowsOfEachPipe() {
+    val source = new ProfilingPipe(new FakePipe(List(Map("x" -> 1), Map("x" -> 2), Map("x" -> 1))), None)
+    val filter = new ProfilingPipe(new FilterPipe(source, Equals(Entity("x"), Literal(1))), Some(source))
+
+    val result = filter.createResults(QueryState()).toList
+
+    assertEquals(2, result.size)
+    assertEquals(3, source.rows)
+    assertEquals(2, filter.rows)
+  }
+
+  @Test def shouldNotCountRowsThatWereNeverPulled() {
+    val source = new ProfilingPipe(new FakePipe(List(Map("x" -> 1), Map("x" -> 2), Map("x" -> 3))), None)
+
+    source.createResults(QueryState()).take(1).toList
+
+    assertTrue(source.rows < 3)
+  }
+
+  @Test def shouldAnnotateEveryStepOfThePlan() {
+    val source = new ProfilingPipe(new FakePipe(List(Map("x" -> 1))), None)
+    val filter = new ProfilingPipe(new FilterPipe(source, Equals(Entity("x"), Literal(1))), Some(source))
+
+    filter.createResults(QueryState()).toList
+
+    val lines = filter.executionPlan().split("\r\n")
+    assertEquals(2, lines.size)
+    assertTrue(lines(0), lines(0).startsWith("FAKE  (rows: 1, db hits: 0"))
+    assertTrue(lines(1), lines(1).startsWith("Filter("))
+    assertTrue(lines(1), lines(1).contains("(rows: 1, db hits: 0"))
+  }
+}
@@ -85,4 +85,28 @@ class SingleShortestPathPipeTest extends GraphDatabaseTestBase with Assertions {
     val result = runThroughPipeAndGetPath(a, c, path)
     assert(2 === result.length())
   }
-}
\ No newline at end of file
+
+  @Test def shouldFindPathsForManyRowsSharingAStartNodeInRowOrder() {
+    val a = createNode("a")
+    val ends = (1 to 6).map(i => createNode("end" + i)).toList
+    // a chain a - end1 - end2 - ... - end6, so endN is N steps away
+    ends.foldLeft(a)((previous, next) => {
+      relate(previous, next, "rel")
+      next
+    })
+    val unreachable = createNode("unreachable")
+
+    val rows = (ends.reverse :+ unreachable).map(end => Map[String, Any]("a" -> a, "b" -> end))
+    val pipe = new ShortestPathPipe(new FakePipe(rows), path)
+
+    val result = pipe.createResults(QueryState()).toList
+
+    assert(result.map(_("b")) === ends.reverse :+ unreachable)
+    assert(result.map(ctx => Option(ctx("p").asInstanceOf[Path]).map(_.length()).getOrElse(-1)) === List(6, 5, 4, 3, 2, 1, -1))
+    result.dropRight(1).foreach(ctx => {
+      val p = ctx("p").asInstanceOf[Path]
+      assert(p.startNode() === a)
+      assert(p.endNode() === ctx("b"))
+    })
+  }
+}
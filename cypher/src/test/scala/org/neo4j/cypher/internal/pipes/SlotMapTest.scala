@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes
+
+import org.junit.Assert._
+import org.junit.Test
+import org.scalatest.junit.JUnitSuite
+import collection.mutable.Map
+
+class SlotMapTest extends JUnitSuite {
+  val layout = SlotLayout(Seq("a", "b", "c"))
+
+  @Test def shouldStoreKnownKeysInSlotsAndOthersInOverflow() {
+    val row = layout.newRow()
+    row += "a" -> 1
+    row += "x" -> 2
+
+    assertEquals(Map("a" -> 1, "x" -> 2), row)
+    assertEquals(2, row.size)
+    assertEquals(None, row.get("b"))
+  }
+
+  @Test def shouldKeepExplicitNullsAsKeys() {
+    val row = layout.newRow()
+    row += "b" -> null
+
+    assertTrue(row.contains("b"))
+    assertEquals(Some(null), row.get("b"))
+  }
+
+  @Test def newWithShouldNotChangeTheOriginalRow() {
+    val ctx = ExecutionContext(layout.newRow() += "a" -> 1)
+    val newCtx = ctx.newWith("b" -> 2)
+
+    assertEquals(Map("a" -> 1), ctx)
+    assertEquals(Map("a" -> 1, "b" -> 2), newCtx)
+    assertTrue(newCtx.m.isInstanceOf[SlotMap])
+  }
+
+  @Test def newFromShouldKeepTheLayout() {
+    val ctx = ExecutionContext(layout.newRow() += "a" -> 1)
+    val newCtx = ctx.newFrom(Seq("c" -> 3))
+
+    assertEquals(Map("c" -> 3), newCtx)
+    assertTrue(newCtx.m.isInstanceOf[SlotMap])
+  }
+
+  @Test def removedKeysShouldNotBeIterated() {
+    val row = layout.newRow()
+    row += "a" -> 1
+    row += "c" -> 3
+    row -= "a"
+
+    assertEquals(List("c" -> 3), row.iterator.toList)
+  }
+
+  @Test def emptyLayoutShouldHandOutPlainMaps() {
+    assertFalse(SlotLayout.empty.newRow().isInstanceOf[SlotMap])
+  }
+}
@@ -39,4 +39,17 @@ class HistoryTest extends GraphDatabaseTestBase with Assertions {
 
     assert(history.filter(Set[PatternRelationship](pr)) === Set())
   }
-}
\ No newline at end of file
+
+  @Test def addedHistoryKnowsWhichKeysItBound() {
+    val a = new PatternNode("a")
+    val b = new PatternNode("b")
+    val pr = a.relateTo("r", b, Seq(), Direction.BOTH, false, True())
+    val r = relate(graph.getReferenceNode, graph.getReferenceNode, "rel")
+    val initial = new InitialHistory(Map("x" -> 1))
+    val history = initial.add(MatchingPair(pr, SingleGraphRelationship(r)))
+
+    assert(history.asInstanceOf[AddedHistory].addedKeys === Seq("r"))
+    assert(history.toMap === Map("x" -> 1, "r" -> r))
+    assert(initial.toMap === Map("x" -> 1))
+  }
+}
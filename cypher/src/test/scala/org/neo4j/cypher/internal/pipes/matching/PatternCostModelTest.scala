@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.matching
+
+import org.neo4j.cypher.GraphDatabaseTestBase
+import org.scalatest.Assertions
+import org.junit.Test
+import org.neo4j.graphdb.Direction
+import org.neo4j.cypher.internal.commands.True
+
+class PatternCostModelTest extends GraphDatabaseTestBase with Assertions {
+  @Test def shouldStartFromTheNodeWithFewestRelationships() {
+    val superNode = createNode()
+    val rareNode = createNode()
+    val shared = createNode()
+    (0 until 20).foreach(x => relate(superNode, createNode()))
+    relate(superNode, shared)
+    relate(rareNode, shared)
+
+    val pA = new PatternNode("a")
+    val pB = new PatternNode("b")
+    val pX = new PatternNode("x")
+    val r1 = pA.relateTo("r1", pX, Seq(), Direction.OUTGOING, false, True())
+    val r2 = pB.relateTo("r2", pX, Seq(), Direction.OUTGOING, false, True())
+
+    val superPair = MatchingPair(pA, superNode)
+    val rarePair = MatchingPair(pB, rareNode)
+
+    assert(PatternCostModel.cheapestStartPoint(Seq(superPair -> Seq(r1), rarePair -> Seq(r2))) === rarePair)
+  }
+
+  @Test def shouldStopCountingAtTheSampleLimit() {
+    val superNode = createNode()
+    (0 until PatternCostModel.SAMPLE_LIMIT + 10).foreach(x => relate(superNode, createNode()))
+
+    val pA = new PatternNode("a")
+    val pX = new PatternNode("x")
+    val r = pA.relateTo("r", pX, Seq(), Direction.OUTGOING, false, True())
+
+    assert(PatternCostModel.expansionCost(pA, superNode, r) === PatternCostModel.SAMPLE_LIMIT)
+  }
+
+  @Test def shouldOnlyCountRelationshipsInTheDirectionOfThePattern() {
+    val a = createNode()
+    relate(a, createNode())
+    relate(createNode(), a)
+    relate(createNode(), a)
+
+    val pA = new PatternNode("a")
+    val pX = new PatternNode("x")
+    val r = pA.relateTo("r", pX, Seq(), Direction.OUTGOING, false, True())
+
+    assert(PatternCostModel.expansionCost(pA, a, r) === 1)
+  }
+
+  @Test def shouldOnlySampleTheRelationshipsOfANodeOncePerRow() {
+    val a = createNode()
+    relate(a, createNode())
+
+    val pA = new PatternNode("a")
+    val pX = new PatternNode("x")
+    val r = pA.relateTo("r", pX, Seq(), Direction.OUTGOING, false, True())
+
+    val costs = new ExpansionCosts
+    assert(costs(pA, a, r) === 1)
+
+    relate(a, createNode())
+
+    assert(costs(pA, a, r) === 1)
+    assert(new ExpansionCosts()(pA, a, r) === 2)
+  }
+
+  @Test def shouldCountTheStartPointAndExpansionOrderOfEveryRow() {
+    val superNode = createNode()
+    val rareNode = createNode()
+    val shared = createNode()
+    (0 until 20).foreach(x => relate(superNode, createNode()))
+    relate(superNode, shared)
+    relate(rareNode, shared)
+
+    val pA = new PatternNode("a")
+    val pB = new PatternNode("b")
+    val pX = new PatternNode("x")
+    pA.relateTo("r1", pX, Seq(), Direction.OUTGOING, false, True())
+    pB.relateTo("r2", pX, Seq(), Direction.OUTGOING, false, True())
+
+    val counts = new ExpansionCounts
+    val bindings = Map("a" -> MatchingPair(pA, superNode), "b" -> MatchingPair(pB, rareNode))
+    new PatternMatcher(bindings, Seq(), false, Map(), new ExpansionCosts, Some(counts)).toList
+    new PatternMatcher(bindings, Seq(), false, Map(), new ExpansionCosts, Some(counts)).toList
+
+    assert(counts.toString === "b then r2, r1: 2")
+  }
+}
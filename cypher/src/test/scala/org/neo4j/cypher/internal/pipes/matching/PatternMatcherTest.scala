@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.pipes.matching
+
+import org.neo4j.cypher.GraphDatabaseTestBase
+import org.scalatest.Assertions
+import org.junit.Test
+import org.neo4j.graphdb.Direction
+import org.neo4j.cypher.internal.commands.{Expression, Predicate, True}
+import org.neo4j.cypher.internal.symbols.{NodeType, Identifier}
+import collection.Map
+
+class PatternMatcherTest extends GraphDatabaseTestBase with Assertions {
+  @Test def shouldCheckEachPredicateOncePerBinding() {
+    val a = createNode()
+    (0 until 3).foreach(x => relate(a, createNode(), "X"))
+    (0 until 2).foreach(x => relate(a, createNode(), "Y"))
+
+    val pA = new PatternNode("a")
+    val pB = new PatternNode("b")
+    val pC = new PatternNode("c")
+    pA.relateTo("r1", pB, Seq("X"), Direction.OUTGOING, false, True())
+    pA.relateTo("r2", pC, Seq("Y"), Direction.OUTGOING, false, True())
+
+    val onA = new CountingPredicate("a")
+    val onB = new CountingPredicate("b")
+    val onC = new CountingPredicate("c")
+    val onBAndC = new CountingPredicate("b", "c")
+
+    val source = Map[String, Any]("a" -> a)
+    val matches = new PatternMatcher(Map("a" -> MatchingPair(pA, a)), Seq(onA, onB, onC, onBAndC), false, source).toList
+
+    assert(matches.size === 6)
+    assert(onA.evaluations === List(Seq(a)))
+    assert(onBAndC.evaluations.size === 6)
+    assert(onBAndC.evaluations.distinct.size === 6)
+
+    // The cheaper branch, r2, is expanded first. Every c is bound once, and every b once for every c.
+    assert(onC.evaluations.size === 2)
+    assert(onC.evaluations.distinct.size === 2)
+    assert(onB.evaluations.size === 6)
+  }
+}
+
+class CountingPredicate(identifiers: String*) extends Predicate {
+  val evaluations = collection.mutable.ListBuffer[Seq[Any]]()
+
+  def isMatch(m: Map[String, Any]) = {
+    evaluations += identifiers.map(m)
+    true
+  }
+
+  def dependencies = identifiers.map(Identifier(_, NodeType()))
+  def atoms: Seq[Predicate] = Seq(this)
+  def exists(f: (Expression) => Boolean) = false
+  def containsIsNull = false
+  def rewrite(f: (Expression) => Expression) = this
+  def filter(f: (Expression) => Boolean) = Seq()
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx;
+
+@ManagementInterface( name = Checkpointing.NAME )
+@Description( "Information about flushing of the store when the logical log is rotated, "
+              + "and by incremental checkpointing ahead of rotation" )
+public interface Checkpointing
+{
+    final String NAME = "Checkpointing";
+
+    @Description( "Whether store pages are flushed incrementally in the background ahead of log rotation" )
+    boolean isIncrementalCheckpointingEnabled();
+
+    @Description( "The number of background checkpoints done" )
+    long getCheckpointCount();
+
+    @Description( "The duration of the last background checkpoint, in milliseconds" )
+    long getLastCheckpointTime();
+
+    @Description( "The total duration of all background checkpoints, in milliseconds" )
+    long getTotalCheckpointTime();
+
+    @Description( "The number of store windows flushed by background checkpoints" )
+    long getFlushedWindowCount();
+
+    @Description( "The number of times the logical log has been rotated" )
+    long getLogRotationCount();
+
+    @Description( "The time the last log rotation blocked committing transactions "
+                  + "while flushing the store, in milliseconds" )
+    long getLastRotationStallTime();
+
+    @Description( "The total time log rotations have blocked committing transactions "
+                  + "while flushing the store, in milliseconds" )
+    long getTotalRotationStallTime();
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import javax.management.NotCompliantMBeanException;
+import org.neo4j.helpers.Service;
+import org.neo4j.jmx.Checkpointing;
+import org.neo4j.kernel.impl.transaction.xaframework.IncrementalCheckpointer;
+import org.neo4j.kernel.impl.transaction.xaframework.XaLogicalLog;
+
+@Service.Implementation( ManagementBeanProvider.class )
+public final class CheckpointingBean extends ManagementBeanProvider
+{
+    public CheckpointingBean()
+    {
+        super( Checkpointing.class );
+    }
+
+    @Override
+    protected Neo4jMBean createMBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        return new CheckpointingImpl( management );
+    }
+
+    private static class CheckpointingImpl extends Neo4jMBean implements Checkpointing
+    {
+        CheckpointingImpl( ManagementData management ) throws NotCompliantMBeanException
+        {
+            super( management );
+            this.logicalLog = management.getKernelData().graphDatabase().getXaDataSourceManager()
+                    .getNeoStoreDataSource().getXaContainer().getLogicalLog();
+        }
+
+        private final XaLogicalLog logicalLog;
+
+        public boolean isIncrementalCheckpointingEnabled()
+        {
+            return logicalLog.getIncrementalCheckpointer() != null;
+        }
+
+        public long getCheckpointCount()
+        {
+            IncrementalCheckpointer checkpointer = logicalLog.getIncrementalCheckpointer();
+            return checkpointer == null ? 0 : checkpointer.getCheckpointCount();
+        }
+
+        public long getLastCheckpointTime()
+        {
+            IncrementalCheckpointer checkpointer = logicalLog.getIncrementalCheckpointer();
+            return checkpointer == null ? 0 : checkpointer.getLastCheckpointTime();
+        }
+
+        public long getTotalCheckpointTime()
+        {
+            IncrementalCheckpointer checkpointer = logicalLog.getIncrementalCheckpointer();
+            return checkpointer == null ? 0 : checkpointer.getTotalCheckpointTime();
+        }
+
+        public long getFlushedWindowCount()
+        {
+            IncrementalCheckpointer checkpointer = logicalLog.getIncrementalCheckpointer();
+            return checkpointer == null ? 0 : checkpointer.getFlushedChunks();
+        }
+
+        public long getLogRotationCount()
+        {
+            return logicalLog.getRotationCount();
+        }
+
+        public long getLastRotationStallTime()
+        {
+            return logicalLog.getLastRotationStallTime();
+        }
+
+        public long getTotalRotationStallTime()
+        {
+            return logicalLog.getTotalRotationStallTime();
+        }
+    }
+}
@@ -102,6 +102,13 @@ public abstract class GraphDatabaseSettings
     @Description( "Enable this to specify a parser other than the default one." )
     public static final OptionsSetting cypher_parser_version = new CypherParserSetting();
 
+    @Description( "Let Cypher look up node(*) and relationship(*) start points compared to a string on an auto indexed " +
+                  "property in the auto index, instead of scanning every node or relationship. Only enable this if the " +
+                  "auto index holds every entity with that property, i.e. if auto indexing has been enabled for it since the " +
+                  "database was created. Never done with async_auto_indexing, since the auto index may lag behind." )
+    @Default( FALSE )
+    public static final BooleanSetting cypher_auto_index_lookups = new BooleanSetting( "cypher_auto_index_lookups" );
+
     // Remote logging
     @Description( "Whether to enable logging to a remote server or not." )
     @Default(FALSE)
@@ -120,6 +127,13 @@ public abstract class GraphDatabaseSettings
     @Default(""+(100 * 1024 * 1024))
     public static final GraphDatabaseSetting.IntegerSetting threshold_for_logging_rotation = new GraphDatabaseSetting.IntegerSetting( "logging.threshold_for_rotation", "Must be valid number", 1, null );
     
+    // Transaction events
+    @Description( "Deliver afterCommit events to transaction event handlers on a background thread, one transaction " +
+            "at a time in commit order, instead of in the committing thread. Committing transactions then don't wait " +
+            "for the handlers, but a handler may see a transaction after later transactions have committed." )
+    @Default(FALSE)
+    public static final BooleanSetting transaction_events_async_after_commit = new BooleanSetting( "transaction_events_async_after_commit" );
+
     // Indexing
     @Description( "Controls the auto indexing feature for nodes. Setting to false shuts it down unconditionally, while true enables it for every property, "+
                   "subject to restrictions in the configuration." )
@@ -137,6 +151,11 @@ public abstract class GraphDatabaseSettings
     @Description( " A list of property names (comma separated) that will be indexed by default. This applies to Relationships only." )
     public static final StringSetting relationship_keys_indexable = new StringSetting("relationship_keys_indexable",ANY,"Must be a comma-separated list of keys to be indexed");
 
+    @Description( "Update the auto indexes in the background after transactions have committed, many transactions at a time, " +
+            "instead of in the transactions themselves. Lookups in the auto indexes may then not yet see the latest changes." )
+    @Default(FALSE)
+    public static final BooleanSetting async_auto_indexing = new BooleanSetting( "async_auto_indexing" );
+
     // Lucene settings
     @Description( "Integer value that sets the maximum number of open lucene index searchers." )
     @Default(Integer.MAX_VALUE+"")
@@ -160,10 +179,22 @@ public abstract class GraphDatabaseSettings
             "Must be 'true'/'false' or of format '<number><optional unit> <type>' for example '100M size' for limiting logical log space on disk to 100Mb," +
                     " or '200k txs' for limiting the number of transactions to keep to 200 000." );
 
+    @Description( "Flush store pages written to by committed transactions in the background, in small chunks, " +
+            "once the logical log has grown past half of its rotation threshold. This makes the flush " +
+            "done when rotating the logical log, during which committing transactions are blocked, a lot shorter." )
+    @Default(FALSE)
+    public static final BooleanSetting incremental_checkpointing = new BooleanSetting( "incremental_checkpointing" );
+
     @Description( "Use a quick approach for rebuilding the ID generators. This give quicker recovery time, but will limit the ability to reuse the space of deleted entities." )
     @Default(TRUE)
     public static final BooleanSetting rebuild_idgenerators_fast = new BooleanSetting( "rebuild_idgenerators_fast" );
 
+    @Description( "Rebuild the ID generators after a non-clean shutdown as quickly as the fast approach does, and then " +
+            "find the space of deleted entities in the background, making it available for reuse once found. " +
+            "Space not yet found when the database is shut down is not reused until the next full rebuild." )
+    @Default(FALSE)
+    public static final BooleanSetting rebuild_idgenerators_in_background = new BooleanSetting( "rebuild_idgenerators_in_background" );
+
     // NeoStore memory settings
     @Description( "Tell Neo4j to use memory mapped buffers for accessing the native storage layer." )
     public static final UseMemoryMappedBuffers use_memory_mapped_buffers = new UseMemoryMappedBuffers();
@@ -254,6 +285,12 @@ public abstract class GraphDatabaseSettings
     @Default("120")
     public static final IntegerSetting array_block_size = new IntegerSetting( "array_block_size", "Must be a number", 1, null );
 
+    @Description( "Store hexadecimal strings, UUIDs and numeric arrays of values close to each other in fewer property blocks, " +
+                  "often avoiding the string and array stores. A store with properties written this way can't be read by " +
+                  "versions of Neo4j without these encodings, so only enable it once no such version will open the store." )
+    @Default( FALSE )
+    public static final BooleanSetting compact_property_encodings = new BooleanSetting( "compact_property_encodings" );
+
     @Description( "Mark this database as a backup slave." )
     @Default( FALSE )
     public static final BooleanSetting backup_slave = new BooleanSetting( "backup_slave" );
@@ -406,6 +443,11 @@ public abstract class GraphDatabaseSettings
         		"This is the default cache setting." )
         public static final String gcr = "gcr";
 
+        @Description("Size bounded cache. Keeps the node and relationship caches within a configured number of \n" +
+                "bytes each (node_cache_size and relationship_cache_size) by evicting the least recently read \n" +
+                "objects of a sample, instead of relying on GC for eviction." )
+        public static final String sized = "sized";
+
         public CacheTypeSetting()
         {
             super( "cache_type", availableCaches() );
@@ -416,10 +458,10 @@ public abstract class GraphDatabaseSettings
             try
             {
                 GraphDatabaseSettings.class.getClassLoader().loadClass( "org.neo4j.kernel.impl.cache.GCResistantCacheProvider" );
-                return new String[]{gcr,soft,weak,strong,none};
+                return new String[]{gcr,soft,weak,strong,sized,none};
             } catch( ClassNotFoundException e )
             {
-                return new String[]{soft,weak,strong,none};
+                return new String[]{soft,weak,strong,sized,none};
             }
         }
     }
@@ -21,9 +21,11 @@ package org.neo4j.kernel;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.StringTokenizer;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.index.AutoIndexer;
 import org.neo4j.graphdb.index.Index;
@@ -33,7 +35,8 @@ import org.neo4j.kernel.lifecycle.Lifecycle;
 
 /**
  * Default implementation of the AutoIndexer, binding to the beforeCommit hook
- * as a TransactionEventHandler
+ * as a TransactionEventHandler. With an {@link AutoIndexApplier} the index is
+ * instead updated after the changing transactions have committed.
  *
  * @param <T> The database primitive type auto indexed
  */
@@ -43,9 +46,15 @@ abstract class AbstractAutoIndexerImpl<T extends PropertyContainer> implements
     protected final Set<String> propertyKeysToInclude = new HashSet<String>();
 
     private volatile boolean enabled;
+    private final AutoIndexApplier applier;
 
-    public AbstractAutoIndexerImpl( )
+    /**
+     * @param applier the applier to update the index after commit, or
+     * {@code null} to update it in the changing transactions.
+     */
+    public AbstractAutoIndexerImpl( AutoIndexApplier applier )
     {
+        this.applier = applier;
     }
 
     public void propertyAdded( T primitive, String propertyName,
@@ -53,6 +62,11 @@ abstract class AbstractAutoIndexerImpl<T extends PropertyContainer> implements
     {
         if ( propertyKeysToInclude.contains( propertyName ) )
         {
+            if ( applier != null )
+            {
+                applier.propertyChanged( this, primitive, propertyName );
+                return;
+            }
             getIndexInternal().add( primitive, propertyName, propertyValue );
         }
     }
@@ -60,6 +74,11 @@ abstract class AbstractAutoIndexerImpl<T extends PropertyContainer> implements
     public void propertyChanged( T primitive, String propertyName,
             Object oldValue, Object newValue )
     {
+        if ( applier != null )
+        {
+            applier.propertyChanged( this, primitive, propertyName );
+            return;
+        }
         if ( oldValue != null )
         {
             getIndexInternal().remove( primitive, propertyName, oldValue );
@@ -73,9 +92,42 @@ abstract class AbstractAutoIndexerImpl<T extends PropertyContainer> implements
     public void propertyRemoved( T primitive, String propertyName,
             Object propertyValue )
     {
+        if ( applier != null )
+        {
+            applier.propertyChanged( this, primitive, propertyName );
+            return;
+        }
         getIndexInternal().remove( primitive, propertyName );
     }
 
+    /**
+     * Makes the index agree with the committed value of a property, for
+     * {@link AutoIndexApplier}.
+     */
+    void reindex( T primitive, String propertyName )
+    {
+        Index<T> index = getIndexInternal();
+        index.remove( primitive, propertyName );
+        if ( !propertyKeysToInclude.contains( propertyName ) )
+        {
+            return;
+        }
+        Object value;
+        try
+        {
+            value = primitive.getProperty( propertyName, null );
+        }
+        catch ( NotFoundException e )
+        {
+            // Deleted since
+            return;
+        }
+        if ( value != null )
+        {
+            index.add( primitive, propertyName, value );
+        }
+    }
+
     @Override
     public ReadableIndex<T> getAutoIndex()
     {
@@ -120,6 +172,12 @@ abstract class AbstractAutoIndexerImpl<T extends PropertyContainer> implements
      */
     protected abstract Index<T> getIndexInternal();
 
+    /**
+     * @return every entity of the type auto indexed, for
+     * {@link AutoIndexApplier} to rebuild the index from.
+     */
+    protected abstract Iterator<T> getAllEntities();
+
     protected Set<String> parseConfigList(String list)
     {
         if ( list == null )
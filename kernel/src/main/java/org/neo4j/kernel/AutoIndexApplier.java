@@ -0,0 +1,502 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.TransactionFailureException;
+import org.neo4j.kernel.impl.nioneo.store.FileSystemAbstraction;
+import org.neo4j.kernel.impl.util.StringLogger;
+import org.neo4j.kernel.lifecycle.Lifecycle;
+
+/**
+ * Keeps the auto indexes eventually consistent with the graph, instead of
+ * updating them in the transactions changing the graph. The auto indexers
+ * tell this which properties a transaction changed, and once that
+ * transaction has committed a background thread re-indexes those properties
+ * from their committed values, for many transactions in one index
+ * transaction.
+ * <p>
+ * Since the committed values are read when applying, changes from
+ * transactions may be applied in any order and a property changed by many
+ * transactions in a batch is only re-indexed once.
+ * <p>
+ * Changes not yet applied are only kept in memory. A marker file in the store
+ * directory is there from start until a stop that applied everything, and if
+ * it's found on start the auto indexes are rebuilt from the graph instead. They
+ * are also rebuilt if applying a batch fails. Transactions waiting for a
+ * rebuild count as not applied until it has succeeded.
+ */
+public class AutoIndexApplier implements Lifecycle
+{
+    /**
+     * Roughly the number of changed properties applied in one index
+     * transaction. Whole transactions are always applied together.
+     */
+    static final int BATCH_SIZE = 10000;
+
+    /**
+     * Name of the file, in the store directory, that is there while changes
+     * may not have been applied.
+     */
+    public static final String NOT_APPLIED_MARKER = "auto_index_not_applied";
+
+    private static final long REBUILD_RETRY_INTERVAL = 1000;
+
+    private final TransactionManager txManager;
+    private final GraphDatabaseService graphDb;
+    private final FileSystemAbstraction fileSystem;
+    private final String marker;
+    private final StringLogger logger;
+    private final ConcurrentMap<Transaction, TransactionChanges> pending =
+            new ConcurrentHashMap<Transaction, TransactionChanges>();
+    private final BlockingQueue<TransactionChanges> committed =
+            new LinkedBlockingQueue<TransactionChanges>();
+
+    // Guarded by this
+    private long committedTransactions;
+    private long appliedTransactions;
+    private long transactionsToRebuild;
+
+    private AbstractAutoIndexerImpl<?>[] indexers = new AbstractAutoIndexerImpl<?>[0];
+
+    private volatile boolean running;
+    private Thread applierThread;
+
+    public AutoIndexApplier( TransactionManager txManager, GraphDatabaseService graphDb,
+            FileSystemAbstraction fileSystem, String storeDir, StringLogger logger )
+    {
+        this.txManager = txManager;
+        this.graphDb = graphDb;
+        this.fileSystem = fileSystem;
+        this.marker = new File( storeDir, NOT_APPLIED_MARKER ).getPath();
+        this.logger = logger;
+    }
+
+    /**
+     * Sets the auto indexers to rebuild the indexes of, if needed.
+     */
+    void setAutoIndexers( AbstractAutoIndexerImpl<?>... indexers )
+    {
+        this.indexers = indexers;
+    }
+
+    @Override
+    public void init()
+    {
+    }
+
+    @Override
+    public void start() throws IOException
+    {
+        if ( fileSystem.fileExists( marker ) )
+        {
+            logger.logMessage( "Auto index changes may not have been applied before the last shutdown, " +
+                    "the auto indexes will be rebuilt" );
+            notAppliedBeforeShutdown();
+        }
+        else
+        {
+            FileChannel channel = fileSystem.create( marker );
+            try
+            {
+                channel.force( true );
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+        running = true;
+        applierThread = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                applyUntilStopped();
+            }
+        }, "Auto index applier" );
+        applierThread.setDaemon( true );
+        applierThread.start();
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        running = false;
+        if ( applierThread != null )
+        {
+            // It applies what has already been committed before it exits
+            applierThread.join();
+            applierThread = null;
+        }
+        if ( getLag() == 0 )
+        {
+            fileSystem.deleteFile( marker );
+        }
+    }
+
+    @Override
+    public void shutdown()
+    {
+    }
+
+    /**
+     * @return the number of committed transactions whose auto index changes
+     * haven't been applied yet.
+     */
+    public synchronized long getLag()
+    {
+        return committedTransactions - appliedTransactions;
+    }
+
+    /**
+     * Waits for the auto index changes of every transaction that has
+     * committed when this is called to be applied.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of {@code timeout}.
+     * @return {@code true} if the auto indexes caught up, {@code false} if
+     * the time ran out first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized boolean awaitCatchUp( long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        long target = committedTransactions;
+        long deadline = System.currentTimeMillis() + unit.toMillis( timeout );
+        while ( appliedTransactions < target )
+        {
+            long left = deadline - System.currentTimeMillis();
+            if ( left <= 0 )
+            {
+                return false;
+            }
+            wait( left );
+        }
+        return true;
+    }
+
+    /**
+     * Called by an auto indexer when the current transaction changes a
+     * property it may index.
+     */
+    <T extends PropertyContainer> void propertyChanged( AbstractAutoIndexerImpl<T> indexer, T entity, String key )
+    {
+        Transaction tx;
+        try
+        {
+            tx = txManager.getTransaction();
+        }
+        catch ( SystemException e )
+        {
+            throw new TransactionFailureException( "Unable to get transaction", e );
+        }
+        TransactionChanges changes = pending.get( tx );
+        if ( changes == null )
+        {
+            changes = new TransactionChanges( tx );
+            try
+            {
+                tx.registerSynchronization( changes );
+            }
+            catch ( RollbackException e )
+            {
+                // It will never commit, so there's nothing to index
+                return;
+            }
+            catch ( SystemException e )
+            {
+                throw new TransactionFailureException( "Unable to register auto index changes", e );
+            }
+            pending.put( tx, changes );
+        }
+        changes.properties.add( new ChangedProperty( indexer, entity, key ) );
+    }
+
+    private void applyUntilStopped()
+    {
+        List<TransactionChanges> batch = new ArrayList<TransactionChanges>();
+        while ( running || !committed.isEmpty() )
+        {
+            if ( running && rebuildNeeded() )
+            {
+                rebuild();
+                continue;
+            }
+            try
+            {
+                TransactionChanges first = committed.poll( 100, TimeUnit.MILLISECONDS );
+                if ( first == null )
+                {
+                    continue;
+                }
+                batch.add( first );
+                int size = first.properties.size();
+                TransactionChanges next;
+                while ( size < BATCH_SIZE && (next = committed.poll()) != null )
+                {
+                    batch.add( next );
+                    size += next.properties.size();
+                }
+                apply( batch );
+                applied( batch.size() );
+            }
+            catch ( RuntimeException e )
+            {
+                logger.logMessage( "Unable to apply auto index changes of " + batch.size() +
+                        " transactions, the auto indexes will be rebuilt", e );
+                rebuildFor( batch.size() );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.interrupted();
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the auto indexed properties of every entity, covering the
+     * transactions waiting for a rebuild when it started. Tried again later if
+     * it fails, and on the next start if stopped first.
+     */
+    private void rebuild()
+    {
+        long transactions = getTransactionsToRebuild();
+        try
+        {
+            for ( AbstractAutoIndexerImpl<?> indexer : indexers )
+            {
+                if ( !rebuild( indexer ) )
+                {
+                    return;
+                }
+            }
+            rebuilt( transactions );
+            logger.logMessage( "Rebuilt the auto indexes" );
+        }
+        catch ( RuntimeException e )
+        {
+            logger.logMessage( "Unable to rebuild the auto indexes, will try again", e );
+            try
+            {
+                Thread.sleep( REBUILD_RETRY_INTERVAL );
+            }
+            catch ( InterruptedException ie )
+            {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if stopped before the index was rebuilt.
+     */
+    private <T extends PropertyContainer> boolean rebuild( AbstractAutoIndexerImpl<T> indexer )
+    {
+        Set<String> keys = indexer.getAutoIndexedProperties();
+        if ( !indexer.isEnabled() || keys.isEmpty() )
+        {
+            return true;
+        }
+        org.neo4j.graphdb.Transaction tx = graphDb.beginTx();
+        try
+        {
+            int properties = 0;
+            for ( Iterator<T> entities = indexer.getAllEntities(); entities.hasNext(); )
+            {
+                T entity = entities.next();
+                for ( String key : keys )
+                {
+                    indexer.reindex( entity, key );
+                }
+                properties += keys.size();
+                if ( properties >= BATCH_SIZE )
+                {
+                    if ( !running )
+                    {
+                        return false;
+                    }
+                    tx.success();
+                    tx.finish();
+                    tx = graphDb.beginTx();
+                    properties = 0;
+                }
+            }
+            tx.success();
+            return true;
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    private void apply( List<TransactionChanges> batch )
+    {
+        Set<ChangedProperty> properties = new LinkedHashSet<ChangedProperty>();
+        for ( TransactionChanges changes : batch )
+        {
+            properties.addAll( changes.properties );
+        }
+        org.neo4j.graphdb.Transaction tx = graphDb.beginTx();
+        try
+        {
+            for ( ChangedProperty property : properties )
+            {
+                property.reindex();
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    private synchronized void committed( TransactionChanges changes )
+    {
+        committedTransactions++;
+        committed.add( changes );
+    }
+
+    private synchronized void applied( int transactions )
+    {
+        appliedTransactions += transactions;
+        notifyAll();
+    }
+
+    private synchronized void notAppliedBeforeShutdown()
+    {
+        // Counted as one transaction, since how many isn't known
+        committedTransactions++;
+        transactionsToRebuild++;
+    }
+
+    private synchronized void rebuildFor( int transactions )
+    {
+        transactionsToRebuild += transactions;
+    }
+
+    private synchronized boolean rebuildNeeded()
+    {
+        return transactionsToRebuild > 0;
+    }
+
+    private synchronized long getTransactionsToRebuild()
+    {
+        return transactionsToRebuild;
+    }
+
+    private synchronized void rebuilt( long transactions )
+    {
+        transactionsToRebuild -= transactions;
+        appliedTransactions += transactions;
+        notifyAll();
+    }
+
+    private class TransactionChanges implements Synchronization
+    {
+        private final Transaction tx;
+        private final List<ChangedProperty> properties = new ArrayList<ChangedProperty>();
+
+        TransactionChanges( Transaction tx )
+        {
+            this.tx = tx;
+        }
+
+        @Override
+        public void beforeCompletion()
+        {
+        }
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            pending.remove( tx );
+            if ( status == Status.STATUS_COMMITTED )
+            {
+                committed( this );
+            }
+        }
+    }
+
+    private static class ChangedProperty
+    {
+        private final AbstractAutoIndexerImpl<PropertyContainer> indexer;
+        private final PropertyContainer entity;
+        private final String key;
+
+        @SuppressWarnings( "unchecked" )
+        ChangedProperty( AbstractAutoIndexerImpl<? extends PropertyContainer> indexer, PropertyContainer entity,
+                String key )
+        {
+            this.indexer = (AbstractAutoIndexerImpl<PropertyContainer>) indexer;
+            this.entity = entity;
+            this.key = key;
+        }
+
+        void reindex()
+        {
+            indexer.reindex( entity, key );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * entity.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( !(obj instanceof ChangedProperty) )
+            {
+                return false;
+            }
+            ChangedProperty other = (ChangedProperty) obj;
+            return indexer == other.indexer && entity.equals( other.entity ) && key.equals( other.key );
+        }
+    }
+}
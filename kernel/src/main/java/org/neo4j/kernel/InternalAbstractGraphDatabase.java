@@ -131,6 +131,8 @@ public abstract class InternalAbstractGraphDatabase
         public static final GraphDatabaseSetting.BooleanSetting execution_guard_enabled = GraphDatabaseSettings.execution_guard_enabled;
         public static final GraphDatabaseSettings.CacheTypeSetting cache_type = GraphDatabaseSettings.cache_type;
         public static final GraphDatabaseSetting.BooleanSetting load_kernel_extensions = GraphDatabaseSettings.load_kernel_extensions;
+        public static final GraphDatabaseSetting.BooleanSetting transaction_events_async_after_commit = GraphDatabaseSettings.transaction_events_async_after_commit;
+        public static final GraphDatabaseSetting.BooleanSetting async_auto_indexing = GraphDatabaseSettings.async_auto_indexing;
         public static final GraphDatabaseSetting.BooleanSetting ephemeral = new GraphDatabaseSetting.BooleanSetting("ephemeral");
 
         public static final GraphDatabaseSetting.DirectorySetting store_dir = GraphDatabaseSettings.store_dir;
@@ -183,6 +185,7 @@ public abstract class InternalAbstractGraphDatabase
 
     protected NodeAutoIndexerImpl nodeAutoIndexer;
     protected RelationshipAutoIndexerImpl relAutoIndexer;
+    protected AutoIndexApplier autoIndexApplier;
     protected KernelData extensions;
     protected Caches caches;
 
@@ -317,7 +320,8 @@ public abstract class InternalAbstractGraphDatabase
         }
         life.add( txManager );
 
-        transactionEventHandlers = new TransactionEventHandlers(txManager);
+        transactionEventHandlers = new TransactionEventHandlers( txManager,
+                config.get( Configuration.transaction_events_async_after_commit ), msgLog );
 
         txIdGenerator = life.add( createTxIdGenerator() );
 
@@ -357,6 +361,9 @@ public abstract class InternalAbstractGraphDatabase
 
         life.add( nodeManager );
 
+        // Added after the node manager so that it's stopped before it
+        life.add( transactionEventHandlers );
+
         lockReleaser.setNodeManager(nodeManager); // TODO Another cyclic dep that needs to be refactored
 
         indexStore = new IndexStore( this.storeDir, fileSystem);
@@ -386,8 +393,16 @@ public abstract class InternalAbstractGraphDatabase
             indexProviders = new LegacyIndexIterable();
         }
         indexManager = new IndexManagerImpl(config, indexStore, xaDataSourceManager, txManager, this);
-        nodeAutoIndexer = life.add(new NodeAutoIndexerImpl( config, indexManager, nodeManager));
-        relAutoIndexer = life.add(new RelationshipAutoIndexerImpl( config, indexManager, nodeManager));
+        autoIndexApplier = config.get( Configuration.async_auto_indexing ) ?
+                new AutoIndexApplier( txManager, this, fileSystem, storeDir, msgLog ) : null;
+        nodeAutoIndexer = life.add(new NodeAutoIndexerImpl( config, indexManager, nodeManager, autoIndexApplier ));
+        relAutoIndexer = life.add(new RelationshipAutoIndexerImpl( config, indexManager, nodeManager, autoIndexApplier ));
+        if ( autoIndexApplier != null )
+        {
+            // Added after the auto indexers so that it's stopped before them
+            autoIndexApplier.setAutoIndexers( nodeAutoIndexer, relAutoIndexer );
+            life.add( autoIndexApplier );
+        }
 
         // TODO This cyclic dependency should be resolved
         indexManager.setNodeAutoIndexer( nodeAutoIndexer );
@@ -947,6 +962,16 @@ public abstract class InternalAbstractGraphDatabase
         return indexManager;
     }
 
+    /**
+     * @return the applier updating the auto indexes after commit, to see how
+     * far behind they are or wait for them to catch up, or {@code null} if
+     * {@link GraphDatabaseSettings#async_auto_indexing} isn't enabled.
+     */
+    public AutoIndexApplier getAutoIndexApplier()
+    {
+        return autoIndexApplier;
+    }
+
     // GraphDatabaseSPI implementation - THESE SHOULD EVENTUALLY BE REMOVED! DON'T ADD dependencies on these!
     public Config getConfig()
     {
@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel;
 
+import java.util.Iterator;
+
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.factory.GraphDatabaseSetting;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
@@ -45,9 +47,10 @@ class NodeAutoIndexerImpl extends AbstractAutoIndexerImpl<Node>
     private IndexManagerImpl indexManager;
     private NodeManager nodeManager;
 
-    public NodeAutoIndexerImpl( Config config, IndexManagerImpl indexManager, NodeManager nodeManager)
+    public NodeAutoIndexerImpl( Config config, IndexManagerImpl indexManager, NodeManager nodeManager,
+            AutoIndexApplier applier )
     {
-        super( );
+        super( applier );
 
         this.config = config;
         this.indexManager = indexManager;
@@ -86,6 +89,12 @@ class NodeAutoIndexerImpl extends AbstractAutoIndexerImpl<Node>
                 NODE_AUTO_INDEX, null);
     }
 
+    @Override
+    protected Iterator<Node> getAllEntities()
+    {
+        return nodeManager.getAllNodes();
+    }
+
     @Override
     public void setEnabled( boolean enabled )
     {
@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel;
 
+import java.util.Iterator;
+
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.factory.GraphDatabaseSetting;
@@ -44,9 +46,10 @@ class RelationshipAutoIndexerImpl extends AbstractAutoIndexerImpl<Relationship>
     private IndexManagerImpl indexManager;
     private NodeManager nodeManager;
 
-    public RelationshipAutoIndexerImpl( Config config, IndexManagerImpl indexManager, NodeManager nodeManager)
+    public RelationshipAutoIndexerImpl( Config config, IndexManagerImpl indexManager, NodeManager nodeManager,
+            AutoIndexApplier applier )
     {
-        super( );
+        super( applier );
         this.config = config;
         this.indexManager = indexManager;
         this.nodeManager = nodeManager;
@@ -84,6 +87,12 @@ class RelationshipAutoIndexerImpl extends AbstractAutoIndexerImpl<Relationship>
             RELATIONSHIP_AUTO_INDEX, null );
     }
 
+    @Override
+    protected Iterator<Relationship> getAllEntities()
+    {
+        return nodeManager.getAllRelationships();
+    }
+
     @Override
     public ReadableRelationshipIndex getAutoIndex()
     {
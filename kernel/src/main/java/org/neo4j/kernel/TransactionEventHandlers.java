@@ -23,26 +23,51 @@ package org.neo4j.kernel;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.transaction.Status;
 import javax.transaction.TransactionManager;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.helpers.DaemonThreadFactory;
+import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.lifecycle.Lifecycle;
 
 /**
  * Handle the collection of transaction event handlers, and fire events as needed.
+ * <p>
+ * {@link TransactionEventHandler#afterCommit(TransactionData, Object)} can be
+ * delivered on a background thread instead of the committing one, so that
+ * committing transactions don't wait for the handlers. Transactions are then
+ * delivered one at a time, in the order they committed.
  */
 public class TransactionEventHandlers
     implements Lifecycle
 {
     protected final Collection<TransactionEventHandler> transactionEventHandlers = new CopyOnWriteArraySet<TransactionEventHandler>();
     private TransactionManager txManager;
+    private final boolean asyncAfterCommit;
+    private final StringLogger logger;
+    private volatile ExecutorService afterCommitExecutor;
 
     public TransactionEventHandlers(
         TransactionManager txManager
     )
+    {
+        this( txManager, false, StringLogger.DEV_NULL );
+    }
+
+    public TransactionEventHandlers(
+        TransactionManager txManager,
+        boolean asyncAfterCommit,
+        StringLogger logger
+    )
     {
         this.txManager = txManager;
+        this.asyncAfterCommit = asyncAfterCommit;
+        this.logger = logger;
     }
 
     @Override
@@ -55,12 +80,28 @@ public class TransactionEventHandlers
     public void start()
         throws Throwable
     {
+        if ( asyncAfterCommit )
+        {
+            afterCommitExecutor = Executors.newSingleThreadExecutor(
+                    new DaemonThreadFactory( "Transaction event handlers" ) );
+        }
     }
 
     @Override
     public void stop()
         throws Throwable
     {
+        ExecutorService executor = afterCommitExecutor;
+        if ( executor != null )
+        {
+            afterCommitExecutor = null;
+            // Let the handlers see the transactions that already committed
+            executor.shutdown();
+            while ( !executor.awaitTermination( 10, TimeUnit.SECONDS ) )
+            {
+                logger.logMessage( "Still waiting for transaction event handlers to finish" );
+            }
+        }
     }
 
     @Override
@@ -135,6 +176,21 @@ public class TransactionEventHandlers
     {
         if ( status == Status.STATUS_COMMITTED )
         {
+            ExecutorService executor = afterCommitExecutor;
+            if ( executor != null )
+            {
+                AfterCommitDelivery delivery = new AfterCommitDelivery( transactionData, states );
+                try
+                {
+                    executor.execute( delivery );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    // Stopped while this transaction was committing, deliver it here instead
+                    delivery.run();
+                }
+                return;
+            }
             for ( HandlerAndState state : states )
             {
                 state.handler.afterCommit( transactionData, state.state );
@@ -159,6 +215,36 @@ public class TransactionEventHandlers
         }
     }
 
+    private class AfterCommitDelivery implements Runnable
+    {
+        private final TransactionData transactionData;
+        private final List<HandlerAndState> states;
+
+        AfterCommitDelivery( TransactionData transactionData, List<HandlerAndState> states )
+        {
+            this.transactionData = transactionData;
+            this.states = states;
+        }
+
+        @Override
+        public void run()
+        {
+            for ( HandlerAndState state : states )
+            {
+                try
+                {
+                    state.handler.afterCommit( transactionData, state.state );
+                }
+                catch ( Throwable t )
+                {
+                    // The transaction has committed, there's no one to tell but the log
+                    logger.logMessage( "Transaction event handler " + state.handler +
+                            " failed in afterCommit", t );
+                }
+            }
+        }
+    }
+
     public static class HandlerAndState
     {
         @SuppressWarnings("unchecked")
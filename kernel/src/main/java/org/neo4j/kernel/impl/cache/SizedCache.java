@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static org.neo4j.kernel.impl.cache.SizeOfs.REFERENCE_SIZE;
+import static org.neo4j.kernel.impl.cache.SizeOfs.withObjectOverhead;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.kernel.impl.util.StringLogger;
+
+/**
+ * A cache which keeps the total {@link EntityWithSize#size() size} of its
+ * entities within a given number of bytes, instead of relying on the garbage
+ * collector to clear references.
+ * <p>
+ * Reads are lock free, a hit only records the current eviction round in the
+ * entry. Whenever a put or size update takes the cache over its budget the
+ * thread doing it evicts entries until the cache is back below
+ * {@link #EVICT_TO_RATIO} of its budget, unless another thread is already
+ * doing that. Each eviction samples {@link #SAMPLE_SIZE} entries, continuing
+ * where the previous sample left off, and evicts the one least recently read.
+ * <p>
+ * {@link #size()} returns the number of bytes currently used.
+ */
+public class SizedCache<E extends EntityWithSize> implements Cache<E>
+{
+    static final int SAMPLE_SIZE = 8;
+    static final float EVICT_TO_RATIO = 0.9f;
+
+    // Entry object, hash map entry and boxed key
+    static final int ENTRY_OVERHEAD = withObjectOverhead( REFERENCE_SIZE + 4 + 4 ) +
+            withObjectOverhead( 4 + 3 * REFERENCE_SIZE ) + withObjectOverhead( 8 );
+
+    private final String name;
+    private final long maxSize;
+    private final StringLogger logger;
+    private final ConcurrentHashMap<Long,Entry<E>> cache = new ConcurrentHashMap<Long,Entry<E>>();
+    private final AtomicLong currentSize = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong evictions = new AtomicLong();
+    private final HitCounter counter = new HitCounter();
+
+    // Only touched by the thread holding evicting
+    private Iterator<Entry<E>> clock;
+    private volatile int round;
+
+    public SizedCache( String name, long maxSize, StringLogger logger )
+    {
+        if ( maxSize <= 0 )
+        {
+            throw new IllegalArgumentException( maxSize + " is not > 0" );
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.logger = logger;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public E get( long key )
+    {
+        Entry<E> entry = cache.get( key );
+        if ( entry == null )
+        {
+            return counter.count( (E) null );
+        }
+        entry.lastRead = round;
+        return counter.count( entry.value );
+    }
+
+    public void put( E value )
+    {
+        int size = value.size();
+        // Counts as read in the round before, so that it gets evicted before
+        // entries actually read in this round
+        Entry<E> entry = new Entry<E>( value, size, round - 1 );
+        value.setRegisteredSize( size );
+        currentSize.addAndGet( size + ENTRY_OVERHEAD );
+        Entry<E> previous = cache.put( value.getId(), entry );
+        if ( previous != null )
+        {
+            removed( previous );
+        }
+        checkSize();
+    }
+
+    public void putAll( Collection<E> values )
+    {
+        for ( E value : values )
+        {
+            put( value );
+        }
+    }
+
+    public E remove( long key )
+    {
+        Entry<E> entry = cache.remove( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        removed( entry );
+        return entry.value;
+    }
+
+    public void updateSize( E value, int newSize )
+    {
+        Entry<E> entry = cache.get( value.getId() );
+        if ( entry == null || entry.value != value )
+        {
+            return;
+        }
+        value.setRegisteredSize( newSize );
+        synchronized ( entry )
+        {
+            if ( entry.removed )
+            {
+                return;
+            }
+            currentSize.addAndGet( newSize - entry.size );
+            entry.size = newSize;
+        }
+        checkSize();
+    }
+
+    private void removed( Entry<E> entry )
+    {
+        synchronized ( entry )
+        {
+            entry.removed = true;
+            currentSize.addAndGet( -(entry.size + ENTRY_OVERHEAD) );
+        }
+    }
+
+    private void checkSize()
+    {
+        if ( currentSize.get() > maxSize )
+        {
+            evict();
+        }
+    }
+
+    private void evict()
+    {
+        if ( !evicting.compareAndSet( false, true ) )
+        {
+            // Someone else is already evicting, don't hold up this thread
+            return;
+        }
+        try
+        {
+            long target = (long) (maxSize * EVICT_TO_RATIO);
+            while ( currentSize.get() > target )
+            {
+                Entry<E> victim = sample();
+                if ( victim == null )
+                {
+                    break;
+                }
+                if ( cache.remove( victim.value.getId(), victim ) )
+                {
+                    removed( victim );
+                    evictions.incrementAndGet();
+                }
+                round++;
+            }
+        }
+        finally
+        {
+            evicting.set( false );
+        }
+    }
+
+    private Entry<E> sample()
+    {
+        Entry<E> oldest = null;
+        for ( int i = 0; i < SAMPLE_SIZE; i++ )
+        {
+            if ( clock == null || !clock.hasNext() )
+            {
+                clock = cache.values().iterator();
+                if ( !clock.hasNext() )
+                {
+                    break;
+                }
+            }
+            Entry<E> candidate = clock.next();
+            if ( oldest == null || candidate.lastRead < oldest.lastRead )
+            {
+                oldest = candidate;
+            }
+        }
+        return oldest;
+    }
+
+    public void clear()
+    {
+        cache.clear();
+        currentSize.set( 0 );
+    }
+
+    public long size()
+    {
+        return currentSize.get();
+    }
+
+    public long maxSize()
+    {
+        return maxSize;
+    }
+
+    public long hitCount()
+    {
+        return counter.getHitsCount();
+    }
+
+    public long missCount()
+    {
+        return counter.getMissCount();
+    }
+
+    public long evictionCount()
+    {
+        return evictions.get();
+    }
+
+    public void printStatistics()
+    {
+        logger.logMessage( name + " size=" + currentSize.get() + "/" + maxSize + " hits=" + hitCount() +
+                " misses=" + missCount() + " evictions=" + evictionCount() );
+    }
+
+    private static class Entry<E>
+    {
+        private final E value;
+        // guarded by this
+        private int size;
+        private boolean removed;
+        volatile int lastRead;
+
+        Entry( E value, int size, int lastRead )
+        {
+            this.value = value;
+            this.size = size;
+            this.lastRead = lastRead;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import org.neo4j.graphdb.factory.GraphDatabaseSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSetting.NumberOfBytesSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.graphdb.factory.Description;
+import org.neo4j.helpers.Service;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.core.NodeImpl;
+import org.neo4j.kernel.impl.core.RelationshipImpl;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+@Service.Implementation( CacheProvider.class )
+public class SizedCacheProvider extends CacheProvider
+{
+    public static final String NAME = GraphDatabaseSettings.CacheTypeSetting.sized;
+
+    public static abstract class Configuration
+    {
+        @Description( "The amount of heap, in bytes, the node cache may use. Defaults to an eighth of the max heap size." )
+        public static final GraphDatabaseSetting<Long> node_cache_size = new NumberOfBytesSetting( "node_cache_size" );
+
+        @Description( "The amount of heap, in bytes, the relationship cache may use. Defaults to an eighth of the max heap size." )
+        public static final GraphDatabaseSetting<Long> relationship_cache_size = new NumberOfBytesSetting( "relationship_cache_size" );
+    }
+
+    public SizedCacheProvider()
+    {
+        super( NAME, "size bounded cache" );
+    }
+
+    @Override
+    public Cache<NodeImpl> newNodeCache( StringLogger logger, Config config )
+    {
+        return new SizedCache<NodeImpl>( NODE_CACHE_NAME, budget( config, Configuration.node_cache_size ), logger );
+    }
+
+    @Override
+    public Cache<RelationshipImpl> newRelationshipCache( StringLogger logger, Config config )
+    {
+        return new SizedCache<RelationshipImpl>( RELATIONSHIP_CACHE_NAME,
+                budget( config, Configuration.relationship_cache_size ), logger );
+    }
+
+    private static long budget( Config config, GraphDatabaseSetting<Long> setting )
+    {
+        return config.isSet( setting ) ? config.get( setting ) : Runtime.getRuntime().maxMemory() / 8;
+    }
+
+    @Override
+    public Class getSettingsClass()
+    {
+        return Configuration.class;
+    }
+}
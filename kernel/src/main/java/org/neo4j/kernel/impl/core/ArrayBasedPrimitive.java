@@ -126,7 +126,14 @@ abstract class ArrayBasedPrimitive extends Primitive implements EntityWithSize
         {
             // Dereference the volatile once to avoid multiple barriers
             PropertyData[] newArray = properties;
-            if ( newArray == null ) return;
+            if ( newArray == null )
+            {
+                if ( cowPropertyAddMap != null || cowPropertyRemoveMap != null )
+                {
+                    nodeManager.unloadedPropertiesChanged();
+                }
+                return;
+            }
 
             /*
              * add map will definitely be added in the properties array - all properties
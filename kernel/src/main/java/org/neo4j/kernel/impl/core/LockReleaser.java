@@ -23,8 +23,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +43,7 @@ import org.neo4j.kernel.impl.nioneo.store.Record;
 import org.neo4j.kernel.impl.transaction.LockManager;
 import org.neo4j.kernel.impl.transaction.LockType;
 import org.neo4j.kernel.impl.util.ArrayMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongMap;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 import org.neo4j.kernel.impl.util.RelIdArrayWithLoops;
@@ -55,10 +56,12 @@ public class LockReleaser
 {
     private static Logger log = Logger.getLogger( LockReleaser.class.getName() );
 
-    private final ArrayMap<Transaction,List<LockElement>> lockMap =
-        new ArrayMap<Transaction,List<LockElement>>( (byte)5, true, true );
-    private final ArrayMap<Transaction,PrimitiveElement> cowMap =
-        new ArrayMap<Transaction,PrimitiveElement>( (byte)5, true, true );
+    private final ConcurrentMap<Transaction,TransactionState> states =
+        new ConcurrentHashMap<Transaction,TransactionState>();
+    // The state of the transaction a thread last asked for. A transaction is
+    // run by one thread at a time, so most lookups are answered from here
+    // without touching the map shared by all transactions.
+    private final ThreadLocal<TransactionState> currentState = new ThreadLocal<TransactionState>();
 
     private NodeManager nodeManager;
     private final LockManager lockManager;
@@ -74,10 +77,10 @@ public class LockReleaser
     {
         PrimitiveElement() {}
 
-        private final ArrayMap<Long,CowNodeElement> nodes =
-            new ArrayMap<Long,CowNodeElement>();
-        private final ArrayMap<Long,CowRelElement> relationships =
-            new ArrayMap<Long,CowRelElement>();
+        private final PrimitiveLongMap<CowNodeElement> nodes =
+            new PrimitiveLongMap<CowNodeElement>();
+        private final PrimitiveLongMap<CowRelElement> relationships =
+            new PrimitiveLongMap<CowRelElement>();
         private CowGraphElement graph;
 
         public CowNodeElement nodeElement( long id, boolean create )
@@ -226,6 +229,19 @@ public class LockReleaser
         }
     }
 
+    private static class TransactionState
+    {
+        private final Transaction tx;
+        private List<LockElement> locks;
+        private PrimitiveElement cows;
+        private volatile boolean released;
+
+        TransactionState( Transaction tx )
+        {
+            this.tx = tx;
+        }
+    }
+
     public LockReleaser( LockManager lockManager,
         TransactionManager transactionManager,
         NodeManager nodeManager,
@@ -293,11 +309,11 @@ public class LockReleaser
     {
         tx = (tx == null ? getTransaction() : tx);
         
-        List<LockElement> lockElements = lockMap.get( tx );
-        if ( lockElements != null )
+        TransactionState state = getState( tx, false );
+        if ( state != null && state.locks != null )
         {
             LockElement element = new LockElement( resource, type );
-            lockElements.add( element );
+            state.locks.add( element );
             return element;
         }
         else
@@ -308,8 +324,8 @@ public class LockReleaser
                 type.release( resource, lockManager );
                 return null;
             }
-            lockElements = new ArrayList<LockElement>();
-            lockMap.put( tx, lockElements );
+            List<LockElement> lockElements = new ArrayList<LockElement>();
+            getState( tx, true ).locks = lockElements;
             LockElement element = new LockElement( resource, type );
             lockElements.add( element );
             // we have to have a synchronization hook for read only transaction,
@@ -330,6 +346,54 @@ public class LockReleaser
         }
     }
 
+    private TransactionState getState( Transaction tx, boolean create )
+    {
+        if ( tx == null )
+        {
+            return null;
+        }
+        TransactionState state = currentState.get();
+        if ( state != null && state.tx == tx && !state.released )
+        {
+            return state;
+        }
+        state = states.get( tx );
+        if ( state == null )
+        {
+            if ( !create )
+            {
+                return null;
+            }
+            state = new TransactionState( tx );
+            TransactionState existing = states.putIfAbsent( tx, state );
+            if ( existing != null )
+            {
+                state = existing;
+            }
+        }
+        currentState.set( state );
+        return state;
+    }
+
+    private void releaseStateIfEmpty( TransactionState state )
+    {
+        if ( state.locks == null && state.cows == null )
+        {
+            state.released = true;
+            states.remove( state.tx );
+            if ( currentState.get() == state )
+            {
+                currentState.remove();
+            }
+        }
+    }
+
+    private PrimitiveElement getCows( Transaction tx )
+    {
+        TransactionState state = getState( tx, false );
+        return state != null ? state.cows : null;
+    }
+
     private Transaction getTransaction()
     {
         try
@@ -345,12 +409,10 @@ public class LockReleaser
 
     public Collection<Long> getCowRelationshipRemoveMap( NodeImpl node, String type )
     {
-        PrimitiveElement primitiveElement = cowMap.get( getTransaction() );
+        PrimitiveElement primitiveElement = getCows( getTransaction() );
         if ( primitiveElement != null )
         {
-            ArrayMap<Long,CowNodeElement> cowElements =
-                primitiveElement.nodes;
-            CowNodeElement element = cowElements.get( node.getId() );
+            CowNodeElement element = primitiveElement.nodes.get( node.getId() );
             if ( element != null && element.relationshipRemoveMap != null )
             {
                 return element.relationshipRemoveMap.get( type );
@@ -423,13 +485,20 @@ public class LockReleaser
 
     public boolean hasLocks( Transaction tx )
     {
-        List<LockElement> lockElements = lockMap.get( tx );
-        return lockElements != null && !lockElements.isEmpty();
+        TransactionState state = getState( tx, false );
+        return state != null && state.locks != null && !state.locks.isEmpty();
     }
 
     void releaseLocks( Transaction tx )
     {
-        List<LockElement> lockElements = lockMap.remove( tx );
+        TransactionState state = getState( tx, false );
+        if ( state == null )
+        {
+            return;
+        }
+        List<LockElement> lockElements = state.locks;
+        state.locks = null;
+        releaseStateIfEmpty( state );
         if ( lockElements != null )
         {
             for ( LockElement lockElement : lockElements )
@@ -449,20 +518,19 @@ public class LockReleaser
 
     void releaseCows( Transaction cowTxId, int param )
     {
-        PrimitiveElement element = cowMap.remove( cowTxId );
-        if ( element == null )
+        TransactionState state = getState( cowTxId, false );
+        if ( state == null || state.cows == null )
         {
             return;
         }
-        ArrayMap<Long,CowNodeElement> cowNodeElements = element.nodes;
-        Set<Entry<Long,CowNodeElement>> nodeEntrySet =
-            cowNodeElements.entrySet();
-        for ( Entry<Long,CowNodeElement> entry : nodeEntrySet )
+        PrimitiveElement element = state.cows;
+        state.cows = null;
+        releaseStateIfEmpty( state );
+        for ( CowNodeElement nodeElement : element.nodes.values() )
         {
-            NodeImpl node = nodeManager.getNodeIfCached( entry.getKey() );
+            NodeImpl node = nodeManager.getNodeIfCached( nodeElement.id );
             if ( node != null )
             {
-                CowNodeElement nodeElement = entry.getValue();
                 if ( param == Status.STATUS_COMMITTED )
                 {
                     node.commitRelationshipMaps( nodeElement.relationshipAddMap,
@@ -477,15 +545,11 @@ public class LockReleaser
                 }
             }
         }
-        ArrayMap<Long,CowRelElement> cowRelElements = element.relationships;
-        Set<Entry<Long,CowRelElement>> relEntrySet =
-            cowRelElements.entrySet();
-        for ( Entry<Long,CowRelElement> entry : relEntrySet )
+        for ( CowRelElement relElement : element.relationships.values() )
         {
-            RelationshipImpl rel = nodeManager.getRelIfCached( entry.getKey() );
+            RelationshipImpl rel = nodeManager.getRelIfCached( relElement.id );
             if ( rel != null )
             {
-                CowRelElement relElement = entry.getValue();
                 if ( param == Status.STATUS_COMMITTED )
                 {
                     rel.commitPropertyMaps( relElement.propertyAddMap,
@@ -503,14 +567,13 @@ public class LockReleaser
             nodeManager.getGraphProperties().commitPropertyMaps( element.graph.getPropertyAddMap( false ),
                     element.graph.getPropertyRemoveMap( false ), Record.NO_NEXT_PROPERTY.intValue(), nodeManager );
         }
-        cowMap.remove( cowTxId );
     }
 
     // non thread safe but let exception be thrown instead of risking deadlock
     public void dumpLocks()
     {
         System.out.print( "Locks held: " );
-        java.util.Iterator<?> itr = lockMap.keySet().iterator();
+        java.util.Iterator<TransactionState> itr = states.values().iterator();
         if ( !itr.hasNext() )
         {
             System.out.println( "NONE" );
@@ -521,16 +584,16 @@ public class LockReleaser
         }
         while ( itr.hasNext() )
         {
-            Transaction transaction = (Transaction) itr.next();
-            System.out.println( "" + transaction + "->" +
-                lockMap.get( transaction ).size() );
+            TransactionState state = itr.next();
+            System.out.println( "" + state.tx + "->" +
+                (state.locks != null ? state.locks.size() : 0) );
         }
     }
 
     public ArrayMap<Integer,PropertyData> getCowPropertyRemoveMap(
         Primitive primitive )
     {
-        PrimitiveElement primitiveElement = cowMap.get( getTransaction() );
+        PrimitiveElement primitiveElement = getCows( getTransaction() );
         if ( primitiveElement == null ) return null;
         CowEntityElement element = primitive.getEntityElement( primitiveElement, false );
         return element != null ? element.getPropertyRemoveMap( false ) : null;
@@ -539,7 +602,7 @@ public class LockReleaser
     public ArrayMap<Integer,PropertyData> getCowPropertyAddMap(
         Primitive primitive )
     {
-        PrimitiveElement primitiveElement = cowMap.get( getTransaction() );
+        PrimitiveElement primitiveElement = getCows( getTransaction() );
         if ( primitiveElement == null ) return null;
         CowEntityElement element = primitive.getEntityElement( primitiveElement, false );
         return element != null ? element.getPropertyAddMap( false ) : null;
@@ -556,13 +619,16 @@ public class LockReleaser
         {
             throw new NotInTransactionException();
         }
-        PrimitiveElement primitiveElement = cowMap.get( tx );
-        if ( primitiveElement == null && create )
+        TransactionState state = getState( tx, create );
+        if ( state == null )
         {
-            primitiveElement = new PrimitiveElement();
-            cowMap.put( tx, primitiveElement );
+            return null;
         }
-        return primitiveElement;
+        if ( state.cows == null && create )
+        {
+            state.cows = new PrimitiveElement();
+        }
+        return state.cows;
     }
 
     public ArrayMap<Integer,PropertyData> getOrCreateCowPropertyAddMap(
@@ -659,10 +725,16 @@ public class LockReleaser
         }
     }
 
+    /**
+     * Captures the changes of the current transaction for transaction event
+     * handlers. Only ids, and the values properties had before the
+     * transaction, are captured here; the proxies and property entries are
+     * created by {@link TransactionDataImpl} when they are asked for.
+     */
     public TransactionData getTransactionData()
     {
-        TransactionDataImpl result = new TransactionDataImpl();
-        PrimitiveElement element = cowMap.get( getTransaction() );
+        TransactionDataImpl result = new TransactionDataImpl( nodeManager );
+        PrimitiveElement element = getCows( getTransaction() );
         populateCreatedNodes( element, result );
         if ( element == null )
         {
@@ -682,11 +754,9 @@ public class LockReleaser
     private void populateRelationshipPropertyEvents( PrimitiveElement element,
             TransactionDataImpl result )
     {
-        for ( long relId : element.relationships.keySet() )
+        for ( CowRelElement relElement : element.relationships.values() )
         {
-            CowRelElement relElement = element.relationships.get( relId );
-            RelationshipProxy rel = nodeManager.newRelationshipProxyById( relId );
-            RelationshipImpl relImpl = nodeManager.getRelationshipForProxy( relId, null );
+            long relId = relElement.id;
             if ( relElement.deleted )
             {
                 if ( nodeManager.relCreated( relId ) )
@@ -694,29 +764,24 @@ public class LockReleaser
                     continue;
                 }
                 // note: this is done in node populate data
-                // result.deleted( rel );
+                // result.deletedRelationship( relId );
             }
             if ( relElement.propertyAddMap != null && !relElement.deleted )
             {
+                RelationshipImpl relImpl = nodeManager.relCreated( relId ) ? null :
+                        nodeManager.getRelationshipForProxy( relId, null );
                 for ( PropertyData data : relElement.propertyAddMap.values() )
                 {
-                    String key = nodeManager.getKeyForProperty( data );
-                    Object oldValue = relImpl.getCommittedPropertyValue( nodeManager, key );
-                    Object newValue = data.getValue();
-                    result.assignedProperty( rel, key, newValue, oldValue );
+                    Object oldValue = relImpl == null ? null :
+                            relImpl.getCommittedPropertyValue( nodeManager, nodeManager.getKeyForProperty( data ) );
+                    result.assignedRelationshipProperty( relId, data, oldValue );
                 }
             }
             if ( relElement.propertyRemoveMap != null )
             {
                 for ( PropertyData data : relElement.propertyRemoveMap.values() )
                 {
-                    String key = nodeManager.getKeyForProperty( data );
-                    Object oldValue = data.getValue();
-                    if ( oldValue != null && !relElement.deleted )
-                    {
-                        relImpl.getCommittedPropertyValue( nodeManager, key );
-                    }
-                    result.removedProperty( rel, key, oldValue );
+                    result.removedRelationshipProperty( relId, data );
                 }
             }
         }
@@ -725,25 +790,23 @@ public class LockReleaser
     private void populateNodeRelEvent( PrimitiveElement element,
             TransactionDataImpl result )
     {
-        for ( long nodeId : element.nodes.keySet() )
+        for ( CowNodeElement nodeElement : element.nodes.values() )
         {
-            CowNodeElement nodeElement = element.nodes.get( nodeId );
-            NodeProxy node = nodeManager.newNodeProxyById( nodeId );
-            NodeImpl nodeImpl = nodeManager.getNodeForProxy( nodeId, null );
+            long nodeId = nodeElement.id;
             if ( nodeElement.deleted )
             {
                 if ( nodeManager.nodeCreated( nodeId ) )
                 {
                     continue;
                 }
-                result.deleted( node );
+                result.deletedNode( nodeId );
             }
             if ( nodeElement.relationshipAddMap != null && !nodeElement.deleted )
             {
                 for ( String type : nodeElement.relationshipAddMap.keySet() )
                 {
                     RelIdArray createdRels = nodeElement.relationshipAddMap.get( type );
-                    populateNodeRelEvent( element, result, nodeId, createdRels );
+                    populateNodeRelEvent( element, result, createdRels );
                 }
             }
             if ( nodeElement.relationshipRemoveMap != null )
@@ -757,42 +820,34 @@ public class LockReleaser
                         {
                             continue;
                         }
-                        RelationshipProxy rel = nodeManager.newRelationshipProxyById( relId );
-                        if ( rel.getStartNode().getId() == nodeId )
-                        {
-                            result.deleted( nodeManager.newRelationshipProxyById( relId ));
-                        }
+                        // Seen from both nodes, the result only keeps it once
+                        result.deletedRelationship( relId );
                     }
                 }
             }
             if ( nodeElement.propertyAddMap != null && !nodeElement.deleted )
             {
+                NodeImpl nodeImpl = nodeManager.nodeCreated( nodeId ) ? null :
+                        nodeManager.getNodeForProxy( nodeId, null );
                 for ( PropertyData data : nodeElement.propertyAddMap.values() )
                 {
-                    String key = nodeManager.getKeyForProperty( data );
-                    Object oldValue = nodeImpl.getCommittedPropertyValue( nodeManager, key );
-                    Object newValue = data.getValue();
-                    result.assignedProperty( node, key, newValue, oldValue );
+                    Object oldValue = nodeImpl == null ? null :
+                            nodeImpl.getCommittedPropertyValue( nodeManager, nodeManager.getKeyForProperty( data ) );
+                    result.assignedNodeProperty( nodeId, data, oldValue );
                 }
             }
             if ( nodeElement.propertyRemoveMap != null )
             {
                 for ( PropertyData data : nodeElement.propertyRemoveMap.values() )
                 {
-                    String key = nodeManager.getKeyForProperty( data );
-                    Object oldValue = data.getValue();
-                    if ( oldValue == null && !nodeElement.deleted )
-                    {
-                        nodeImpl.getCommittedPropertyValue( nodeManager, key );
-                    }
-                    result.removedProperty( node, key, oldValue );
+                    result.removedNodeProperty( nodeId, data );
                 }
             }
         }
     }
 
     private void populateNodeRelEvent( PrimitiveElement element, TransactionDataImpl result,
-            long nodeId, RelIdArray createdRels )
+            RelIdArray createdRels )
     {
         for ( RelIdIterator iterator = createdRels.iterator( DirectionWrapper.BOTH ); iterator.hasNext(); )
         {
@@ -802,11 +857,8 @@ public class LockReleaser
             {
                 continue;
             }
-            RelationshipProxy rel = nodeManager.newRelationshipProxyById( relId );
-            if ( rel.getStartNode().getId() == nodeId )
-            {
-                result.created( nodeManager.newRelationshipProxyById( relId ));
-            }
+            // Seen from both nodes, the result only keeps it once
+            result.createdRelationship( relId );
         }
     }
 
@@ -825,7 +877,7 @@ public class LockReleaser
                     continue;
                 }
             }
-            result.created( nodeManager.newNodeProxyById( nodeId ) );
+            result.createdNode( nodeId );
         }
     }
 
@@ -836,12 +888,10 @@ public class LockReleaser
         {
             return false;
         }
-        PrimitiveElement primitiveElement = cowMap.get( tx );
+        PrimitiveElement primitiveElement = getCows( tx );
         if ( primitiveElement != null )
         {
-            ArrayMap<Long,CowNodeElement> cowElements =
-                primitiveElement.nodes;
-            CowNodeElement element = cowElements.get( node.getId() );
+            CowNodeElement element = primitiveElement.nodes.get( node.getId() );
             if ( element != null && (element.relationshipAddMap != null || element.relationshipRemoveMap != null) )
             {
                 return true;
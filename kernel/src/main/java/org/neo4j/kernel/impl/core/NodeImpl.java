@@ -54,7 +54,9 @@ public class NodeImpl extends ArrayBasedPrimitive
 
     private volatile RelIdArray[] relationships;
 
-    private long relChainPosition = Record.NO_NEXT_RELATIONSHIP.intValue();
+    private volatile long relChainPosition = Record.NO_NEXT_RELATIONSHIP.intValue();
+    // Bumped, under the monitor, by every commit changing this node's relationships
+    private volatile int relModifications;
     private final long id;
 
     NodeImpl( long id, long firstRel, long firstProp )
@@ -82,7 +84,7 @@ public class NodeImpl extends ArrayBasedPrimitive
     @Override
     public int size()
     {
-        int size = super.size() + SizeOfs.REFERENCE_SIZE/*relationships reference*/ + 8/*relChainPosition*/ + 8/*id*/;
+        int size = super.size() + SizeOfs.REFERENCE_SIZE/*relationships reference*/ + 8/*relChainPosition*/ + 4/*relModifications*/ + 8/*id*/;
         if ( relationships != null )
         {
             size = withArrayOverheadIncludingReferences( size, relationships.length );
@@ -342,31 +344,34 @@ public class NodeImpl extends ArrayBasedPrimitive
 
     private void loadInitialRelationships( NodeManager nodeManager )
     {
-        // Triplet<ArrayMap<String, RelIdArray>, Map<Long, RelationshipImpl>, Long> rels = null;
-        Triplet<ArrayMap<String, RelIdArray>, List<RelationshipImpl>, Long> rels = null;
+        // The first batch is read from the store without holding the monitor so
+        // that threads reading the same node don't queue up behind each other's
+        // store reads. Whichever thread gets to publish first wins, the others
+        // discard what they read. If a transaction changed the relationships of
+        // this node in the meantime the batch is read again under the monitor,
+        // see getMoreRelationships.
+        int modifications = relModifications;
+        long position = loadRelationshipChainPosition( nodeManager );
+        Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> rels =
+                loadFirstRelationships( nodeManager, position );
         synchronized ( this )
         {
-            if ( relationships == null )
+            if ( relationships != null )
             {
-                try
-                {
-                    relChainPosition = nodeManager.getRelationshipChainPosition( this );
-                }
-                catch ( InvalidRecordException e )
-                {
-                    throw new NotFoundException( asProxy( nodeManager ) +
-                            " concurrently deleted while loading its relationships?", e );
-                }
-
-                ArrayMap<String,RelIdArray> tmpRelMap = new ArrayMap<String,RelIdArray>();
-                rels = getMoreRelationships( nodeManager, tmpRelMap );
-                this.relationships = toRelIdArray( tmpRelMap );
-                if ( rels != null )
-                {
-                    setRelChainPosition( rels.third() );
-                }
-                updateSize( nodeManager );
+                return;
+            }
+            if ( relModifications != modifications )
+            {
+                position = loadRelationshipChainPosition( nodeManager );
+                rels = loadFirstRelationships( nodeManager, position );
+            }
+            relChainPosition = position;
+            this.relationships = rels != null ? toRelIdArray( rels.first() ) : NO_RELATIONSHIPS;
+            if ( rels != null )
+            {
+                setRelChainPosition( rels.third() );
             }
+            updateSize( nodeManager );
         }
         if ( rels != null )
         {
@@ -374,6 +379,31 @@ public class NodeImpl extends ArrayBasedPrimitive
         }
     }
 
+    private long loadRelationshipChainPosition( NodeManager nodeManager )
+    {
+        try
+        {
+            return nodeManager.getRelationshipChainPosition( this );
+        }
+        catch ( InvalidRecordException e )
+        {
+            throw new NotFoundException( asProxy( nodeManager ) +
+                    " concurrently deleted while loading its relationships?", e );
+        }
+    }
+
+    private Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> loadFirstRelationships(
+            NodeManager nodeManager, long position )
+    {
+        if ( position == Record.NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            return null;
+        }
+        Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> rels =
+                loadMoreRelationshipsFromNodeManager( nodeManager, position );
+        return rels.first().size() == 0 ? null : rels;
+    }
+
     @Override
     protected void updateSize( NodeManager nodeManager )
     {
@@ -396,64 +426,49 @@ public class NodeImpl extends ArrayBasedPrimitive
         return result;
     }
 
-//            NodeManager nodeManager, ArrayMap<String,RelIdArray> tmpRelMap )
-    private Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> getMoreRelationships(
-            NodeManager nodeManager, ArrayMap<String,RelIdArray> tmpRelMap )
-    {
-        if ( !hasMoreRelationshipsToLoad() )
-        {
-            return null;
-        }
-        Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> rels;
-
-        rels = loadMoreRelationshipsFromNodeManager(nodeManager);
-
-        ArrayMap<String,RelIdArray> addMap = rels.first();
-        if ( addMap.size() == 0 )
-        {
-            return null;
-        }
-        for ( String type : addMap.keySet() )
-        {
-            RelIdArray addRels = addMap.get( type );
-            RelIdArray srcRels = tmpRelMap.get( type );
-            if ( srcRels == null )
-            {
-                tmpRelMap.put( type, addRels );
-            }
-            else
-            {
-                RelIdArray newSrcRels = srcRels.addAll( addRels );
-                // This can happen if srcRels gets upgraded to a RelIdArrayWithLoops
-                if ( newSrcRels != srcRels )
-                {
-                    tmpRelMap.put( type, newSrcRels );
-                }
-            }
-        }
-        return rels;
-        // nodeManager.putAllInRelCache( pair.other() );
-    }
-
     boolean hasMoreRelationshipsToLoad()
     {
         return getRelChainPosition() != Record.NO_NEXT_RELATIONSHIP.intValue();
     }
 
+    /**
+     * Loads the next batch of relationships in this node's chain. The store
+     * read happens without holding the monitor, the monitor is only held to
+     * publish the batch and only if no other thread published the batch
+     * from the same chain position in the meantime. Readers iterating over
+     * already loaded relationships never take it.
+     * <p>
+     * A transaction committing while the batch is read may have deleted
+     * relationships in it. Those aren't cached yet, so the commit has nothing
+     * to remove, and publishing the batch would bring them back. The commit
+     * bumps the modification count though, and then the batch is read again
+     * holding the monitor, which keeps further commits out until it's
+     * published.
+     *
+     * @return {@code true} if more relationships were loaded, by this or
+     * another thread, since the chain position last seen by this thread.
+     */
     boolean getMoreRelationships( NodeManager nodeManager )
     {
-        Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> rels;
-        if ( !hasMoreRelationshipsToLoad() )
+        long position = relChainPosition;
+        if ( position == Record.NO_NEXT_RELATIONSHIP.intValue() )
         {
             return false;
         }
+        int modifications = relModifications;
+        Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> rels =
+                loadMoreRelationshipsFromNodeManager( nodeManager, position );
         synchronized ( this )
         {
-            if ( !hasMoreRelationshipsToLoad() )
+            if ( relChainPosition != position )
             {
-                return false;
+                // Another thread published this batch before us
+                return true;
+            }
+            if ( relModifications != modifications )
+            {
+                rels = loadMoreRelationshipsFromNodeManager( nodeManager, position );
             }
-            rels = loadMoreRelationshipsFromNodeManager(nodeManager);
             ArrayMap<String,RelIdArray> addMap = rels.first();
             if ( addMap.size() == 0 )
             {
@@ -486,11 +501,11 @@ public class NodeImpl extends ArrayBasedPrimitive
     }
 
     private Triplet<ArrayMap<String, RelIdArray>, List<RelationshipImpl>, Long>
-        loadMoreRelationshipsFromNodeManager( NodeManager nodeManager )
+        loadMoreRelationshipsFromNodeManager( NodeManager nodeManager, long position )
     {
         try
         {
-            return nodeManager.getMoreRelationships( this );
+            return nodeManager.getMoreRelationships( this, position );
         } catch(InvalidRecordException e)
         {
             throw new NotFoundException( "Unable to load one or more relationships from " + asProxy( nodeManager ) +
@@ -603,14 +618,14 @@ public class NodeImpl extends ArrayBasedPrimitive
         ArrayMap<String,RelIdArray> cowRelationshipAddMap,
         ArrayMap<String,Collection<Long>> cowRelationshipRemoveMap, long firstRel, NodeManager nodeManager )
     {
-        if ( relationships == null )
-        {
-            // we will load full in some other tx
-            return;
-        }
-
         synchronized ( this )
         {
+            relModifications++;
+            if ( relationships == null )
+            {
+                // we will load full in some other tx
+                return;
+            }
             if ( cowRelationshipAddMap != null )
             {
                 for ( String type : cowRelationshipAddMap.keySet() )
@@ -26,6 +26,8 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -93,9 +95,24 @@ public class NodeManager
     private static final int INDEX_COUNT = 2500;
 
     private static final int LOCK_STRIPE_COUNT = 32;
+    // Number of node records read at a time when scanning for nodes in use
+    private static final int SCAN_CHUNK_SIZE = 4096;
     private final ReentrantLock loadLocks[] =
         new ReentrantLock[LOCK_STRIPE_COUNT];
     private GraphProperties graphProperties;
+    /*
+     * Counts commits of property changes to cached primitives that didn't have
+     * their properties loaded, i.e. changes that never made it into the cache.
+     * Lets batched loads of properties detect that what they read may be stale.
+     */
+    private final AtomicLong unloadedPropertyChanges = new AtomicLong();
+    /*
+     * Counts node and relationship accesses for threads that asked for it,
+     * used when profiling queries. The counter of active threads keeps the
+     * cost at a single volatile read when nobody is counting.
+     */
+    private final AtomicInteger dbHitCountingThreads = new AtomicInteger();
+    private final ThreadLocal<long[]> dbHits = new ThreadLocal<long[]>();
 
     public NodeManager( Config config, GraphDatabaseService graphDb, LockManager lockManager,
             LockReleaser lockReleaser, TransactionManager transactionManager,
@@ -333,8 +350,63 @@ public class NodeManager
         return lock;
     }
 
+    /**
+     * Starts counting the nodes and relationships looked up, and the
+     * accesses to their properties and relationships, made by the calling
+     * thread. Every call must be paired with a call to
+     * {@link #stopCountingDbHits()} from the same thread.
+     */
+    public void startCountingDbHits()
+    {
+        if ( dbHits.get() == null )
+        {
+            dbHits.set( new long[1] );
+            dbHitCountingThreads.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of db hits counted for the calling thread so far,
+     * or 0 if it isn't counting.
+     */
+    public long getDbHits()
+    {
+        long[] hits = dbHits.get();
+        return hits != null ? hits[0] : 0;
+    }
+
+    /**
+     * Stops counting db hits for the calling thread.
+     *
+     * @return the number of db hits counted since counting started.
+     */
+    public long stopCountingDbHits()
+    {
+        long[] hits = dbHits.get();
+        if ( hits == null )
+        {
+            return 0;
+        }
+        dbHits.remove();
+        dbHitCountingThreads.decrementAndGet();
+        return hits[0];
+    }
+
+    private void countDbHit()
+    {
+        if ( dbHitCountingThreads.get() > 0 )
+        {
+            long[] hits = dbHits.get();
+            if ( hits != null )
+            {
+                hits[0]++;
+            }
+        }
+    }
+
     protected Node getNodeByIdOrNull( long nodeId )
     {
+        countDbHit();
         NodeImpl node = nodeCache.get( nodeId );
         if ( node != null )
         {
@@ -377,30 +449,51 @@ public class NodeManager
 
     public Iterator<Node> getAllNodes()
     {
-        final long highId = getHighestPossibleIdInUse( Node.class );
+        return getAllNodes( 0, getHighestPossibleIdInUse( Node.class ) + 1 );
+    }
+
+    /**
+     * Returns the nodes with ids in the given range, in id order. Which ids
+     * are in use is read from the store a chunk of records at a time, so
+     * ranges of unused ids are skipped without looking the nodes up one by
+     * one. The nodes are looked up when the iterator gets to them, by the
+     * thread iterating, which makes it possible to iterate different ranges
+     * on different threads.
+     *
+     * @param fromId the first id of the range.
+     * @param toId the id after the last id of the range.
+     * @return the nodes with ids in the range.
+     */
+    public Iterator<Node> getAllNodes( final long fromId, final long toId )
+    {
         return new PrefetchingIterator<Node>()
         {
-            private long currentId;
-            
+            private long nextChunkStart = fromId;
+            private long[] chunk = new long[0];
+            private int positionInChunk;
+
             @Override
             protected Node fetchNextOrNull()
             {
-                while ( currentId <= highId )
+                while ( true )
                 {
-                    try
+                    while ( positionInChunk < chunk.length )
                     {
-                        Node node = getNodeByIdOrNull( currentId );
+                        Node node = getNodeByIdOrNull( chunk[positionInChunk++] );
                         if ( node != null )
                         {
                             return node;
                         }
                     }
-                    finally
+                    if ( nextChunkStart >= toId )
                     {
-                        currentId++;
+                        return null;
                     }
+                    long chunkEnd = Math.min( toId, nextChunkStart + SCAN_CHUNK_SIZE );
+                    chunk = persistenceManager.getNodeIdsInUse( nextChunkStart, chunkEnd );
+                    positionInChunk = 0;
+                    nextChunkStart = chunkEnd;
                 }
-                return null;
             }
         };
     }
@@ -435,6 +528,7 @@ public class NodeManager
 
     public NodeImpl getNodeForProxy( long nodeId, LockType lock )
     {
+        countDbHit();
         if ( lock != null )
             acquireTxBoundLock( new NodeProxy( nodeId, nodeLookup ), lock );
         NodeImpl node = getLightNode( nodeId );
@@ -458,6 +552,7 @@ public class NodeManager
 
     protected Relationship getRelationshipByIdOrNull( long relId )
     {
+        countDbHit();
         RelationshipImpl relationship = relCache.get( relId );
         if ( relationship != null )
         {
@@ -543,6 +638,7 @@ public class NodeManager
 
     public RelationshipImpl getRelationshipForProxy( long relId, LockType lock )
     {
+        countDbHit();
         if ( lock != null )
             acquireTxBoundLock( new RelationshipProxy( relId, relationshipLookups ), lock );
         RelationshipImpl relationship = relCache.get( relId );
@@ -601,10 +697,10 @@ public class NodeManager
     }
 
     // Triplet<ArrayMap<String,RelIdArray>,Map<Long,RelationshipImpl>,Long> getMoreRelationships( NodeImpl node )
-    Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> getMoreRelationships( NodeImpl node )
+    Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> getMoreRelationships( NodeImpl node,
+            long position )
     {
         long nodeId = node.getId();
-        long position = node.getRelChainPosition();
         Pair<Map<DirectionWrapper, Iterable<RelationshipRecord>>, Long> rels =
             persistenceManager.getMoreRelationships( nodeId, position );
         ArrayMap<String,RelIdArray> newRelationshipMap =
@@ -688,6 +784,53 @@ public class NodeManager
         return persistenceManager.loadRelProperties( relationship.getId(), light );
     }
 
+    void unloadedPropertiesChanged()
+    {
+        unloadedPropertyChanges.incrementAndGet();
+    }
+
+    /**
+     * Loads the committed properties of all the given nodes which doesn't
+     * already have their properties cached. The records are read in one batch,
+     * instead of one node at a time, which is much cheaper when reading a few
+     * properties from each of many nodes, f.ex. when projecting query results.
+     *
+     * @param nodeIds the ids of the nodes to load properties for.
+     */
+    public void preloadNodeProperties( long[] nodeIds )
+    {
+        List<NodeImpl> nodes = new ArrayList<NodeImpl>( nodeIds.length );
+        for ( long nodeId : nodeIds )
+        {
+            NodeImpl node = getLightNode( nodeId );
+            if ( node != null && !node.hasLoadedProperties() )
+            {
+                nodes.add( node );
+            }
+        }
+        if ( nodes.isEmpty() )
+        {
+            return;
+        }
+        long[] idsToLoad = new long[nodes.size()];
+        for ( int i = 0; i < idsToLoad.length; i++ )
+        {
+            idsToLoad[i] = nodes.get( i ).getId();
+        }
+        long unloadedChangesBefore = unloadedPropertyChanges.get();
+        Map<Long,ArrayMap<Integer,PropertyData>> loaded = persistenceManager.loadNodeProperties( idsToLoad );
+        if ( unloadedPropertyChanges.get() != unloadedChangesBefore )
+        {
+            // Some of what we read might have been changed after we read it, leave
+            // these nodes to load their properties on demand instead.
+            return;
+        }
+        for ( NodeImpl node : nodes )
+        {
+            node.setLoadedProperties( loaded.get( node.getId() ), this );
+        }
+    }
+
     public void clearCache()
     {
         nodeCache.clear();
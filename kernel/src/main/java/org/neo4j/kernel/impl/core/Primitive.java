@@ -594,6 +594,27 @@ abstract class Primitive
         }
     }
 
+    boolean hasLoadedProperties()
+    {
+        return allProperties() != null;
+    }
+
+    /**
+     * Sets properties that were loaded outside of this primitive, f.ex. in a
+     * batch together with other primitives, unless properties already have
+     * been loaded.
+     */
+    void setLoadedProperties( ArrayMap<Integer, PropertyData> loadedProperties, NodeManager nodeManager )
+    {
+        if ( allProperties() == null ) synchronized ( this )
+        {
+            if ( allProperties() == null )
+            {
+                setProperties( loadedProperties, nodeManager );
+            }
+        }
+    }
+
     protected List<PropertyEventData> getAllCommittedProperties( NodeManager nodeManager )
     {
         ensureFullLightProperties( nodeManager );
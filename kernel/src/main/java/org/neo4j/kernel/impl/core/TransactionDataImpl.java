@@ -21,127 +21,243 @@ package org.neo4j.kernel.impl.core;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
 
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.event.PropertyEntry;
 import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.kernel.impl.nioneo.store.PropertyData;
+import org.neo4j.kernel.impl.util.PrimitiveLongMap;
 
+/**
+ * The changes of a transaction, as seen by transaction event handlers. While
+ * the transaction is committing only the ids of changed entities and the
+ * values properties had before the transaction are captured, since those
+ * are gone once it has committed. The proxies and {@link PropertyEntry}
+ * instances handlers see are created the first time a handler asks for each
+ * kind of change, so handlers only pay for the changes they look at.
+ * <p>
+ * The views can be asked for from another thread than the one that
+ * committed the transaction, e.g. when delivering after commit events
+ * asynchronously.
+ */
 class TransactionDataImpl implements TransactionData
 {
-    private final Collection<PropertyEntry<Node>> assignedNodeProperties = newCollection();
-    private final Collection<PropertyEntry<Relationship>> assignedRelationshipProperties =
-            newCollection();
-    private final Collection<Node> createdNodes = newCollection();
-    private final Collection<Relationship> createdRelationships = newCollection();
-    private final Collection<Node> deletedNodes = new HashSet<Node>();
-    private final Collection<Relationship> deletedRelationships = new HashSet<Relationship>();
-    private final Collection<PropertyEntry<Node>> removedNodeProperties = newCollection();
-    private final Collection<PropertyEntry<Relationship>> removedRelationshipProperties =
-            newCollection();
-    
-    private <T> Collection<T> newCollection()
+    private final NodeManager nodeManager;
+
+    private final PrimitiveLongMap<Boolean> createdNodeIds = new PrimitiveLongMap<Boolean>();
+    private final PrimitiveLongMap<Boolean> deletedNodeIds = new PrimitiveLongMap<Boolean>();
+    private final PrimitiveLongMap<Boolean> createdRelationshipIds = new PrimitiveLongMap<Boolean>();
+    private final PrimitiveLongMap<Boolean> deletedRelationshipIds = new PrimitiveLongMap<Boolean>();
+    private final List<PropertyChange> assignedNodePropertyChanges = new ArrayList<PropertyChange>();
+    private final List<PropertyChange> removedNodePropertyChanges = new ArrayList<PropertyChange>();
+    private final List<PropertyChange> assignedRelationshipPropertyChanges = new ArrayList<PropertyChange>();
+    private final List<PropertyChange> removedRelationshipPropertyChanges = new ArrayList<PropertyChange>();
+
+    private Collection<Node> createdNodes;
+    private Collection<Node> deletedNodes;
+    private Collection<Relationship> createdRelationships;
+    private Collection<Relationship> deletedRelationships;
+    private Collection<PropertyEntry<Node>> assignedNodeProperties;
+    private Collection<PropertyEntry<Node>> removedNodeProperties;
+    private Collection<PropertyEntry<Relationship>> assignedRelationshipProperties;
+    private Collection<PropertyEntry<Relationship>> removedRelationshipProperties;
+
+    TransactionDataImpl( NodeManager nodeManager )
     {
-        // TODO Tweak later, better collection impl or something?
-        return new ArrayList<T>();
+        this.nodeManager = nodeManager;
     }
 
-    public Iterable<PropertyEntry<Node>> assignedNodeProperties()
+    public synchronized Iterable<PropertyEntry<Node>> assignedNodeProperties()
     {
-        return this.assignedNodeProperties;
+        if ( assignedNodeProperties == null )
+        {
+            assignedNodeProperties = nodePropertyEntries( assignedNodePropertyChanges );
+        }
+        return assignedNodeProperties;
     }
 
-    public Iterable<PropertyEntry<Relationship>> assignedRelationshipProperties()
+    public synchronized Iterable<PropertyEntry<Relationship>> assignedRelationshipProperties()
     {
-        return this.assignedRelationshipProperties;
+        if ( assignedRelationshipProperties == null )
+        {
+            assignedRelationshipProperties = relationshipPropertyEntries( assignedRelationshipPropertyChanges );
+        }
+        return assignedRelationshipProperties;
     }
 
-    public Iterable<Node> createdNodes()
+    public synchronized Iterable<Node> createdNodes()
     {
-        return this.createdNodes;
+        if ( createdNodes == null )
+        {
+            createdNodes = nodes( createdNodeIds );
+        }
+        return createdNodes;
     }
 
-    public Iterable<Relationship> createdRelationships()
+    public synchronized Iterable<Relationship> createdRelationships()
     {
-        return this.createdRelationships;
+        if ( createdRelationships == null )
+        {
+            createdRelationships = relationships( createdRelationshipIds );
+        }
+        return createdRelationships;
     }
 
-    public Iterable<Node> deletedNodes()
+    public synchronized Iterable<Node> deletedNodes()
     {
-        return this.deletedNodes;
+        if ( deletedNodes == null )
+        {
+            deletedNodes = nodes( deletedNodeIds );
+        }
+        return deletedNodes;
     }
-    
+
     public boolean isDeleted( Node node )
     {
-        return this.deletedNodes.contains( node );
+        return deletedNodeIds.containsKey( node.getId() );
     }
 
-    public Iterable<Relationship> deletedRelationships()
+    public synchronized Iterable<Relationship> deletedRelationships()
     {
-        return this.deletedRelationships;
+        if ( deletedRelationships == null )
+        {
+            deletedRelationships = relationships( deletedRelationshipIds );
+        }
+        return deletedRelationships;
     }
-    
+
     public boolean isDeleted( Relationship relationship )
     {
-        return this.deletedRelationships.contains( relationship );
+        return deletedRelationshipIds.containsKey( relationship.getId() );
     }
 
-    public Iterable<PropertyEntry<Node>> removedNodeProperties()
+    public synchronized Iterable<PropertyEntry<Node>> removedNodeProperties()
     {
-        return this.removedNodeProperties;
+        if ( removedNodeProperties == null )
+        {
+            removedNodeProperties = nodePropertyEntries( removedNodePropertyChanges );
+        }
+        return removedNodeProperties;
     }
 
-    public Iterable<PropertyEntry<Relationship>> removedRelationshipProperties()
+    public synchronized Iterable<PropertyEntry<Relationship>> removedRelationshipProperties()
     {
-        return this.removedRelationshipProperties;
+        if ( removedRelationshipProperties == null )
+        {
+            removedRelationshipProperties = relationshipPropertyEntries( removedRelationshipPropertyChanges );
+        }
+        return removedRelationshipProperties;
     }
 
-    void assignedProperty( Node node, String key, Object value,
-            Object valueBeforeTransaction )
+    void assignedNodeProperty( long nodeId, PropertyData data, Object valueBeforeTransaction )
     {
-        this.assignedNodeProperties.add( PropertyEntryImpl.assigned( node, key,
-                value, valueBeforeTransaction ) );
+        assignedNodePropertyChanges.add( new PropertyChange( nodeId, data, false,
+                valueBeforeTransaction ) );
     }
 
-    void assignedProperty( Relationship relationship, String key,
-            Object value, Object valueBeforeTransaction )
+    void assignedRelationshipProperty( long relId, PropertyData data, Object valueBeforeTransaction )
     {
-        this.assignedRelationshipProperties.add( PropertyEntryImpl.assigned(
-                relationship, key, value, valueBeforeTransaction ) );
+        assignedRelationshipPropertyChanges.add( new PropertyChange( relId, data, false,
+                valueBeforeTransaction ) );
     }
 
-    void removedProperty( Node node, String key,
-            Object valueBeforeTransaction )
+    void removedNodeProperty( long nodeId, PropertyData data )
     {
-        this.removedNodeProperties.add( PropertyEntryImpl.removed( node, key,
-                valueBeforeTransaction ) );
+        removedNodePropertyChanges.add( new PropertyChange( nodeId, data, true, data.getValue() ) );
     }
 
-    void removedProperty( Relationship relationship, String key,
-            Object valueBeforeTransaction )
+    void removedRelationshipProperty( long relId, PropertyData data )
     {
-        this.removedRelationshipProperties.add( PropertyEntryImpl.removed(
-                relationship, key, valueBeforeTransaction ) );
+        removedRelationshipPropertyChanges.add( new PropertyChange( relId, data, true, data.getValue() ) );
     }
-    
-    void created( Node node )
+
+    void createdNode( long nodeId )
     {
-        this.createdNodes.add( node );
+        createdNodeIds.put( nodeId, Boolean.TRUE );
     }
-    
-    void created( Relationship relationship )
+
+    void createdRelationship( long relId )
     {
-        this.createdRelationships.add( relationship );
+        createdRelationshipIds.put( relId, Boolean.TRUE );
     }
-    
-    void deleted( Node node )
+
+    void deletedNode( long nodeId )
     {
-        this.deletedNodes.add( node );
+        deletedNodeIds.put( nodeId, Boolean.TRUE );
     }
-    
-    void deleted( Relationship relationship )
+
+    void deletedRelationship( long relId )
     {
-        this.deletedRelationships.add( relationship );
+        deletedRelationshipIds.put( relId, Boolean.TRUE );
+    }
+
+    private Collection<Node> nodes( PrimitiveLongMap<Boolean> ids )
+    {
+        Collection<Node> result = new ArrayList<Node>( ids.size() );
+        for ( long id : ids.keys() )
+        {
+            result.add( nodeManager.newNodeProxyById( id ) );
+        }
+        return result;
+    }
+
+    private Collection<Relationship> relationships( PrimitiveLongMap<Boolean> ids )
+    {
+        Collection<Relationship> result = new ArrayList<Relationship>( ids.size() );
+        for ( long id : ids.keys() )
+        {
+            result.add( nodeManager.newRelationshipProxyById( id ) );
+        }
+        return result;
+    }
+
+    private Collection<PropertyEntry<Node>> nodePropertyEntries( List<PropertyChange> changes )
+    {
+        Collection<PropertyEntry<Node>> result = new ArrayList<PropertyEntry<Node>>( changes.size() );
+        for ( PropertyChange change : changes )
+        {
+            result.add( change.entry( (Node) nodeManager.newNodeProxyById( change.entityId ), nodeManager ) );
+        }
+        return result;
+    }
+
+    private Collection<PropertyEntry<Relationship>> relationshipPropertyEntries( List<PropertyChange> changes )
+    {
+        Collection<PropertyEntry<Relationship>> result =
+                new ArrayList<PropertyEntry<Relationship>>( changes.size() );
+        for ( PropertyChange change : changes )
+        {
+            result.add( change.entry( (Relationship) nodeManager.newRelationshipProxyById( change.entityId ),
+                    nodeManager ) );
+        }
+        return result;
+    }
+
+    private static class PropertyChange
+    {
+        private final long entityId;
+        private final PropertyData data;
+        private final Object value;
+        private final boolean removed;
+        private final Object valueBeforeTransaction;
+
+        PropertyChange( long entityId, PropertyData data, boolean removed, Object valueBeforeTransaction )
+        {
+            this.entityId = entityId;
+            this.data = data;
+            this.value = removed ? null : data.getValue();
+            this.removed = removed;
+            this.valueBeforeTransaction = valueBeforeTransaction;
+        }
+
+        <T extends PropertyContainer> PropertyEntry<T> entry( T entity, NodeManager nodeManager )
+        {
+            String key = nodeManager.getKeyForProperty( data );
+            return removed ? PropertyEntryImpl.removed( entity, key, valueBeforeTransaction )
+                    : PropertyEntryImpl.assigned( entity, key, value, valueBeforeTransaction );
+        }
     }
 }
@@ -22,9 +22,14 @@ package org.neo4j.kernel.impl.nioneo.store;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+
 import org.neo4j.graphdb.factory.GraphDatabaseSetting;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.helpers.UTF8;
@@ -57,6 +62,7 @@ public abstract class AbstractDynamicStore extends CommonAbstractStore implement
         extends CommonAbstractStore.Configuration
     {
         public static final GraphDatabaseSetting.BooleanSetting rebuild_idgenerators_fast = GraphDatabaseSettings.rebuild_idgenerators_fast;
+        public static final GraphDatabaseSetting.BooleanSetting rebuild_idgenerators_in_background = GraphDatabaseSettings.rebuild_idgenerators_in_background;
     }
 
     private Config conf;
@@ -314,9 +320,13 @@ public abstract class AbstractDynamicStore extends CommonAbstractStore implement
     }
 
     private DynamicRecord getRecord( long blockId, PersistenceWindow window, RecordLoad load )
+    {
+        return getRecord( blockId, window.getOffsettedBuffer( blockId ), load );
+    }
+
+    private DynamicRecord getRecord( long blockId, Buffer buffer, RecordLoad load )
     {
         DynamicRecord record = new DynamicRecord( blockId );
-        Buffer buffer = window.getOffsettedBuffer( blockId );
 
         /*
          *
@@ -400,6 +410,12 @@ public abstract class AbstractDynamicStore extends CommonAbstractStore implement
         }
     }
 
+    @Override
+    public DynamicRecord forceGetRecord( RecordScan scan )
+    {
+        return getRecord( scan.getId(), scan.getBuffer(), RecordLoad.FORCE );
+    }
+
     @Override
     public DynamicRecord forceGetRaw( long id )
     {
@@ -428,6 +444,63 @@ public abstract class AbstractDynamicStore extends CommonAbstractStore implement
         return recordList;
     }
 
+    /**
+     * Batched version of {@link #getRecords(long)}. All chains are followed
+     * together, one link at a time, and the blocks of each round are read in
+     * ascending order so that blocks sharing a persistence window are read
+     * under a single acquire of that window.
+     *
+     * @param startBlockIds the first block of each chain to load.
+     * @return the (heavy) records of each chain, keyed by the start block id
+     * of the chain.
+     */
+    public Map<Long,List<DynamicRecord>> getRecords( long[] startBlockIds )
+    {
+        Map<Long,List<DynamicRecord>> chains = new HashMap<Long,List<DynamicRecord>>();
+        // block id -> start block id of the chain it belongs to
+        Map<Long,Long> round = new HashMap<Long,Long>();
+        for ( long startBlockId : startBlockIds )
+        {
+            if ( startBlockId != Record.NO_NEXT_BLOCK.intValue() && !chains.containsKey( startBlockId ) )
+            {
+                chains.put( startBlockId, new ArrayList<DynamicRecord>() );
+                round.put( startBlockId, startBlockId );
+            }
+        }
+        while ( !round.isEmpty() )
+        {
+            long[] blockIds = new long[round.size()];
+            int i = 0;
+            for ( Long blockId : round.keySet() )
+            {
+                blockIds[i++] = blockId;
+            }
+            Arrays.sort( blockIds );
+
+            Map<Long,Long> nextRound = new HashMap<Long,Long>();
+            WindowCursor cursor = new WindowCursor();
+            try
+            {
+                for ( long blockId : blockIds )
+                {
+                    DynamicRecord record = getRecord( blockId, cursor.windowFor( blockId ), RecordLoad.NORMAL );
+                    Long chain = round.get( blockId );
+                    chains.get( chain ).add( record );
+                    if ( record.getNextBlock() != Record.NO_NEXT_BLOCK.intValue() )
+                    {
+                        nextRound.put( record.getNextBlock(), chain );
+                    }
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+            round = nextRound;
+        }
+        return chains;
+    }
+
     private long findHighIdBackwards() throws IOException
     {
         FileChannel fileChannel = getFileChannel();
@@ -481,28 +554,26 @@ public abstract class AbstractDynamicStore extends CommonAbstractStore implement
         FileChannel fileChannel = getFileChannel();
         long highId = 0;
         long defraggedCount = 0;
+        boolean inBackground = conf.get( Configuration.rebuild_idgenerators_in_background );
         try
         {
             long fileSize = fileChannel.size();
             boolean fullRebuild = true;
 
-            if ( (boolean) conf.get( Configuration.rebuild_idgenerators_fast ) )
+            if ( (boolean) conf.get( Configuration.rebuild_idgenerators_fast ) || inBackground )
             {
                 fullRebuild = false;
                 highId = findHighIdBackwards();
             }
 
-            ByteBuffer byteBuffer = ByteBuffer.wrap( new byte[1] );
             LinkedList<Long> freeIdList = new LinkedList<Long>();
             if ( fullRebuild )
             {
-                for ( long i = 1; i * getBlockSize() < fileSize; i++ )
+                RecordScan scan = scan( 1, ( fileSize + getBlockSize() - 1 ) / getBlockSize() );
+                while ( scan.next() )
                 {
-                    fileChannel.position( i * getBlockSize() );
-                    byteBuffer.clear();
-                    fileChannel.read( byteBuffer );
-                    byteBuffer.flip();
-                    if ( !isRecordInUse( byteBuffer ) )
+                    long i = scan.getId();
+                    if ( !scan.inUse() )
                     {
                         freeIdList.add( i );
                     }
@@ -534,6 +605,10 @@ public abstract class AbstractDynamicStore extends CommonAbstractStore implement
         }
         closeIdGenerator();
         openIdGenerator( false );
+        if ( inBackground )
+        {
+            collectFreeIdsInBackground( 1, getHighId() );
+        }
     }
 
 //    @Override
@@ -115,6 +115,13 @@ public abstract class AbstractNameStore<T extends AbstractNameRecord> extends Ab
         super.flushAll();
     }
 
+    @Override
+    public int flushWrittenWindows( int maxWindows )
+    {
+        int flushed = nameStore.flushWrittenWindows( maxWindows );
+        return flushed + super.flushWrittenWindows( maxWindows - flushed );
+    }
+
     public NameData[] getNames( int maxCount )
     {
         LinkedList<NameData> recordList = new LinkedList<NameData>();
@@ -211,6 +218,12 @@ public abstract class AbstractNameStore<T extends AbstractNameRecord> extends Ab
         }
     }
 
+    @Override
+    public T forceGetRecord( RecordScan scan )
+    {
+        return getRecord( (int) scan.getId(), scan.getBuffer(), true );
+    }
+
     @Override
     public T forceGetRaw( long id )
     {
@@ -297,7 +310,11 @@ public abstract class AbstractNameStore<T extends AbstractNameRecord> extends Ab
 
     protected T getRecord( int id, PersistenceWindow window, boolean force )
     {
-        Buffer buffer = window.getOffsettedBuffer( id );
+        return getRecord( id, window.getOffsettedBuffer( id ), force );
+    }
+
+    private T getRecord( int id, Buffer buffer, boolean force )
+    {
         byte inUseByte = buffer.get();
         boolean inUse = (inUseByte == Record.IN_USE.byteValue());
         if ( !inUse && !force )
@@ -48,6 +48,7 @@ public abstract class AbstractStore extends CommonAbstractStore
         extends CommonAbstractStore.Configuration
     {
         public static final GraphDatabaseSetting.BooleanSetting rebuild_idgenerators_fast = GraphDatabaseSettings.rebuild_idgenerators_fast;
+        public static final GraphDatabaseSetting.BooleanSetting rebuild_idgenerators_in_background = GraphDatabaseSettings.rebuild_idgenerators_in_background;
     }
 
     private Config conf;
@@ -176,29 +177,26 @@ public abstract class AbstractStore extends CommonAbstractStore
         FileChannel fileChannel = getFileChannel();
         long highId = 1;
         long defraggedCount = 0;
+        boolean inBackground = conf.get( Configuration.rebuild_idgenerators_in_background );
         try
         {
             long fileSize = fileChannel.size();
             int recordSize = getRecordSize();
             boolean fullRebuild = true;
-            if ( (boolean) conf.get( Configuration.rebuild_idgenerators_fast ) )
+            if ( (boolean) conf.get( Configuration.rebuild_idgenerators_fast ) || inBackground )
             {
                 fullRebuild = false;
                 highId = findHighIdBackwards();
             }
-            ByteBuffer byteBuffer = ByteBuffer.allocate( recordSize );
             // Duplicated code block
             LinkedList<Long> freeIdList = new LinkedList<Long>();
-            if ( fullRebuild )
+            if ( fullRebuild && recordSize > 0 )
             {
-                for ( long i = 0; i * recordSize < fileSize && recordSize > 0;
-                    i++ )
+                RecordScan scan = scan( 0, ( fileSize + recordSize - 1 ) / recordSize );
+                while ( scan.next() )
                 {
-                    fileChannel.position( i * recordSize );
-                    byteBuffer.clear();
-                    fileChannel.read( byteBuffer );
-                    byteBuffer.flip();
-                    if ( !isRecordInUse( byteBuffer ) )
+                    long i = scan.getId();
+                    if ( !scan.inUse() )
                     {
                         freeIdList.add( i );
                     }
@@ -227,6 +225,10 @@ public abstract class AbstractStore extends CommonAbstractStore
             + " (defragged=" + defraggedCount + ")" );
         closeIdGenerator();
         openIdGenerator( false );
+        if ( inBackground )
+        {
+            collectFreeIdsInBackground( 0, getHighId() );
+        }
     }
 
     public abstract List<WindowPoolStats> getAllWindowPoolStats();
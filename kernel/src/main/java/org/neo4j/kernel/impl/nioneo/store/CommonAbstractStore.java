@@ -22,10 +22,12 @@ package org.neo4j.kernel.impl.nioneo.store;
 
 import static org.neo4j.helpers.Exceptions.launderedException;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -38,6 +40,7 @@ import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.core.ReadOnlyDbException;
+import org.neo4j.kernel.impl.util.PrimitiveLongMap;
 import org.neo4j.kernel.impl.util.StringLogger;
 
 /**
@@ -72,6 +75,8 @@ public abstract class CommonAbstractStore
     protected StringLogger stringLogger;
     private IdGenerator idGenerator = null;
     private FileChannel fileChannel = null;
+    private FreeIdCollector pendingFreeIdCollector;
+    private volatile FreeIdCollector freeIdCollector;
     private PersistenceWindowPool windowPool;
     private boolean storeOk = true;
     private Throwable causeOfStoreNotOk;
@@ -297,6 +302,12 @@ public abstract class CommonAbstractStore
      */
     protected abstract void rebuildIdGenerator();
 
+    /**
+     * Reads the in use flag of the record at the position of
+     * <CODE>buffer</CODE>.
+     */
+    protected abstract boolean isRecordInUse( ByteBuffer buffer );
+
     /**
      * This method should close/release all resources that the implementation of
      * this store has allocated and is called just before the <CODE>close()</CODE>
@@ -379,6 +390,11 @@ public abstract class CommonAbstractStore
      */
     public void freeId( long id )
     {
+        FreeIdCollector collector = freeIdCollector;
+        if ( collector != null )
+        {
+            collector.freedWhileCollecting( id );
+        }
         idGenerator.freeId( id );
     }
 
@@ -466,8 +482,12 @@ public abstract class CommonAbstractStore
      * If store is not ok a call to this method will rebuild the {@link
      * IdGenerator} used by this store and if successful mark it as
      * <CODE>ok</CODE>.
+     * <p>
+     * Synchronized so that stores sharing a sub store, such as the dynamic
+     * store of a property store, can be made ok from different threads at
+     * once, the sub store only being rebuilt once.
      */
-    public void makeStoreOk()
+    public synchronized void makeStoreOk()
     {
         if ( !storeOk )
         {
@@ -478,6 +498,12 @@ public abstract class CommonAbstractStore
             rebuildIdGenerator();
             storeOk = true;
             causeOfStoreNotOk = null;
+            if ( pendingFreeIdCollector != null )
+            {
+                freeIdCollector = pendingFreeIdCollector;
+                pendingFreeIdCollector = null;
+                freeIdCollector.start();
+            }
         }
     }
 
@@ -488,6 +514,7 @@ public abstract class CommonAbstractStore
             throw new ReadOnlyDbException();
         }
         rebuildIdGenerator();
+        pendingFreeIdCollector = null;
     }
 
     /**
@@ -532,11 +559,216 @@ public abstract class CommonAbstractStore
         windowPool.release( window );
     }
 
+    /**
+     * Keeps a window acquired for batched reads, visiting records in ascending
+     * order, and only releases it and acquires another one when the next
+     * record isn't in it. Records sharing a window are so read under a single
+     * acquire of that window. Must be closed when done.
+     */
+    protected class WindowCursor
+    {
+        private PersistenceWindow window;
+
+        /**
+         * @param position the record position to read next.
+         * @return an acquired window encapsulating {@code position}.
+         */
+        PersistenceWindow windowFor( long position )
+        {
+            if ( window == null || position < window.position()
+                 || position >= window.position() + window.size() )
+            {
+                close();
+                window = acquireWindow( position, OperationType.READ );
+            }
+            return window;
+        }
+
+        /**
+         * Releases the window, if one is acquired.
+         */
+        void close()
+        {
+            if ( window != null )
+            {
+                releaseWindow( window );
+                window = null;
+            }
+        }
+    }
+
+    /**
+     * Finds the ids not in use in a range of ids in the background and frees
+     * them in the id generator, for after a rebuild of the id generator that
+     * only found the high id. Started once the store has been made ok by
+     * {@link #makeStoreOk()}. Ids freed by transactions while the range is
+     * scanned are not freed again, and every id found not in use is checked
+     * again under its window lock before it is freed, since records are
+     * deleted, and their ids freed, under that lock.
+     *
+     * @param fromId the first id of the range.
+     * @param toId the id after the last id of the range, ids from which are
+     *            not in use or are allocated from the high id.
+     */
+    protected void collectFreeIdsInBackground( long fromId, long toId )
+    {
+        if ( toId <= fromId )
+        {
+            return;
+        }
+        pendingFreeIdCollector = new FreeIdCollector( fromId, toId );
+    }
+
+    /**
+     * Waits for a free id collection started by
+     * {@link #collectFreeIdsInBackground(long, long)} to complete.
+     */
+    void awaitFreeIdCollection() throws InterruptedException
+    {
+        FreeIdCollector collector = freeIdCollector;
+        if ( collector != null )
+        {
+            collector.join();
+        }
+    }
+
+    private class FreeIdCollector extends Thread
+    {
+        private final long fromId;
+        private final long toId;
+        private final PrimitiveLongMap<Boolean> freedWhileCollecting = new PrimitiveLongMap<Boolean>();
+        private volatile boolean cancelled;
+
+        FreeIdCollector( long fromId, long toId )
+        {
+            super( "Free id collection for " + storageFileName.substring( storageFileName.lastIndexOf( File.separatorChar ) + 1 ) );
+            this.fromId = fromId;
+            this.toId = toId;
+            setDaemon( true );
+        }
+
+        synchronized void freedWhileCollecting( long id )
+        {
+            freedWhileCollecting.put( id, Boolean.TRUE );
+        }
+
+        private synchronized boolean wasFreedWhileCollecting( long id )
+        {
+            return freedWhileCollecting.containsKey( id );
+        }
+
+        void cancel()
+        {
+            cancelled = true;
+            try
+            {
+                join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                long startTime = System.currentTimeMillis();
+                long[] notInUse = new long[1024];
+                int count = 0;
+                RecordScan scan = scan( fromId, toId );
+                while ( !cancelled && scan.next() )
+                {
+                    if ( !scan.inUse() )
+                    {
+                        if ( count == notInUse.length )
+                        {
+                            notInUse = Arrays.copyOf( notInUse, count * 2 );
+                        }
+                        notInUse[count++] = scan.getId();
+                    }
+                }
+                long freed = free( notInUse, count );
+                if ( !cancelled && stringLogger != null )
+                {
+                    stringLogger.logMessage( getStorageFileName() + " collected " + freed + " free ids in "
+                                             + ( System.currentTimeMillis() - startTime ) + " ms", true );
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                if ( stringLogger != null )
+                {
+                    stringLogger.logMessage( "Failed to collect free ids of " + getStorageFileName(), e, true );
+                }
+            }
+            finally
+            {
+                freeIdCollector = null;
+            }
+        }
+
+        private long free( long[] ids, int count )
+        {
+            long freed = 0;
+            WindowCursor cursor = new WindowCursor();
+            try
+            {
+                for ( int i = 0; i < count && !cancelled; i++ )
+                {
+                    long id = ids[i];
+                    PersistenceWindow window = cursor.windowFor( id );
+                    if ( !isRecordInUse( window.getOffsettedBuffer( id ).getBuffer() ) && !wasFreedWhileCollecting( id ) )
+                    {
+                        idGenerator.freeId( id );
+                        freed++;
+                    }
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+            return freed;
+        }
+    }
+
+    /**
+     * Scans the records of a range of ids by reading the store file
+     * sequentially in large chunks, see {@link RecordScan}. Only what has been
+     * written to the file is seen, so this is meant for when nothing is
+     * writing to the store.
+     *
+     * @param fromId the first id of the range.
+     * @param toId the id after the last id of the range, which may be beyond
+     *            the end of the file.
+     * @return a cursor positioned before the first record of the range.
+     */
+    public RecordScan scan( long fromId, long toId )
+    {
+        return new RecordScan( this, getFileChannel(), getEffectiveRecordSize(), fromId, toId );
+    }
+
     public void flushAll()
     {
         windowPool.flushAll();
     }
 
+    /**
+     * Flushes at most {@code maxWindows} persistence windows that have been
+     * written to since they were last flushed. Can be called while the store
+     * is in use, to make a later {@link #flushAll()} cheaper.
+     *
+     * @param maxWindows the maximum number of windows to flush.
+     * @return the number of windows flushed.
+     */
+    public int flushWrittenWindows( int maxWindows )
+    {
+        return windowPool.flushWrittenWindows( maxWindows );
+    }
+
     private boolean isRecovered = false;
 
     public boolean isInRecoveryMode()
@@ -631,6 +863,11 @@ public abstract class CommonAbstractStore
         {
             return;
         }
+        FreeIdCollector collector = freeIdCollector;
+        if ( collector != null )
+        {
+            collector.cancel();
+        }
         closeStorage();
         if ( windowPool != null )
         {
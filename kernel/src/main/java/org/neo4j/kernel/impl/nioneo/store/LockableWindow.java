@@ -37,6 +37,8 @@ abstract class LockableWindow implements PersistenceWindow
     private final LinkedList<LockElement> waitingThreadList = 
         new LinkedList<LockElement>();
     private boolean locked;
+    private boolean lockedForWrite;
+    private volatile boolean writtenSinceForce;
     private int marked = 0;
     protected boolean closed;
 
@@ -106,6 +108,7 @@ abstract class LockableWindow implements PersistenceWindow
         }
         locked = true;
         lockingThread = currentThread;
+        lockedForWrite |= operationType == OperationType.WRITE;
         le.movedOn = true;
         marked--;
     }
@@ -118,6 +121,13 @@ abstract class LockableWindow implements PersistenceWindow
             throw new LockException( "" + currentThread
                 + " don't have window lock on " + this );
         }
+        if ( lockedForWrite )
+        {
+            // Flagged on unlock rather than on lock so that a flush
+            // clearing the flag can't miss a write still in progress.
+            writtenSinceForce = true;
+            lockedForWrite = false;
+        }
         locked = false;
         lockingThread = null;
         while ( !waitingThreadList.isEmpty() )
@@ -131,6 +141,32 @@ abstract class LockableWindow implements PersistenceWindow
         }
     }
 
+    /**
+     * @return {@code true} if this window has been locked for writing since
+     * the last call to {@link #forceIfWritten()}.
+     */
+    boolean isWrittenSinceForce()
+    {
+        return writtenSinceForce;
+    }
+
+    /**
+     * Forces this window if it has been locked for writing since it was last
+     * forced through this method.
+     *
+     * @return {@code true} if the window was forced.
+     */
+    boolean forceIfWritten()
+    {
+        if ( !writtenSinceForce )
+        {
+            return false;
+        }
+        writtenSinceForce = false;
+        force();
+        return true;
+    }
+
     private boolean isFree( boolean assumingOwnerUnlockedIt )
     {
         return assumingOwnerUnlockedIt ?
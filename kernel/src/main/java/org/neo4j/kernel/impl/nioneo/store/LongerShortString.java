@@ -122,6 +122,164 @@ public enum LongerShortString
             }
         }
     },
+    /**
+     * Lower-case hexadecimal digits.
+     *
+     * <pre>
+     *    -0 -1 -2 -3 -4 -5 -6 -7   -8 -9 -A -B -C -D -E -F
+     * 0-  0  1  2  3  4  5  6  7    8  9  a  b  c  d  e  f
+     * </pre>
+     */
+    LOWERHEX( 11, 4 )
+    {
+        @Override
+        int encTranslate( byte b )
+        {
+            if ( b >= '0' && b <= '9' ) return b - '0';
+            if ( b >= 'a' && b <= 'f' ) return b - 'a' + 0xA;
+            throw cannotEncode( b );
+        }
+
+        @Override
+        int encPunctuation( byte b )
+        {
+            throw cannotEncode( b );
+        }
+
+        @Override
+        char decTranslate( byte codePoint )
+        {
+            if ( codePoint < 0xA ) return (char) ( codePoint + '0' );
+            return (char) ( codePoint - 0xA + 'a' );
+        }
+    },
+    /**
+     * Upper-case hexadecimal digits.
+     *
+     * <pre>
+     *    -0 -1 -2 -3 -4 -5 -6 -7   -8 -9 -A -B -C -D -E -F
+     * 0-  0  1  2  3  4  5  6  7    8  9  A  B  C  D  E  F
+     * </pre>
+     */
+    UPPERHEX( 12, 4 )
+    {
+        @Override
+        int encTranslate( byte b )
+        {
+            if ( b >= '0' && b <= '9' ) return b - '0';
+            if ( b >= 'A' && b <= 'F' ) return b - 'A' + 0xA;
+            throw cannotEncode( b );
+        }
+
+        @Override
+        int encPunctuation( byte b )
+        {
+            throw cannotEncode( b );
+        }
+
+        @Override
+        char decTranslate( byte codePoint )
+        {
+            if ( codePoint < 0xA ) return (char) ( codePoint + '0' );
+            return (char) ( codePoint - 0xA + 'A' );
+        }
+    },
+    /**
+     * Lower-case UUIDs, <code>xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx</code>.
+     * Only the digits are stored, as {@link #LOWERHEX}, the dashes are implied.
+     */
+    LOWERUUID( 13, 4 )
+    {
+        @Override
+        int encTranslate( byte b )
+        {
+            return LOWERHEX.encTranslate( b );
+        }
+
+        @Override
+        int encPunctuation( byte b )
+        {
+            throw cannotEncode( b );
+        }
+
+        @Override
+        char decTranslate( byte codePoint )
+        {
+            return LOWERHEX.decTranslate( codePoint );
+        }
+
+        @Override
+        boolean canEncode( byte[] data, int length )
+        {
+            return isUuid( data, length );
+        }
+
+        @Override
+        int encodedLength( int length )
+        {
+            return length - UUID_DASHES.length;
+        }
+
+        @Override
+        void translateData( Bits bits, byte[] data, int length, int step )
+        {
+            translateUuid( bits, data, length, step );
+        }
+
+        @Override
+        String decode( Bits bits, int stringLength )
+        {
+            return decodeUuid( bits, stringLength );
+        }
+    },
+    /**
+     * Upper-case UUIDs, <code>XXXXXXXX-XXXX-XXXX-XXXX-XXXXXXXXXXXX</code>.
+     * Only the digits are stored, as {@link #UPPERHEX}, the dashes are implied.
+     */
+    UPPERUUID( 14, 4 )
+    {
+        @Override
+        int encTranslate( byte b )
+        {
+            return UPPERHEX.encTranslate( b );
+        }
+
+        @Override
+        int encPunctuation( byte b )
+        {
+            throw cannotEncode( b );
+        }
+
+        @Override
+        char decTranslate( byte codePoint )
+        {
+            return UPPERHEX.decTranslate( codePoint );
+        }
+
+        @Override
+        boolean canEncode( byte[] data, int length )
+        {
+            return isUuid( data, length );
+        }
+
+        @Override
+        int encodedLength( int length )
+        {
+            return length - UUID_DASHES.length;
+        }
+
+        @Override
+        void translateData( Bits bits, byte[] data, int length, int step )
+        {
+            translateUuid( bits, data, length, step );
+        }
+
+        @Override
+        String decode( Bits bits, int stringLength )
+        {
+            return decodeUuid( bits, stringLength );
+        }
+    },
     /**
      * Upper-case characters with punctuation.
      *
@@ -480,6 +638,74 @@ public enum LongerShortString
 
     abstract char decTranslate( byte codePoint );
 
+    /**
+     * @return whether the string, in the intermediate representation, can be
+     *         encoded this way, given that all of its characters can.
+     */
+    boolean canEncode( byte[] data, int length )
+    {
+        return true;
+    }
+
+    /**
+     * @return the number of characters that are actually stored for a string
+     *         of the given length.
+     */
+    int encodedLength( int length )
+    {
+        return length;
+    }
+
+    /** Positions of the dashes in a UUID string */
+    private static final int[] UUID_DASHES = { 8, 13, 18, 23 };
+    private static final int UUID_LENGTH = 36;
+    /** The dash in the intermediate representation */
+    private static final byte DASH = 3;
+
+    final boolean isUuid( byte[] data, int length )
+    {
+        if ( length != UUID_LENGTH ) return false;
+        int dashes = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( data[i] == DASH )
+            {
+                if ( dashes == UUID_DASHES.length || UUID_DASHES[dashes] != i ) return false;
+                dashes++;
+            }
+        }
+        return dashes == UUID_DASHES.length;
+    }
+
+    final void translateUuid( Bits bits, byte[] data, int length, int step )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( data[i] != DASH )
+            {
+                bits.put( encTranslate( data[i] ), step );
+            }
+        }
+    }
+
+    final String decodeUuid( Bits bits, int stringLength )
+    {
+        char[] result = new char[stringLength];
+        for ( int i = 0, dashes = 0; i < stringLength; i++ )
+        {
+            if ( dashes < UUID_DASHES.length && UUID_DASHES[dashes] == i )
+            {
+                result[i] = '-';
+                dashes++;
+            }
+            else
+            {
+                result[i] = decTranslate( bits.getByte( step ) );
+            }
+        }
+        return String.valueOf( result );
+    }
+
     /**
      * Encodes a short string.
      *
@@ -510,6 +736,17 @@ public enum LongerShortString
      */
     public static boolean encode( int keyId, String string,
                                   PropertyBlock target, int payloadSize )
+    {
+        return encode( keyId, string, target, payloadSize, false );
+    }
+
+    /**
+     * @param hex whether the {@link #LOWERHEX}, {@link #UPPERHEX},
+     *            {@link #LOWERUUID} and {@link #UPPERUUID} encodings may be
+     *            used. Versions before them can't read them.
+     */
+    public static boolean encode( int keyId, String string,
+                                  PropertyBlock target, int payloadSize, boolean hex )
     {
         // NUMERICAL can carry most characters, so compare to that
         int dataLength = string.length();
@@ -528,6 +765,10 @@ public enum LongerShortString
         // Keep track of the possible encodings that can be used for the string
         // 0 means none applies
         int encodings = determineEncoding( string, data, dataLength, payloadSize );
+        if ( !hex )
+        {
+            encodings &= NOT_HEX;
+        }
         if ( encodings != 0 && tryEncode( encodings, keyId, target, payloadSize, data, dataLength ) )
         {
             return true;
@@ -563,6 +804,9 @@ public enum LongerShortString
         return false;
     }
 
+    // all encoders but the hexadecimal ones
+    private static final int NOT_HEX = invertedBitMask( LOWERHEX, UPPERHEX, LOWERUUID, UPPERUUID );
+
     // inverted combined bit-mask for the encoders
     static int invertedBitMask( LongerShortString... encoders )
     {
@@ -640,6 +884,22 @@ public enum LongerShortString
                 setUp( c, (byte) c, NUMERICAL, DATE, UPPER, LOWER, EMAIL, URI, ALPHANUM, ALPHASYM );
             }
         }
+        retainOnly( "0123456789abcdef", LOWERHEX );
+        retainOnly( "0123456789ABCDEF", UPPERHEX );
+        retainOnly( "0123456789abcdef-", LOWERUUID );
+        retainOnly( "0123456789ABCDEF-", UPPERUUID );
+    }
+
+    // removes the encoding for all characters but the given ones
+    private static void retainOnly( String characters, LongerShortString encoding )
+    {
+        for ( char c = 0; c < TRANSLATION_COUNT; c++ )
+        {
+            if ( characters.indexOf( c ) == -1 )
+            {
+                REMOVE_MASK[c] &= ~encoding.bitMask();
+            }
+        }
     }
 
     private static int determineEncoding( String string, byte[] data, int length, int payloadSize )
@@ -703,20 +963,24 @@ public enum LongerShortString
         if ( encoding == ENCODING_UTF8 ) return decodeUTF8( bits, stringLength );
         if ( encoding == ENCODING_LATIN1 ) return decodeLatin1( bits, stringLength );
 
-        LongerShortString table = getEncodingTable( encoding );
+        return getEncodingTable( encoding ).decode( bits, stringLength );
+    }
+
+    String decode( Bits bits, int stringLength )
+    {
         char[] result = new char[stringLength];
         // encode shifts in the bytes with the first char at the MSB, therefore
         // we must "unshift" in the reverse order
         for ( int i = 0; i < stringLength; i++ )
         {
-            byte codePoint = bits.getByte( table.step );
-            result[i] = table.decTranslate( codePoint );
+            byte codePoint = bits.getByte( step );
+            result[i] = decTranslate( codePoint );
         }
         return String.valueOf(result);
     }
 
-    // lookup table by encoding header
-    private final static LongerShortString[] ENCODINGS_BY_ENCODING = new LongerShortString[ENCODING_COUNT + 1];
+    // lookup table by encoding header, which is 5 bits
+    private final static LongerShortString[] ENCODINGS_BY_ENCODING = new LongerShortString[1 << 5];
 
     static
     {
@@ -791,7 +1055,7 @@ public enum LongerShortString
     private boolean doEncode(int keyId, byte[] data, PropertyBlock target,
                              int payloadSize, final int length)
     {
-        if ( length > maxLength( payloadSize ) ) return false;
+        if ( length > maxLength( payloadSize ) || !canEncode( data, length ) ) return false;
         Bits bits = newBits( this, length);
         writeHeader( bits, keyId, encodingHeader, length);
         if (length >0) translateData(bits, data, length, step);
@@ -799,7 +1063,7 @@ public enum LongerShortString
         return true;
     }
 
-    private void translateData(Bits bits, byte[] data, int length, final int step)
+    void translateData(Bits bits, byte[] data, int length, final int step)
     {
         for (int i = 0; i < length; i++)
         {
@@ -858,7 +1122,7 @@ public enum LongerShortString
     }
     public static int calculateNumberOfBlocksUsed( LongerShortString encoding, int length )
     {
-        return totalBits(length * encoding.step);
+        return totalBits(encoding.encodedLength(length) * encoding.step);
     }
 
     private static int totalBits( int bitsForCharacters )
@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel.impl.nioneo.store;
 
+import static org.neo4j.helpers.Exceptions.launderedException;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
@@ -26,7 +28,13 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
+import org.neo4j.helpers.DaemonThreadFactory;
 import org.neo4j.graphdb.factory.GraphDatabaseSetting;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.IdGeneratorFactory;
@@ -253,6 +261,22 @@ public class NeoStore extends AbstractStore
         nodeStore.flushAll();
     }
 
+    @Override
+    public int flushWrittenWindows( int maxWindows )
+    {
+        if ( relTypeStore == null || propStore == null || relStore == null ||
+                nodeStore == null )
+        {
+            return 0;
+        }
+        int flushed = super.flushWrittenWindows( maxWindows );
+        flushed += relTypeStore.flushWrittenWindows( maxWindows - flushed );
+        flushed += propStore.flushWrittenWindows( maxWindows - flushed );
+        flushed += relStore.flushWrittenWindows( maxWindows - flushed );
+        flushed += nodeStore.flushWrittenWindows( maxWindows - flushed );
+        return flushed;
+    }
+
     @Override
     public String getTypeDescriptor()
     {
@@ -542,17 +566,70 @@ public class NeoStore extends AbstractStore
         return propStore;
     }
 
+    /**
+     * Makes all the stores ok, rebuilding the id generators of those that
+     * aren't in parallel. A store may be made ok by another store it is a
+     * sub store of at the same time, which is safe since
+     * {@link CommonAbstractStore#makeStoreOk()} is synchronized and only
+     * rebuilds a store that isn't ok.
+     */
     @Override
     public void makeStoreOk()
     {
-        relTypeStore.makeStoreOk();
-        propStore.makeStoreOk();
-        relStore.makeStoreOk();
-        nodeStore.makeStoreOk();
+        makeStoresOk( relTypeStore.getNameStore(), propStore.getIndexStore().getNameStore(),
+                propStore.getStringStore(), propStore.getArrayStore(), relStore, nodeStore,
+                relTypeStore, propStore.getIndexStore(), propStore );
         super.makeStoreOk();
         isStarted = true;
     }
 
+    private void makeStoresOk( CommonAbstractStore... stores )
+    {
+        List<Callable<Void>> rebuilds = new ArrayList<Callable<Void>>();
+        for ( final CommonAbstractStore store : stores )
+        {
+            if ( !store.getStoreOk() )
+            {
+                rebuilds.add( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        store.makeStoreOk();
+                        return null;
+                    }
+                } );
+            }
+        }
+        if ( rebuilds.isEmpty() )
+        {
+            return;
+        }
+        int threads = Math.min( rebuilds.size(), Runtime.getRuntime().availableProcessors() );
+        ExecutorService executor = Executors.newFixedThreadPool( threads,
+                new DaemonThreadFactory( "Id generator rebuild" ) );
+        try
+        {
+            for ( Future<Void> rebuild : executor.invokeAll( rebuilds ) )
+            {
+                rebuild.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new UnderlyingStorageException( "Interrupted while rebuilding id generators", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw launderedException( e.getCause() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     @Override
     public void rebuildIdGenerators()
     {
@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.nioneo.store;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.neo4j.kernel.IdGeneratorFactory;
 import org.neo4j.kernel.IdType;
@@ -84,6 +85,67 @@ public class NodeStore extends AbstractStore implements Store, RecordStore<NodeR
         }
     }
 
+    /**
+     * Batched version of {@link #getRecord(long)}. Records sharing a
+     * persistence window are read under a single acquire of that window.
+     *
+     * @param sortedIds the node ids to read, in ascending order.
+     * @return the records, in the same order as the ids.
+     */
+    public List<NodeRecord> getRecords( long[] sortedIds )
+    {
+        List<NodeRecord> records = new ArrayList<NodeRecord>( sortedIds.length );
+        WindowCursor cursor = new WindowCursor();
+        try
+        {
+            for ( long id : sortedIds )
+            {
+                records.add( getRecord( id, cursor.windowFor( id ), RecordLoad.NORMAL ) );
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return records;
+    }
+
+    /**
+     * Finds the nodes in use in a range of ids, reading only the in use bit of
+     * each record. Records sharing a persistence window are read under a
+     * single acquire of that window.
+     *
+     * @param fromId the first id of the range.
+     * @param toId the id after the last id of the range.
+     * @return the ids in use in the range, in ascending order.
+     */
+    public long[] getIdsInUse( long fromId, long toId )
+    {
+        long end = Math.min( toId, getHighId() );
+        long[] ids = new long[(int) Math.max( 0, Math.min( end - fromId, 1024 ) )];
+        int count = 0;
+        WindowCursor cursor = new WindowCursor();
+        try
+        {
+            for ( long id = fromId; id < end; id++ )
+            {
+                if ( (cursor.windowFor( id ).getOffsettedBuffer( id ).get() & 0x1) == Record.IN_USE.intValue() )
+                {
+                    if ( count == ids.length )
+                    {
+                        ids = Arrays.copyOf( ids, ids.length * 2 );
+                    }
+                    ids[count++] = id;
+                }
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return count == ids.length ? ids : Arrays.copyOf( ids, count );
+    }
+
     @Override
     public NodeRecord forceGetRecord( long id )
     {
@@ -107,6 +169,12 @@ public class NodeStore extends AbstractStore implements Store, RecordStore<NodeR
         }
     }
 
+    @Override
+    public NodeRecord forceGetRecord( RecordScan scan )
+    {
+        return getRecord( scan.getId(), scan.getBuffer(), RecordLoad.FORCE );
+    }
+
     @Override
     public NodeRecord forceGetRaw( long id )
     {
@@ -183,8 +251,11 @@ public class NodeStore extends AbstractStore implements Store, RecordStore<NodeR
     private NodeRecord getRecord( long id, PersistenceWindow window,
         RecordLoad load  )
     {
-        Buffer buffer = window.getOffsettedBuffer( id );
+        return getRecord( id, window.getOffsettedBuffer( id ), load );
+    }
 
+    private NodeRecord getRecord( long id, Buffer buffer, RecordLoad load )
+    {
         // [    ,   x] in use bit
         // [    ,xxx ] higher bits for rel id
         // [xxxx,    ] higher bits for prop id
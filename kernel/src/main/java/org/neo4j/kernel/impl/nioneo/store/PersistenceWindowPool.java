@@ -75,6 +75,7 @@ public class PersistenceWindowPool
     private final AtomicInteger avertedRefreshes = new AtomicInteger();
     private final AtomicLong refreshTime = new AtomicLong();
     private final AtomicInteger refreshes = new AtomicInteger();
+    private final Object flushLock = new Object();
     private StringLogger log;
 
     /**
@@ -290,14 +291,70 @@ public class PersistenceWindowPool
         if ( readOnly )
             return;
 
-        for ( BrickElement element : brickArray )
+        synchronized ( flushLock )
+        {
+            for ( BrickElement element : brickArray )
+            {
+                LockableWindow window = element.getWindow();
+                if ( window != null )
+                {
+                    window.forceIfWritten();
+                }
+            }
+            forceChannel();
+        }
+    }
+
+    /**
+     * Forces at most {@code maxWindows} of the windows that have been written
+     * to since they were last forced, each one under its window lock so that
+     * it can be done while the store is in use. Used to flush a store
+     * incrementally in the background so that a following {@link #flushAll()}
+     * has less left to do.
+     *
+     * @param maxWindows the maximum number of windows to force.
+     * @return the number of windows forced, less than {@code maxWindows}
+     * if there were no more written windows.
+     */
+    int flushWrittenWindows( int maxWindows )
+    {
+        if ( readOnly )
+            return 0;
+
+        synchronized ( flushLock )
         {
-            PersistenceWindow window = element.getWindow();
-            if ( window != null )
+            int flushed = 0;
+            BrickElement[] bricks = brickArray;
+            for ( int i = 0; i < bricks.length && flushed < maxWindows; i++ )
             {
-                window.force();
+                LockableWindow window = bricks[i].getWindow();
+                if ( window == null || !window.isWrittenSinceForce() || !window.markAsInUse() )
+                {
+                    continue;
+                }
+                window.lock( OperationType.READ );
+                try
+                {
+                    if ( window.forceIfWritten() )
+                    {
+                        flushed++;
+                    }
+                }
+                finally
+                {
+                    window.unLock();
+                }
+            }
+            if ( flushed > 0 )
+            {
+                forceChannel();
             }
+            return flushed;
         }
+    }
+
+    private void forceChannel()
+    {
         try
         {
             fileChannel.force( false );
@@ -27,6 +27,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.helpers.Pair;
 import org.neo4j.helpers.UTF8;
 import org.neo4j.kernel.IdGeneratorFactory;
@@ -43,7 +45,7 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
     public static abstract class Configuration
         extends AbstractStore.Configuration
     {
-        
+        public static final GraphDatabaseSetting.BooleanSetting compact_property_encodings = GraphDatabaseSettings.compact_property_encodings;
     }
     
     public static final int DEFAULT_DATA_BLOCK_SIZE = 120;
@@ -60,6 +62,7 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
     private DynamicStringStore stringPropertyStore;
     private PropertyIndexStore propertyIndexStore;
     private DynamicArrayStore arrayPropertyStore;
+    private final boolean compactEncodings;
 
     public PropertyStore(String fileName, Config configuration, IdGeneratorFactory idGeneratorFactory, FileSystemAbstraction fileSystemAbstraction, StringLogger stringLogger,
                          DynamicStringStore stringPropertyStore, PropertyIndexStore propertyIndexStore, DynamicArrayStore arrayPropertyStore)
@@ -68,7 +71,7 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         this.stringPropertyStore = stringPropertyStore;
         this.propertyIndexStore = propertyIndexStore;
         this.arrayPropertyStore = arrayPropertyStore;
-
+        this.compactEncodings = (boolean) configuration.get( Configuration.compact_property_encodings );
     }
 
     @Override
@@ -134,6 +137,15 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         super.flushAll();
     }
 
+    @Override
+    public int flushWrittenWindows( int maxWindows )
+    {
+        int flushed = stringPropertyStore.flushWrittenWindows( maxWindows );
+        flushed += propertyIndexStore.flushWrittenWindows( maxWindows - flushed );
+        flushed += arrayPropertyStore.flushWrittenWindows( maxWindows - flushed );
+        return flushed + super.flushWrittenWindows( maxWindows - flushed );
+    }
+
     @Override
     public String getTypeDescriptor()
     {
@@ -306,6 +318,82 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         }
     }
 
+    /**
+     * Batched version of {@link #getLightRecord(long)}. Records sharing a
+     * persistence window are read under a single acquire of that window.
+     *
+     * @param sortedIds the property record ids to read, in ascending order.
+     * @return the light records, in the same order as the ids.
+     */
+    public List<PropertyRecord> getLightRecords( long[] sortedIds )
+    {
+        List<PropertyRecord> records = new ArrayList<PropertyRecord>( sortedIds.length );
+        WindowCursor cursor = new WindowCursor();
+        try
+        {
+            for ( long id : sortedIds )
+            {
+                records.add( getRecord( id, cursor.windowFor( id ), RecordLoad.NORMAL ) );
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return records;
+    }
+
+    /**
+     * Batched version of {@link #makeHeavy(PropertyBlock)}. The dynamic string
+     * and array chains of all the given blocks are loaded together, see
+     * {@link AbstractDynamicStore#getRecords(long[])}. Blocks that aren't
+     * light or don't have dynamic records are ignored.
+     */
+    public void makeHeavy( Collection<PropertyBlock> blocks )
+    {
+        List<PropertyBlock> stringBlocks = new ArrayList<PropertyBlock>();
+        List<PropertyBlock> arrayBlocks = new ArrayList<PropertyBlock>();
+        for ( PropertyBlock block : blocks )
+        {
+            if ( !block.isLight() )
+            {
+                continue;
+            }
+            if ( block.getType() == PropertyType.STRING )
+            {
+                stringBlocks.add( block );
+            }
+            else if ( block.getType() == PropertyType.ARRAY )
+            {
+                arrayBlocks.add( block );
+            }
+        }
+        makeHeavy( stringBlocks, stringPropertyStore, PropertyType.STRING );
+        makeHeavy( arrayBlocks, arrayPropertyStore, PropertyType.ARRAY );
+    }
+
+    private static void makeHeavy( List<PropertyBlock> blocks, AbstractDynamicStore store, PropertyType type )
+    {
+        if ( blocks.isEmpty() )
+        {
+            return;
+        }
+        long[] startBlockIds = new long[blocks.size()];
+        for ( int i = 0; i < startBlockIds.length; i++ )
+        {
+            startBlockIds[i] = blocks.get( i ).getSingleValueLong();
+        }
+        Map<Long,List<DynamicRecord>> chains = store.getRecords( startBlockIds );
+        for ( PropertyBlock block : blocks )
+        {
+            for ( DynamicRecord record : chains.get( block.getSingleValueLong() ) )
+            {
+                record.setType( type.intValue() );
+                block.addValueRecord( record );
+            }
+        }
+    }
+
     /*
      * This will add the value records without checking if they are already
      * in the block - so make sure to call this after checking isHeavy() or
@@ -393,6 +481,12 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         }
     }
 
+    @Override
+    public PropertyRecord forceGetRecord( RecordScan scan )
+    {
+        return getRecordFromBuffer( scan.getId(), scan.getBuffer() );
+    }
+
     @Override
     public PropertyRecord forceGetRaw( long id )
     {
@@ -519,7 +613,7 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         {   // Try short string first, i.e. inlined in the property block
             String string = (String) value;
             if ( LongerShortString.encode( keyId, string, block,
-                    PropertyType.getPayloadSize() ) ) return;
+                    PropertyType.getPayloadSize(), compactEncodings ) ) return;
 
             // Fall back to dynamic string store
             long stringBlockId = nextStringBlockId();
@@ -553,7 +647,7 @@ public class PropertyStore extends AbstractStore implements Store, RecordStore<P
         else if ( value instanceof Short ) setSingleBlockValue( block, keyId, PropertyType.SHORT, ((Short)value).longValue() );
         else if ( value.getClass().isArray() )
         {   // Try short array first, i.e. inlined in the property block
-            if ( ShortArray.encode( keyId, value, block, PropertyType.getPayloadSize() ) ) return;
+            if ( ShortArray.encode( keyId, value, block, PropertyType.getPayloadSize(), compactEncodings ) ) return;
 
             // Fall back to dynamic array store
             long arrayBlockId = nextArrayBlockId();
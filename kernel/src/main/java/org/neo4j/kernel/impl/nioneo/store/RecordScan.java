@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A cursor over the records in a range of ids of a store, reading the store
+ * file sequentially in large chunks instead of acquiring a persistence window
+ * for every record. Records are not decoded unless asked for, and the bytes of
+ * the current record are reused for the next, so a scan of a store allocates
+ * nothing per record.
+ * <p>
+ * The file is read directly, so a scan only sees what has been written to the
+ * file. It's meant for when nothing is writing to the store, such as when
+ * rebuilding id generators at startup or checking a store offline. Records
+ * beyond the end of the file read as all zeros, i.e. not in use.
+ * <p>
+ * Scans of different ranges of the same store share no state and read with
+ * positional reads, so a store can be split into ranges that are scanned in
+ * parallel.
+ *
+ * @see CommonAbstractStore#scan(long, long)
+ */
+public class RecordScan
+{
+    /**
+     * The number of bytes read from the file at a time, rounded down to a
+     * whole number of records.
+     */
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    private final CommonAbstractStore store;
+    private final FileChannel fileChannel;
+    private final int recordSize;
+    private final long toId;
+    private final ByteBuffer chunk;
+    private final Buffer buffer;
+    private long chunkStartId;
+    private int recordsInChunk;
+    private long id;
+
+    RecordScan( CommonAbstractStore store, FileChannel fileChannel, int recordSize, long fromId, long toId )
+    {
+        this.store = store;
+        this.fileChannel = fileChannel;
+        this.recordSize = recordSize;
+        this.toId = toId;
+        long records = Math.max( 1, Math.min( toId - fromId, Math.max( 1, CHUNK_SIZE / recordSize ) ) );
+        this.chunk = ByteBuffer.allocate( (int) records * recordSize );
+        this.buffer = new Buffer( null, chunk );
+        this.chunkStartId = fromId;
+        this.id = fromId - 1;
+    }
+
+    /**
+     * Moves to the next record of the range.
+     *
+     * @return {@code true} if there was a next record, {@code false} if the
+     *         end of the range has been reached.
+     */
+    public boolean next()
+    {
+        if ( id + 1 >= toId )
+        {
+            id = toId;
+            return false;
+        }
+        id++;
+        if ( id >= chunkStartId + recordsInChunk )
+        {
+            readChunk( id );
+        }
+        return true;
+    }
+
+    /**
+     * @return the id of the current record.
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return whether or not the current record is in use.
+     */
+    public boolean inUse()
+    {
+        chunk.position( offset() );
+        return store.isRecordInUse( chunk );
+    }
+
+    /**
+     * @return a buffer positioned at the first byte of the current record,
+     *         for decoding it. Only valid until {@link #next()} is called.
+     */
+    public Buffer getBuffer()
+    {
+        return buffer.setOffset( offset() );
+    }
+
+    private int offset()
+    {
+        if ( id < chunkStartId || id >= chunkStartId + recordsInChunk )
+        {
+            throw new IllegalStateException( "No current record, at " + id + " of " + store.getStorageFileName() );
+        }
+        return (int) ( id - chunkStartId ) * recordSize;
+    }
+
+    private void readChunk( long startId )
+    {
+        int records = (int) Math.min( chunk.capacity() / recordSize, toId - startId );
+        chunk.clear();
+        chunk.limit( records * recordSize );
+        long position = startId * recordSize;
+        try
+        {
+            while ( chunk.hasRemaining() )
+            {
+                if ( fileChannel.read( chunk, position + chunk.position() ) == -1 )
+                {
+                    Arrays.fill( chunk.array(), chunk.position(), chunk.limit(), (byte) 0 );
+                    break;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to read records from " + store.getStorageFileName(), e );
+        }
+        chunk.clear();
+        chunkStartId = startId;
+        recordsInChunk = records;
+    }
+}
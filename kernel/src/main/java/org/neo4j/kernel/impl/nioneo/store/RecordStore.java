@@ -42,6 +42,18 @@ public interface RecordStore<R extends AbstractBaseRecord>
 
     public void forceUpdateRecord( R record );
 
+    /**
+     * Scans the records of a range of ids, reading them sequentially in large
+     * chunks. See {@link CommonAbstractStore#scan(long, long)}.
+     */
+    public RecordScan scan( long fromId, long toId );
+
+    /**
+     * Decodes the current record of a {@link #scan(long, long) scan} of this
+     * store, whether it is in use or not, like {@link #forceGetRecord(long)}.
+     */
+    public R forceGetRecord( RecordScan scan );
+
     public void accept( Processor processor, R record );
 
     public int getRecordSize();
@@ -115,6 +115,12 @@ public class RelationshipStore extends AbstractStore implements Store, RecordSto
         }
     }
 
+    @Override
+    public RelationshipRecord forceGetRecord( RecordScan scan )
+    {
+        return getRecord( scan.getId(), scan.getBuffer(), RecordLoad.FORCE );
+    }
+
     @Override
     public RelationshipRecord forceGetRaw( long id )
     {
@@ -246,8 +252,11 @@ public class RelationshipStore extends AbstractStore implements Store, RecordSto
     private RelationshipRecord getRecord( long id, PersistenceWindow window,
         RecordLoad load )
     {
-        Buffer buffer = window.getOffsettedBuffer( id );
+        return getRecord( id, window.getOffsettedBuffer( id ), load );
+    }
 
+    private RelationshipRecord getRecord( long id, Buffer buffer, RecordLoad load )
+    {
         // [    ,   x] in use flag
         // [    ,xxx ] first node high order bits
         // [xxxx,    ] next prop high order bits
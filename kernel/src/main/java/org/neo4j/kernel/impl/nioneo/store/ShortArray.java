@@ -597,6 +597,15 @@ public enum ShortArray
             return EMPTY_DOUBLE_ARRAY;
         }
     };
+    /**
+     * Array type in the header of a packed array, which is followed by the
+     * real array type. Array types start at 1, so a plain short array never
+     * has it.
+     */
+    private static final int PACKED = 0;
+    private static final int FRAME_OF_REFERENCE = 0;
+    private static final int DELTA = 1;
+
     public static final boolean[] EMPTY_BOOLEAN_ARRAY = new boolean[0];
     public static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
     public static final short[] EMPTY_SHORT_ARRAY = new short[0];
@@ -645,6 +654,17 @@ public enum ShortArray
 
     public static boolean encode( int keyId, Object array,
                                   PropertyBlock target, int payloadSizeInBytes )
+    {
+        return encode( keyId, array, target, payloadSizeInBytes, false );
+    }
+
+    /**
+     * @param packed whether the array may be encoded packed, as a base value
+     *            and the differences to it. Versions before the packed
+     *            encoding can't read it.
+     */
+    public static boolean encode( int keyId, Object array,
+                                  PropertyBlock target, int payloadSizeInBytes, boolean packed )
     {
         /*
          *  If the array is huge, we don't have to check anything else.
@@ -663,12 +683,20 @@ public enum ShortArray
         }
 
         int requiredBits = type.calculateRequiredBitsForArray( array, arrayLength );
-        if ( !willFit( requiredBits, arrayLength, payloadSizeInBytes ) )
+        boolean fits = willFit( requiredBits, arrayLength, payloadSizeInBytes );
+        int blocks = fits ? calculateNumberOfBlocksUsed( arrayLength, requiredBits ) : Integer.MAX_VALUE;
+        // Nothing takes fewer blocks than one
+        if ( packed && blocks > 1 && arrayLength > 1 && type.maxBits >= Byte.SIZE
+                && encodePacked( keyId, type, array, arrayLength, target, payloadSizeInBytes, blocks ) )
+        {
+            return true;
+        }
+        if ( !fits )
         {
             // Too big array
             return false;
         }
-        final int numberOfBytes = calculateNumberOfBlocksUsed( arrayLength, requiredBits ) * 8;
+        final int numberOfBytes = blocks * 8;
         if ( Bits.requiredLongs( numberOfBytes ) > PropertyType.getPayloadSizeLongs() )
         {
             return false;
@@ -682,14 +710,188 @@ public enum ShortArray
     }
 
     private static void writeHeader( int keyId, ShortArray type, int arrayLength, int requiredBits, Bits result )
+    {
+        writeHeader( keyId, type.type.intValue(), arrayLength, requiredBits, result );
+    }
+
+    private static void writeHeader( int keyId, int typeId, int arrayLength, int requiredBits, Bits result )
     {
         result.put( keyId, 24 );
         result.put( PropertyType.SHORT_ARRAY.intValue(), 4 );
-        result.put( type.type.intValue(), 4 );
+        result.put( typeId, 4 );
         result.put( arrayLength, 6 );
         result.put( requiredBits, 6 );
     }
 
+    /**
+     * Encodes an array of numbers as a base value and the differences to it,
+     * each in as few bits as the largest difference requires. The base is
+     * either the smallest value (frame of reference), or the first value
+     * with each difference being to the previous value (delta), whichever
+     * requires fewer bits. Trailing zero bits that all differences have in
+     * common are not stored. Arrays of values close to each other, such as
+     * timestamps or ids, or of round floating point values, can then be
+     * stored in the property block even if the values themselves are large.
+     *
+     * <pre>
+     * [][vvvz,zzzz][zsss,sssr][rrrm,bbbb][bbll,llll][0000,tttt][kkkk,kkkk][kkkk,kkkk][kkkk,kkkk]
+     * </pre>
+     *
+     * The array type is 0 and the bits per member (b) are followed by the
+     * mode (m), the real array type (r), the number of trailing zero bits
+     * (s) and the number of bits (z) of the base value (v), which is stored
+     * zig-zag encoded so that small negative values need few bits too.
+     *
+     * @return <code>true</code> if the array was encoded, <code>false</code>
+     *         if it doesn't fit or doesn't need fewer than
+     *         <code>maxBlocks</code> blocks this way.
+     */
+    private static boolean encodePacked( int keyId, ShortArray type, Object array, int arrayLength,
+            PropertyBlock target, int payloadSizeInBytes, int maxBlocks )
+    {
+        long[] values = type.valuesOf( array, arrayLength );
+        long min = values[0];
+        long max = values[0];
+        long deltas = 0;
+        for ( int i = 1; i < arrayLength; i++ )
+        {
+            min = Math.min( min, values[i] );
+            max = Math.max( max, values[i] );
+            deltas |= values[i] - values[i-1];
+        }
+        long offsets = 0;
+        for ( int i = 0; i < arrayLength; i++ )
+        {
+            offsets |= values[i] - min;
+        }
+        int deltaShift = trailingZeros( deltas );
+        long zigZaggedDeltas = 0;
+        for ( int i = 1; i < arrayLength; i++ )
+        {
+            zigZaggedDeltas |= zigZag( ( values[i] - values[i-1] ) >> deltaShift );
+        }
+        int offsetShift = trailingZeros( offsets );
+        // The differences are unsigned, which makes max - min exact even if it overflows
+        int offsetBits = bitsFor( ( max - min ) >>> offsetShift );
+        int deltaBits = bitsFor( zigZaggedDeltas );
+        int mode = deltaBits * (arrayLength - 1) < offsetBits * arrayLength ? DELTA : FRAME_OF_REFERENCE;
+        long base = mode == DELTA ? values[0] : min;
+        int baseBits = bitsFor( zigZag( base ) );
+        int requiredBits = mode == DELTA ? deltaBits : offsetBits;
+        int shift = mode == DELTA ? deltaShift : offsetShift;
+        int totalBits = totalBitsPacked( arrayLength, requiredBits, mode, baseBits );
+        int blocks = ( totalBits - 1 ) / 64 + 1;
+        if ( totalBits > payloadSizeInBytes * 8 || blocks >= maxBlocks )
+        {
+            return false;
+        }
+
+        Bits result = Bits.bits( blocks * 8 );
+        // 6 bits of 0 means 64, see decode
+        writeHeader( keyId, PACKED, arrayLength, requiredBits, result );
+        result.put( mode, 1 );
+        result.put( type.type.intValue(), 4 );
+        result.put( shift, 6 );
+        result.put( baseBits, 6 );
+        result.put( zigZag( base ), baseBits );
+        for ( int i = 0; i < arrayLength; i++ )
+        {
+            if ( mode == DELTA )
+            {
+                if ( i > 0 )
+                {
+                    result.put( zigZag( ( values[i] - values[i-1] ) >> shift ), requiredBits );
+                }
+            }
+            else
+            {
+                result.put( ( values[i] - min ) >>> shift, requiredBits );
+            }
+        }
+        target.setValueBlocks( result.getLongs() );
+        return true;
+    }
+
+    private static int totalBitsPacked( int arrayLength, int requiredBits, int mode, int baseBits )
+    {
+        int members = mode == DELTA ? arrayLength - 1 : arrayLength;
+        /*
+         * Key, Property Type (ARRAY), 0, Array Length, Bits Per Member,
+         * Mode, Array Type, Trailing Zeros, Bits Of Base, Base, Data
+         */
+        return 24 + 4 + 4 + 6 + 6 + 1 + 4 + 6 + 6 + baseBits + members * requiredBits;
+    }
+
+    private static Object decodePacked( Bits bits, int arrayLength, int requiredBits )
+    {
+        int mode = bits.getByte( 1 );
+        ShortArray type = typeOf( bits.getByte( 4 ) );
+        int shift = bits.getByte( 6 );
+        int baseBits = bits.getByte( 6 );
+        if ( baseBits == 0 )
+        {
+            baseBits = 64;
+        }
+        long base = unZigZag( bits.getLong( baseBits ) );
+        Bits values = Bits.bits( arrayLength * type.maxBits / 8 );
+        long value = base;
+        for ( int i = 0; i < arrayLength; i++ )
+        {
+            if ( mode == DELTA )
+            {
+                if ( i > 0 )
+                {
+                    value += unZigZag( bits.getLong( requiredBits ) ) << shift;
+                }
+            }
+            else
+            {
+                value = base + ( bits.getLong( requiredBits ) << shift );
+            }
+            values.put( value, type.maxBits );
+        }
+        return type.createArray( arrayLength, values, type.maxBits );
+    }
+
+    /**
+     * @return the values of the array as they are written by
+     *         {@link #writeAll(Object, int, int, Bits)}, sign extended
+     *         for all but chars.
+     */
+    private long[] valuesOf( Object array, int arrayLength )
+    {
+        Bits bits = Bits.bits( arrayLength * maxBits / 8 );
+        writeAll( array, arrayLength, maxBits, bits );
+        long[] values = new long[arrayLength];
+        int shift = 64 - maxBits;
+        for ( int i = 0; i < arrayLength; i++ )
+        {
+            long value = bits.getLong( maxBits );
+            values[i] = this == CHAR ? value : value << shift >> shift;
+        }
+        return values;
+    }
+
+    private static long zigZag( long value )
+    {
+        return ( value << 1 ) ^ ( value >> 63 );
+    }
+
+    private static long unZigZag( long value )
+    {
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private static int trailingZeros( long value )
+    {
+        return value == 0 ? 0 : Long.numberOfTrailingZeros( value );
+    }
+
+    private static int bitsFor( long unsignedValue )
+    {
+        return Math.max( 1, 64 - Long.numberOfLeadingZeros( unsignedValue ) );
+    }
+
     public static Object decode( PropertyBlock block )
     {
         Bits bits = Bits.bitsFromLongs(Arrays.copyOf(block.getValueBlocks(), block.getValueBlocks().length));
@@ -709,6 +911,10 @@ public enum ShortArray
         {
             requiredBits = 64;
         }
+        if ( typeId == PACKED )
+        {
+            return decodePacked( bits, arrayLength, requiredBits );
+        }
         ShortArray type = typeOf( (byte)typeId );
         return type.createArray(arrayLength, bits, requiredBits);
     }
@@ -763,13 +969,25 @@ public enum ShortArray
         // bbbb][bbll,llll][yyyy,tttt][kkkk,kkkk][kkkk,kkkk][kkkk,kkkk]
         bits.getInt( 24 ); // Get rid of key
         bits.getByte( 4 ); // Get rid of short array type
-        bits.getByte( 4 ); // Get rid of the type
+        int typeId = bits.getByte( 4 );
         int arrayLength = bits.getByte( 6 );
         int requiredBits = bits.getByte( 6 );
         if ( requiredBits == 0 )
         {
             requiredBits = 64;
         }
+        if ( typeId == PACKED )
+        {
+            int mode = bits.getByte( 1 );
+            bits.getByte( 4 ); // Get rid of the array type
+            bits.getByte( 6 ); // Get rid of the trailing zeros
+            int baseBits = bits.getByte( 6 );
+            if ( baseBits == 0 )
+            {
+                baseBits = 64;
+            }
+            return ( totalBitsPacked( arrayLength, requiredBits, mode, baseBits ) - 1 ) / 64 + 1;
+        }
         return calculateNumberOfBlocksUsed( arrayLength, requiredBits );
     }
 
@@ -0,0 +1,497 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.neo4j.helpers.DaemonThreadFactory;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+/**
+ * Offline consistency check of all the record stores of a database, intended
+ * for validating a store, such as a backup, that no database is running on.
+ * <p>
+ * Each store is scanned in ranges of ids, in parallel, every range reading its
+ * records sequentially in large chunks with a {@link RecordScan}. Instead of
+ * following the chains between records, which would mean random reads, every
+ * reference a record makes is noted in bit sets with one bit per record, which
+ * are compared to the in use bits of the referenced store when all stores have
+ * been scanned. That finds:
+ * <ul>
+ * <li>references to records that aren't in use, or that are beyond the high
+ * id of their store</li>
+ * <li>property and dynamic records in use that no chain leads to, or that more
+ * than one chain leads to</li>
+ * <li>relationships that aren't in the chains of both their nodes, or that
+ * appear in a chain more than once</li>
+ * </ul>
+ * The store files are read directly, so nothing may be writing to them while
+ * they're checked. They're read through the {@link StoreAccess} given, from
+ * several threads at once, so any wrapping of the stores it does must be safe
+ * for concurrent reads.
+ */
+public class StoreConsistencyCheck
+{
+    /**
+     * The number of ids in each range scanned by a single thread. A multiple of
+     * 64 so that no two ranges share a word of a bit set.
+     */
+    static final int RANGE_SIZE = 64 * 1024;
+
+    private static final int NONE = 0, ONCE = 1, RELATIONSHIP = 2;
+
+    private final StoreAccess stores;
+    private final int threads;
+    private final StringLogger logger;
+    private final AtomicLong inconsistencies = new AtomicLong();
+
+    private Records<NodeRecord> nodes;
+    private Records<RelationshipRecord> relationships;
+    private Records<PropertyRecord> properties;
+    private Records<DynamicRecord> strings, arrays;
+    private Records<RelationshipTypeRecord> relationshipTypes;
+    private Records<PropertyIndexRecord> propertyIndexes;
+    private Records<DynamicRecord> typeNames, propertyKeys;
+
+    public StoreConsistencyCheck( StoreAccess stores, int threads, StringLogger logger )
+    {
+        this.stores = stores;
+        this.threads = threads;
+        this.logger = logger;
+    }
+
+    public static void main( String[] args )
+    {
+        if ( args.length < 1 )
+        {
+            System.err.println( "Usage: " + StoreConsistencyCheck.class.getName() + " <store directory> [threads]" );
+            System.exit( 2 );
+        }
+        int threads = args.length > 1 ? Integer.parseInt( args[1] ) : Runtime.getRuntime().availableProcessors();
+        StoreAccess stores = new StoreAccess( args[0] );
+        long inconsistencies;
+        try
+        {
+            inconsistencies = new StoreConsistencyCheck( stores, threads, StringLogger.SYSTEM ).run();
+        }
+        finally
+        {
+            stores.close();
+        }
+        System.exit( inconsistencies == 0 ? 0 : 1 );
+    }
+
+    /**
+     * Checks all the stores, logging every inconsistency found.
+     *
+     * @return the number of inconsistencies found, zero if the stores are
+     *         consistent.
+     */
+    public long run()
+    {
+        long startTime = System.currentTimeMillis();
+        nodes = new Records<NodeRecord>( stores.getNodeStore(), NONE );
+        relationships = new Records<RelationshipRecord>( stores.getRelationshipStore(), RELATIONSHIP );
+        properties = new Records<PropertyRecord>( stores.getPropertyStore(), ONCE );
+        strings = new Records<DynamicRecord>( stores.getStringStore(), ONCE );
+        arrays = new Records<DynamicRecord>( stores.getArrayStore(), ONCE );
+        relationshipTypes = new Records<RelationshipTypeRecord>( stores.getRelationshipTypeStore(), NONE );
+        propertyIndexes = new Records<PropertyIndexRecord>( stores.getPropertyIndexStore(), NONE );
+        typeNames = new Records<DynamicRecord>( stores.getTypeNameStore(), ONCE );
+        propertyKeys = new Records<DynamicRecord>( stores.getPropertyKeyStore(), ONCE );
+        Records<?>[] all = { nodes, relationships, properties, strings, arrays,
+                relationshipTypes, propertyIndexes, typeNames, propertyKeys };
+
+        NeoStore neoStore = stores.getRawNeoStore();
+        if ( neoStore != null )
+        {
+            referenceOnce( properties, neoStore.getGraphNextProp(), null, -1 );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads,
+                new DaemonThreadFactory( "Consistency check" ) );
+        try
+        {
+            List<Callable<Void>> scans = new ArrayList<Callable<Void>>();
+            for ( Records<?> records : all )
+            {
+                records.addRanges( scans, true );
+            }
+            runAll( executor, scans );
+
+            List<Callable<Void>> verifications = new ArrayList<Callable<Void>>();
+            for ( Records<?> records : all )
+            {
+                records.addRanges( verifications, false );
+            }
+            runAll( executor, verifications );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        long records = 0;
+        for ( Records<?> store : all )
+        {
+            records += store.highId;
+        }
+        long elapsed = Math.max( 1, System.currentTimeMillis() - startTime );
+        logger.logMessage( String.format( "Checked %d records in %d ms (%d records/s), %d inconsistencies found",
+                records, elapsed, records * 1000 / elapsed, inconsistencies.get() ), true );
+        return inconsistencies.get();
+    }
+
+    private void runAll( ExecutorService executor, List<Callable<Void>> tasks )
+    {
+        try
+        {
+            for ( Future<Void> task : executor.invokeAll( tasks ) )
+            {
+                task.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while checking store consistency", e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new RuntimeException( cause );
+        }
+    }
+
+    private void inconsistency( String message )
+    {
+        inconsistencies.incrementAndGet();
+        logger.logMessage( "Inconsistency: " + message );
+    }
+
+    private static String describe( Records<?> records, long id )
+    {
+        return records == null ? "graph properties" : records.name + "[" + id + "]";
+    }
+
+    private boolean withinHighId( Records<?> target, long id, Records<?> source, long sourceId )
+    {
+        if ( id < 0 || id >= target.highId )
+        {
+            inconsistency( describe( source, sourceId ) + " references " + describe( target, id )
+                           + " which is beyond the high id " + target.highId );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Notes a reference to a record that must be in use.
+     */
+    private void reference( Records<?> target, long id, Records<?> source, long sourceId )
+    {
+        if ( id == Record.NO_NEXT_BLOCK.intValue() || !withinHighId( target, id, source, sourceId ) )
+        {
+            return;
+        }
+        target.referenced.set( id );
+    }
+
+    /**
+     * Notes a reference to a record that must be in use and be referenced in
+     * this way exactly once, i.e. the first record of a chain or the next
+     * record in a chain that no other chain shares.
+     */
+    private void referenceOnce( Records<?> target, long id, Records<?> source, long sourceId )
+    {
+        if ( id == Record.NO_NEXT_BLOCK.intValue() || !withinHighId( target, id, source, sourceId ) )
+        {
+            return;
+        }
+        target.referenced.set( id );
+        if ( !target.once.set( id ) )
+        {
+            inconsistency( describe( target, id ) + " is referenced more than once, again by "
+                           + describe( source, sourceId ) );
+        }
+    }
+
+    /**
+     * Notes a reference to a relationship from the chain of one of its nodes,
+     * either from the node itself or from the previous relationship in that
+     * chain. Relationships are in the chains of both their nodes, so they are
+     * referenced this way twice, except for loops that are referenced once.
+     */
+    private void referenceInChain( long id, Records<?> source, long sourceId )
+    {
+        if ( id == Record.NO_NEXT_RELATIONSHIP.intValue() || !withinHighId( relationships, id, source, sourceId ) )
+        {
+            return;
+        }
+        relationships.referenced.set( id );
+        if ( !relationships.once.set( id ) && !relationships.twice.set( id ) )
+        {
+            inconsistency( describe( relationships, id ) + " is referenced more than twice in relationship chains, "
+                           + "again by " + describe( source, sourceId ) );
+        }
+    }
+
+    /**
+     * Bit sets for a store, one bit per record: which records are in use, which
+     * are referenced and, for stores where the number of references to a record
+     * is known, whether it has been referenced once or twice.
+     */
+    private class Records<R extends AbstractBaseRecord>
+    {
+        final RecordStore<R> store;
+        final String name;
+        final long highId;
+        final int expectedReferences;
+        final Bits inUse, referenced, once, twice, loops;
+
+        Records( RecordStore<R> store, int expectedReferences )
+        {
+            this.store = store;
+            String fileName = store.getStorageFileName();
+            this.name = fileName.substring( fileName.lastIndexOf( '/' ) + 1 );
+            this.highId = store.getHighId();
+            this.expectedReferences = expectedReferences;
+            this.inUse = new Bits( highId );
+            this.referenced = new Bits( highId );
+            this.once = expectedReferences == NONE ? null : new Bits( highId );
+            this.twice = expectedReferences == RELATIONSHIP ? new Bits( highId ) : null;
+            this.loops = expectedReferences == RELATIONSHIP ? new Bits( highId ) : null;
+        }
+
+        void addRanges( List<Callable<Void>> tasks, final boolean scan )
+        {
+            for ( long start = 0; start < highId; start += RANGE_SIZE )
+            {
+                final long from = start;
+                final long to = Math.min( highId, start + RANGE_SIZE );
+                tasks.add( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        if ( scan )
+                        {
+                            scan( from, to );
+                        }
+                        else
+                        {
+                            verify( from, to );
+                        }
+                        return null;
+                    }
+                } );
+            }
+        }
+
+        void scan( long from, long to )
+        {
+            RecordStore.Processor checker = new RecordChecker( this );
+            RecordScan scan = store.scan( from, to );
+            while ( scan.next() )
+            {
+                long id = scan.getId();
+                R record;
+                try
+                {
+                    record = store.forceGetRecord( scan );
+                }
+                catch ( RuntimeException e )
+                {
+                    inconsistency( describe( this, id ) + " could not be read: " + e );
+                    continue;
+                }
+                if ( record.inUse() )
+                {
+                    inUse.set( id );
+                    store.accept( checker, record );
+                }
+            }
+        }
+
+        void verify( long from, long to )
+        {
+            for ( long id = from; id < to; id++ )
+            {
+                boolean used = inUse.get( id );
+                if ( !used )
+                {
+                    if ( referenced.get( id ) )
+                    {
+                        inconsistency( describe( this, id ) + " is referenced but not in use" );
+                    }
+                }
+                else if ( expectedReferences == ONCE && !once.get( id ) )
+                {
+                    inconsistency( describe( this, id ) + " is in use but not referenced" );
+                }
+                else if ( expectedReferences == RELATIONSHIP )
+                {
+                    if ( loops.get( id ) ? !once.get( id ) || twice.get( id ) : !twice.get( id ) )
+                    {
+                        inconsistency( describe( this, id ) + " is not in the relationship chains of "
+                                       + ( loops.get( id ) ? "its node exactly once" : "both its nodes" ) );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes the references of the records of one store, scanned by one thread.
+     */
+    private class RecordChecker extends RecordStore.Processor
+    {
+        private final Records<?> source;
+
+        RecordChecker( Records<?> source )
+        {
+            this.source = source;
+        }
+
+        @Override
+        public void processNode( RecordStore<NodeRecord> store, NodeRecord node )
+        {
+            referenceInChain( node.getNextRel(), source, node.getId() );
+            referenceOnce( properties, node.getNextProp(), source, node.getId() );
+        }
+
+        @Override
+        public void processRelationship( RecordStore<RelationshipRecord> store, RelationshipRecord rel )
+        {
+            long id = rel.getId();
+            reference( nodes, rel.getFirstNode(), source, id );
+            reference( nodes, rel.getSecondNode(), source, id );
+            reference( relationshipTypes, rel.getType(), source, id );
+            reference( relationships, rel.getFirstPrevRel(), source, id );
+            reference( relationships, rel.getSecondPrevRel(), source, id );
+            referenceInChain( rel.getFirstNextRel(), source, id );
+            if ( rel.getFirstNode() == rel.getSecondNode() )
+            {
+                // a loop is in the chain of its node once, with both its next pointers the same
+                relationships.loops.set( id );
+            }
+            else
+            {
+                referenceInChain( rel.getSecondNextRel(), source, id );
+            }
+            referenceOnce( properties, rel.getNextProp(), source, id );
+        }
+
+        @Override
+        public void processProperty( RecordStore<PropertyRecord> store, PropertyRecord property )
+        {
+            long id = property.getId();
+            reference( properties, property.getPrevProp(), source, id );
+            referenceOnce( properties, property.getNextProp(), source, id );
+            for ( PropertyBlock block : property.getPropertyBlocks() )
+            {
+                reference( propertyIndexes, block.getKeyIndexId(), source, id );
+                if ( block.getType() == PropertyType.STRING )
+                {
+                    referenceOnce( strings, block.getSingleValueLong(), source, id );
+                }
+                else if ( block.getType() == PropertyType.ARRAY )
+                {
+                    referenceOnce( arrays, block.getSingleValueLong(), source, id );
+                }
+            }
+        }
+
+        @Override
+        protected void processDynamic( RecordStore<DynamicRecord> store, DynamicRecord record )
+        {
+            referenceOnce( source, record.getNextBlock(), source, record.getId() );
+        }
+
+        @Override
+        public void processRelationshipType( RecordStore<RelationshipTypeRecord> store, RelationshipTypeRecord record )
+        {
+            referenceOnce( typeNames, record.getNameId(), source, record.getId() );
+        }
+
+        @Override
+        public void processPropertyIndex( RecordStore<PropertyIndexRecord> store, PropertyIndexRecord record )
+        {
+            referenceOnce( propertyKeys, record.getNameId(), source, record.getId() );
+        }
+    }
+
+    /**
+     * A fixed size set of ids, one bit per id, that can be updated from
+     * several threads at once.
+     */
+    private static class Bits
+    {
+        private final AtomicLongArray words;
+
+        Bits( long size )
+        {
+            words = new AtomicLongArray( (int) ( ( size + 63 ) >>> 6 ) );
+        }
+
+        /**
+         * @return {@code true} if the bit was set by this call, {@code false}
+         *         if it was set already.
+         */
+        boolean set( long id )
+        {
+            int index = (int) ( id >>> 6 );
+            long mask = 1L << ( id & 63 );
+            while ( true )
+            {
+                long word = words.get( index );
+                if ( ( word & mask ) != 0 )
+                {
+                    return false;
+                }
+                if ( words.compareAndSet( index, word, word | mask ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        boolean get( long id )
+        {
+            return ( words.get( (int) ( id >>> 6 ) ) & ( 1L << ( id & 63 ) ) ) != 0;
+        }
+    }
+}
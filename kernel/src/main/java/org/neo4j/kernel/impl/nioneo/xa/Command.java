@@ -79,44 +79,6 @@ public abstract class Command extends XaCommand
         return (int) (( key >>> 32 ) ^ key );
     }
 
-    private static void writePropertyBlock( LogBuffer buffer,
-            PropertyBlock block ) throws IOException
-    {
-        byte blockSize = (byte) block.getSize();
-        assert blockSize > 0 : blockSize + " is not a valid block size value";
-        buffer.put( blockSize ); // 1
-        long[] propBlockValues = block.getValueBlocks();
-        for ( int k = 0; k < propBlockValues.length; k++ )
-        {
-            buffer.putLong( propBlockValues[k] );
-        }
-        /*
-         * For each block we need to keep its dynamic record chain if
-         * it is just created. Deleted dynamic records are in the property
-         * record and dynamic records are never modified. Also, they are
-         * assigned as a whole, so just checking the first should be enough.
-         */
-        if ( block.isLight() || !block.getValueRecords().get( 0 ).isCreated() )
-        {
-            /*
-             *  This has to be int. If this record is not light
-             *  then we have the number of DynamicRecords that follow,
-             *  which is an int. We do not currently want/have a flag bit so
-             *  we simplify by putting an int here always
-             */
-            buffer.putInt( 0 ); // 4 or
-        }
-        else
-        {
-            buffer.putInt( block.getValueRecords().size() ); // 4
-            for ( int i = 0; i < block.getValueRecords().size(); i++ )
-            {
-                DynamicRecord dynRec = block.getValueRecords().get( i );
-                writeDynamicRecord( buffer, dynRec );
-            }
-        }
-    }
-    
     static void writeDynamicRecord( LogBuffer buffer, DynamicRecord record )
         throws IOException
     {
@@ -196,7 +158,7 @@ public abstract class Command extends XaCommand
                 {
                     return null;
                 }
-                dr.setCreated(); // writePropertyBlock always writes only newly
+                dr.setCreated(); // the property command always writes only newly
                                  // created chains
                 toReturn.addValueRecord( dr );
             }
@@ -277,6 +239,223 @@ public abstract class Command extends XaCommand
         return result;
     }
 
+    /*
+     * The compact commands write ids, counts and flags as variable length
+     * longs: seven bits per byte, with the high bit set on all bytes but the
+     * last. Pointers to other records are written as their distance from the
+     * id of the record they are in, since records mostly point to records
+     * created around the same time. A pointer to no record is written as 0.
+     */
+    static void putVarLong( LogBuffer buffer, long value ) throws IOException
+    {
+        while ( (value & ~0x7FL) != 0 )
+        {
+            buffer.put( (byte) ((value & 0x7F) | 0x80) );
+            value >>>= 7;
+        }
+        buffer.put( (byte) value );
+    }
+
+    static void putPointer( LogBuffer buffer, long pointer, long fromId ) throws IOException
+    {
+        putVarLong( buffer, encodePointer( pointer, fromId ) );
+    }
+
+    static long encodePointer( long pointer, long fromId )
+    {
+        if ( pointer == Record.NO_NEXT_RELATIONSHIP.intValue() )
+        {
+            return 0;
+        }
+        long distance = pointer - fromId;
+        return ((distance << 1) ^ (distance >> 63)) + 1;
+    }
+
+    static long decodePointer( long encoded, long fromId )
+    {
+        if ( encoded == 0 )
+        {
+            return Record.NO_NEXT_RELATIONSHIP.intValue();
+        }
+        long zigZag = encoded - 1;
+        return fromId + ((zigZag >>> 1) ^ -(zigZag & 1));
+    }
+
+    /**
+     * Reads the next {@code count} variable length longs from the channel.
+     *
+     * @return the longs, or {@code null} if the channel ended before all of
+     * them were read.
+     */
+    static long[] readVarLongs( ReadableByteChannel byteChannel, ByteBuffer buffer, int count )
+            throws IOException
+    {
+        long[] values = new long[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                buffer.clear();
+                buffer.limit( 1 );
+                if ( byteChannel.read( buffer ) != buffer.limit() )
+                {
+                    return null;
+                }
+                b = buffer.get( 0 );
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            while ( (b & 0x80) != 0 );
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private static boolean readInUse( long inUseFlag ) throws IOException
+    {
+        if ( (inUseFlag & Record.IN_USE.byteValue()) == Record.IN_USE.byteValue() )
+        {
+            return true;
+        }
+        else if ( (inUseFlag & Record.IN_USE.byteValue()) != Record.NOT_IN_USE.byteValue() )
+        {
+            throw new IOException( "Illegal in use flag: " + inUseFlag );
+        }
+        return false;
+    }
+
+    private static void writeCompactPropertyBlock( LogBuffer buffer,
+            PropertyBlock block ) throws IOException
+    {
+        byte blockSize = (byte) block.getSize();
+        assert blockSize > 0 : blockSize + " is not a valid block size value";
+        buffer.put( blockSize );
+        long[] propBlockValues = block.getValueBlocks();
+        for ( int k = 0; k < propBlockValues.length; k++ )
+        {
+            buffer.putLong( propBlockValues[k] );
+        }
+        /*
+         * For each block we need to keep its dynamic record chain if
+         * it is just created. Deleted dynamic records are in the property
+         * record and dynamic records are never modified. Also, they are
+         * assigned as a whole, so just checking the first should be enough.
+         */
+        if ( block.isLight() || !block.getValueRecords().get( 0 ).isCreated() )
+        {
+            putVarLong( buffer, 0 );
+        }
+        else
+        {
+            putVarLong( buffer, block.getValueRecords().size() );
+            for ( int i = 0; i < block.getValueRecords().size(); i++ )
+            {
+                writeCompactDynamicRecord( buffer, block.getValueRecords().get( i ) );
+            }
+        }
+    }
+
+    static void writeCompactDynamicRecord( LogBuffer buffer, DynamicRecord record )
+        throws IOException
+    {
+        // id+type+in_use+nr_of_bytes+next_block, all variable length, then the bytes
+        putVarLong( buffer, record.getId() );
+        putVarLong( buffer, record.getType() );
+        if ( record.inUse() )
+        {
+            buffer.put( Record.IN_USE.byteValue() );
+            putVarLong( buffer, record.getLength() );
+            putPointer( buffer, record.getNextBlock(), record.getId() );
+            byte[] data = record.getData();
+            assert data != null;
+            buffer.put( data );
+        }
+        else
+        {
+            buffer.put( Record.NOT_IN_USE.byteValue() );
+        }
+    }
+
+    static PropertyBlock readCompactPropertyBlock( ReadableByteChannel byteChannel,
+            ByteBuffer buffer ) throws IOException
+    {
+        PropertyBlock toReturn = new PropertyBlock();
+        buffer.clear();
+        buffer.limit( 1 );
+        if ( byteChannel.read( buffer ) != buffer.limit() )
+        {
+            return null;
+        }
+        buffer.flip();
+        byte blockSize = buffer.get();
+        assert blockSize > 0 && blockSize % 8 == 0 : blockSize
+                                                     + " is not a valid block size value";
+        buffer.clear();
+        buffer.limit( blockSize );
+        if ( byteChannel.read( buffer ) != buffer.limit() )
+        {
+            return null;
+        }
+        buffer.flip();
+        toReturn.setValueBlocks( readLongs( buffer, blockSize / 8 ) );
+        long[] count = readVarLongs( byteChannel, buffer, 1 );
+        if ( count == null )
+        {
+            return null;
+        }
+        int noOfDynRecs = (int) count[0];
+        for ( int i = 0; i < noOfDynRecs; i++ )
+        {
+            DynamicRecord dr = readCompactDynamicRecord( byteChannel, buffer );
+            if ( dr == null )
+            {
+                return null;
+            }
+            dr.setCreated(); // only newly created chains are written
+            toReturn.addValueRecord( dr );
+        }
+        return toReturn;
+    }
+
+    static DynamicRecord readCompactDynamicRecord( ReadableByteChannel byteChannel,
+        ByteBuffer buffer ) throws IOException
+    {
+        long[] header = readVarLongs( byteChannel, buffer, 3 );
+        if ( header == null )
+        {
+            return null;
+        }
+        long id = header[0];
+        int type = (int) header[1];
+        boolean inUse = readInUse( header[2] );
+        DynamicRecord record = new DynamicRecord( id );
+        record.setInUse( inUse, type );
+        if ( inUse )
+        {
+            long[] fields = readVarLongs( byteChannel, buffer, 2 );
+            if ( fields == null )
+            {
+                return null;
+            }
+            int nrOfBytes = (int) fields[0];
+            record.setNextBlock( decodePointer( fields[1], id ) );
+            buffer.clear();
+            buffer.limit( nrOfBytes );
+            if ( byteChannel.read( buffer ) != buffer.limit() )
+            {
+                return null;
+            }
+            buffer.flip();
+            byte data[] = new byte[nrOfBytes];
+            buffer.get( data );
+            record.setData( data );
+        }
+        return record;
+    }
+
     // means the first byte of the command record was only written but second
     // (saying what type) did not get written but the file still got expanded
     private static final byte NONE = (byte) 0;
@@ -287,6 +466,11 @@ public abstract class Command extends XaCommand
     private static final byte REL_TYPE_COMMAND = (byte) 4;
     private static final byte PROP_INDEX_COMMAND = (byte) 5;
     private static final byte NEOSTORE_COMMAND = (byte) 6;
+    // The compact encodings of node, relationship and property commands. The
+    // fixed width ones above are still read from logs written before them.
+    private static final byte COMPACT_NODE_COMMAND = (byte) 7;
+    private static final byte COMPACT_PROP_COMMAND = (byte) 8;
+    private static final byte COMPACT_REL_COMMAND = (byte) 9;
 
     abstract void removeFromCache( LockReleaser lockReleaser );
 
@@ -351,14 +535,42 @@ public abstract class Command extends XaCommand
         {
             byte inUse = record.inUse() ? Record.IN_USE.byteValue()
                 : Record.NOT_IN_USE.byteValue();
-            buffer.put( NODE_COMMAND );
-            buffer.putLong( record.getId() );
+            long id = record.getId();
+            buffer.put( COMPACT_NODE_COMMAND );
+            putVarLong( buffer, id );
             buffer.put( inUse );
             if ( record.inUse() )
             {
-                buffer.putLong( record.getNextRel() ).putLong(
-                    record.getNextProp() );
+                putPointer( buffer, record.getNextRel(), id );
+                putPointer( buffer, record.getNextProp(), id );
+            }
+        }
+
+        public static Command readCompactCommand( NeoStore neoStore,
+            ReadableByteChannel byteChannel, ByteBuffer buffer )
+            throws IOException
+        {
+            long[] header = readVarLongs( byteChannel, buffer, 2 );
+            if ( header == null )
+            {
+                return null;
             }
+            long id = header[0];
+            boolean inUse = readInUse( header[1] );
+            NodeRecord record;
+            if ( inUse )
+            {
+                long[] pointers = readVarLongs( byteChannel, buffer, 2 );
+                if ( pointers == null )
+                {
+                    return null;
+                }
+                record = new NodeRecord( id, decodePointer( pointers[0], id ),
+                        decodePointer( pointers[1], id ) );
+            }
+            else record = new NodeRecord( id, Record.NO_NEXT_RELATIONSHIP.intValue(), Record.NO_NEXT_PROPERTY.intValue() );
+            record.setInUse( inUse );
+            return new NodeCommand( neoStore == null ? null : neoStore.getNodeStore(), record );
         }
 
         public static Command readCommand( NeoStore neoStore,
@@ -492,21 +704,61 @@ public abstract class Command extends XaCommand
         {
             byte inUse = record.inUse() ? Record.IN_USE.byteValue()
                 : Record.NOT_IN_USE.byteValue();
-            buffer.put( REL_COMMAND );
-            buffer.putLong( record.getId() );
+            long id = record.getId();
+            buffer.put( COMPACT_REL_COMMAND );
+            putVarLong( buffer, id );
             buffer.put( inUse );
             if ( record.inUse() )
             {
-                buffer.putLong( record.getFirstNode() ).putLong(
-                    record.getSecondNode() ).putInt( record.getType() ).putLong(
-                    record.getFirstPrevRel() )
-                    .putLong( record.getFirstNextRel() ).putLong(
-                        record.getSecondPrevRel() ).putLong(
-                        record.getSecondNextRel() ).putLong(
-                        record.getNextProp() );
+                putVarLong( buffer, record.getFirstNode() );
+                putPointer( buffer, record.getSecondNode(), record.getFirstNode() );
+                putVarLong( buffer, record.getType() );
+                putPointer( buffer, record.getFirstPrevRel(), id );
+                putPointer( buffer, record.getFirstNextRel(), id );
+                putPointer( buffer, record.getSecondPrevRel(), id );
+                putPointer( buffer, record.getSecondNextRel(), id );
+                putPointer( buffer, record.getNextProp(), id );
             }
         }
 
+        public static Command readCompactCommand( NeoStore neoStore,
+            ReadableByteChannel byteChannel, ByteBuffer buffer )
+            throws IOException
+        {
+            long[] header = readVarLongs( byteChannel, buffer, 2 );
+            if ( header == null )
+            {
+                return null;
+            }
+            long id = header[0];
+            boolean inUse = readInUse( header[1] );
+            RelationshipRecord record;
+            if ( inUse )
+            {
+                long[] fields = readVarLongs( byteChannel, buffer, 8 );
+                if ( fields == null )
+                {
+                    return null;
+                }
+                long firstNode = fields[0];
+                long secondNode = decodePointer( fields[1], firstNode );
+                record = new RelationshipRecord( id, firstNode, secondNode, (int) fields[2] );
+                record.setInUse( inUse );
+                record.setFirstPrevRel( decodePointer( fields[3], id ) );
+                record.setFirstNextRel( decodePointer( fields[4], id ) );
+                record.setSecondPrevRel( decodePointer( fields[5], id ) );
+                record.setSecondNextRel( decodePointer( fields[6], id ) );
+                record.setNextProp( decodePointer( fields[7], id ) );
+            }
+            else
+            {
+                record = new RelationshipRecord( id, -1, -1, -1 );
+                record.setInUse( false );
+            }
+            return new RelationshipCommand( neoStore == null ? null : neoStore.getRelationshipStore(),
+                record );
+        }
+
         public static Command readCommand( NeoStore neoStore,
             ReadableByteChannel byteChannel, ByteBuffer buffer )
             throws IOException
@@ -857,40 +1109,99 @@ public abstract class Command extends XaCommand
             {
                 inUse += Record.REL_PROPERTY.byteValue();
             }
-            buffer.put( PROP_COMMAND );
-            buffer.putLong( record.getId() ); // 8
-            buffer.put( inUse ); // 1
-            buffer.putLong( record.getNextProp() ).putLong(
-                    record.getPrevProp() ); // 8 + 8
+            long id = record.getId();
+            buffer.put( COMPACT_PROP_COMMAND );
+            putVarLong( buffer, id );
+            buffer.put( inUse );
+            putPointer( buffer, record.getNextProp(), id );
+            putPointer( buffer, record.getPrevProp(), id );
             long nodeId = record.getNodeId();
             long relId = record.getRelId();
-            if ( nodeId != -1 )
+            // -1 means this records value has not changed, only place in
+            // prop chain
+            long primitiveId = nodeId != -1 ? nodeId : relId;
+            putVarLong( buffer, primitiveId + 1 );
+            putVarLong( buffer, record.getPropertyBlocks().size() );
+            for ( int i = 0; i < record.getPropertyBlocks().size(); i++ )
             {
-                buffer.putLong( nodeId ); // 8 or
+                PropertyBlock block = record.getPropertyBlocks().get( i );
+                assert block.getSize() > 0 : record + " seems kinda broken";
+                writeCompactPropertyBlock( buffer, block );
             }
-            else if ( relId != -1 )
+            putVarLong( buffer, record.getDeletedRecords().size() );
+            for ( int i = 0; i < record.getDeletedRecords().size(); i++ )
             {
-                buffer.putLong( relId ); // 8 or
+                DynamicRecord dynRec = record.getDeletedRecords().get( i );
+                writeCompactDynamicRecord( buffer, dynRec );
             }
-            else
+        }
+
+        public static Command readCompactCommand( NeoStore neoStore,
+            ReadableByteChannel byteChannel, ByteBuffer buffer )
+            throws IOException
+        {
+            // id+in_use+next_prop+prev_prop+primitive_id+nr_blocks
+            long[] header = readVarLongs( byteChannel, buffer, 6 );
+            if ( header == null )
             {
-                // means this records value has not changed, only place in
-                // prop chain
-                buffer.putLong( -1 ); // 8
+                return null;
             }
-            buffer.put( (byte) record.getPropertyBlocks().size() ); // 1
-            for ( int i = 0; i < record.getPropertyBlocks().size(); i++ )
+            long id = header[0];
+            PropertyRecord record = new PropertyRecord( id );
+            long inUseFlag = header[1];
+            record.setNextProp( decodePointer( header[2], id ) );
+            record.setPrevProp( decodePointer( header[3], id ) );
+            boolean inUse = ( inUseFlag & Record.IN_USE.byteValue() ) == Record.IN_USE.byteValue();
+            boolean nodeProperty = ( inUseFlag & Record.REL_PROPERTY.byteValue() ) != Record.REL_PROPERTY.byteValue();
+            long primitiveId = header[4] - 1;
+            if ( primitiveId != -1 && nodeProperty )
             {
-                PropertyBlock block = record.getPropertyBlocks().get( i );
-                assert block.getSize() > 0 : record + " seems kinda broken";
-                writePropertyBlock( buffer, block );
+                record.setNodeId( primitiveId );
             }
-            buffer.putInt( record.getDeletedRecords().size() ); // 4
-            for ( int i = 0; i < record.getDeletedRecords().size(); i++ )
+            else if ( primitiveId != -1 )
             {
-                DynamicRecord dynRec = record.getDeletedRecords().get( i );
-                writeDynamicRecord( buffer, dynRec );
+                record.setRelId( primitiveId );
+            }
+            int nrPropBlocks = (int) header[5];
+            if ( nrPropBlocks > 0 )
+            {
+                record.setInUse( true );
             }
+            while ( nrPropBlocks-- > 0 )
+            {
+                PropertyBlock block = readCompactPropertyBlock( byteChannel, buffer );
+                if ( block == null )
+                {
+                    return null;
+                }
+                record.addPropertyBlock( block );
+            }
+            long[] count = readVarLongs( byteChannel, buffer, 1 );
+            if ( count == null )
+            {
+                return null;
+            }
+            int deletedRecords = (int) count[0];
+            while ( deletedRecords-- > 0 )
+            {
+                DynamicRecord read = readCompactDynamicRecord( byteChannel, buffer );
+                if ( read == null )
+                {
+                    return null;
+                }
+                assert !read.inUse() : read + " is kinda weird";
+                record.addDeletedRecord( read );
+            }
+
+            if ( ( inUse && !record.inUse() ) || ( !inUse && record.inUse() ) )
+            {
+                throw new IllegalStateException( "Weird, inUse was read in as "
+                                                 + inUse
+                                                 + " but the record is "
+                                                 + record );
+            }
+            return new PropertyCommand( neoStore == null ? null
+                    : neoStore.getPropertyStore(), record );
         }
 
         public static Command readCommand( NeoStore neoStore,
@@ -1153,6 +1464,14 @@ public abstract class Command extends XaCommand
                     byteChannel, buffer );
             case NEOSTORE_COMMAND:
                 return NeoStoreCommand.readCommand( neoStore, byteChannel, buffer );
+            case COMPACT_NODE_COMMAND:
+                return NodeCommand.readCompactCommand( neoStore, byteChannel, buffer );
+            case COMPACT_PROP_COMMAND:
+                return PropertyCommand.readCompactCommand( neoStore, byteChannel,
+                    buffer );
+            case COMPACT_REL_COMMAND:
+                return RelationshipCommand.readCompactCommand( neoStore, byteChannel,
+                    buffer );
             case NONE: return null;
             default:
                 throw new IOException( "Unknown command type[" + commandType
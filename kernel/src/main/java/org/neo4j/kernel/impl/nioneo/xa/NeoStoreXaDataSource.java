@@ -92,6 +92,7 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
         public static final GraphDatabaseSetting.StringSetting neo_store = InternalAbstractGraphDatabase.Configuration.neo_store;
         public static final GraphDatabaseSetting.StringSetting logical_log = InternalAbstractGraphDatabase.Configuration.logical_log;
         public static final GraphDatabaseSetting.BooleanSetting intercept_committing_transactions = GraphDatabaseSettings.intercept_committing_transactions;
+        public static final GraphDatabaseSetting.BooleanSetting incremental_checkpointing = GraphDatabaseSettings.incremental_checkpointing;
     }
 
     public static final byte BRANCH_ID[] = UTF8.encode( "414141" );
@@ -268,6 +269,10 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
             this.idGenerators.put( PropertyIndex.class,
                                    neoStore.getPropertyStore().getIndexStore() );
             setLogicalLogAtCreationTime( xaContainer.getLogicalLog() );
+            if ( !readOnly && conf.get( Configuration.incremental_checkpointing ) )
+            {
+                xaContainer.getLogicalLog().startIncrementalCheckpointing();
+            }
         }
         catch ( Throwable e )
         {   // Something unexpected happened during startup
@@ -372,7 +377,7 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
 
             TransactionInterceptor first = TransactionInterceptorProvider.resolveChain(
                     providers, NeoStoreXaDataSource.this, dependencyResolver );
-            return new InterceptingWriteTransaction( identifier,
+            return new WriteTransaction( identifier,
                     getLogicalLog(), neoStore, lockReleaser, lockManager, first );
         }
     }
@@ -435,6 +440,12 @@ public class NeoStoreXaDataSource extends LogBackedXaDataSource
             neoStore.flushAll();
         }
 
+        @Override
+        public int flushIncrementally( int maxChunks )
+        {
+            return neoStore.flushWrittenWindows( maxChunks );
+        }
+
         @Override
         public long getLastCommittedTx()
         {
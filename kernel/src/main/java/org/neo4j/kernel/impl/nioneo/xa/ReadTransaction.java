@@ -20,8 +20,10 @@
 package org.neo4j.kernel.impl.nioneo.xa;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -221,6 +223,97 @@ class ReadTransaction implements NeoStoreTransaction
         return propertyChainToMap( chain );
     }
 
+    /*
+     * Batched version of loadProperties, following the property chains of all
+     * the given entities together, one link at a time, so that records
+     * sharing a persistence window are read together. The dynamic string and
+     * array records of the chains are loaded in the same way.
+     */
+    static Map<Long,ArrayMap<Integer, PropertyData>> loadProperties(
+            PropertyStore propertyStore, Map<Long,Long> firstPropertyByEntity )
+    {
+        Map<Long,List<PropertyRecord>> chains = new HashMap<Long,List<PropertyRecord>>();
+        // property record id -> id of the entity whose chain it belongs to
+        Map<Long,Long> round = new HashMap<Long,Long>();
+        for ( Map.Entry<Long,Long> entry : firstPropertyByEntity.entrySet() )
+        {
+            if ( entry.getValue() == Record.NO_NEXT_PROPERTY.intValue() )
+            {
+                chains.put( entry.getKey(), null );
+                continue;
+            }
+            chains.put( entry.getKey(), new ArrayList<PropertyRecord>() );
+            round.put( entry.getValue(), entry.getKey() );
+        }
+        List<PropertyBlock> blocks = new ArrayList<PropertyBlock>();
+        while ( !round.isEmpty() )
+        {
+            Map<Long,Long> nextRound = new HashMap<Long,Long>();
+            for ( PropertyRecord propRecord : propertyStore.getLightRecords( sortedKeys( round ) ) )
+            {
+                Long entity = round.get( propRecord.getId() );
+                chains.get( entity ).add( propRecord );
+                blocks.addAll( propRecord.getPropertyBlocks() );
+                if ( propRecord.getNextProp() != Record.NO_NEXT_PROPERTY.intValue() )
+                {
+                    nextRound.put( propRecord.getNextProp(), entity );
+                }
+            }
+            round = nextRound;
+        }
+        propertyStore.makeHeavy( blocks );
+
+        Map<Long,ArrayMap<Integer, PropertyData>> result =
+                new HashMap<Long,ArrayMap<Integer,PropertyData>>();
+        for ( Map.Entry<Long,List<PropertyRecord>> chain : chains.entrySet() )
+        {
+            if ( chain.getValue() == null )
+            {
+                result.put( chain.getKey(), null );
+                continue;
+            }
+            ArrayMap<Integer, PropertyData> propertyMap = new ArrayMap<Integer, PropertyData>(
+                    (byte)9, false, true );
+            for ( PropertyRecord propRecord : chain.getValue() )
+            {
+                for ( PropertyBlock propBlock : propRecord.getPropertyBlocks() )
+                {
+                    Object value = propBlock.isLight() ? null :
+                            propBlock.getType().getValue( propBlock, propertyStore );
+                    propertyMap.put( propBlock.getKeyIndexId(),
+                            propBlock.newPropertyData( propRecord, value ) );
+                }
+            }
+            result.put( chain.getKey(), propertyMap );
+        }
+        return result;
+    }
+
+    static long[] sortedKeys( Map<Long,?> map )
+    {
+        long[] keys = new long[map.size()];
+        int i = 0;
+        for ( Long key : map.keySet() )
+        {
+            keys[i++] = key;
+        }
+        Arrays.sort( keys );
+        return keys;
+    }
+
+    static Map<Long,ArrayMap<Integer, PropertyData>> nodeLoadProperties(
+            NodeStore nodeStore, PropertyStore propertyStore, long[] nodeIds )
+    {
+        long[] sortedNodeIds = nodeIds.clone();
+        Arrays.sort( sortedNodeIds );
+        Map<Long,Long> firstPropertyByNode = new HashMap<Long,Long>();
+        for ( NodeRecord nodeRecord : nodeStore.getRecords( sortedNodeIds ) )
+        {
+            firstPropertyByNode.put( nodeRecord.getId(), nodeRecord.getNextProp() );
+        }
+        return loadProperties( propertyStore, firstPropertyByNode );
+    }
+
     @Override
     public ArrayMap<Integer,PropertyData> relLoadProperties( long relId, boolean light )
     {
@@ -239,6 +332,18 @@ class ReadTransaction implements NeoStoreTransaction
         return loadProperties( getPropertyStore(), getNodeStore().getRecord( nodeId ).getNextProp() );
     }
     
+    @Override
+    public Map<Long,ArrayMap<Integer,PropertyData>> nodeLoadProperties( long[] nodeIds )
+    {
+        return nodeLoadProperties( getNodeStore(), getPropertyStore(), nodeIds );
+    }
+
+    @Override
+    public long[] nodeIdsInUse( long fromId, long toId )
+    {
+        return getNodeStore().getIdsInUse( fromId, toId );
+    }
+
     @Override
     public ArrayMap<Integer, PropertyData> graphLoadProperties( boolean light )
     {
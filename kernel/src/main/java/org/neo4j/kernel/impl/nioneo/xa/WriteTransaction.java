@@ -28,6 +28,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
@@ -64,11 +66,13 @@ import org.neo4j.kernel.impl.nioneo.xa.Command.PropertyCommand;
 import org.neo4j.kernel.impl.persistence.NeoStoreTransaction;
 import org.neo4j.kernel.impl.transaction.LockManager;
 import org.neo4j.kernel.impl.transaction.LockType;
+import org.neo4j.kernel.impl.transaction.xaframework.TransactionInterceptor;
 import org.neo4j.kernel.impl.transaction.xaframework.XaCommand;
 import org.neo4j.kernel.impl.transaction.xaframework.XaConnection;
 import org.neo4j.kernel.impl.transaction.xaframework.XaLogicalLog;
 import org.neo4j.kernel.impl.transaction.xaframework.XaTransaction;
 import org.neo4j.kernel.impl.util.ArrayMap;
+import org.neo4j.kernel.impl.util.PrimitiveLongMap;
 import org.neo4j.kernel.impl.util.RelIdArray;
 import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 
@@ -80,9 +84,11 @@ import static org.neo4j.kernel.impl.nioneo.store.PropertyStore.encodeString;
  */
 public class WriteTransaction extends XaTransaction implements NeoStoreTransaction
 {
-    private final Map<Long,NodeRecord> nodeRecords = new HashMap<Long,NodeRecord>();
-    private final Map<Long,PropertyRecord> propertyRecords = new HashMap<Long,PropertyRecord>();
-    private final Map<Long,RelationshipRecord> relRecords = new HashMap<Long,RelationshipRecord>();
+    private static final CommandSorter COMMAND_SORTER = new CommandSorter();
+
+    private final PrimitiveLongMap<NodeRecord> nodeRecords = new PrimitiveLongMap<NodeRecord>();
+    private final PrimitiveLongMap<PropertyRecord> propertyRecords = new PrimitiveLongMap<PropertyRecord>();
+    private final PrimitiveLongMap<RelationshipRecord> relRecords = new PrimitiveLongMap<RelationshipRecord>();
     private Map<Integer,RelationshipTypeRecord> relTypeRecords;
     private Map<Integer,PropertyIndexRecord> propIndexRecords;
     private NeoStoreRecord neoStoreRecord;
@@ -100,15 +106,29 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
 
     private final LockReleaser lockReleaser;
     private final LockManager lockManager;
+    private final TransactionInterceptor interceptor;
     private XaConnection xaConnection;
 
     WriteTransaction( int identifier, XaLogicalLog log, NeoStore neoStore,
             LockReleaser lockReleaser, LockManager lockManager )
+    {
+        this( identifier, log, neoStore, lockReleaser, lockManager, null );
+    }
+
+    /**
+     * @param interceptor if not {@code null}, is given all commands of this
+     * transaction when it is prepared, before any of them is written to the
+     * logical log.
+     */
+    WriteTransaction( int identifier, XaLogicalLog log, NeoStore neoStore,
+            LockReleaser lockReleaser, LockManager lockManager,
+            TransactionInterceptor interceptor )
     {
         super( identifier, log );
         this.neoStore = neoStore;
         this.lockReleaser = lockReleaser;
         this.lockManager = lockManager;
+        this.interceptor = interceptor;
     }
 
     @Override
@@ -139,7 +159,6 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
                            propertyRecords.size() +
                            (propIndexRecords != null ? propIndexRecords.size() : 0) +
                            (relTypeRecords != null ? relTypeRecords.size() : 0);
-        List<Command> commands = new ArrayList<Command>( noOfCommands );
         if ( committed )
         {
             throw new XAException( "Cannot prepare committed transaction["
@@ -151,20 +170,25 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
                 + getIdentifier() + "]" );
         }
         /*
-         * Generate records first, then write all together to logical log via
-         * addCommand method but before give the option to intercept.
+         * Each command is written to the logical log via addCommand as soon as
+         * it is generated, unless the commands are to be intercepted. Then all
+         * are generated first, given to intercept and written after that.
          */
         prepared = true;
+        List<Command> commands = interceptor != null ? new ArrayList<Command>( noOfCommands ) : null;
+        nodeCommands.ensureCapacity( nodeRecords.size() );
+        relCommands.ensureCapacity( relRecords.size() );
+        propCommands.ensureCapacity( propertyRecords.size() );
         if ( relTypeRecords != null )
         {
-            relTypeCommands = new ArrayList<Command.RelationshipTypeCommand>();
+            relTypeCommands = new ArrayList<Command.RelationshipTypeCommand>( relTypeRecords.size() );
             for ( RelationshipTypeRecord record : relTypeRecords.values() )
             {
                 Command.RelationshipTypeCommand command =
                     new Command.RelationshipTypeCommand(
                         neoStore.getRelationshipTypeStore(), record );
                 relTypeCommands.add( command );
-                commands.add( command );
+                prepareCommand( command, commands );
             }
         }
         for ( NodeRecord record : nodeRecords.values() )
@@ -182,7 +206,7 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
             {
                 removeNodeFromCache( record.getId() );
             }
-            commands.add( command );
+            prepareCommand( command, commands );
         }
         for ( RelationshipRecord record : relRecords.values() )
         {
@@ -194,7 +218,7 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
             {
                 removeRelationshipFromCache( record.getId() );
             }
-            commands.add( command );
+            prepareCommand( command, commands );
         }
         if ( neoStoreRecord != null )
         {
@@ -203,14 +227,14 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
         }
         if ( propIndexRecords != null )
         {
-            propIndexCommands = new ArrayList<Command.PropertyIndexCommand>();
+            propIndexCommands = new ArrayList<Command.PropertyIndexCommand>( propIndexRecords.size() );
             for ( PropertyIndexRecord record : propIndexRecords.values() )
             {
                 Command.PropertyIndexCommand command =
                     new Command.PropertyIndexCommand(
                         neoStore.getPropertyStore().getIndexStore(), record );
                 propIndexCommands.add( command );
-                commands.add( command );
+                prepareCommand( command, commands );
             }
         }
         for ( PropertyRecord record : propertyRecords.values() )
@@ -218,22 +242,41 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
             Command.PropertyCommand command = new Command.PropertyCommand(
                     neoStore.getPropertyStore(), record );
             propCommands.add( command );
-            commands.add( command );
+            prepareCommand( command, commands );
         }
-        assert commands.size() == noOfCommands : "Expected " + noOfCommands
-                                                 + " final commands, got "
-                                                 + commands.size() + " instead";
-        intercept( commands );
+        if ( commands != null )
+        {
+            assert commands.size() == noOfCommands : "Expected " + noOfCommands
+                                                     + " final commands, got "
+                                                     + commands.size() + " instead";
+            intercept( commands );
 
-        for ( Command command : commands )
+            for ( Command command : commands )
+            {
+                addCommand(command);
+            }
+        }
+    }
+
+    private void prepareCommand( Command command, List<Command> interceptedCommands )
+    {
+        if ( interceptedCommands != null )
         {
-            addCommand(command);
+            interceptedCommands.add( command );
+        }
+        else
+        {
+            addCommand( command );
         }
     }
 
-    protected void intercept( List<Command> commands )
+    private void intercept( List<Command> commands )
     {
-        // default no op
+        for ( Command command : commands )
+        {
+            command.accept( interceptor );
+        }
+        interceptor.complete();
     }
 
     @Override
@@ -443,7 +486,7 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
         try
         {
             committed = true;
-            CommandSorter sorter = new CommandSorter();
+            CommandSorter sorter = COMMAND_SORTER;
             // reltypes
             if ( relTypeCommands != null )
             {
@@ -976,6 +1019,70 @@ public class WriteTransaction extends XaTransaction implements NeoStoreTransacti
         return ReadTransaction.loadProperties( getPropertyStore(), nodeRecord.getNextProp() );
     }
 
+    @Override
+    public Map<Long,ArrayMap<Integer,PropertyData>> nodeLoadProperties( long[] nodeIds )
+    {
+        Map<Long,ArrayMap<Integer,PropertyData>> result = new HashMap<Long,ArrayMap<Integer,PropertyData>>();
+        long[] storedNodeIds = new long[nodeIds.length];
+        int storedCount = 0;
+        for ( long nodeId : nodeIds )
+        {
+            NodeRecord nodeRecord = getNodeRecord( nodeId );
+            if ( nodeRecord != null && nodeRecord.isCreated() )
+            {
+                result.put( nodeId, null );
+                continue;
+            }
+            if ( nodeRecord != null && !nodeRecord.inUse() )
+            {
+                throw new IllegalStateException( "Node[" + nodeId +
+                        "] has been deleted in this tx" );
+            }
+            storedNodeIds[storedCount++] = nodeId;
+        }
+        result.putAll( ReadTransaction.nodeLoadProperties( getNodeStore(), getPropertyStore(),
+                Arrays.copyOf( storedNodeIds, storedCount ) ) );
+        return result;
+    }
+
+    @Override
+    public long[] nodeIdsInUse( long fromId, long toId )
+    {
+        long[] storedIds = getNodeStore().getIdsInUse( fromId, toId );
+        if ( nodeRecords.isEmpty() )
+        {
+            return storedIds;
+        }
+        // Nodes created or deleted in this transaction are only in its records
+        Set<Long> ids = new TreeSet<Long>();
+        for ( long id : storedIds )
+        {
+            ids.add( id );
+        }
+        for ( NodeRecord record : nodeRecords.values() )
+        {
+            long id = record.getId();
+            if ( id >= fromId && id < toId )
+            {
+                if ( record.inUse() )
+                {
+                    ids.add( id );
+                }
+                else
+                {
+                    ids.remove( id );
+                }
+            }
+        }
+        long[] result = new long[ids.size()];
+        int i = 0;
+        for ( Long id : ids )
+        {
+            result[i++] = id;
+        }
+        return result;
+    }
+
     public Object propertyGetValueOrNull( PropertyBlock block )
     {
         return block.getType().getValue( block,
@@ -240,6 +240,26 @@ public interface NeoStoreTransaction
      */
     public ArrayMap<Integer,PropertyData> nodeLoadProperties( long nodeId, boolean light );
 
+    /**
+     * Loads the complete property chains for many nodes at once, reading
+     * records that are stored close to each other together. String and array
+     * values are loaded as well.
+     *
+     * @param nodeIds The ids of the nodes whose properties to load.
+     * @return The properties loaded for each node, keyed by node id. Nodes
+     *         created in this transaction map to {@code null}.
+     */
+    public Map<Long,ArrayMap<Integer,PropertyData>> nodeLoadProperties( long[] nodeIds );
+
+    /**
+     * Finds the nodes in use in a range of ids, as seen by this transaction.
+     *
+     * @param fromId The first id of the range.
+     * @param toId The id after the last id of the range.
+     * @return The ids of the nodes in use in the range, in ascending order.
+     */
+    public long[] nodeIdsInUse( long fromId, long toId );
+
     /**
      * Loads the complete property chain for the given relationship and returns
      * it as a map from property index id to property data.
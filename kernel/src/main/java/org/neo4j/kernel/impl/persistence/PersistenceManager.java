@@ -113,6 +113,16 @@ public class PersistenceManager
         return getReadOnlyResourceIfPossible().nodeLoadProperties( nodeId, light );
     }
 
+    public Map<Long,ArrayMap<Integer,PropertyData>> loadNodeProperties( long[] nodeIds )
+    {
+        return getReadOnlyResourceIfPossible().nodeLoadProperties( nodeIds );
+    }
+
+    public long[] getNodeIdsInUse( long fromId, long toId )
+    {
+        return getReadOnlyResourceIfPossible().nodeIdsInUse( fromId, toId );
+    }
+
     public ArrayMap<Integer,PropertyData> loadRelProperties( long relId,
             boolean light )
     {
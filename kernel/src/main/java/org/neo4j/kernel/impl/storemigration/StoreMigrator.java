@@ -24,13 +24,24 @@ import static org.neo4j.kernel.impl.nioneo.store.PropertyStore.encodeString;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.neo4j.helpers.DaemonThreadFactory;
 import org.neo4j.helpers.Pair;
+import org.neo4j.helpers.collection.PrefetchingIterator;
 import org.neo4j.kernel.impl.nioneo.store.DynamicRecord;
 import org.neo4j.kernel.impl.nioneo.store.NeoStore;
 import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
 import org.neo4j.kernel.impl.nioneo.store.NodeStore;
+import org.neo4j.kernel.impl.nioneo.store.PrimitiveRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexRecord;
 import org.neo4j.kernel.impl.nioneo.store.PropertyIndexStore;
 import org.neo4j.kernel.impl.nioneo.store.Record;
@@ -48,8 +59,21 @@ import org.neo4j.kernel.impl.storemigration.legacystore.LegacyRelationshipTypeSt
 import org.neo4j.kernel.impl.storemigration.legacystore.LegacyStore;
 import org.neo4j.kernel.impl.storemigration.monitoring.MigrationProgressMonitor;
 
+/**
+ * Migrates a legacy store into a new one. The property chains of the nodes
+ * and relationships, which are the bulk of the random reads of the legacy
+ * store, are read for chunks of records in parallel. The new records are
+ * written on the calling thread in id order, so the migrated store comes
+ * out the same however many threads there are.
+ */
 public class StoreMigrator
 {
+    /**
+     * The number of nodes or relationships whose properties are read by one
+     * task.
+     */
+    static final int CHUNK_SIZE = 5000;
+
     private MigrationProgressMonitor progressMonitor;
 
     public StoreMigrator( MigrationProgressMonitor progressMonitor )
@@ -60,7 +84,17 @@ public class StoreMigrator
     public void migrate( LegacyStore legacyStore, NeoStore neoStore ) throws IOException
     {
         progressMonitor.started();
-        new Migration( legacyStore, neoStore ).migrate();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService propertyReaders = Executors.newFixedThreadPool( threads,
+                new DaemonThreadFactory( "Store migration property reader" ) );
+        try
+        {
+            new Migration( legacyStore, neoStore, propertyReaders, threads * 2 ).migrate();
+        }
+        finally
+        {
+            propertyReaders.shutdownNow();
+        }
         progressMonitor.finished();
     }
 
@@ -68,13 +102,19 @@ public class StoreMigrator
     {
         private LegacyStore legacyStore;
         private NeoStore neoStore;
+        private final ExecutorService propertyReaders;
+        private final int chunksAhead;
         private long totalEntities;
         private int percentComplete = 0;
+        private final long startTime = System.currentTimeMillis();
 
-        public Migration( LegacyStore legacyStore, NeoStore neoStore )
+        public Migration( LegacyStore legacyStore, NeoStore neoStore, ExecutorService propertyReaders,
+                int chunksAhead )
         {
             this.legacyStore = legacyStore;
             this.neoStore = neoStore;
+            this.propertyReaders = propertyReaders;
+            this.chunksAhead = chunksAhead;
             totalEntities = legacyStore.getNodeStoreReader().getMaxId() + legacyStore.getRelationshipStoreReader().getMaxId();
         }
 
@@ -108,18 +148,20 @@ public class StoreMigrator
 
         private void migrateNodes( NodeStore nodeStore, PropertyWriter propertyWriter ) throws IOException
         {
-            Iterable<NodeRecord> records = legacyStore.getNodeStoreReader().readNodeStore();
+            Iterator<Pair<NodeRecord, List<Pair<Integer, Object>>>> records =
+                    new PropertyReadAhead<NodeRecord>( legacyStore.getNodeStoreReader().readNodeStore().iterator() );
             // estimate total number of nodes using file size then calc number of dots or percentage complete
-            for ( NodeRecord nodeRecord : records )
+            while ( records.hasNext() )
             {
+                Pair<NodeRecord, List<Pair<Integer, Object>>> next = records.next();
+                NodeRecord nodeRecord = next.first();
                 reportProgress(nodeRecord.getId());
                 nodeStore.setHighId( nodeRecord.getId() + 1 );
                 if ( nodeRecord.inUse() )
                 {
-                    long startOfPropertyChain = nodeRecord.getNextProp();
-                    if ( startOfPropertyChain != Record.NO_NEXT_RELATIONSHIP.intValue() )
+                    if ( next.other() != null )
                     {
-                        long propertyRecordId = migrateProperties( startOfPropertyChain, propertyWriter );
+                        long propertyRecordId = propertyWriter.writeProperties( next.other() );
                         nodeRecord.setNextProp( propertyRecordId );
                     }
                     nodeStore.updateRecord( nodeRecord );
@@ -135,17 +177,20 @@ public class StoreMigrator
         {
             long nodeMaxId = legacyStore.getNodeStoreReader().getMaxId();
 
-            Iterable<RelationshipRecord> records = legacyStore.getRelationshipStoreReader().readRelationshipStore();
-            for ( RelationshipRecord relationshipRecord : records )
+            Iterator<Pair<RelationshipRecord, List<Pair<Integer, Object>>>> records =
+                    new PropertyReadAhead<RelationshipRecord>(
+                            legacyStore.getRelationshipStoreReader().readRelationshipStore().iterator() );
+            while ( records.hasNext() )
             {
+                Pair<RelationshipRecord, List<Pair<Integer, Object>>> next = records.next();
+                RelationshipRecord relationshipRecord = next.first();
                 reportProgress( nodeMaxId + relationshipRecord.getId() );
                 relationshipStore.setHighId( relationshipRecord.getId() + 1 );
                 if ( relationshipRecord.inUse() )
                 {
-                    long startOfPropertyChain = relationshipRecord.getNextProp();
-                    if ( startOfPropertyChain != Record.NO_NEXT_RELATIONSHIP.intValue() )
+                    if ( next.other() != null )
                     {
-                        long propertyRecordId = migrateProperties( startOfPropertyChain, propertyWriter );
+                        long propertyRecordId = propertyWriter.writeProperties( next.other() );
                         relationshipRecord.setNextProp( propertyRecordId );
                     }
                     relationshipStore.updateRecord( relationshipRecord );
@@ -162,11 +207,13 @@ public class StoreMigrator
             int newPercent = (int) (id * 100 / totalEntities);
             if ( newPercent > percentComplete ) {
                 percentComplete = newPercent;
+                long elapsed = Math.max( 1, System.currentTimeMillis() - startTime );
+                progressMonitor.throughput( id * 1000 / elapsed );
                 progressMonitor.percentComplete( percentComplete );
             }
         }
 
-        private long migrateProperties( long startOfPropertyChain, PropertyWriter propertyWriter ) throws IOException
+        private List<Pair<Integer, Object>> readProperties( long startOfPropertyChain ) throws IOException
         {
             LegacyPropertyRecord propertyRecord = legacyStore.getPropertyStoreReader().readPropertyRecord( startOfPropertyChain );
             List<Pair<Integer, Object>> properties = new ArrayList<Pair<Integer, Object>>();
@@ -176,7 +223,100 @@ public class StoreMigrator
                 propertyRecord = legacyStore.getPropertyStoreReader().readPropertyRecord( propertyRecord.getNextProp() );
             }
             properties.add( extractValue( propertyRecord ) );
-            return propertyWriter.writeProperties( properties );
+            return properties;
+        }
+
+        /**
+         * Reads the properties of the records from the legacy store, a
+         * chunk of records at a time on the property reader threads, keeping
+         * a number of chunks ahead of the records handed out.
+         */
+        private class PropertyReadAhead<R extends PrimitiveRecord>
+                extends PrefetchingIterator<Pair<R, List<Pair<Integer, Object>>>>
+        {
+            private final Iterator<R> records;
+            private final LinkedList<Future<List<Pair<R, List<Pair<Integer, Object>>>>>> chunks =
+                    new LinkedList<Future<List<Pair<R, List<Pair<Integer, Object>>>>>>();
+            private Iterator<Pair<R, List<Pair<Integer, Object>>>> current =
+                    Collections.<Pair<R, List<Pair<Integer, Object>>>>emptyList().iterator();
+
+            PropertyReadAhead( Iterator<R> records )
+            {
+                this.records = records;
+            }
+
+            @Override
+            protected Pair<R, List<Pair<Integer, Object>>> fetchNextOrNull()
+            {
+                while ( !current.hasNext() )
+                {
+                    while ( chunks.size() < chunksAhead && records.hasNext() )
+                    {
+                        chunks.add( propertyReaders.submit( readChunk() ) );
+                    }
+                    if ( chunks.isEmpty() )
+                    {
+                        return null;
+                    }
+                    current = await( chunks.removeFirst() ).iterator();
+                }
+                return current.next();
+            }
+
+            private Callable<List<Pair<R, List<Pair<Integer, Object>>>>> readChunk()
+            {
+                final List<R> chunk = new ArrayList<R>( CHUNK_SIZE );
+                while ( chunk.size() < CHUNK_SIZE && records.hasNext() )
+                {
+                    chunk.add( records.next() );
+                }
+                return new Callable<List<Pair<R, List<Pair<Integer, Object>>>>>()
+                {
+                    @Override
+                    public List<Pair<R, List<Pair<Integer, Object>>>> call() throws IOException
+                    {
+                        List<Pair<R, List<Pair<Integer, Object>>>> result =
+                                new ArrayList<Pair<R, List<Pair<Integer, Object>>>>( chunk.size() );
+                        for ( R record : chunk )
+                        {
+                            long startOfPropertyChain = record.getNextProp();
+                            List<Pair<Integer, Object>> properties = null;
+                            if ( record.inUse() && startOfPropertyChain != Record.NO_NEXT_RELATIONSHIP.intValue() )
+                            {
+                                properties = readProperties( startOfPropertyChain );
+                            }
+                            result.add( Pair.of( record, properties ) );
+                        }
+                        return result;
+                    }
+                };
+            }
+
+            private <T> T await( Future<T> future )
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException( "Interrupted while migrating store", e );
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof RuntimeException )
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException( cause );
+                }
+            }
         }
 
         private Pair<Integer, Object> extractValue( LegacyPropertyRecord propertyRecord )
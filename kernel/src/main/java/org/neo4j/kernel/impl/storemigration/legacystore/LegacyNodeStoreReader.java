@@ -35,6 +35,10 @@ import org.neo4j.kernel.impl.nioneo.store.Record;
 public class LegacyNodeStoreReader
 {
     public static final String FROM_VERSION = "NodeStore v0.9.9";
+    /**
+     * Records are read sequentially, this many at a time.
+     */
+    private static final int RECORDS_PER_READ = 4096;
     public static final int RECORD_LENGTH = 9;
 
     private final FileChannel fileChannel;
@@ -54,7 +58,8 @@ public class LegacyNodeStoreReader
 
     public Iterable<NodeRecord> readNodeStore() throws IOException
     {
-        final ByteBuffer buffer = ByteBuffer.allocateDirect( RECORD_LENGTH );
+        final ByteBuffer buffer = ByteBuffer.allocateDirect( RECORD_LENGTH * RECORDS_PER_READ );
+        buffer.limit( 0 );
 
         return new Iterable<NodeRecord>()
         {
@@ -71,15 +76,11 @@ public class LegacyNodeStoreReader
                         NodeRecord nodeRecord = null;
                         while ( nodeRecord == null && id <= maxId )
                         {
-                            buffer.clear();
-                            try
+                            if ( buffer.remaining() < RECORD_LENGTH )
                             {
-                                fileChannel.read( buffer );
-                            } catch ( IOException e )
-                            {
-                                throw new RuntimeException( e );
+                                fill( buffer );
                             }
-                            buffer.flip();
+                            int recordStart = buffer.position();
                             long inUseByte = buffer.get();
 
                             boolean inUse = (inUseByte & 0x1) == Record.IN_USE.intValue();
@@ -93,6 +94,7 @@ public class LegacyNodeStoreReader
                             }
                             else nodeRecord = new NodeRecord( id, Record.NO_NEXT_RELATIONSHIP.intValue(), Record.NO_NEXT_PROPERTY.intValue() );
                             nodeRecord.setInUse( inUse );
+                            buffer.position( Math.min( buffer.limit(), recordStart + RECORD_LENGTH ) );
                             id++;
                         }
                         return nodeRecord;
@@ -108,6 +110,27 @@ public class LegacyNodeStoreReader
         };
     }
 
+    /**
+     * Moves what's left in the buffer to its start and reads as much of the
+     * following part of the file as fits after it.
+     */
+    private void fill( ByteBuffer buffer )
+    {
+        buffer.compact();
+        try
+        {
+            while ( buffer.hasRemaining() && fileChannel.read( buffer ) != -1 )
+            {
+                // keep reading until the buffer is full or at the end of the file
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+        buffer.flip();
+    }
+
     public void close() throws IOException
     {
         fileChannel.close();
@@ -33,6 +33,10 @@ import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
 public class LegacyRelationshipStoreReader
 {
     public static final String FROM_VERSION = "RelationshipStore v0.9.9";
+    /**
+     * Records are read sequentially, this many at a time.
+     */
+    private static final int RECORDS_PER_READ = 4096;
     public static final int RECORD_LENGTH = 33;
 
     private final FileChannel fileChannel;
@@ -52,7 +56,8 @@ public class LegacyRelationshipStoreReader
 
     public Iterable<RelationshipRecord> readRelationshipStore() throws IOException
     {
-        final ByteBuffer buffer = ByteBuffer.allocateDirect( RECORD_LENGTH );
+        final ByteBuffer buffer = ByteBuffer.allocateDirect( RECORD_LENGTH * RECORDS_PER_READ );
+        buffer.limit( 0 );
 
         return new Iterable<RelationshipRecord>()
         {
@@ -69,15 +74,11 @@ public class LegacyRelationshipStoreReader
                         RelationshipRecord record = null;
                         while ( record == null && id <= maxId )
                         {
-                            buffer.clear();
-                            try
+                            if ( buffer.remaining() < RECORD_LENGTH )
                             {
-                                fileChannel.read( buffer );
-                            } catch ( IOException e )
-                            {
-                                throw new RuntimeException( e );
+                                fill( buffer );
                             }
-                            buffer.flip();
+                            int recordStart = buffer.position();
                             long inUseByte = buffer.get();
 
                             boolean inUse = (inUseByte & 0x1) == Record.IN_USE.intValue();
@@ -129,6 +130,7 @@ public class LegacyRelationshipStoreReader
                                 record = new RelationshipRecord( id, -1, -1, -1 );
                                 record.setInUse( false );
                             }
+                            buffer.position( Math.min( buffer.limit(), recordStart + RECORD_LENGTH ) );
                             id++;
                         }
 
@@ -145,6 +147,27 @@ public class LegacyRelationshipStoreReader
         };
     }
 
+    /**
+     * Moves what's left in the buffer to its start and reads as much of the
+     * following part of the file as fits after it.
+     */
+    private void fill( ByteBuffer buffer )
+    {
+        buffer.compact();
+        try
+        {
+            while ( buffer.hasRemaining() && fileChannel.read( buffer ) != -1 )
+            {
+                // keep reading until the buffer is full or at the end of the file
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+        buffer.flip();
+    }
+
     public void close() throws IOException
     {
         fileChannel.close();
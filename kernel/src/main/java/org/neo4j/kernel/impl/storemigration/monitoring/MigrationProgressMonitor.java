@@ -23,5 +23,11 @@ public interface MigrationProgressMonitor
 {
     void started();
     void percentComplete(int percent);
+
+    /**
+     * Called right before {@link #percentComplete(int)}, with the number of
+     * nodes and relationships migrated per second so far.
+     */
+    void throughput( long entitiesPerSecond );
     void finished();
 }
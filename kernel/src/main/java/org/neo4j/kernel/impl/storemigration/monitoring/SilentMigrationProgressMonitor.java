@@ -29,6 +29,10 @@ public class SilentMigrationProgressMonitor implements MigrationProgressMonitor
     {
     }
 
+    public void throughput( long entitiesPerSecond )
+    {
+    }
+
     public void finished()
     {
     }
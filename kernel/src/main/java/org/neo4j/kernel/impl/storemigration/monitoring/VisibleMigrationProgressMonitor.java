@@ -28,6 +28,7 @@ public class VisibleMigrationProgressMonitor implements MigrationProgressMonitor
     protected static final Logger logger = Logger
             .getLogger( MigrationProgressMonitor.class.getName() );
     private final PrintStream out;
+    private long entitiesPerSecond;
 
     public VisibleMigrationProgressMonitor( PrintStream out )
     {
@@ -47,10 +48,16 @@ public class VisibleMigrationProgressMonitor implements MigrationProgressMonitor
         out.flush();
         if (percent % 10 == 0)
         {
-            logger.log( Level.INFO, String.format("Store upgrade %d%% complete", percent) );
+            logger.log( Level.INFO, String.format("Store upgrade %d%% complete, %d entities/s", percent,
+                    entitiesPerSecond ) );
         }
     }
 
+    public void throughput( long entitiesPerSecond )
+    {
+        this.entitiesPerSecond = entitiesPerSecond;
+    }
+
     public void finished()
     {
         String message = "Finished upgrade of database store files";
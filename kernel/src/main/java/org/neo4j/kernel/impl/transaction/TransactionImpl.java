@@ -484,6 +484,7 @@ class TransactionImpl implements Transaction
     {
         boolean onePhase = isOnePhase();
         boolean readOnly = true;
+        int preparedForWrite = 0;
         if ( !onePhase )
         {
             // prepare
@@ -500,6 +501,7 @@ class TransactionImpl implements Transaction
                     if ( vote == XAResource.XA_OK )
                     {
                         readOnly = false;
+                        preparedForWrite++;
                     }
                     else if ( vote == XAResource.XA_RDONLY )
                     {
@@ -526,7 +528,13 @@ class TransactionImpl implements Transaction
             status = Status.STATUS_COMMITTED;
             return;
         }
-        if ( !onePhase )
+        /*
+         * The commit decision only has to be made durable here if more than one
+         * resource is going to commit. A single resource forces its own commit
+         * record to its logical log, and if it crashes before doing so recovery
+         * rolls it back, just as it would without a MARK_COMMIT record.
+         */
+        if ( !onePhase && preparedForWrite > 1 )
         {
             try
             {
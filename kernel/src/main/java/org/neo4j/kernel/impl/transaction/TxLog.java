@@ -42,13 +42,16 @@ import org.neo4j.kernel.impl.util.StringLogger;
 
 // TODO: fixed sized logs (pre-initialize them)
 // keep dangling records in memory for log switch
-// batch disk forces
 /**
  * This class is made public for testing purposes only, do not use.
  * <p>
  * The {@link TxManager} uses this class to keep a transaction log for
  * transaction recovery.
  * <p>
+ * Forcing of <CODE>MARK_COMMIT</CODE> records is batched: a committer which
+ * finds another committer already forcing the log waits for it to finish
+ * and then, unless its own record was covered by that force, forces every
+ * record written so far in one go on behalf of all committers waiting.
  */
 public class TxLog
 {
@@ -63,6 +66,13 @@ public class TxLog
     private final FileSystemAbstraction fileSystem;
     private final StringLogger msgLog;
 
+    // Lock ordering is forceLock, then this
+    private final Object forceLock = new Object();
+    // Number of forced MARK_COMMIT records written, guarded by this
+    private long markCommitsWritten = 0;
+    // Number of forced MARK_COMMIT records known to be on disk, guarded by forceLock
+    private long markCommitsForced = 0;
+
     /**
      * Initializes a transaction log using <CODE>filename</CODE>. If the file
      * isn't empty the position will be set to size of file so new records will
@@ -106,12 +116,21 @@ public class TxLog
     }
 
     /**
-     * Closes the file representing the transaction log.
+     * Closes the file representing the transaction log. Waits for a group
+     * force in progress to finish, and the committers queued up behind it
+     * won't try to force the closed channel.
      */
     public void close() throws IOException
     {
-        logBuffer.force();
-        logBuffer.getFileChannel().close();
+        synchronized ( forceLock )
+        {
+            synchronized ( this )
+            {
+                logBuffer.force();
+                logBuffer.getFileChannel().close();
+                markCommitsForced = markCommitsWritten;
+            }
+        }
     }
 
     /**
@@ -181,7 +200,8 @@ public class TxLog
 
     /**
      * Writes a <CODE>MARK_COMMIT</CODE> record to the file and forces the
-     * file to disk.
+     * file to disk. The force is shared with other transactions marked as
+     * committing concurrently, see {@link #groupForce(long)}.
      * 
      * @param globalId
      *            The global id of the transaction
@@ -190,13 +210,50 @@ public class TxLog
      */
     // mark_committing(byte)|gid_length(byte)|globalId
     // forces
-    public synchronized void markAsCommitting( byte globalId[], ForceMode forceMode )
+    public void markAsCommitting( byte globalId[], ForceMode forceMode )
         throws IOException
     {
         assertNotNull( globalId, "global id" );
-        logBuffer.put( MARK_COMMIT ).put( (byte) globalId.length ).put( globalId );
-        forceMode.force( logBuffer );
-        recordCount++;
+        long markCommitNumber;
+        synchronized ( this )
+        {
+            logBuffer.put( MARK_COMMIT ).put( (byte) globalId.length ).put( globalId );
+            recordCount++;
+            if ( forceMode != ForceMode.forced )
+            {
+                forceMode.force( logBuffer );
+                return;
+            }
+            markCommitNumber = ++markCommitsWritten;
+        }
+        groupForce( markCommitNumber );
+    }
+
+    /*
+     * Only one committer at a time forces the log. The ones arriving while a
+     * force is in progress queue up on the force lock and the first of them
+     * to get it forces everything written up until then, which most likely
+     * includes the records of the others, who then can return right away.
+     */
+    private void groupForce( long markCommitNumber ) throws IOException
+    {
+        synchronized ( forceLock )
+        {
+            if ( markCommitsForced >= markCommitNumber )
+            {
+                return;
+            }
+            long written;
+            FileChannel channel;
+            synchronized ( this )
+            {
+                logBuffer.writeOut();
+                written = markCommitsWritten;
+                channel = logBuffer.getFileChannel();
+            }
+            channel.force( false );
+            markCommitsForced = written;
+        }
     }
 
     /**
@@ -464,13 +521,25 @@ public class TxLog
      * @throws IOException
      *             If unable to switch log file
      */
-    public synchronized void switchToLogFile( String newFile )
+    public void switchToLogFile( String newFile )
         throws IOException
     {
         if ( newFile == null )
         {
             throw new IllegalArgumentException( "Null filename" );
         }
+        // Committers waiting to force must not force a closed channel
+        synchronized ( forceLock )
+        {
+            synchronized ( this )
+            {
+                doSwitchToLogFile( newFile );
+            }
+        }
+    }
+
+    private void doSwitchToLogFile( String newFile ) throws IOException
+    {
         // copy all dangling records from current log to new log
         force();
         Iterator<List<Record>> itr = getDanglingRecords();
@@ -497,7 +566,8 @@ public class TxLog
         while ( recordItr.hasNext() )
         {
             Record record = recordItr.next();
-            writeRecord( record, ForceMode.forced );
+            // all of them are forced together below
+            writeRecord( record, ForceMode.unforced );
         }
         force();
 //        msgLog.logMessage( "Rotated " + name + " to, file channel now at " + fileChannel.position(), true );
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.xaframework;
+
+import org.neo4j.kernel.impl.util.StringLogger;
+
+/**
+ * Flushes store state written by committed transactions in the background
+ * so that there's less left to flush when the {@link XaLogicalLog} gets
+ * rotated, since that flush happens while holding the log monitor and so
+ * stalls all committing transactions.
+ * <p>
+ * Nothing is flushed until the log has grown past half of its rotation
+ * threshold. From there on {@link XaTransactionFactory#flushIncrementally(int)}
+ * is called with a bounded chunk size, repeatedly as long as full chunks are
+ * flushed, otherwise after a short pause. A run of chunks ending with a chunk
+ * that wasn't full is counted as one checkpoint.
+ */
+public class IncrementalCheckpointer implements Runnable
+{
+    static final int CHUNK_SIZE = 16;
+    static final long PAUSE_MILLIS = 100;
+
+    private final XaLogicalLog log;
+    private final XaTransactionFactory xaTf;
+    private final StringLogger msgLog;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private volatile long checkpointCount;
+    private volatile long lastCheckpointTime;
+    private volatile long totalCheckpointTime;
+    private volatile long flushedChunks;
+
+    IncrementalCheckpointer( XaLogicalLog log, XaTransactionFactory xaTf, StringLogger msgLog, String name )
+    {
+        this.log = log;
+        this.xaTf = xaTf;
+        this.msgLog = msgLog;
+        this.thread = new Thread( this, "Incremental checkpointer [" + name + "]" );
+        this.thread.setDaemon( true );
+    }
+
+    void start()
+    {
+        thread.start();
+    }
+
+    /**
+     * Stops the background flushing and waits for an ongoing chunk to finish.
+     */
+    void stop()
+    {
+        running = false;
+        thread.interrupt();
+        try
+        {
+            thread.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        long checkpointStart = -1;
+        while ( running )
+        {
+            int flushed = 0;
+            if ( log.getLastKnownPosition() >= log.getLogicalLogTargetSize() / 2 )
+            {
+                long chunkStart = System.currentTimeMillis();
+                try
+                {
+                    flushed = xaTf.flushIncrementally( CHUNK_SIZE );
+                }
+                catch ( RuntimeException e )
+                {
+                    msgLog.logMessage( "Incremental checkpoint failed, will try again", e );
+                }
+                if ( flushed > 0 && checkpointStart == -1 )
+                {
+                    checkpointStart = chunkStart;
+                }
+                flushedChunks += flushed;
+            }
+            if ( flushed == CHUNK_SIZE )
+            {
+                continue;
+            }
+            if ( checkpointStart != -1 )
+            {
+                long time = System.currentTimeMillis() - checkpointStart;
+                lastCheckpointTime = time;
+                totalCheckpointTime += time;
+                checkpointCount++;
+                checkpointStart = -1;
+            }
+            try
+            {
+                Thread.sleep( PAUSE_MILLIS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * @return the number of checkpoints done, i.e. the number of runs of
+     * chunks flushed until there was nothing more to flush.
+     */
+    public long getCheckpointCount()
+    {
+        return checkpointCount;
+    }
+
+    /**
+     * @return the duration of the last checkpoint, in milliseconds.
+     */
+    public long getLastCheckpointTime()
+    {
+        return lastCheckpointTime;
+    }
+
+    /**
+     * @return the total duration of all checkpoints, in milliseconds.
+     */
+    public long getTotalCheckpointTime()
+    {
+        return totalCheckpointTime;
+    }
+
+    /**
+     * @return the total number of chunks (f.ex. store windows) flushed.
+     */
+    public long getFlushedChunks()
+    {
+        return flushedChunks;
+    }
+}
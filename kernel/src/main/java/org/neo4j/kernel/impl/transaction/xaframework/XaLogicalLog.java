@@ -98,6 +98,12 @@ public class XaLogicalLog implements LogLoader
     private char currentLog = CLEAN;
     private boolean autoRotate = true;
     private long rotateAtSize = 25 * 1024 * 1024; // 25MB
+    // position of the write buffer as of the last command written, readable without the monitor
+    private volatile long lastKnownPosition;
+    private volatile IncrementalCheckpointer checkpointer;
+    private volatile long rotationCount;
+    private volatile long lastRotationStallTime;
+    private volatile long totalRotationStallTime;
 
     private final LogBufferFactory logBufferFactory;
     private boolean doingRecovery;
@@ -600,6 +606,7 @@ public class XaLogicalLog implements LogLoader
 
     private void checkLogRotation() throws IOException
     {
+        lastKnownPosition = writeBuffer.getFileChannelPosition();
         if ( autoRotate &&
             writeBuffer.getFileChannelPosition() >= rotateAtSize )
         {
@@ -697,6 +704,12 @@ public class XaLogicalLog implements LogLoader
 
     public synchronized void close() throws IOException
     {
+        // Stopped first, the channel may have been closed by a failure already
+        if ( checkpointer != null )
+        {
+            checkpointer.stop();
+            checkpointer = null;
+        }
         if ( fileChannel == null || !fileChannel.isOpen() )
         {
             log.fine( "Logical log: " + fileName + " already closed" );
@@ -1384,7 +1397,12 @@ public class XaLogicalLog implements LogLoader
     public synchronized long rotate() throws IOException
     {
 //        if ( writeBuffer.getFileChannelPosition() == LogIoUtils.LOG_HEADER_SIZE ) return xaTf.getLastCommittedTx();
+        long flushStart = System.currentTimeMillis();
         xaTf.flushAll();
+        long stallTime = System.currentTimeMillis() - flushStart;
+        lastRotationStallTime = stallTime;
+        totalRotationStallTime += stallTime;
+        rotationCount++;
         String newLogFile = logFiles.getLog2FileName();
         String currentLogFile = logFiles.getLog1FileName();
         char newActiveLog = LOG2;
@@ -1453,6 +1471,7 @@ public class XaLogicalLog implements LogLoader
         fileChannel = newLog;
         positionCache.putHeader( logVersion, lastTx );
         instantiateCorrectWriteBuffer();
+        lastKnownPosition = writeBuffer.getFileChannelPosition();
         msgLog.logMessage( "Log rotated, newLog @ pos=" +
                 writeBuffer.getFileChannelPosition() + ", version " + logVersion +
                 " and last tx " + previousLogLastCommittedTx, true );
@@ -1592,6 +1611,59 @@ public class XaLogicalLog implements LogLoader
         return this.rotateAtSize;
     }
 
+    /**
+     * Starts flushing the data source in the background, ahead of rotation,
+     * see {@link IncrementalCheckpointer}. Stopped when this log is closed.
+     */
+    public synchronized void startIncrementalCheckpointing()
+    {
+        if ( checkpointer == null )
+        {
+            checkpointer = new IncrementalCheckpointer( this, xaTf, msgLog, fileName );
+            checkpointer.start();
+        }
+    }
+
+    /**
+     * @return the background checkpointer, or {@code null} if incremental
+     * checkpointing hasn't been started for this log.
+     */
+    public IncrementalCheckpointer getIncrementalCheckpointer()
+    {
+        return checkpointer;
+    }
+
+    long getLastKnownPosition()
+    {
+        return lastKnownPosition;
+    }
+
+    /**
+     * @return the number of times this log has been rotated.
+     */
+    public long getRotationCount()
+    {
+        return rotationCount;
+    }
+
+    /**
+     * @return the time, in milliseconds, the last rotation spent flushing
+     * the data source while blocking committing transactions.
+     */
+    public long getLastRotationStallTime()
+    {
+        return lastRotationStallTime;
+    }
+
+    /**
+     * @return the total time, in milliseconds, rotations have spent flushing
+     * the data source while blocking committing transactions.
+     */
+    public long getTotalRotationStallTime()
+    {
+        return totalRotationStallTime;
+    }
+
     @Override
 	public String getFileName( long version )
     {
@@ -39,6 +39,23 @@ public abstract class XaTransactionFactory
     public abstract XaTransaction create( int identifier );
 
     public abstract void flushAll();
+
+    /**
+     * Flushes a bounded part of what {@link #flushAll()} would flush, without
+     * blocking committing transactions for longer than it takes to flush
+     * that part. Used for incremental checkpointing, see
+     * {@link XaLogicalLog#startIncrementalCheckpointing()}. This
+     * implementation does nothing so override if the data source can flush
+     * its state piece by piece.
+     *
+     * @param maxChunks the maximum number of chunks (f.ex. store windows) to flush.
+     * @return the number of chunks flushed, less than {@code maxChunks}
+     * if there was nothing more to flush.
+     */
+    public int flushIncrementally( int maxChunks )
+    {
+        return 0;
+    }
     
     public void setLogicalLog( XaLogicalLog log )
     {
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from primitive long keys to object values, using open addressing
+ * in arrays instead of boxing each key into an entry object. Not thread
+ * safe and doesn't accept {@code null} values.
+ *
+ * @param <V> the type of the values.
+ */
+public class PrimitiveLongMap<V>
+{
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public PrimitiveLongMap()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    public PrimitiveLongMap( int expectedSize )
+    {
+        int capacity = DEFAULT_CAPACITY;
+        while ( capacity < expectedSize * 2 )
+        {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public V get( long key )
+    {
+        int slot = slotOf( key );
+        return slot == -1 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey( long key )
+    {
+        return slotOf( key ) != -1;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public V put( long key, V value )
+    {
+        if ( value == null )
+        {
+            throw new IllegalArgumentException( "Null value for " + key );
+        }
+        if ( (size + 1) * 2 > values.length )
+        {
+            resize( values.length * 2 );
+        }
+        int slot = hash( key );
+        while ( values[slot] != null )
+        {
+            if ( keys[slot] == key )
+            {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & (values.length - 1);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public V remove( long key )
+    {
+        int slot = slotOf( key );
+        if ( slot == -1 )
+        {
+            return null;
+        }
+        V previous = (V) values[slot];
+        values[slot] = null;
+        size--;
+        // Move back the entries after the removed one that would otherwise
+        // no longer be reachable from their home slot
+        int mask = values.length - 1;
+        int free = slot;
+        for ( int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask )
+        {
+            int home = hash( keys[next] );
+            if ( ((next - home) & mask) >= ((next - free) & mask) )
+            {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                values[next] = null;
+                free = next;
+            }
+        }
+        return previous;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( values, null );
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the keys in this map, in no particular order.
+     */
+    public long[] keys()
+    {
+        long[] result = new long[size];
+        int count = 0;
+        for ( int slot = 0; slot < values.length; slot++ )
+        {
+            if ( values[slot] != null )
+            {
+                result[count++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the values in this map, in the same order as {@link #keys()}.
+     * Changes to the map while iterating over the values aren't allowed.
+     */
+    public Iterable<V> values()
+    {
+        return new Iterable<V>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return new Iterator<V>()
+                {
+                    private int slot = nextSlot( 0 );
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return slot < values.length;
+                    }
+
+                    @SuppressWarnings( "unchecked" )
+                    @Override
+                    public V next()
+                    {
+                        if ( !hasNext() )
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        V value = (V) values[slot];
+                        slot = nextSlot( slot + 1 );
+                        return value;
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    private int nextSlot( int from )
+    {
+        int slot = from;
+        while ( slot < values.length && values[slot] == null )
+        {
+            slot++;
+        }
+        return slot;
+    }
+
+    private int slotOf( long key )
+    {
+        int slot = hash( key );
+        while ( values[slot] != null )
+        {
+            if ( keys[slot] == key )
+            {
+                return slot;
+            }
+            slot = (slot + 1) & (values.length - 1);
+        }
+        return -1;
+    }
+
+    private int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (values.length - 1);
+    }
+
+    private void resize( int capacity )
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for ( int slot = 0; slot < oldValues.length; slot++ )
+        {
+            if ( oldValues[slot] != null )
+            {
+                reinsert( oldKeys[slot], oldValues[slot] );
+            }
+        }
+    }
+
+    private void reinsert( long key, Object value )
+    {
+        int slot = hash( key );
+        while ( values[slot] != null )
+        {
+            slot = (slot + 1) & (values.length - 1);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder( "{" );
+        for ( int slot = 0; slot < values.length; slot++ )
+        {
+            if ( values[slot] != null )
+            {
+                if ( builder.length() > 1 ) builder.append( ", " );
+                builder.append( keys[slot] ).append( '=' ).append( values[slot] );
+            }
+        }
+        return builder.append( '}' ).toString();
+    }
+}
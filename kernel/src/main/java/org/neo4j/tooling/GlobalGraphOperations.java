@@ -19,7 +19,9 @@
  */
 package org.neo4j.tooling;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
@@ -68,6 +70,48 @@ public class GlobalGraphOperations
         };
     }
 
+    /**
+     * Splits all nodes in the graph into partitions that can be iterated
+     * independently of each other, f.ex. by different threads of a thread
+     * pool. Each partition holds the nodes of a contiguous range of node ids,
+     * and together they hold the same nodes as {@link #getAllNodes()}, except
+     * for nodes created after the split with ids higher than any id in use at
+     * the time of the split.
+     *
+     * Nodes are looked up by the thread iterating the partition, and the
+     * changes of the transaction of that thread are taken into account, like
+     * for other read operations.
+     *
+     * @param numberOfPartitions the number of partitions to split the nodes
+     *            into.
+     * @return the partitions, in node id order. Fewer partitions than asked
+     *         for are returned if there are fewer possible node ids than that.
+     */
+    public List<Iterable<Node>> splitAllNodes( int numberOfPartitions )
+    {
+        if ( numberOfPartitions < 1 )
+        {
+            throw new IllegalArgumentException( "Can not split nodes into " + numberOfPartitions + " partitions" );
+        }
+        long highId = nodeManager.getHighestPossibleIdInUse( Node.class ) + 1;
+        long partitionSize = Math.max( 1, ( highId + numberOfPartitions - 1 ) / numberOfPartitions );
+        List<Iterable<Node>> partitions = new ArrayList<Iterable<Node>>();
+        for ( long fromId = 0; fromId < highId; fromId += partitionSize )
+        {
+            final long from = fromId;
+            final long to = Math.min( highId, fromId + partitionSize );
+            partitions.add( new Iterable<Node>()
+            {
+                @Override
+                public Iterator<Node> iterator()
+                {
+                    return nodeManager.getAllNodes( from, to );
+                }
+            } );
+        }
+        return partitions;
+    }
+
     /**
      * Returns all relationships in the graph.
      * 
@@ -70,6 +70,14 @@ public class TestCacheTypes extends AbstractNeo4jTestCase
         db.shutdown();
     }
 
+    @Test
+    public void testSizedCache()
+    {
+        GraphDatabaseAPI db = newDb( SizedCacheProvider.NAME );
+        assertEquals( SizedCacheProvider.NAME, db.getNodeManager().getCacheType().getName() );
+        db.shutdown();
+    }
+
     @Test
     public void testNoCache()
     {
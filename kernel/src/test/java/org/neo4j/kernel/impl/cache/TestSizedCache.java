@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+public class TestSizedCache
+{
+    private static final int ENTITY_SIZE = 100;
+    private static final int ENTRY_SIZE = ENTITY_SIZE + SizedCache.ENTRY_OVERHEAD;
+
+    @Test
+    public void shouldNotAcceptNonPositiveBudget()
+    {
+        try
+        {
+            new SizedCache<Entity>( "TestCache", 0, StringLogger.DEV_NULL );
+            fail( "Illegal max size should throw exception" );
+        }
+        catch ( IllegalArgumentException e )
+        { // good
+        }
+    }
+
+    @Test
+    public void shouldKeepTrackOfSizeOfCachedEntities()
+    {
+        SizedCache<Entity> cache = new SizedCache<Entity>( "TestCache", ENTRY_SIZE * 10, StringLogger.DEV_NULL );
+        Entity first = new Entity( 0, ENTITY_SIZE );
+        cache.put( first );
+        cache.put( new Entity( 1, ENTITY_SIZE ) );
+        assertEquals( ENTRY_SIZE * 2, cache.size() );
+        assertEquals( ENTITY_SIZE, first.getRegisteredSize() );
+
+        first.size = ENTITY_SIZE * 2;
+        cache.updateSize( first, first.size() );
+        assertEquals( ENTRY_SIZE * 2 + ENTITY_SIZE, cache.size() );
+
+        cache.put( new Entity( 0, ENTITY_SIZE ) );
+        assertEquals( ENTRY_SIZE * 2, cache.size() );
+
+        assertNotNull( cache.remove( 1 ) );
+        assertEquals( ENTRY_SIZE, cache.size() );
+        cache.clear();
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    public void shouldEvictToStayWithinBudget()
+    {
+        SizedCache<Entity> cache = new SizedCache<Entity>( "TestCache", ENTRY_SIZE * 10, StringLogger.DEV_NULL );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( new Entity( i, ENTITY_SIZE ) );
+            assertTrue( cache.size() <= ENTRY_SIZE * 10 );
+        }
+        assertTrue( cache.evictionCount() >= 90 );
+    }
+
+    @Test
+    public void shouldPreferEvictingEntitiesNotRecentlyRead()
+    {
+        SizedCache<Entity> cache = new SizedCache<Entity>( "TestCache", ENTRY_SIZE * SizedCache.SAMPLE_SIZE * 4,
+                StringLogger.DEV_NULL );
+        cache.put( new Entity( 0, ENTITY_SIZE ) );
+        for ( int i = 1; i < 1000; i++ )
+        {
+            assertNotNull( cache.get( 0 ) );
+            cache.put( new Entity( i, ENTITY_SIZE ) );
+        }
+        assertNotNull( cache.get( 0 ) );
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses()
+    {
+        SizedCache<Entity> cache = new SizedCache<Entity>( "TestCache", ENTRY_SIZE * 10, StringLogger.DEV_NULL );
+        cache.put( new Entity( 0, ENTITY_SIZE ) );
+        assertNotNull( cache.get( 0 ) );
+        assertNull( cache.get( 1 ) );
+        assertNull( cache.get( 2 ) );
+        assertEquals( 1, cache.hitCount() );
+        assertEquals( 2, cache.missCount() );
+    }
+
+    private static class Entity implements EntityWithSize
+    {
+        private final long id;
+        private int size;
+        private int registeredSize;
+
+        Entity( long id, int size )
+        {
+            this.id = id;
+            this.size = size;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public long getId()
+        {
+            return id;
+        }
+
+        @Override
+        public void setRegisteredSize( int size )
+        {
+            this.registeredSize = size;
+        }
+
+        @Override
+        public int getRegisteredSize()
+        {
+            return registeredSize;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+public class TestBatchPropertyLoading
+{
+    private ImpermanentGraphDatabase db;
+
+    @Before
+    public void startDb()
+    {
+        db = new ImpermanentGraphDatabase();
+    }
+
+    @After
+    public void stopDb()
+    {
+        db.shutdown();
+    }
+
+    @Test
+    public void shouldLoadPropertiesOfManyNodesInOneBatch() throws Exception
+    {
+        int nodeCount = 200;
+        long[] ids = new long[nodeCount];
+        Transaction tx = db.beginTx();
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            Node node = db.createNode();
+            node.setProperty( "number", i );
+            node.setProperty( "short", "s" + i );
+            node.setProperty( "long", longString( i ) );
+            node.setProperty( "array", longArray( i ) );
+            if ( i % 2 == 0 )
+            {
+                // Spill over into more than one property record
+                node.setProperty( "more", i * 10L );
+                node.setProperty( "evenMore", (double) i );
+            }
+            ids[i] = node.getId();
+        }
+        tx.success();
+        tx.finish();
+        db.getNodeManager().clearCache();
+
+        db.getNodeManager().preloadNodeProperties( ids );
+
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            NodeImpl cached = db.getNodeManager().getNodeIfCached( ids[i] );
+            assertTrue( cached.hasLoadedProperties() );
+            Node node = db.getNodeById( ids[i] );
+            assertEquals( i, node.getProperty( "number" ) );
+            assertEquals( "s" + i, node.getProperty( "short" ) );
+            assertEquals( longString( i ), node.getProperty( "long" ) );
+            assertArrayEquals( longArray( i ), (long[]) node.getProperty( "array" ) );
+            assertEquals( i % 2 == 0, node.hasProperty( "more" ) );
+            if ( i % 2 == 0 )
+            {
+                assertEquals( i * 10L, node.getProperty( "more" ) );
+                assertEquals( (double) i, node.getProperty( "evenMore" ) );
+            }
+        }
+    }
+
+    @Test
+    public void shouldHandleNodesWithoutProperties() throws Exception
+    {
+        Transaction tx = db.beginTx();
+        Node withProperty = db.createNode();
+        withProperty.setProperty( "key", "value" );
+        Node withoutProperties = db.createNode();
+        tx.success();
+        tx.finish();
+        db.getNodeManager().clearCache();
+
+        db.getNodeManager().preloadNodeProperties( new long[] { withoutProperties.getId(), withProperty.getId() } );
+
+        assertFalse( withoutProperties.getPropertyKeys().iterator().hasNext() );
+        assertEquals( "value", withProperty.getProperty( "key" ) );
+    }
+
+    @Test
+    public void shouldNotOverwriteAlreadyLoadedProperties() throws Exception
+    {
+        Transaction tx = db.beginTx();
+        Node node = db.createNode();
+        node.setProperty( "key", "value" );
+        tx.success();
+        tx.finish();
+
+        tx = db.beginTx();
+        node.setProperty( "key", "changed" );
+        db.getNodeManager().preloadNodeProperties( new long[] { node.getId() } );
+        assertEquals( "changed", node.getProperty( "key" ) );
+        tx.success();
+        tx.finish();
+
+        assertEquals( "changed", node.getProperty( "key" ) );
+    }
+
+    private static String longString( int i )
+    {
+        StringBuilder builder = new StringBuilder();
+        for ( int j = 0; j < 20; j++ )
+        {
+            builder.append( "a fairly long string value " ).append( i );
+        }
+        return builder.toString();
+    }
+
+    private static long[] longArray( int i )
+    {
+        long[] array = new long[30];
+        for ( int j = 0; j < array.length; j++ )
+        {
+            array[j] = Long.MAX_VALUE - i - j;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+/**
+ * Many threads iterating over the relationships of the same dense node,
+ * which has to be loaded in many batches from the store.
+ */
+public class TestHubNodeRelationshipLoading
+{
+    private static final int GRAB_SIZE = 10;
+    private static final int RELATIONSHIP_COUNT = 2000;
+    private static final int THREAD_COUNT = 8;
+    private static final RelationshipType[] TYPES = {
+            DynamicRelationshipType.withName( "FIRST" ), DynamicRelationshipType.withName( "SECOND" ) };
+
+    private ImpermanentGraphDatabase db;
+    private long hubId;
+
+    @Before
+    public void createHub()
+    {
+        db = new ImpermanentGraphDatabase( stringMap(
+                GraphDatabaseSettings.relationship_grab_size.name(), "" + GRAB_SIZE ) );
+        Transaction tx = db.beginTx();
+        try
+        {
+            Node hub = db.createNode();
+            for ( int i = 0; i < RELATIONSHIP_COUNT; i++ )
+            {
+                Node other = db.createNode();
+                if ( i % 3 == 0 )
+                {
+                    other.createRelationshipTo( hub, TYPES[i % TYPES.length] );
+                }
+                else
+                {
+                    hub.createRelationshipTo( other, TYPES[i % TYPES.length] );
+                }
+            }
+            hubId = hub.getId();
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    @After
+    public void stopDb()
+    {
+        db.shutdown();
+    }
+
+    @Test
+    public void concurrentReadersShouldAllSeeAllRelationshipsOfHubNode() throws Exception
+    {
+        for ( int round = 0; round < 10; round++ )
+        {
+            db.getNodeManager().clearCache();
+            List<Reader> readers = startReaders( 1 );
+            for ( Reader reader : readers )
+            {
+                reader.join();
+                assertTrue( reader.failures.toString(), reader.failures.isEmpty() );
+                assertEquals( RELATIONSHIP_COUNT, reader.lastCount );
+            }
+        }
+    }
+
+    @Ignore( "Not a proper test really, merely a contention measurement" )
+    @Test
+    public void measureManyThreadsIteratingHubNode() throws Exception
+    {
+        long endTime = System.currentTimeMillis() + SECONDS.toMillis( 30 );
+        long iterations = 0;
+        long time = 0;
+        while ( System.currentTimeMillis() < endTime )
+        {
+            db.getNodeManager().clearCache();
+            long start = System.currentTimeMillis();
+            List<Reader> readers = startReaders( 10 );
+            for ( Reader reader : readers )
+            {
+                reader.join();
+                iterations += reader.iterations;
+            }
+            time += System.currentTimeMillis() - start;
+        }
+        System.out.println( THREAD_COUNT + " threads, " + iterations + " iterations over " + RELATIONSHIP_COUNT +
+                " relationships in " + time + "ms" );
+    }
+
+    private List<Reader> startReaders( int iterationsEach )
+    {
+        CountDownLatch startSignal = new CountDownLatch( 1 );
+        List<Reader> readers = new ArrayList<Reader>();
+        for ( int i = 0; i < THREAD_COUNT; i++ )
+        {
+            Reader reader = new Reader( startSignal, iterationsEach );
+            readers.add( reader );
+            reader.start();
+        }
+        startSignal.countDown();
+        return readers;
+    }
+
+    private class Reader extends Thread
+    {
+        private final CountDownLatch startSignal;
+        private final int iterationsToDo;
+        private final List<Throwable> failures = new ArrayList<Throwable>();
+        private volatile int lastCount;
+        private volatile long iterations;
+
+        Reader( CountDownLatch startSignal, int iterationsToDo )
+        {
+            this.startSignal = startSignal;
+            this.iterationsToDo = iterationsToDo;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                startSignal.await();
+                for ( int i = 0; i < iterationsToDo; i++ )
+                {
+                    int count = 0;
+                    for ( Relationship relationship : db.getNodeById( hubId ).getRelationships() )
+                    {
+                        count++;
+                    }
+                    lastCount = count;
+                    iterations++;
+                }
+            }
+            catch ( Throwable t )
+            {
+                failures.add( t );
+            }
+        }
+    }
+}
@@ -19,17 +19,31 @@
  */
 package org.neo4j.kernel.impl.core;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.helpers.Triplet;
 import org.neo4j.kernel.impl.nioneo.store.InvalidRecordException;
+import org.neo4j.kernel.impl.nioneo.store.Record;
+import org.neo4j.kernel.impl.util.ArrayMap;
 import org.neo4j.kernel.impl.util.RelIdArray;
+import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+import org.neo4j.kernel.impl.util.RelIdIterator;
 
 public class TestOperationsOnDeletedRelationships
 {
@@ -45,7 +59,7 @@ public class TestOperationsOnDeletedRelationships
         Throwable exceptionCaught = null;
 
         // Given something tries to load relationships, throw InvalidRecordException
-        when( nodeManager.getMoreRelationships( any( NodeImpl.class ) ) ).thenThrow( new InvalidRecordException( "LURING!" ) );
+        when( nodeManager.getMoreRelationships( any( NodeImpl.class ), anyLong() ) ).thenThrow( new InvalidRecordException( "LURING!" ) );
 
         // When
         try {
@@ -72,7 +86,7 @@ public class TestOperationsOnDeletedRelationships
         fromNode.setRelChainPosition( 1337l );
 
         // This makes nodeManager pretend that relationships have been deleted
-        when( nodeManager.getMoreRelationships( any( NodeImpl.class ) ) ).thenThrow( new InvalidRecordException(
+        when( nodeManager.getMoreRelationships( any( NodeImpl.class ), anyLong() ) ).thenThrow( new InvalidRecordException(
                 "LURING!" ) );
 
 
@@ -90,4 +104,65 @@ public class TestOperationsOnDeletedRelationships
         assertThat( exceptionCaught, is( NotFoundException.class) );
     }
 
+    @Test
+    public void shouldNotBringBackRelationshipDeletedWhileItsBatchWasLoaded() throws Exception
+    {
+        // Given a node with its first batch loaded and one more to load
+        final NodeImpl node = new NodeImpl( 1337l, 0l, 0l, true );
+        final NodeManager nodeManager = mock( NodeManager.class );
+        node.setRelChainPosition( 42l );
+
+        // And a transaction deleting relationship 1 from the next batch, committing
+        // on another thread while this one reads that batch from the store
+        final ArrayMap<String,Collection<Long>> removed = new ArrayMap<String,Collection<Long>>();
+        removed.put( "KNOWS", asList( 1l ) );
+        when( nodeManager.getMoreRelationships( node, 42l ) ).thenAnswer(
+                new Answer<Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long>>()
+                {
+                    @Override
+                    public Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> answer(
+                            InvocationOnMock invocation ) throws Throwable
+                    {
+                        Thread committer = new Thread()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                node.commitRelationshipMaps( null, removed, 0l, nodeManager );
+                            }
+                        };
+                        committer.start();
+                        committer.join();
+                        return batch( 1l, 2l );
+                    }
+                } ).thenReturn( batch( 2l ) );
+
+        // When
+        node.getMoreRelationships( nodeManager );
+
+        // Then
+        assertEquals( asList( 2l ), ids( node.getRelationshipIds( "KNOWS" ) ) );
+    }
+
+    private static Triplet<ArrayMap<String,RelIdArray>,List<RelationshipImpl>,Long> batch( long... ids )
+    {
+        RelIdArray array = new RelIdArray( "KNOWS" );
+        for ( long id : ids )
+        {
+            array.add( id, DirectionWrapper.OUTGOING );
+        }
+        ArrayMap<String,RelIdArray> map = new ArrayMap<String,RelIdArray>();
+        map.put( "KNOWS", array );
+        return Triplet.of( map, Collections.<RelationshipImpl>emptyList(), (long) Record.NO_NEXT_RELATIONSHIP.intValue() );
+    }
+
+    private static List<Long> ids( RelIdArray array )
+    {
+        List<Long> ids = new ArrayList<Long>();
+        for ( RelIdIterator iterator = array.iterator( DirectionWrapper.BOTH ); iterator.hasNext(); )
+        {
+            ids.add( iterator.next() );
+        }
+        return ids;
+    }
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+
+/**
+ * Measures concurrent reads done inside write transactions, where each
+ * property read has to look for changes made in the reading transaction.
+ */
+public class TransactionStatePerformanceImpact
+{
+    private static final int RUNS = 10;
+    private static final int NODES = 1000;
+    private static final int READS_PER_THREAD = 200000;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = File.createTempFile( "neo4j-test", "" );
+        storeDir.delete();
+        GraphDatabaseService db = new EmbeddedGraphDatabase( storeDir.getCanonicalPath() );
+        try
+        {
+            long[] nodes = createData( db );
+            for ( int i = 0; i < RUNS; i++ )
+            {
+                System.err.println( readInWriteTransactions( db, nodes ) );
+            }
+        }
+        finally
+        {
+            db.shutdown();
+            deleteFiles( storeDir );
+        }
+    }
+
+    private static long[] createData( GraphDatabaseService db )
+    {
+        long[] nodes = new long[NODES];
+        Transaction tx = db.beginTx();
+        try
+        {
+            for ( int i = 0; i < NODES; i++ )
+            {
+                Node node = db.createNode();
+                node.setProperty( "name", "node-" + i );
+                nodes[i] = node.getId();
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+        return nodes;
+    }
+
+    private static long readInWriteTransactions( final GraphDatabaseService db, final long[] nodes )
+            throws InterruptedException
+    {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] threads = new Thread[THREADS];
+        for ( int t = 0; t < THREADS; t++ )
+        {
+            final int threadIndex = t;
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    awaitStart( start );
+                    Transaction tx = db.beginTx();
+                    try
+                    {
+                        // Gives the transaction state of its own to look in
+                        db.createNode().setProperty( "thread", threadIndex );
+                        for ( int i = 0; i < READS_PER_THREAD; i++ )
+                        {
+                            db.getNodeById( nodes[(i + threadIndex) % nodes.length] ).getProperty( "name" );
+                        }
+                    }
+                    finally
+                    {
+                        tx.finish();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        long startTime = currentTimeMillis();
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        return currentTimeMillis() - startTime;
+    }
+
+    private static void awaitStart( CountDownLatch start )
+    {
+        try
+        {
+            start.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deleteFiles( File directory ) throws IOException
+    {
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                deleteFiles( file );
+            }
+        }
+        directory.delete();
+    }
+}
@@ -24,21 +24,30 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.TransactionFailureException;
 import org.neo4j.graphdb.event.PropertyEntry;
 import org.neo4j.graphdb.event.TransactionData;
 import org.neo4j.graphdb.event.TransactionEventHandler;
+import org.neo4j.graphdb.factory.GraphDatabaseSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
+import org.neo4j.test.ImpermanentGraphDatabase;
 
 public class TestTransactionEvents extends AbstractNeo4jTestCase
 {
@@ -588,4 +597,66 @@ public class TestTransactionEvents extends AbstractNeo4jTestCase
             getGraphDb().unregisterTransactionEventHandler( handler );
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void afterCommitCanBeDeliveredInTheBackground() throws Exception
+    {
+        commit();
+        GraphDatabaseService db = new ImpermanentGraphDatabase( stringMap(
+                GraphDatabaseSettings.transaction_events_async_after_commit.name(), GraphDatabaseSetting.TRUE ) );
+        try
+        {
+            Transaction tx = db.beginTx();
+            Node existing = db.createNode();
+            existing.setProperty( "name", "before" );
+            tx.success();
+            tx.finish();
+
+            final CountDownLatch delivered = new CountDownLatch( 1 );
+            final List<Object> seen = new ArrayList<Object>();
+            db.registerTransactionEventHandler( new TransactionEventHandler<Object>()
+            {
+                @Override
+                public Object beforeCommit( TransactionData data )
+                {
+                    return null;
+                }
+
+                @Override
+                public void afterCommit( TransactionData data, Object state )
+                {
+                    seen.add( Thread.currentThread() );
+                    for ( Node node : data.createdNodes() )
+                    {
+                        seen.add( node );
+                    }
+                    for ( PropertyEntry<Node> entry : data.assignedNodeProperties() )
+                    {
+                        seen.add( entry.key() + "=" + entry.previouslyCommitedValue() + "->" + entry.value() );
+                    }
+                    delivered.countDown();
+                }
+
+                @Override
+                public void afterRollback( TransactionData data, Object state )
+                {
+                }
+            } );
+
+            tx = db.beginTx();
+            Node created = db.createNode();
+            existing.setProperty( "name", "after" );
+            tx.success();
+            tx.finish();
+
+            assertTrue( delivered.await( 10, TimeUnit.SECONDS ) );
+            // Views are built after the transaction is gone, values from before it are still there
+            assertEquals( Arrays.<Object>asList( seen.get( 0 ), created, "name=before->after" ), seen );
+            assertTrue( seen.get( 0 ) != Thread.currentThread() );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+}
@@ -124,6 +124,34 @@ public class PersistenceWindowPoolTest
         otherThread.shutdown();
     }
 
+    @Test
+    public void shouldOnlyFlushWindowsWrittenToSinceLastFlush() throws Exception
+    {
+        String filename = new File( directory.directory(), "written" ).getAbsolutePath();
+        RandomAccessFile file = resources.add( new RandomAccessFile( filename, "rw" ) );
+        final int blockSize = 8;
+        PersistenceWindowPool pool = new PersistenceWindowPool( "test.store", blockSize, file.getChannel(),
+                blockSize * 1000, false, false, StringLogger.DEV_NULL );
+
+        PersistenceWindow window = pool.acquire( 0, OperationType.READ );
+        pool.release( window );
+        assertEquals( 0, pool.flushWrittenWindows( 10 ) );
+
+        window = pool.acquire( 0, OperationType.WRITE );
+        try
+        {
+            writeBufferContents( blockSize, window );
+        }
+        finally
+        {
+            pool.release( window );
+        }
+        assertEquals( 1, pool.flushWrittenWindows( 10 ) );
+        assertEquals( 0, pool.flushWrittenWindows( 10 ) );
+
+        pool.close();
+    }
+
     private void writeBufferContents( final int blockSize, final PersistenceWindow t1Row )
     {
         Buffer buffer = t1Row.getBuffer();
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static java.lang.System.currentTimeMillis;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+
+import java.io.File;
+import java.util.Random;
+import java.util.UUID;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+import org.neo4j.kernel.GraphDatabaseAPI;
+
+/**
+ * Measures writing and reading, with a cold cache, nodes with properties that
+ * are typical of what just doesn't fit in a property block unless packed: UUID
+ * and hash strings, arrays of timestamps and of round floating point values.
+ * Also prints the number of records used in the dynamic string and array
+ * stores, each of which means a separate read for a property read. Run with
+ * <code>false</code> as argument to compare with the encodings that are used
+ * unless {@link GraphDatabaseSettings#compact_property_encodings} is enabled.
+ */
+public class PropertyEncodingPerformanceImpact
+{
+    private static final int RUNS = 10;
+    private static final int NODES = 10000;
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = File.createTempFile( "neo4j-test", "" );
+        storeDir.delete();
+        String compact = args.length > 0 ? args[0] : "true";
+        GraphDatabaseService db = new EmbeddedGraphDatabase( storeDir.getCanonicalPath(),
+                stringMap( GraphDatabaseSettings.compact_property_encodings.name(), compact ) );
+        try
+        {
+            Random random = new Random( 0 );
+            for ( int run = 0; run < RUNS; run++ )
+            {
+                long start = currentTimeMillis();
+                long[] nodes = createNodes( db, random );
+                long writeTime = Math.max( 1, currentTimeMillis() - start );
+
+                ((GraphDatabaseAPI) db).getNodeManager().clearCache();
+                start = currentTimeMillis();
+                int properties = readNodes( db, nodes );
+                long readTime = Math.max( 1, currentTimeMillis() - start );
+
+                PropertyStore propertyStore = ((GraphDatabaseAPI) db).getXaDataSourceManager()
+                        .getNeoStoreDataSource().getNeoStore().getPropertyStore();
+                System.err.println( (NODES * 1000L / writeTime) + " nodes written/s, "
+                        + (properties * 1000L / readTime) + " properties read/s, "
+                        + propertyStore.getStringStore().getHighId() + " dynamic string records, "
+                        + propertyStore.getArrayStore().getHighId() + " dynamic array records" );
+            }
+        }
+        finally
+        {
+            db.shutdown();
+            deleteFiles( storeDir );
+        }
+    }
+
+    private static long[] createNodes( GraphDatabaseService db, Random random )
+    {
+        long[] nodes = new long[NODES];
+        Transaction tx = db.beginTx();
+        try
+        {
+            for ( int i = 0; i < NODES; i++ )
+            {
+                Node node = db.createNode();
+                node.setProperty( "uuid", UUID.randomUUID().toString().toUpperCase() );
+                node.setProperty( "sha1", hex( random, 20 ) );
+                long[] timestamps = new long[8];
+                timestamps[0] = 1341234567000L + random.nextInt( 1000000 ) * 1000L;
+                for ( int j = 1; j < timestamps.length; j++ )
+                {
+                    timestamps[j] = timestamps[j-1] + random.nextInt( 3600 ) * 1000L;
+                }
+                node.setProperty( "timestamps", timestamps );
+                double[] weights = new double[6];
+                for ( int j = 0; j < weights.length; j++ )
+                {
+                    weights[j] = random.nextInt( 64 ) / 4.0;
+                }
+                node.setProperty( "weights", weights );
+                nodes[i] = node.getId();
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+        return nodes;
+    }
+
+    private static int readNodes( GraphDatabaseService db, long[] nodes )
+    {
+        int properties = 0;
+        for ( long id : nodes )
+        {
+            Node node = db.getNodeById( id );
+            for ( String key : node.getPropertyKeys() )
+            {
+                node.getProperty( key );
+                properties++;
+            }
+        }
+        return properties;
+    }
+
+    private static String hex( Random random, int bytes )
+    {
+        StringBuilder result = new StringBuilder();
+        for ( int i = 0; i < bytes; i++ )
+        {
+            result.append( Integer.toHexString( 0x100 | random.nextInt( 0x100 ) ).substring( 1 ) );
+        }
+        return result.toString();
+    }
+
+    private static void deleteFiles( File directory )
+    {
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                deleteFiles( file );
+            }
+        }
+        directory.delete();
+    }
+}
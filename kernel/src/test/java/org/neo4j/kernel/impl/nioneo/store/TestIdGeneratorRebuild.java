@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.factory.GraphDatabaseSetting;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.test.TargetDirectory;
+import org.neo4j.test.TargetDirectory.TestDirectory;
+
+public class TestIdGeneratorRebuild
+{
+    public @Rule
+    TestDirectory testdir = TargetDirectory.testDirForTest( getClass() );
+
+    @Test
+    public void shouldReuseIdsFoundByFullRebuild() throws Exception
+    {
+        Set<Long> deleted = createNodesWithHoles( 1000 );
+        deleteIdFiles();
+
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabaseBuilder(
+                testdir.directory().getAbsolutePath() ).setConfig(
+                GraphDatabaseSettings.rebuild_idgenerators_fast, GraphDatabaseSetting.FALSE ).newGraphDatabase();
+        try
+        {
+            assertNewNodesReuse( db, deleted );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReuseIdsCollectedInBackground() throws Exception
+    {
+        Set<Long> deleted = createNodesWithHoles( 1000 );
+        deleteIdFiles();
+
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabaseBuilder(
+                testdir.directory().getAbsolutePath() ).setConfig(
+                GraphDatabaseSettings.rebuild_idgenerators_in_background, GraphDatabaseSetting.TRUE ).newGraphDatabase();
+        try
+        {
+            ((GraphDatabaseAPI) db).getXaDataSourceManager().getNeoStoreDataSource().getNeoStore()
+                    .getNodeStore().awaitFreeIdCollection();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+
+        // Freed ids are handed out once written to the id file, here on shutdown
+        db = new GraphDatabaseFactory().newEmbeddedDatabase( testdir.directory().getAbsolutePath() );
+        try
+        {
+            assertNewNodesReuse( db, deleted );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private Set<Long> createNodesWithHoles( int count )
+    {
+        Set<Long> deleted = new HashSet<Long>();
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase(
+                testdir.directory().getAbsolutePath() );
+        try
+        {
+            Transaction tx = db.beginTx();
+            try
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    Node node = db.createNode();
+                    if ( i % 2 == 1 )
+                    {
+                        node.delete();
+                        deleted.add( node.getId() );
+                    }
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        return deleted;
+    }
+
+    private void deleteIdFiles()
+    {
+        for ( File file : testdir.directory().listFiles() )
+        {
+            if ( file.getName().endsWith( ".id" ) )
+            {
+                assertTrue( file.delete() );
+            }
+        }
+    }
+
+    private void assertNewNodesReuse( GraphDatabaseService db, Set<Long> deleted )
+    {
+        Set<Long> reused = new HashSet<Long>();
+        Transaction tx = db.beginTx();
+        try
+        {
+            for ( int i = 0; i < deleted.size(); i++ )
+            {
+                reused.add( db.createNode().getId() );
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+        assertEquals( deleted, reused );
+    }
+}
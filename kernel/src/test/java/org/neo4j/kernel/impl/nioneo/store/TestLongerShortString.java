@@ -24,6 +24,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.UUID;
 
 import org.junit.Test;
 import org.neo4j.kernel.impl.nioneo.store.TestShortString.Charset;
@@ -70,7 +71,7 @@ public class TestLongerShortString
                 for ( String string : list )
                 {
                     PropertyBlock record = new PropertyBlock();
-                    if ( LongerShortString.encode( 10, string, record, PropertyStore.DEFAULT_PAYLOAD_SIZE ) )
+                    if ( LongerShortString.encode( 10, string, record, PropertyStore.DEFAULT_PAYLOAD_SIZE, true ) )
                     {
                         assertEquals( string, LongerShortString.decode( record ) );
                     }
@@ -101,16 +102,53 @@ public class TestLongerShortString
         assertCannotEncode( "^aaaaaaaaaaaaaaaaaaaaaaaaaaa" );
     }
 
-    private void assertCanEncodeAndDecodeToSame( String string )
+    @Test
+    public void canEncodeHex() throws Exception
+    {
+        assertCanEncodeAndDecodeToSame( "da39a3ee5e6b4b0d3255bfef95601890afd80709" );
+        assertCanEncodeAndDecodeToSame( "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709" );
+        assertCanEncodeAndDecodeToSame( "0123456789abcdef0123456789abcdef0123456789abcdef012345" );
+        assertCannotEncode( "0123456789abcdef0123456789abcdef0123456789abcdef0123456" );
+    }
+
+    @Test
+    public void canEncodeUuidInThreeBlocks() throws Exception
+    {
+        for ( int i = 0; i < 1000; i++ )
+        {
+            String uuid = UUID.randomUUID().toString();
+            assertEquals( 3, assertCanEncodeAndDecodeToSame( uuid ) );
+            assertEquals( 3, assertCanEncodeAndDecodeToSame( uuid.toUpperCase() ) );
+        }
+        assertCanEncodeAndDecodeToSame( "0123456-789a-bcde-f012-3456789abcdef" );
+        assertCanEncodeAndDecodeToSame( "01234567-89ab-cdef-0123-456789abcde-" );
+    }
+
+    @Test
+    public void usesHexOnlyWhenAllowed() throws Exception
+    {
+        String uuid = "0b7e3f4a-53c2-4b1e-9a43-6f0d2c8e1a57";
+        PropertyBlock target = new PropertyBlock();
+        assertTrue( LongerShortString.encode( 0, uuid, target, PropertyStore.DEFAULT_PAYLOAD_SIZE, false ) );
+        assertEquals( uuid, LongerShortString.decode( target ) );
+        assertEquals( 4, target.getValueBlocks().length );
+        assertFalse( LongerShortString.encode( 0, uuid.toUpperCase(), new PropertyBlock(),
+                PropertyStore.DEFAULT_PAYLOAD_SIZE, false ) );
+    }
+
+    private int assertCanEncodeAndDecodeToSame( String string )
     {
-        assertCanEncodeAndDecodeToSame( string, PropertyStore.DEFAULT_PAYLOAD_SIZE );
+        return assertCanEncodeAndDecodeToSame( string, PropertyStore.DEFAULT_PAYLOAD_SIZE );
     }
 
-    private void assertCanEncodeAndDecodeToSame( String string, int payloadSize )
+    private int assertCanEncodeAndDecodeToSame( String string, int payloadSize )
     {
         PropertyBlock target = new PropertyBlock();
-        assertTrue( LongerShortString.encode( 0, string, target, payloadSize ) );
+        assertTrue( LongerShortString.encode( 0, string, target, payloadSize, true ) );
         assertEquals( string, LongerShortString.decode( target ) );
+        int blocks = target.getValueBlocks().length;
+        assertEquals( blocks, LongerShortString.calculateNumberOfBlocksUsed( target.getValueBlocks()[0] ) );
+        return blocks;
     }
 
     private void assertCannotEncode( String string )
@@ -121,6 +159,6 @@ public class TestLongerShortString
     private void assertCannotEncode( String string, int payloadSize )
     {
         assertFalse( LongerShortString.encode( 0, string, new PropertyBlock(),
-                payloadSize ) );
+                payloadSize, true ) );
     }
 }
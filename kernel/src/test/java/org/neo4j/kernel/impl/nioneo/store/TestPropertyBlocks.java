@@ -692,7 +692,7 @@ public class TestPropertyBlocks extends AbstractNeo4jTestCase
 
         assertEquals( recordsInUseAtStart + 1, propertyRecordsInUse() );
 
-        rel.setProperty( "theDoubleThatGrows", new long[] { 1 << 63, 1 << 63, 1 << 63 } );
+        rel.setProperty( "theDoubleThatGrows", new long[] { unpackable( 0 ), unpackable( 1 ), unpackable( 2 ) } );
 
         assertEquals( recordsInUseAtStart + 2, propertyRecordsInUse() );
         assertEquals( valueRecordsInUseAtStart, dynamicArrayRecordsInUse() );
@@ -736,7 +736,7 @@ public class TestPropertyBlocks extends AbstractNeo4jTestCase
         List<Long> theYoyoData = new ArrayList<Long>();
         for ( int i = 0; i < PropertyType.getPayloadSizeLongs() - 1; i++ )
         {
-            theYoyoData.add( 1l << 63 );
+            theYoyoData.add( unpackable( i ) );
             Long[] value = theYoyoData.toArray( new Long[] {} );
             rel.setProperty( "yoyo", value );
             assertEquals( recordsInUseAtStart + 1, propertyRecordsInUse() );
@@ -748,7 +748,7 @@ public class TestPropertyBlocks extends AbstractNeo4jTestCase
             }
         }
 
-        theYoyoData.add( 1l << 63 );
+        theYoyoData.add( unpackable( theYoyoData.size() ) );
         Long[] value = theYoyoData.toArray( new Long[] {} );
         rel.setProperty( "yoyo", value );
         assertEquals( recordsInUseAtStart + 1, propertyRecordsInUse() );
@@ -756,10 +756,20 @@ public class TestPropertyBlocks extends AbstractNeo4jTestCase
 
         newTransaction();
         clearCache();
-        rel.setProperty( "filler", new long[] { 1 << 63, 1 << 63, 1 << 63 } );
+        rel.setProperty( "filler", new long[] { unpackable( 0 ), unpackable( 1 ), unpackable( 2 ) } );
         assertEquals( recordsInUseAtStart + 2, propertyRecordsInUse() );
     }
 
+    /**
+     * @return the i:th of a sequence of values that, as well as the
+     *         differences between them, need all 64 bits, so that arrays of
+     *         them can't be packed into fewer bits by {@link ShortArray}.
+     */
+    private static long unpackable( int i )
+    {
+        return ( i + 1 ) * 0x9E3779B97F4A7C15L;
+    }
+
     @Test
     public void testRemoveZigZag()
     {
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.test.TargetDirectory;
+import org.neo4j.test.TargetDirectory.TestDirectory;
+
+public class TestRecordScan
+{
+    public @Rule
+    TestDirectory testdir = TargetDirectory.testDirForTest( getClass() );
+
+    @Test
+    public void shouldReadSameRecordsAsReadingThemOneByOne() throws Exception
+    {
+        createGraph( 20000 );
+        StoreAccess stores = new StoreAccess( testdir.directory().getAbsolutePath() );
+        try
+        {
+            assertScanMatchesForceGetRecord( stores.getNodeStore() );
+            assertScanMatchesForceGetRecord( stores.getRelationshipStore() );
+            assertScanMatchesForceGetRecord( stores.getPropertyStore() );
+            assertScanMatchesForceGetRecord( stores.getStringStore() );
+            assertScanMatchesForceGetRecord( stores.getRelationshipTypeStore() );
+            assertScanMatchesForceGetRecord( stores.getPropertyIndexStore() );
+        }
+        finally
+        {
+            stores.close();
+        }
+    }
+
+    @Test
+    public void shouldOnlyScanRecordsInRange() throws Exception
+    {
+        createGraph( 100 );
+        StoreAccess stores = new StoreAccess( testdir.directory().getAbsolutePath() );
+        try
+        {
+            RecordScan scan = stores.getNodeStore().scan( 10, 20 );
+            for ( long id = 10; id < 20; id++ )
+            {
+                assertTrue( scan.next() );
+                assertEquals( id, scan.getId() );
+                assertEquals( id, stores.getNodeStore().forceGetRecord( scan ).getId() );
+            }
+            assertFalse( scan.next() );
+        }
+        finally
+        {
+            stores.close();
+        }
+    }
+
+    @Test
+    public void shouldReadRecordsBeyondEndOfFileAsNotInUse() throws Exception
+    {
+        createGraph( 100 );
+        StoreAccess stores = new StoreAccess( testdir.directory().getAbsolutePath() );
+        try
+        {
+            long highId = stores.getNodeStore().getHighId();
+            RecordScan scan = stores.getNodeStore().scan( highId + 10, highId + 20 );
+            while ( scan.next() )
+            {
+                assertFalse( scan.inUse() );
+                assertFalse( stores.getNodeStore().forceGetRecord( scan ).inUse() );
+            }
+        }
+        finally
+        {
+            stores.close();
+        }
+    }
+
+    private <R extends AbstractBaseRecord> void assertScanMatchesForceGetRecord( RecordStore<R> store )
+    {
+        long highId = store.getHighId();
+        RecordScan scan = store.scan( 0, highId );
+        for ( long id = 0; id < highId; id++ )
+        {
+            assertTrue( scan.next() );
+            R expected = store.forceGetRecord( id );
+            assertEquals( expected.inUse(), scan.inUse() );
+            assertEquals( expected.toString(), store.forceGetRecord( scan ).toString() );
+        }
+        assertFalse( scan.next() );
+    }
+
+    private void createGraph( int nodes )
+    {
+        GraphDatabaseService db = new GraphDatabaseFactory().newEmbeddedDatabase(
+                testdir.directory().getAbsolutePath() );
+        try
+        {
+            Transaction tx = db.beginTx();
+            try
+            {
+                Node previous = null;
+                for ( int i = 0; i < nodes; i++ )
+                {
+                    Node node = db.createNode();
+                    node.setProperty( "name", "node number " + i + " with a name that goes in the string store" );
+                    if ( previous != null )
+                    {
+                        previous.createRelationshipTo( node, DynamicRelationshipType.withName( "NEXT" ) );
+                    }
+                    if ( i % 3 == 0 && previous != null )
+                    {
+                        for ( Relationship rel : previous.getRelationships() )
+                        {
+                            rel.delete();
+                        }
+                        previous.delete();
+                    }
+                    previous = node;
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+}
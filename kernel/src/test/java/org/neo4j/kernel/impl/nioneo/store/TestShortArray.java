@@ -24,6 +24,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Array;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -65,6 +66,69 @@ public class TestShortArray
         assertCanEncodeAndDecodeToSameValue( intArray, 32 );
     }
 
+    @Test
+    public void canEncodeArraysOfLargeButCloseValues() throws Exception
+    {
+        long[] timestamps = new long[10];
+        for ( int i = 0; i < timestamps.length; i++ )
+        {
+            timestamps[i] = 1341234567890L + i * 1000 + i % 3;
+        }
+        assertEquals( 4, assertCanEncodeAndDecodeToSameValue( timestamps ) );
+        long[] descending = new long[20];
+        for ( int i = 0; i < descending.length; i++ )
+        {
+            descending[i] = Long.MIN_VALUE + 100 - i;
+        }
+        assertEquals( 3, assertCanEncodeAndDecodeToSameValue( descending ) );
+        assertEquals( 2, assertCanEncodeAndDecodeToSameValue( new int[] { -3, -1, 0, 2, -2 } ) );
+        assertCanEncodeAndDecodeToSameValue( new int[] { -100000, -100001, -100003 } );
+        assertCanEncodeAndDecodeToSameValue( new char[] { 'n', 'e', 'o', '4', 'j', '\uffff' } );
+        assertCanEncodeAndDecodeToSameValue( new float[] { 1.0f, 1.5f, 2.0f, -2.5f, 0.25f, 3.75f } );
+        assertCanEncodeAndDecodeToSameValue( new double[] { 0.5, 0.25, 0.125, 0.0625 } );
+        assertCanEncodeAndDecodeToSameValue( new long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0 } );
+        assertCanEncodeAndDecodeToSameValue( new short[] { Short.MAX_VALUE, Short.MIN_VALUE, -1, 1 } );
+        assertCanEncodeAndDecodeToSameValue( new byte[] { Byte.MAX_VALUE, Byte.MIN_VALUE } );
+    }
+
+    @Test
+    public void canEncodeRandomArraysOfCloseValues() throws Exception
+    {
+        Random random = new Random( 1234 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            long[] array = new long[1 + random.nextInt( 63 )];
+            long value = random.nextLong();
+            int spread = 1 + random.nextInt( 62 );
+            int shift = random.nextInt( 64 - spread );
+            for ( int j = 0; j < array.length; j++ )
+            {
+                array[j] = value + ( ( random.nextLong() >> 64 - spread ) << shift );
+            }
+            PropertyBlock target = new PropertyBlock();
+            if ( ShortArray.encode( 0, array, target, DEFAULT_PAYLOAD_SIZE, true ) )
+            {
+                assertArraysEquals( array, ShortArray.decode( target ) );
+                assertEquals( target.getValueBlocks().length,
+                        ShortArray.calculateNumberOfBlocksUsed( target.getValueBlocks()[0] ) );
+            }
+        }
+    }
+
+    @Test
+    public void packsOnlyWhenAllowedAndUsingFewerBlocks() throws Exception
+    {
+        long[] timestamps = new long[] { 1341234567890L, 1341234568890L, 1341234569890L, 1341234570890L,
+                1341234571890L, 1341234572890L, 1341234573890L };
+        assertFalse( ShortArray.encode( 0, timestamps, new PropertyBlock(), DEFAULT_PAYLOAD_SIZE, false ) );
+        assertCanEncodeAndDecodeToSameValue( timestamps );
+
+        PropertyBlock target = new PropertyBlock();
+        assertTrue( ShortArray.encode( 0, new long[] { 5, 6, 7 }, target, DEFAULT_PAYLOAD_SIZE, true ) );
+        assertEquals( 1, target.getValueBlocks().length );
+        assertEquals( ShortArray.LONG.intValue(), (int) ( ( target.getValueBlocks()[0] >>> 28 ) & 0xF ) );
+    }
+
     private void assertCanNotEncode( Object intArray )
     {
         assertCanNotEncode( intArray, DEFAULT_PAYLOAD_SIZE );
@@ -73,7 +137,7 @@ public class TestShortArray
     private void assertCanNotEncode( Object intArray, int payloadSize )
     {
         assertFalse( ShortArray.encode( 0, intArray, new PropertyBlock(),
-                payloadSize ) );
+                payloadSize, true ) );
     }
 
     private int[] intArray( int count, int stride )
@@ -86,17 +150,20 @@ public class TestShortArray
         return result;
     }
 
-    private void assertCanEncodeAndDecodeToSameValue( Object value )
+    private int assertCanEncodeAndDecodeToSameValue( Object value )
     {
-        assertCanEncodeAndDecodeToSameValue( value, PropertyType.getPayloadSize() );
+        return assertCanEncodeAndDecodeToSameValue( value, PropertyType.getPayloadSize() );
     }
 
-    private void assertCanEncodeAndDecodeToSameValue( Object value, int payloadSize )
+    private int assertCanEncodeAndDecodeToSameValue( Object value, int payloadSize )
     {
         PropertyBlock target = new PropertyBlock();
-        boolean encoded = ShortArray.encode( 0, value, target, payloadSize );
+        boolean encoded = ShortArray.encode( 0, value, target, payloadSize, true );
         assertTrue( encoded );
         assertArraysEquals( value, ShortArray.decode( target ) );
+        int blocks = target.getValueBlocks().length;
+        assertEquals( blocks, ShortArray.calculateNumberOfBlocksUsed( target.getValueBlocks()[0] ) );
+        return blocks;
     }
 
     private void assertArraysEquals( Object value1, Object value2 )
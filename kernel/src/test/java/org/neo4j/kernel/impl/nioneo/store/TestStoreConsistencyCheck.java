@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.util.StringLogger;
+import org.neo4j.test.TargetDirectory;
+import org.neo4j.test.TargetDirectory.TestDirectory;
+
+public class TestStoreConsistencyCheck
+{
+    public @Rule
+    TestDirectory testdir = TargetDirectory.testDirForTest( getClass() );
+
+    @Test
+    public void shouldFindNoInconsistenciesInStoreWrittenByDatabase() throws Exception
+    {
+        createGraph();
+
+        assertEquals( 0, check() );
+    }
+
+    @Test
+    public void shouldFindRelationshipReferencedButNotInUse() throws Exception
+    {
+        createGraph();
+        StoreAccess stores = new StoreAccess( testdir.directory().getAbsolutePath() );
+        try
+        {
+            RelationshipRecord rel = stores.getRelationshipStore().forceGetRecord( 3 );
+            assertTrue( rel.inUse() );
+            rel.setInUse( false );
+            stores.getRelationshipStore().forceUpdateRecord( rel );
+        }
+        finally
+        {
+            stores.close();
+        }
+
+        // it is still referenced, and the relationship after it lost its place in a chain
+        assertEquals( 2, check() );
+    }
+
+    @Test
+    public void shouldFindPropertyChainSharedByTwoNodes() throws Exception
+    {
+        createGraph();
+        StoreAccess stores = new StoreAccess( testdir.directory().getAbsolutePath() );
+        try
+        {
+            NodeRecord first = stores.getNodeStore().forceGetRecord( 1 );
+            NodeRecord second = stores.getNodeStore().forceGetRecord( 2 );
+            long orphaned = second.getNextProp();
+            second.setNextProp( first.getNextProp() );
+            stores.getNodeStore().forceUpdateRecord( second );
+            assertTrue( orphaned != first.getNextProp() );
+        }
+        finally
+        {
+            stores.close();
+        }
+
+        // the shared chain is referenced twice, the one no longer referenced is orphaned
+        assertEquals( 2, check() );
+    }
+
+    private long check()
+    {
+        StoreAccess stores = new StoreAccess( testdir.directory().getAbsolutePath() );
+        try
+        {
+            return new StoreConsistencyCheck( stores, 4, StringLogger.DEV_NULL ).run();
+        }
+        finally
+        {
+            stores.close();
+        }
+    }
+
+    private void createGraph()
+    {
+        GraphDatabaseAPI db = (GraphDatabaseAPI) new GraphDatabaseFactory().newEmbeddedDatabase(
+                testdir.directory().getAbsolutePath() );
+        try
+        {
+            RelationshipType type = DynamicRelationshipType.withName( "KNOWS" );
+            Transaction tx = db.beginTx();
+            try
+            {
+                db.getNodeManager().getGraphProperties().setProperty( "name", "a graph with a long name" );
+                List<Node> nodes = new ArrayList<Node>();
+                for ( int i = 0; i < 100; i++ )
+                {
+                    Node node = db.createNode();
+                    node.setProperty( "id", i );
+                    node.setProperty( "name", "a node with a name long enough to be stored in the string store " + i );
+                    node.setProperty( "values", new long[] { i, i * 1000L, i * 1000000L, i * 1000000000L } );
+                    nodes.add( node );
+                }
+                for ( int i = 1; i < nodes.size(); i++ )
+                {
+                    Relationship rel = nodes.get( i - 1 ).createRelationshipTo( nodes.get( i ), type );
+                    rel.setProperty( "weight", i );
+                    nodes.get( i ).createRelationshipTo( nodes.get( i - 1 ), type );
+                    if ( i % 10 == 0 )
+                    {
+                        nodes.get( i ).createRelationshipTo( nodes.get( i ), type );
+                    }
+                }
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+
+            tx = db.beginTx();
+            try
+            {
+                Node node = db.getNodeById( 50 );
+                for ( Relationship rel : node.getRelationships() )
+                {
+                    rel.delete();
+                }
+                node.delete();
+                db.getNodeById( 60 ).removeProperty( "name" );
+                db.getNodeById( 70 ).setProperty( "values", new int[] { 1, 2 } );
+                tx.success();
+            }
+            finally
+            {
+                tx.finish();
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.xa;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.File;
+
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
+
+/**
+ * Measures the logical log bytes written per transaction, and the number of
+ * transactions committed per second, for small transactions creating a node
+ * with a couple of properties and a relationship.
+ */
+public class CommandEncodingPerformanceImpact
+{
+    private static final int RUNS = 10;
+    private static final int TX = 5000;
+    private static final RelationshipType KNOWS = DynamicRelationshipType.withName( "KNOWS" );
+
+    public static void main( String[] args ) throws Exception
+    {
+        File storeDir = File.createTempFile( "neo4j-test", "" );
+        storeDir.delete();
+        GraphDatabaseService db = new EmbeddedGraphDatabase( storeDir.getCanonicalPath() );
+        try
+        {
+            Node previous = createNode( db, null, 0 );
+            for ( int run = 0; run < RUNS; run++ )
+            {
+                long logSizeBefore = logicalLogSize( storeDir );
+                long start = currentTimeMillis();
+                for ( int i = 0; i < TX; i++ )
+                {
+                    previous = createNode( db, previous, i );
+                }
+                long time = Math.max( 1, currentTimeMillis() - start );
+                long bytes = logicalLogSize( storeDir ) - logSizeBefore;
+                System.err.println( (bytes / TX) + " bytes/tx, " + (TX * 1000L / time) + " tx/s" );
+            }
+        }
+        finally
+        {
+            db.shutdown();
+            deleteFiles( storeDir );
+        }
+    }
+
+    private static Node createNode( GraphDatabaseService db, Node previous, int i )
+    {
+        Transaction tx = db.beginTx();
+        try
+        {
+            Node node = db.createNode();
+            node.setProperty( "name", "node-" + i );
+            node.setProperty( "number", i );
+            if ( previous != null )
+            {
+                previous.createRelationshipTo( node, KNOWS );
+            }
+            tx.success();
+            return node;
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    private static long logicalLogSize( File storeDir )
+    {
+        long size = 0;
+        File[] files = storeDir.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                if ( file.getName().startsWith( "nioneo_logical.log" ) && !file.getName().endsWith( ".active" ) )
+                {
+                    size += file.length();
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void deleteFiles( File directory )
+    {
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                deleteFiles( file );
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.xa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.neo4j.kernel.impl.nioneo.store.DynamicRecord;
+import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
+import org.neo4j.kernel.impl.nioneo.store.PropertyBlock;
+import org.neo4j.kernel.impl.nioneo.store.PropertyRecord;
+import org.neo4j.kernel.impl.nioneo.store.PropertyStore;
+import org.neo4j.kernel.impl.nioneo.store.PropertyType;
+import org.neo4j.kernel.impl.nioneo.store.Record;
+import org.neo4j.kernel.impl.nioneo.store.RelationshipRecord;
+import org.neo4j.kernel.impl.transaction.xaframework.InMemoryLogBuffer;
+
+public class TestCommandEncoding
+{
+    private final ByteBuffer buffer = ByteBuffer.allocate( 1000 );
+
+    @Test
+    public void shouldReadWrittenNodeCommands() throws Exception
+    {
+        NodeRecord node = new NodeRecord( 1L << 33, 10, (1L << 33) + 5 );
+        node.setInUse( true );
+        NodeRecord deletedNode = new NodeRecord( 7, Record.NO_NEXT_RELATIONSHIP.intValue(),
+                Record.NO_NEXT_PROPERTY.intValue() );
+
+        assertReadAsWritten( new Command.NodeCommand( null, node ) );
+        assertReadAsWritten( new Command.NodeCommand( null, deletedNode ) );
+    }
+
+    @Test
+    public void shouldReadWrittenRelationshipCommands() throws Exception
+    {
+        RelationshipRecord relationship = new RelationshipRecord( 100, 3, 2, 4 );
+        relationship.setInUse( true );
+        relationship.setFirstPrevRel( Record.NO_PREV_RELATIONSHIP.intValue() );
+        relationship.setFirstNextRel( 99 );
+        relationship.setSecondPrevRel( 12345678L );
+        relationship.setSecondNextRel( 101 );
+        relationship.setNextProp( 0 );
+
+        assertReadAsWritten( new Command.RelationshipCommand( null, relationship ) );
+    }
+
+    @Test
+    public void shouldReadWrittenPropertyCommands() throws Exception
+    {
+        PropertyRecord property = new PropertyRecord( 20 );
+        property.setInUse( true );
+        property.setRelId( 5 );
+        property.setPrevProp( 19 );
+        property.setNextProp( Record.NO_NEXT_PROPERTY.intValue() );
+        property.addPropertyBlock( intBlock( 1, 1337 ) );
+        property.addPropertyBlock( stringBlock( 2, 40, "a string too long to be inlined in a property block" ) );
+        DynamicRecord deleted = new DynamicRecord( 30 );
+        deleted.setInUse( false, PropertyType.STRING.intValue() );
+        property.addDeletedRecord( deleted );
+
+        assertReadAsWritten( new Command.PropertyCommand( null, property ) );
+    }
+
+    @Test
+    public void shouldWriteFewerBytesThanTheFixedWidthEncoding() throws Exception
+    {
+        NodeRecord node = new NodeRecord( 1000, 1001, 2000 );
+        node.setInUse( true );
+        InMemoryLogBuffer log = new InMemoryLogBuffer();
+
+        new Command.NodeCommand( null, node ).writeToFile( log );
+
+        // type+id(long)+in_use+next_rel(long)+next_prop(long)
+        int fixedWidthSize = 1 + 8 + 1 + 8 + 8;
+        int written = 0;
+        while ( log.read( (ByteBuffer) buffer.clear() ) > 0 )
+        {
+            written += buffer.position();
+        }
+        assertTrue( written + " bytes", written < fixedWidthSize / 2 );
+    }
+
+    @Test
+    public void shouldReadFixedWidthNodeCommandsFromOlderLogs() throws Exception
+    {
+        InMemoryLogBuffer log = new InMemoryLogBuffer();
+        log.put( (byte) 1 ).putLong( 12 ).put( Record.IN_USE.byteValue() ).putLong( 3 ).putLong( -1 );
+
+        Command read = Command.readCommand( null, log, buffer );
+
+        assertEquals( "Node[12,used=true,rel=3,prop=-1]", read.toString() );
+    }
+
+    @Test
+    public void shouldReturnNullForTruncatedCommands() throws Exception
+    {
+        RelationshipRecord relationship = new RelationshipRecord( 100, 3, 2, 4 );
+        relationship.setInUse( true );
+        InMemoryLogBuffer log = new InMemoryLogBuffer();
+        new Command.RelationshipCommand( null, relationship ).writeToFile( log );
+        byte[] written = new byte[1000];
+        ByteBuffer all = ByteBuffer.wrap( written );
+        log.read( all );
+
+        for ( int length = 1; length < all.position(); length++ )
+        {
+            InMemoryLogBuffer truncated = new InMemoryLogBuffer();
+            for ( int i = 0; i < length; i++ )
+            {
+                truncated.put( written[i] );
+            }
+            assertNull( Command.readCommand( null, truncated, buffer ) );
+        }
+    }
+
+    private void assertReadAsWritten( Command command ) throws IOException
+    {
+        InMemoryLogBuffer log = new InMemoryLogBuffer();
+        command.writeToFile( log );
+
+        Command read = Command.readCommand( null, log, buffer );
+
+        assertEquals( command.toString(), read.toString() );
+        assertEquals( "bytes left after the command", -1, log.read( (ByteBuffer) buffer.clear() ) );
+    }
+
+    private static PropertyBlock intBlock( int keyId, int value )
+    {
+        PropertyBlock block = new PropertyBlock();
+        block.setSingleBlock( keyId | (((long) PropertyType.INT.intValue()) << 24) | ((long) value << 28) );
+        return block;
+    }
+
+    private static PropertyBlock stringBlock( int keyId, long firstDynamicId, String value )
+    {
+        PropertyBlock block = new PropertyBlock();
+        block.setSingleBlock( keyId | (((long) PropertyType.STRING.intValue()) << 24) | (firstDynamicId << 28) );
+        DynamicRecord record = new DynamicRecord( firstDynamicId );
+        record.setInUse( true, PropertyType.STRING.intValue() );
+        record.setCreated();
+        record.setData( PropertyStore.encodeString( value ) );
+        block.addValueRecord( record );
+        return block;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.nioneo.xa;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.neo4j.kernel.impl.nioneo.store.NeoStore;
+import org.neo4j.kernel.impl.nioneo.store.NodeRecord;
+import org.neo4j.kernel.impl.transaction.xaframework.TransactionInterceptor;
+import org.neo4j.kernel.impl.transaction.xaframework.XaCommand;
+import org.neo4j.kernel.impl.transaction.xaframework.XaLogicalLog;
+
+public class TestWriteTransactionPrepare
+{
+    private static final int IDENTIFIER = 3;
+    private static final long[] NODE_IDS = { 0, 1, 2, 1000, (1L << 33) + 7, 1L << 34 };
+
+    private final XaLogicalLog log = mock( XaLogicalLog.class );
+    private final NeoStore neoStore = mock( NeoStore.class );
+
+    @Test
+    public void shouldWriteEveryCommandToTheLogWhenPreparing() throws Exception
+    {
+        WriteTransaction tx = new WriteTransaction( IDENTIFIER, log, neoStore, null, null );
+        createNodes( tx );
+
+        tx.prepare();
+
+        assertEquals( idSet( NODE_IDS ), nodeIds( writtenCommands() ) );
+    }
+
+    @Test
+    public void shouldGiveEveryCommandToTheInterceptorOnceBeforeWritingAny() throws Exception
+    {
+        TransactionInterceptor interceptor = mock( TransactionInterceptor.class );
+        WriteTransaction tx = new WriteTransaction( IDENTIFIER, log, neoStore, null, null, interceptor );
+        createNodes( tx );
+
+        tx.prepare();
+
+        ArgumentCaptor<NodeRecord> intercepted = ArgumentCaptor.forClass( NodeRecord.class );
+        InOrder order = inOrder( interceptor, log );
+        order.verify( interceptor, times( NODE_IDS.length ) ).visitNode( intercepted.capture() );
+        order.verify( interceptor ).complete();
+        order.verify( log, times( NODE_IDS.length ) ).writeCommand( any( XaCommand.class ), eq( IDENTIFIER ) );
+
+        Set<Long> interceptedIds = new HashSet<Long>();
+        for ( NodeRecord record : intercepted.getAllValues() )
+        {
+            interceptedIds.add( record.getId() );
+        }
+        assertEquals( idSet( NODE_IDS ), interceptedIds );
+        assertEquals( idSet( NODE_IDS ), nodeIds( writtenCommands() ) );
+    }
+
+    private void createNodes( WriteTransaction tx )
+    {
+        for ( long id : NODE_IDS )
+        {
+            tx.nodeCreate( id );
+        }
+    }
+
+    private List<XaCommand> writtenCommands() throws Exception
+    {
+        ArgumentCaptor<XaCommand> written = ArgumentCaptor.forClass( XaCommand.class );
+        verify( log, times( NODE_IDS.length ) ).writeCommand( written.capture(), anyInt() );
+        return written.getAllValues();
+    }
+
+    private Set<Long> nodeIds( List<XaCommand> commands )
+    {
+        List<Long> ids = new ArrayList<Long>();
+        for ( XaCommand command : commands )
+        {
+            ids.add( ((Command.NodeCommand) command).getKey() );
+        }
+        Set<Long> unique = new HashSet<Long>( ids );
+        assertEquals( "the same command written twice in " + ids, ids.size(), unique.size() );
+        return unique;
+    }
+
+    private Set<Long> idSet( long... ids )
+    {
+        Set<Long> set = new HashSet<Long>();
+        for ( long id : ids )
+        {
+            set.add( id );
+        }
+        return set;
+    }
+}
@@ -82,6 +82,7 @@ public class StoreMigratorTestIT
         neoStore.close();
 
         assertEquals( 100, monitor.events.size() );
+        assertEquals( 100, monitor.throughputs.size() );
         assertTrue( monitor.started );
         assertTrue( monitor.finished );
 
@@ -201,6 +202,7 @@ public class StoreMigratorTestIT
     private class ListAccumulatorMigrationProgressMonitor implements MigrationProgressMonitor
     {
         private List<Integer> events = new ArrayList<Integer>();
+        private List<Long> throughputs = new ArrayList<Long>();
         private boolean started = false;
         private boolean finished = false;
 
@@ -214,6 +216,11 @@ public class StoreMigratorTestIT
             events.add( percent );
         }
 
+        public void throughput( long entitiesPerSecond )
+        {
+            throughputs.add( entitiesPerSecond );
+        }
+
         public void finished()
         {
             finished = true;
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import org.junit.Test;
 import org.neo4j.kernel.DefaultFileSystemAbstraction;
 import org.neo4j.kernel.impl.AbstractNeo4jTestCase;
@@ -188,6 +189,82 @@ public class TestTxLog
         }
     }
 
+    @Test
+    public void concurrentlyForcedCommitMarksShouldAllBeWritten() throws Exception
+    {
+        File file = new File( txFile() );
+        if ( file.exists() )
+        {
+            file.delete();
+        }
+        try
+        {
+            final TxLog txLog = new TxLog( txFile(), new DefaultFileSystemAbstraction(), StringLogger.DEV_NULL );
+            int threadCount = 10;
+            final int txPerThread = 20;
+            final CountDownLatch startSignal = new CountDownLatch( 1 );
+            final List<Throwable> failures = new ArrayList<Throwable>();
+            Thread[] threads = new Thread[threadCount];
+            for ( int i = 0; i < threadCount; i++ )
+            {
+                final int threadId = i;
+                threads[i] = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            startSignal.await();
+                            for ( int tx = 0; tx < txPerThread; tx++ )
+                            {
+                                byte globalId[] = new byte[64];
+                                globalId[0] = (byte) threadId;
+                                globalId[1] = (byte) tx;
+                                txLog.txStart( globalId );
+                                txLog.addBranch( globalId, new byte[45] );
+                                txLog.markAsCommitting( globalId, ForceMode.forced );
+                            }
+                        }
+                        catch ( Throwable t )
+                        {
+                            synchronized ( failures )
+                            {
+                                failures.add( t );
+                            }
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            startSignal.countDown();
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            assertTrue( failures.toString(), failures.isEmpty() );
+            txLog.close();
+
+            TxLog reopened = new TxLog( txFile(), new DefaultFileSystemAbstraction(), StringLogger.DEV_NULL );
+            List<?> lists[] = getRecordLists( reopened.getDanglingRecords() );
+            assertEquals( threadCount * txPerThread, lists.length );
+            for ( List<?> records : lists )
+            {
+                assertEquals( 3, records.size() );
+                assertEquals( TxLog.MARK_COMMIT, ((TxLog.Record) records.get( 2 )).getType() );
+            }
+            reopened.close();
+        }
+        finally
+        {
+            file = new File( txFile() );
+            if ( file.exists() )
+            {
+                file.delete();
+            }
+        }
+    }
+
     @Test
     public void testTxRecovery()
     {
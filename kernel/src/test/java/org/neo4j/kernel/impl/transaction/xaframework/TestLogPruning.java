@@ -65,7 +65,7 @@ public class TestLogPruning
         rotate();
         long sizeOfOneLog = fs.getFileSize( db.getXaDataSourceManager().getNeoStoreDataSource()
                 .getXaContainer().getLogicalLog().getFileName( 0 ) );
-        int filesToExceedSize = (int) Math.round( (double)size/(double)sizeOfOneLog );
+        int filesToExceedSize = (int) Math.ceil( (double)size/(double)sizeOfOneLog );
         for ( int i = 1; i < filesToExceedSize*2; i++ )
         {
             doTransaction();
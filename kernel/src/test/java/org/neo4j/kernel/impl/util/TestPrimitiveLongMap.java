@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestPrimitiveLongMap
+{
+    @Test
+    public void shouldPutGetAndReplaceValues()
+    {
+        PrimitiveLongMap<String> map = new PrimitiveLongMap<String>();
+
+        assertNull( map.put( 1, "one" ) );
+        assertNull( map.put( Long.MAX_VALUE, "max" ) );
+        assertEquals( "one", map.put( 1, "uno" ) );
+
+        assertEquals( "uno", map.get( 1 ) );
+        assertEquals( "max", map.get( Long.MAX_VALUE ) );
+        assertNull( map.get( 2 ) );
+        assertEquals( 2, map.size() );
+    }
+
+    @Test
+    public void shouldListKeysAndValuesInTheSameOrder()
+    {
+        PrimitiveLongMap<Long> map = new PrimitiveLongMap<Long>();
+        for ( long key = 0; key < 100; key++ )
+        {
+            map.put( key * 7, key * 7 );
+        }
+
+        long[] keys = map.keys();
+        int i = 0;
+        for ( long value : map.values() )
+        {
+            assertEquals( keys[i++], value );
+        }
+        assertEquals( 100, i );
+        Arrays.sort( keys );
+        for ( int key = 0; key < 100; key++ )
+        {
+            assertEquals( key * 7, keys[key] );
+        }
+    }
+
+    @Test
+    public void shouldFindRemainingKeysAfterRemovals()
+    {
+        PrimitiveLongMap<Long> map = new PrimitiveLongMap<Long>();
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        Random random = new Random( 1337 );
+        for ( int i = 0; i < 20000; i++ )
+        {
+            long key = random.nextInt( 500 );
+            if ( random.nextBoolean() )
+            {
+                assertEquals( expected.put( key, key ), map.put( key, key ) );
+            }
+            else
+            {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            }
+            assertEquals( expected.size(), map.size() );
+        }
+        for ( long key = 0; key < 500; key++ )
+        {
+            assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+            assertEquals( expected.get( key ), map.get( key ) );
+        }
+    }
+
+    @Test
+    public void shouldBeEmptyAfterClear()
+    {
+        PrimitiveLongMap<String> map = new PrimitiveLongMap<String>( 100 );
+        map.put( 10, "ten" );
+        map.clear();
+
+        assertTrue( map.isEmpty() );
+        assertFalse( map.containsKey( 10 ) );
+        assertEquals( 0, map.keys().length );
+        assertFalse( map.values().iterator().hasNext() );
+    }
+}
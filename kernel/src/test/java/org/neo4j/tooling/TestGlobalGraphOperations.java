@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.tooling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.helpers.collection.IteratorUtil.asCollection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.ImpermanentGraphDatabase;
+
+public class TestGlobalGraphOperations
+{
+    private ImpermanentGraphDatabase db;
+    private Set<Node> expected;
+
+    @Before
+    public void createNodesWithGaps()
+    {
+        db = new ImpermanentGraphDatabase();
+        expected = new HashSet<Node>();
+        expected.add( db.getReferenceNode() );
+        Transaction tx = db.beginTx();
+        try
+        {
+            for ( int i = 0; i < 10000; i++ )
+            {
+                Node node = db.createNode();
+                if ( i % 7 == 0 || ( i > 3000 && i < 6000 ) )
+                {
+                    node.delete();
+                }
+                else
+                {
+                    expected.add( node );
+                }
+            }
+            tx.success();
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    @After
+    public void shutdown()
+    {
+        db.shutdown();
+    }
+
+    @Test
+    public void shouldSkipDeletedNodes()
+    {
+        assertEquals( expected, new HashSet<Node>( asCollection( GlobalGraphOperations.at( db ).getAllNodes() ) ) );
+    }
+
+    @Test
+    public void partitionsShouldTogetherHoldAllNodesOnce()
+    {
+        List<Node> nodes = new ArrayList<Node>();
+        for ( Iterable<Node> partition : GlobalGraphOperations.at( db ).splitAllNodes( 8 ) )
+        {
+            nodes.addAll( asCollection( partition ) );
+        }
+
+        assertEquals( expected.size(), nodes.size() );
+        assertEquals( expected, new HashSet<Node>( nodes ) );
+    }
+
+    @Test
+    public void partitionsShouldBeIterableConcurrently() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            List<Future<List<Node>>> futures = new ArrayList<Future<List<Node>>>();
+            for ( final Iterable<Node> partition : GlobalGraphOperations.at( db ).splitAllNodes( 16 ) )
+            {
+                futures.add( pool.submit( new Callable<List<Node>>()
+                {
+                    @Override
+                    public List<Node> call()
+                    {
+                        return new ArrayList<Node>( asCollection( partition ) );
+                    }
+                } ) );
+            }
+            Set<Node> nodes = new HashSet<Node>();
+            for ( Future<List<Node>> future : futures )
+            {
+                nodes.addAll( future.get() );
+            }
+            assertEquals( expected, nodes );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldSeeChangesOfTheCurrentTransaction()
+    {
+        Node deleted = db.getNodeById( 2 );
+        Transaction tx = db.beginTx();
+        try
+        {
+            Node created = db.createNode();
+            deleted.delete();
+
+            Set<Node> nodes = new HashSet<Node>( asCollection( GlobalGraphOperations.at( db ).getAllNodes() ) );
+            assertTrue( nodes.contains( created ) );
+            assertFalse( nodes.contains( deleted ) );
+        }
+        finally
+        {
+            tx.finish();
+        }
+    }
+
+    @Test
+    public void shouldNotSplitIntoMorePartitionsThanThereAreIds()
+    {
+        ImpermanentGraphDatabase empty = new ImpermanentGraphDatabase();
+        try
+        {
+            assertEquals( 1, GlobalGraphOperations.at( empty ).splitAllNodes( 4 ).size() );
+        }
+        finally
+        {
+            empty.shutdown();
+        }
+    }
+}
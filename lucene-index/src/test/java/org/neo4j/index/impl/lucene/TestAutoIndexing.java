@@ -19,8 +19,10 @@
  */
 package org.neo4j.index.impl.lucene;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,7 +35,10 @@ import org.neo4j.graphdb.index.AutoIndexer;
 import org.neo4j.graphdb.index.Index;
 import org.neo4j.graphdb.index.ReadableIndex;
 import org.neo4j.graphdb.index.RelationshipIndex;
+import org.neo4j.kernel.AutoIndexApplier;
+import org.neo4j.kernel.EmbeddedGraphDatabase;
 import org.neo4j.test.ImpermanentGraphDatabase;
+import org.neo4j.test.TargetDirectory;
 
 import static org.junit.Assert.*;
 
@@ -650,4 +655,77 @@ public class TestAutoIndexing
         newTransaction();
         assertFalse( node1.hasProperty( "nodeProp" ) );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void asyncAutoIndexingCatchesUpAfterCommit() throws Exception
+    {
+        stopDb();
+        config = new HashMap<String, String>();
+        config.put( GraphDatabaseSettings.node_keys_indexable.name(), "nodeProp" );
+        config.put( GraphDatabaseSettings.node_auto_indexing.name(), "true" );
+        config.put( GraphDatabaseSettings.async_auto_indexing.name(), "true" );
+        startDb();
+        ReadableIndex<Node> nodeIndex = graphDb.index().getNodeAutoIndexer().getAutoIndex();
+
+        newTransaction();
+        Node node1 = graphDb.createNode();
+        node1.setProperty( "nodeProp", "value1" );
+        Node node2 = graphDb.createNode();
+        node2.setProperty( "nodeProp", "value2" );
+        Node node3 = graphDb.createNode();
+        node3.setProperty( "nodeProp", "value3" );
+        // Not in the index before commit
+        assertFalse( nodeIndex.get( "nodeProp", "value1" ).hasNext() );
+        newTransaction();
+        node2.setProperty( "nodeProp", "changed" );
+        node3.removeProperty( "nodeProp" );
+        tx.success();
+        tx.finish();
+        tx = graphDb.beginTx();
+        node1.setProperty( "nodeProp", "rolledBack" );
+        tx.failure();
+        tx.finish();
+        tx = null;
+
+        assertTrue( graphDb.getAutoIndexApplier().awaitCatchUp( 10, TimeUnit.SECONDS ) );
+        assertEquals( 0, graphDb.getAutoIndexApplier().getLag() );
+        assertEquals( node1, nodeIndex.get( "nodeProp", "value1" ).getSingle() );
+        assertFalse( nodeIndex.get( "nodeProp", "rolledBack" ).hasNext() );
+        assertFalse( nodeIndex.get( "nodeProp", "value2" ).hasNext() );
+        assertEquals( node2, nodeIndex.get( "nodeProp", "changed" ).getSingle() );
+        assertFalse( nodeIndex.get( "nodeProp", "value3" ).hasNext() );
+    }
+
+    @Test
+    public void asyncAutoIndexingRebuildsIndexesIfChangesMayNotHaveBeenApplied() throws Exception
+    {
+        stopDb();
+        File storeDir = TargetDirectory.forTest( getClass() ).directory( "notApplied", true );
+        EmbeddedGraphDatabase db = new EmbeddedGraphDatabase( storeDir.getAbsolutePath() );
+        Transaction transaction = db.beginTx();
+        Node node = db.createNode();
+        node.setProperty( "nodeProp", "value" );
+        transaction.success();
+        transaction.finish();
+        db.shutdown();
+        // As if it had crashed before the change was applied
+        File marker = new File( storeDir, AutoIndexApplier.NOT_APPLIED_MARKER );
+        assertTrue( marker.createNewFile() );
+
+        Map<String, String> asyncConfig = new HashMap<String, String>();
+        asyncConfig.put( GraphDatabaseSettings.node_keys_indexable.name(), "nodeProp" );
+        asyncConfig.put( GraphDatabaseSettings.node_auto_indexing.name(), "true" );
+        asyncConfig.put( GraphDatabaseSettings.async_auto_indexing.name(), "true" );
+        db = new EmbeddedGraphDatabase( storeDir.getAbsolutePath(), asyncConfig );
+        try
+        {
+            assertTrue( db.getAutoIndexApplier().awaitCatchUp( 10, TimeUnit.SECONDS ) );
+            assertEquals( node, db.index().getNodeAutoIndexer().getAutoIndex().get( "nodeProp", "value" ).getSingle() );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        assertFalse( marker.exists() );
+    }
+}
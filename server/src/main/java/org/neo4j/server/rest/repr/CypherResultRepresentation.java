@@ -34,13 +34,24 @@ public class CypherResultRepresentation extends MappingRepresentation
 {
     private final ListRepresentation resultRepresentation;
     private final ListRepresentation columns;
+    private final String plan;
 
 
     public CypherResultRepresentation( ExecutionResult result )
+    {
+        this( result, false );
+    }
+
+    /**
+     * @param includePlan whether to add the execution plan of the query, as
+     * profiled queries have their measurements in it.
+     */
+    public CypherResultRepresentation( ExecutionResult result, boolean includePlan )
     {
         super( RepresentationType.STRING );
         resultRepresentation = createResultRepresentation(result);
         columns = ListRepresentation.string( result.columns() );
+        plan = includePlan ? result.executionPlanDescription() : null;
     }
 
     @Override
@@ -48,6 +59,10 @@ public class CypherResultRepresentation extends MappingRepresentation
     {
         serializer.putList( "columns", columns );
         serializer.putList( "data", resultRepresentation );
+        if ( plan != null )
+        {
+            serializer.putString( "plan", plan );
+        }
     }
 
     private ListRepresentation createResultRepresentation(ExecutionResult executionResult) {
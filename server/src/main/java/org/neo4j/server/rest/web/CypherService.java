@@ -40,6 +40,7 @@ public class CypherService {
 
     private static final String PARAMS_KEY = "params";
     private static final String QUERY_KEY = "query";
+    private static final String PROFILE_KEY = "profile";
 
     private CypherExecutor cypherExecutor;
     private OutputFormat output;
@@ -63,9 +64,12 @@ public class CypherService {
         
         String query =  (String) command.get(QUERY_KEY);
         Map<String,Object> params = (Map<String, Object>) (command.containsKey(PARAMS_KEY) ? command.get(PARAMS_KEY) : new HashMap<String, Object>());
+        boolean profile = command.containsKey(PROFILE_KEY) && Boolean.TRUE.equals(command.get(PROFILE_KEY));
         try {
-            ExecutionResult result = cypherExecutor.getExecutionEngine().execute( query, params );
-            return output.ok(new CypherResultRepresentation( result ));
+            ExecutionResult result = profile ?
+                    cypherExecutor.getExecutionEngine().profile( query, params ) :
+                    cypherExecutor.getExecutionEngine().execute( query, params );
+            return output.ok(new CypherResultRepresentation( result, profile ));
         } catch(Exception e) {
             return output.badRequest(e);
         }
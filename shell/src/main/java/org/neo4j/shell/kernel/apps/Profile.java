@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2002-2012 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.shell.kernel.apps;
+
+import java.util.Map;
+
+import org.neo4j.cypher.javacompat.ExecutionEngine;
+import org.neo4j.cypher.javacompat.ExecutionResult;
+import org.neo4j.helpers.Service;
+import org.neo4j.shell.App;
+import org.neo4j.shell.AppCommandParser;
+
+@Service.Implementation( App.class )
+public class Profile extends Start
+{
+    public Profile()
+    {
+        super();
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "Profiles a Cypher query, showing the rows, db hits and time spent in each " +
+                "step of its execution plan. Usage: profile start <rest of query>;\n" +
+                "Example: PROFILE START me = node({self}) MATCH me-[:KNOWS]->you RETURN you.name;\n" +
+                "Please, note that the query is executed, and that it must end with a semicolon.";
+    }
+
+    @Override
+    protected String getQuery( AppCommandParser parser )
+    {
+        return parser.getLineWithoutApp();
+    }
+
+    @Override
+    protected ExecutionResult execute( ExecutionEngine engine, String query, Map<String, Object> params )
+    {
+        return engine.profile( query, params );
+    }
+
+    @Override
+    protected String describe( ExecutionResult result )
+    {
+        return result.toString() + "\n" + result.executionPlanDescription();
+    }
+}
@@ -55,7 +55,7 @@ public class Start extends ReadOnlyGraphDatabaseApp
     protected Continuation exec( AppCommandParser parser, Session session, Output out )
         throws ShellException, RemoteException
     {
-        String query = parser.getLine();
+        String query = getQuery( parser );
 
         if ( isComplete(query) )
         {
@@ -64,8 +64,8 @@ public class Start extends ReadOnlyGraphDatabaseApp
             ExecutionEngine engine = new ExecutionEngine( getServer().getDb() );
             try
             {
-                ExecutionResult result = engine.execute( queryWithoutSemicolon, getParameters( session ) );
-                out.println( result.toString() );
+                ExecutionResult result = execute( engine, queryWithoutSemicolon, getParameters( session ) );
+                out.println( describe( result ) );
             }
             catch ( CypherException e )
             {
@@ -79,6 +79,21 @@ public class Start extends ReadOnlyGraphDatabaseApp
         }
     }
 
+    protected String getQuery( AppCommandParser parser )
+    {
+        return parser.getLine();
+    }
+
+    protected ExecutionResult execute( ExecutionEngine engine, String query, Map<String, Object> params )
+    {
+        return engine.execute( query, params );
+    }
+
+    protected String describe( ExecutionResult result )
+    {
+        return result.toString();
+    }
+
     private Map<String, Object> getParameters( Session session ) throws ShellException
     {
         Map<String, Object> params = new HashMap<String, Object>();